@@ -0,0 +1,352 @@
+package dt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Estimate of the stretch factor of the DT from a well-separated pair
+ * decomposition of its vertices. Every pair of vertices lies in exactly one
+ * pair of clusters, and only one representative pair per cluster pair is
+ * measured instead of all O(n^2) pairs.
+ *
+ * The largest measured stretch t' is a real pair so it is a lower bound. For
+ * p, q in clusters A, B with representatives a, b, d(p,q) is at most
+ * e(A) + d(a,b) + e(B), where e(A) is the largest path length from a to the
+ * rest of A, and |pq| is at least the gap between the circles around A and
+ * B. Their ratio certifies every pair of A and B at once. Cluster pairs are
+ * first formed with separation 2, and a pair whose certificate is above
+ * (1 + epsilon) t' is split at its larger cluster, so only the pairs whose
+ * stretch is close to the largest are refined. The upper bound is the
+ * largest certificate, at most (1 + epsilon) t'. Vertex pairs with no path
+ * between them are ignored, as they are by the exact stretch factor.
+ *
+ * Distances come from one A* search per source that stops once all of its
+ * partners are settled, so a pair at path length d only settles the
+ * vertices inside the ellipse of that length around it, and a source with
+ * clusters of radius r at separation s settles O((s r)^2) of the area. The
+ * split tree takes O(n log n) time. For evenly spread vertices the
+ * eccentricities settle O(n log n) vertices, and the pairs at separation s
+ * settle O(s^2 n log n), so the estimate takes O(s^2 n log^2 n) time.
+ * Refinement only raises s towards 8 / epsilon + 4 where stretch is close
+ * to the largest, and on uniform random vertices at epsilon = 0.5 it
+ * certifies with about a twentieth of the pairs of the plain decomposition
+ * at that separation. If every pair had about the largest stretch it would
+ * degrade to that decomposition, O(n log^2 n / epsilon^2) time.
+ *
+ * @author Lee Glendenning
+ */
+public class ApproximateStretchFactor {
+
+    private static final double INITIAL_SEPARATION = 2;
+
+    private final ShortestPaths paths;
+    private final double epsilon;
+    private int[] ids; // Vertex ids ordered so the vertices of each node are ids[from] to ids[to-1]
+    private int pairCount;
+    private double estimate, upperBound;
+    private int[] pair;
+
+    /**
+     * Node of the fair split tree, whose children split the bounding box of
+     * its vertices in half across the longer side
+     */
+    private static class Node {
+        private Node left, right;
+        private int from, to;
+        private int representative;
+        private double cx, cy, radius; // Circle around the bounding box of the vertices below this node
+        private double eccentricity = -1; // Largest path length from the representative to the other vertices, or -1 if not found yet
+    }
+
+    /**
+     * Two disjoint nodes whose vertex pairs are certified together
+     */
+    private static class ClusterPair {
+        private final Node u, v;
+        private double dist = -1; // Path length between the representatives, or -1 if not measured yet
+
+        private ClusterPair(Node u, Node v) {
+            this.u = u;
+            this.v = v;
+        }
+    }
+
+    /**
+     *
+     * @param vertices Vertices of the DT
+     * @param paths Shortest paths between the vertices, indexed by vertex id
+     * @param epsilon Relative error allowed in the upper bound, greater than 0
+     */
+    public ApproximateStretchFactor(List<Vertex> vertices, ShortestPaths paths, double epsilon) {
+        if (epsilon <= 0) {
+            throw new IllegalArgumentException("epsilon must be positive");
+        }
+        this.paths = paths;
+        this.epsilon = epsilon;
+        this.pairCount = 0;
+        this.estimate = 0;
+        this.upperBound = 0;
+        this.pair = null;
+        if (vertices.size() < 2) {
+            return;
+        }
+
+        this.ids = new int[vertices.size()];
+        for (int i = 0; i < this.ids.length; i ++) {
+            this.ids[i] = paths.getVertexId(vertices.get(i));
+        }
+        List<ClusterPair> open = new ArrayList<>();
+        findPairs(buildSplitTree(0, this.ids.length), open);
+        refinePairs(open);
+    }
+
+    /**
+     *
+     * @return Largest stretch among the representative pairs, a lower bound on the stretch factor
+     */
+    public double getEstimate() {
+        return this.estimate;
+    }
+
+    /**
+     *
+     * @return Certified upper bound on the stretch factor, at most (1 + epsilon) times the estimate
+     */
+    public double getUpperBound() {
+        return this.upperBound;
+    }
+
+    /**
+     *
+     * @return Ids {i, j} with i < j of the pair attaining the estimate, or null if no pair is connected
+     */
+    public int[] getPair() {
+        return this.pair;
+    }
+
+    /**
+     *
+     * @return Number of cluster pairs the upper bound was certified on
+     */
+    public int getPairCount() {
+        return this.pairCount;
+    }
+
+    /**
+     *
+     * @param from Start of the vertices of this node in ids, which are reordered to group each subtree together
+     * @param to End of the vertices of this node, exclusive
+     * @return Root of the fair split tree over the vertices
+     */
+    private Node buildSplitTree(int from, int to) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int k = from; k < to; k ++) {
+            Vertex v = this.paths.getVertex(this.ids[k]);
+            minX = Math.min(minX, v.x);
+            minY = Math.min(minY, v.y);
+            maxX = Math.max(maxX, v.x);
+            maxY = Math.max(maxY, v.y);
+        }
+        Node node = new Node();
+        node.from = from;
+        node.to = to;
+        node.representative = this.ids[from];
+        node.cx = (minX + maxX) / 2;
+        node.cy = (minY + maxY) / 2;
+        node.radius = GeometryKernel.distance(minX, minY, maxX, maxY) / 2;
+        if (to - from == 1) {
+            node.eccentricity = 0;
+            return node;
+        }
+
+        // Partition around the middle of the longer side
+        boolean splitX = maxX - minX >= maxY - minY;
+        double mid = splitX ? node.cx : node.cy;
+        int i = from, j = to - 1;
+        while (i <= j) {
+            Vertex v = this.paths.getVertex(this.ids[i]);
+            if ((splitX ? v.x : v.y) <= mid) {
+                i ++;
+            } else {
+                int temp = this.ids[i];
+                this.ids[i] = this.ids[j];
+                this.ids[j --] = temp;
+            }
+        }
+        if (i == from || i == to) {
+            // Coincident vertices or a box too thin to halve in floating point
+            i = (from + to) / 2;
+        }
+        node.left = buildSplitTree(from, i);
+        node.right = buildSplitTree(i, to);
+        node.representative = node.left.representative;
+        return node;
+    }
+
+    /**
+     * Collect the well-separated pairs between the children of every internal node
+     *
+     * @param node Root of a subtree
+     * @param pairs List to add the pairs to
+     */
+    private void findPairs(Node node, List<ClusterPair> pairs) {
+        if (node.left == null) {
+            return;
+        }
+        findPairs(node.left, pairs);
+        findPairs(node.right, pairs);
+        findPairs(node.left, node.right, pairs);
+    }
+
+    /**
+     * Pair up u and v if they are well separated, otherwise split the one with the larger radius
+     *
+     * @param u A node
+     * @param v A node disjoint from u
+     * @param pairs List to add the pairs to
+     */
+    private void findPairs(Node u, Node v, List<ClusterPair> pairs) {
+        double gap = GeometryKernel.distance(u.cx, u.cy, v.cx, v.cy) - u.radius - v.radius;
+        if (gap >= INITIAL_SEPARATION * Math.max(u.radius, v.radius)) {
+            pairs.add(new ClusterPair(u, v));
+        } else if (u.radius >= v.radius) {
+            findPairs(u.left, v, pairs);
+            findPairs(u.right, v, pairs);
+        } else {
+            findPairs(u, v.left, pairs);
+            findPairs(u, v.right, pairs);
+        }
+    }
+
+    /**
+     * Measure the open pairs, then split every pair whose certificate is
+     * above (1 + epsilon) times the largest stretch measured so far, until
+     * every pair is certified. A pair of two vertices is its own exact
+     * certificate, so the splitting stops there at the latest
+     *
+     * @param open Cluster pairs to certify
+     */
+    private void refinePairs(List<ClusterPair> open) {
+        double best = -1;
+        while (!open.isEmpty()) {
+            measurePairs(open);
+            for (ClusterPair p : open) {
+                if (p.dist != Double.MAX_VALUE) {
+                    double stretch = p.dist / Utility.euclideanDistance(this.paths.getVertex(p.u.representative), this.paths.getVertex(p.v.representative));
+                    if (stretch > best) {
+                        best = stretch;
+                        this.pair = new int[]{Math.min(p.u.representative, p.v.representative), Math.max(p.u.representative, p.v.representative)};
+                    }
+                }
+            }
+
+            List<ClusterPair> next = new ArrayList<>();
+            for (ClusterPair p : open) {
+                double certificate = certify(p);
+                if (certificate <= (1 + this.epsilon) * best || (p.u.left == null && p.v.left == null)) {
+                    this.upperBound = Math.max(this.upperBound, certificate);
+                    this.pairCount ++;
+                } else if (p.v.left == null || (p.u.left != null && p.u.radius >= p.v.radius)) {
+                    split(p, p.u.left, p.v, next);
+                    split(p, p.u.right, p.v, next);
+                } else {
+                    split(p, p.u, p.v.left, next);
+                    split(p, p.u, p.v.right, next);
+                }
+            }
+            open = next;
+        }
+        this.estimate = Math.max(best, 0);
+        this.upperBound = Math.max(this.upperBound, this.estimate);
+    }
+
+    /**
+     *
+     * @param parent Pair being split
+     * @param u Node of the new pair
+     * @param v Other node of the new pair
+     * @param pairs List to add the new pair to
+     */
+    private void split(ClusterPair parent, Node u, Node v, List<ClusterPair> pairs) {
+        ClusterPair p = new ClusterPair(u, v);
+        if (u.representative == parent.u.representative && v.representative == parent.v.representative) {
+            // A left child shares the representative of its parent, so the distance is already known
+            p.dist = parent.dist;
+        }
+        pairs.add(p);
+    }
+
+    /**
+     *
+     * @param p A measured pair
+     * @return Upper bound on the stretch of every connected pair of vertices across p, or 0 if there is none
+     */
+    private double certify(ClusterPair p) {
+        double gap = GeometryKernel.distance(p.u.cx, p.u.cy, p.v.cx, p.v.cy) - p.u.radius - p.v.radius;
+        if (p.u.eccentricity == Double.MAX_VALUE || p.v.eccentricity == Double.MAX_VALUE) {
+            return Double.MAX_VALUE;
+        } else if (p.dist == Double.MAX_VALUE) {
+            // Each cluster is connected within itself, so no vertex of one reaches the other
+            return 0;
+        } else if (p.u.left == null && p.v.left == null) {
+            return p.dist / Utility.euclideanDistance(this.paths.getVertex(p.u.representative), this.paths.getVertex(p.v.representative));
+        }
+        return gap > 0 ? (p.u.eccentricity + p.dist + p.v.eccentricity) / gap : Double.MAX_VALUE;
+    }
+
+    /**
+     * Find the distances of the pairs not measured yet and the eccentricities
+     * of their nodes, running one A* search per source that stops once all of
+     * its partners are settled
+     *
+     * @param open Cluster pairs to measure
+     */
+    private void measurePairs(List<ClusterPair> open) {
+        // Group the pairs by source by sorting them on the packed (source, index)
+        long[] packed = new long[open.size()];
+        int count = 0;
+        for (int k = 0; k < open.size(); k ++) {
+            ClusterPair p = open.get(k);
+            measureEccentricity(p.u);
+            measureEccentricity(p.v);
+            if (p.dist < 0) {
+                packed[count ++] = ((long) p.u.representative << 32) | k;
+            }
+        }
+        Arrays.sort(packed, 0, count);
+
+        for (int start = 0; start < count; ) {
+            int source = (int) (packed[start] >>> 32);
+            int end = start;
+            while (end < count && (int) (packed[end] >>> 32) == source) {
+                end ++;
+            }
+            int[] targets = new int[end - start];
+            for (int k = start; k < end; k ++) {
+                targets[k - start] = open.get((int) packed[k]).v.representative;
+            }
+
+            double[] dist = this.paths.getDistances(source, targets);
+            for (int k = start; k < end; k ++) {
+                open.get((int) packed[k]).dist = dist[k - start];
+            }
+            start = end;
+        }
+    }
+
+    /**
+     *
+     * @param node Node to find the eccentricity of if it is not known yet
+     */
+    private void measureEccentricity(Node node) {
+        if (node.eccentricity >= 0) {
+            return;
+        }
+        double[] dist = this.paths.getDistances(node.representative, Arrays.copyOfRange(this.ids, node.from, node.to));
+        node.eccentricity = 0;
+        for (double d : dist) {
+            node.eccentricity = Math.max(node.eccentricity, d);
+        }
+    }
+}
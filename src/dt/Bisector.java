@@ -50,26 +50,18 @@ public class Bisector {
     
     /**
      * 
-     * @return Deep copy of adjacent vertices array as an ArrayList
+     * @return Copy of adjacent vertices array as an ArrayList
      */
     public List<Vertex> getAdjacentPtsList() {
-        ArrayList<Vertex> adjCopy = new ArrayList();
-        for (int i = 0; i < this.adjacentVertices.size(); i ++) {
-            adjCopy.add(new Vertex(this.adjacentVertices.get(i).x, this.adjacentVertices.get(i).y));
-        }
-        return adjCopy;
+        return new ArrayList(this.adjacentVertices);
     }
     
     /**
      * 
-     * @return Deep copy of adjacent vertices array
+     * @return Copy of adjacent vertices array
      */
     public Vertex[] getAdjacentPtsArray() {
-        Vertex[] adjCopy = new Vertex[this.adjacentVertices.size()];
-        for (int i = 0; i < this.adjacentVertices.size(); i ++) {
-            adjCopy[i] = new Vertex(this.adjacentVertices.get(i).x, this.adjacentVertices.get(i).y);
-        }
-        return adjCopy;
+        return this.adjacentVertices.toArray(new Vertex[this.adjacentVertices.size()]);
     }
     
     /**
@@ -85,11 +77,7 @@ public class Bisector {
      * @return start Vertex
      */
     public Vertex getStartVertex() {
-        if (this.startVertex == null) {
-            return null;
-        } else {
-            return this.startVertex.deepCopy();
-        }
+        return this.startVertex;
     }
     
     /**
@@ -97,31 +85,15 @@ public class Bisector {
      * @return end Vertex
      */
     public Vertex getEndVertex() {
-        if (this.endVertex == null) {
-            return null;
-        } else {
-            return this.endVertex.deepCopy();
-        }
+        return this.endVertex;
     }
     
     /**
      * 
-     * @return Deep copy of this VoronoiBisector
+     * @return Copy of this VoronoiBisector, sharing its vertices since they cannot change
      */
     public Bisector deepCopy() {
-        Vertex tempStart, tempEnd;
-        if (this.startVertex == null) {
-            tempStart = null;
-        } else {
-            tempStart = this.startVertex.deepCopy();
-        }
-        if (this.endVertex == null) {
-            tempEnd = null;
-        } else {
-            tempEnd = this.endVertex.deepCopy();
-        }
-        Bisector copy = new Bisector(Utility.deepCopyVertexArray(this.getAdjacentPtsArray()), 
-                tempStart, tempEnd, this.tag);
+        Bisector copy = new Bisector(this.getAdjacentPtsArray(), this.startVertex, this.endVertex, this.tag);
         copy.setMinQuadScale(this.minQuadScale);
         
         return copy;
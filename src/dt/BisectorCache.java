@@ -0,0 +1,229 @@
+package dt;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache of bisectors between two sites, keyed
+ * by the quadrilateral and the unordered pair of sites. A B2S only depends
+ * on those, so it stays valid until one of its sites is removed or the quad
+ * changes. Each pair keeps one entry per order of the sites since the order
+ * decides the order of the bisectors in the list
+ *
+ * @author Lee Glendenning
+ */
+public class BisectorCache {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final LinkedHashMap<Key, Entry[]> entries;
+    private int capacity;
+    private long hits, misses;
+
+    /**
+     * Bisectors found for the sites in one order, with the h1, h2, g1 and g2
+     * vertices found along the way so they can still be shown
+     */
+    public static class Entry {
+        private final List<Bisector> bisectors;
+        private final Vertex[] hg;
+
+        /**
+         *
+         * @param bisectors Bisectors found for the sites, which must not be modified afterwards
+         * @param hg {h1, h2, g1, g2} found for the sites, or null if none were
+         */
+        public Entry(List<Bisector> bisectors, Vertex[] hg) {
+            this.bisectors = bisectors;
+            this.hg = hg;
+        }
+
+        /**
+         *
+         * @return Bisectors found for the sites
+         */
+        public List<Bisector> getBisectors() {
+            return this.bisectors;
+        }
+
+        /**
+         *
+         * @return {h1, h2, g1, g2} found for the sites, or null if none were
+         */
+        public Vertex[] getHgVertices() {
+            return this.hg;
+        }
+    }
+
+    /**
+     * Unordered pair of sites under a quad, compared by quad identity and exact coordinates
+     */
+    private static class Key {
+        private final Quadrilateral quad;
+        private final double x1, y1, x2, y2; // Lexicographically smaller site first
+
+        private Key(Quadrilateral quad, Vertex p1, Vertex p2) {
+            this.quad = quad;
+            if (isFirst(p1, p2)) {
+                this.x1 = p1.x;
+                this.y1 = p1.y;
+                this.x2 = p2.x;
+                this.y2 = p2.y;
+            } else {
+                this.x1 = p2.x;
+                this.y1 = p2.y;
+                this.x2 = p1.x;
+                this.y2 = p1.y;
+            }
+        }
+
+        private boolean contains(Vertex v) {
+            return (this.x1 == v.x && this.y1 == v.y) || (this.x2 == v.x && this.y2 == v.y);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) other;
+            return this.quad == k.quad && this.x1 == k.x1 && this.y1 == k.y1 && this.x2 == k.x2 && this.y2 == k.y2;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(this.quad);
+            hash = 31 * hash + Double.hashCode(this.x1);
+            hash = 31 * hash + Double.hashCode(this.y1);
+            hash = 31 * hash + Double.hashCode(this.x2);
+            hash = 31 * hash + Double.hashCode(this.y2);
+            return hash;
+        }
+    }
+
+    /**
+     * Empty constructor creates a cache holding DEFAULT_CAPACITY site pairs
+     */
+    public BisectorCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     *
+     * @param capacity Max number of site pairs to keep
+     */
+    public BisectorCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, Entry[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry[]> eldest) {
+                return size() > BisectorCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     *
+     * @param quad Quadrilateral the bisector was found for
+     * @param p1 First site
+     * @param p2 Second site
+     * @return Entry found for p1 and p2 in this order, or null if it is not cached
+     */
+    public Entry get(Quadrilateral quad, Vertex p1, Vertex p2) {
+        Entry[] entries = this.entries.get(new Key(quad, p1, p2));
+        Entry entry = entries == null ? null : entries[isFirst(p1, p2) ? 0 : 1];
+        if (entry == null) {
+            this.misses ++;
+        } else {
+            this.hits ++;
+        }
+        return entry;
+    }
+
+    /**
+     *
+     * @param quad Quadrilateral the bisector was found for
+     * @param p1 First site
+     * @param p2 Second site
+     * @param entry Entry found for p1 and p2 in this order
+     */
+    public void put(Quadrilateral quad, Vertex p1, Vertex p2, Entry entry) {
+        Key key = new Key(quad, p1, p2);
+        Entry[] entries = this.entries.get(key);
+        if (entries == null) {
+            entries = new Entry[2];
+            this.entries.put(key, entries);
+        }
+        entries[isFirst(p1, p2) ? 0 : 1] = entry;
+    }
+
+    /**
+     * Drop every pair that v is a site of
+     *
+     * @param v Removed site
+     */
+    public void invalidate(Vertex v) {
+        Iterator<Key> it = this.entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().contains(v)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop every pair, for when the quad changes
+     */
+    public void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     *
+     * @param capacity Max number of site pairs to keep, least recently used ones are dropped first
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        Iterator<Key> it = this.entries.keySet().iterator();
+        while (this.entries.size() > capacity) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     *
+     * @return Number of site pairs cached
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     *
+     * @return Number of lookups that found the bisectors
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     *
+     * @return Number of lookups that did not find the bisectors
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     *
+     * @param p1 A site
+     * @param p2 Another site
+     * @return True if p1 comes before p2 ordering by x then y
+     */
+    private static boolean isFirst(Vertex p1, Vertex p2) {
+        return p1.x < p2.x || (p1.x == p2.x && p1.y < p2.y);
+    }
+}
@@ -0,0 +1,129 @@
+package dt;
+
+/**
+ * Combinatorial shape of the bisector between two sites for one angular
+ * interval of a quad. Within an interval the vertex order along the line
+ * through the sites is fixed, so it is also fixed which quad edges the lines
+ * through the inner vertices cross, on which side of those crossings the
+ * inner vertices lie and which vertices the outer rays are parallel to.
+ * Instantiating the template for two sites only has to slide the crossings
+ * along their known edges, with no rotation, sorting or edge search
+ *
+ * @author Lee Glendenning
+ */
+public class BisectorTemplate {
+
+    private final Vertex[] vertices; // Shared with the QuadProfile, not modified
+    private final int hInner, hEdgeStart, hEdgeEnd, gInner, gEdgeStart, gEdgeEnd;
+    private final boolean hInnerRight, gInnerRight; // True if the inner vertex is right of the edge crossing
+    private final int lowVertex, highVertex;
+
+    /**
+     *
+     * @param vertices Vertices of the quad in clockwise order
+     * @param order Vertex indices in ascending rotated y, with no ties, for every slope in the interval
+     * @param slope A slope in the interval
+     */
+    public BisectorTemplate(Vertex[] vertices, int[] order, double slope) {
+        this.vertices = vertices;
+        this.lowVertex = order[0];
+        this.highVertex = order[3];
+
+        // The quad boundary splits into two chains between the lowest and highest vertex.
+        // The line through an inner vertex crosses the chain it is not on
+        boolean sameChain = onForwardChain(order[1]) == onForwardChain(order[2]);
+        this.hInner = order[1];
+        this.hEdgeStart = order[0];
+        this.hEdgeEnd = sameChain ? order[3] : order[2];
+        this.gInner = order[2];
+        this.gEdgeStart = sameChain ? order[0] : order[1];
+        this.gEdgeEnd = order[3];
+
+        // Rotated y grows along (t, 1) and rotated x along (1, -t)
+        double[] direction = {slope, 1};
+        Vertex hCrossing = crossing(this.hInner, this.hEdgeStart, this.hEdgeEnd, direction);
+        Vertex gCrossing = crossing(this.gInner, this.gEdgeStart, this.gEdgeEnd, direction);
+        this.hInnerRight = (vertices[this.hInner].x - hCrossing.x) - (vertices[this.hInner].y - hCrossing.y) * slope > 0;
+        this.gInnerRight = (vertices[this.gInner].x - gCrossing.x) - (vertices[this.gInner].y - gCrossing.y) * slope > 0;
+    }
+
+    /**
+     * Find the vertices the bisector rays from a1 and a2 go through, as
+     * findh12g12 in FindBisectorsTwoSites does by searching the quad edges
+     *
+     * @param a1 Left site
+     * @param a2 Right site
+     * @param center Center of the quad
+     * @param direction {sin, cos} from QuadProfile.getDirection for a1 and a2
+     * @return {h1, h2, g1, g2}, the vertices on the rays from a1 and a2 towards h and from a1 and a2 towards g
+     */
+    public Vertex[] findh12g12(Vertex a1, Vertex a2, Vertex center, double[] direction) {
+        Vertex hInnerVertex = this.vertices[this.hInner];
+        Vertex hCross = crossing(this.hInner, this.hEdgeStart, this.hEdgeEnd, direction);
+        Vertex gInnerVertex = this.vertices[this.gInner];
+        Vertex gCross = crossing(this.gInner, this.gEdgeStart, this.gEdgeEnd, direction);
+        return new Vertex[]{
+            place(a1, this.hInnerRight ? hInnerVertex : hCross, center),
+            place(a2, this.hInnerRight ? hCross : hInnerVertex, center),
+            place(a1, this.gInnerRight ? gInnerVertex : gCross, center),
+            place(a2, this.gInnerRight ? gCross : gInnerVertex, center)};
+    }
+
+    /**
+     *
+     * @return Index of the quad vertex with the least rotated y, whose direction from the center the ray from h follows
+     */
+    public int getLowVertex() {
+        return this.lowVertex;
+    }
+
+    /**
+     *
+     * @return Index of the quad vertex with the greatest rotated y, whose direction from the center the ray from g follows
+     */
+    public int getHighVertex() {
+        return this.highVertex;
+    }
+
+    /**
+     *
+     * @param i Index of a quad vertex between the lowest and highest
+     * @return True if i comes before the highest vertex going forward from the lowest
+     */
+    private boolean onForwardChain(int i) {
+        for (int j = (this.lowVertex + 1) % this.vertices.length; j != this.highVertex; j = (j + 1) % this.vertices.length) {
+            if (j == i) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @param inner Index of an inner vertex
+     * @param start Index of the lower end of the edge crossed
+     * @param end Index of the upper end of the edge crossed
+     * @param direction Vector along which rotated y grows, any length
+     * @return Point of the edge with the same rotated y as the inner vertex
+     */
+    private Vertex crossing(int inner, int start, int end, double[] direction) {
+        Vertex v = this.vertices[inner], p = this.vertices[start], q = this.vertices[end];
+        double hv = v.x * direction[0] + v.y * direction[1];
+        double hp = p.x * direction[0] + p.y * direction[1];
+        double hq = q.x * direction[0] + q.y * direction[1];
+        double mu = (hv - hp) / (hq - hp);
+        return new Vertex(p.x + mu * (q.x - p.x), p.y + mu * (q.y - p.y));
+    }
+
+    /**
+     *
+     * @param a A site
+     * @param v A point on the quad
+     * @param center Center of the quad
+     * @return v translated so the quad center is at a
+     */
+    private static Vertex place(Vertex a, Vertex v, Vertex center) {
+        return new Vertex(a.x + v.x - center.x, a.y + v.y - center.y);
+    }
+}
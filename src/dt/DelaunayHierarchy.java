@@ -0,0 +1,184 @@
+package dt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Devillers style Delaunay hierarchy used to locate the triangle containing a new vertex.
+ * Level 0 is the Graph of the Delaunay triangulation. Every level above holds a random
+ * sample of the level below, triangulated with Euclidean Delaunay flips. A query walks
+ * each level starting from the vertex found on the level above, so location takes
+ * O(log n) expected time even on clustered input
+ * 
+ * @author Lee Glendenning
+ */
+public class DelaunayHierarchy {
+    
+    private static final int RATIO = 30; // A vertex is promoted to the next level with probability 1/RATIO
+    private static final int MAX_LEVELS = 5;
+    
+    private final Graph base;
+    private final List<Graph> levels; // levels.get(k) is level k+1
+    private final List<int[]> below; // below.get(k)[id] is the id on level k of the level k+1 vertex with that id
+    private final Random random;
+    
+    /**
+     * 
+     * @param base Graph of the Delaunay triangulation (level 0)
+     */
+    public DelaunayHierarchy(Graph base) {
+        this.base = base;
+        this.levels = new ArrayList<>();
+        this.below = new ArrayList<>();
+        this.random = new Random(0); // Fixed seed so the same input always builds the same hierarchy
+    }
+    
+    /**
+     * Walk down the hierarchy from the top level to level 0
+     * 
+     * @param v Vertex to locate
+     * @return Array of vertices in the Delaunay triangulation containing v as returned by Graph.locateTriangle
+     */
+    public Vertex[] locateTriangle(Vertex v) {
+        Vertex start = null;
+        for (int k = this.levels.size()-1; k >= 0; k --) {
+            start = descend(k, this.levels.get(k).locateTriangle(v, start), v);
+        }
+        return this.base.locateTriangle(v, start);
+    }
+    
+    /**
+     * Promote a vertex already added to the Delaunay triangulation to a random number of levels
+     * 
+     * @param v Vertex added to level 0
+     */
+    public void addVertex(Vertex v) {
+        int vLevel = 0;
+        while (vLevel < MAX_LEVELS && this.random.nextInt(RATIO) == 0) {
+            vLevel ++;
+        }
+        if (vLevel == 0) {
+            return;
+        }
+        while (this.levels.size() < vLevel) {
+            addLevel();
+        }
+        
+        // Locate v on every level before inserting it anywhere
+        Vertex[][] triangles = new Vertex[this.levels.size()][];
+        Vertex start = null;
+        for (int k = this.levels.size()-1; k >= 0; k --) {
+            triangles[k] = this.levels.get(k).locateTriangle(v, start);
+            start = descend(k, triangles[k], v);
+        }
+        
+        int lowerId = this.base.getVertexId(v);
+        for (int k = 0; k < vLevel; k ++) {
+            if (triangles[k] == null) {
+                // v is on an edge of this level that cannot be split so stop promoting it
+                if (Utility.debugMode) {
+                    Utility.debugPrintln("[DelaunayHierarchy] Vertex not promoted to level " + (k+1));
+                }
+                return;
+            }
+            // Vertices only hold coordinates, so the same v goes into every level with its own id there
+            insertVertex(this.levels.get(k), v, triangles[k]);
+            int levelId = this.levels.get(k).getVertexId(v);
+            setBelow(k, levelId, lowerId);
+            lowerId = levelId;
+        }
+    }
+    
+    /**
+     * 
+     * @return Number of levels above the Delaunay triangulation
+     */
+    public int getLevelCount() {
+        return this.levels.size();
+    }
+    
+    /**
+     * Add an empty level on top of the hierarchy
+     */
+    private void addLevel() {
+        this.levels.add(new Graph(this.base.isIntegerGrid()));
+        this.below.add(new int[16]);
+    }
+    
+    /**
+     * Vertices are matched across levels by id, which is an array lookup
+     * instead of a search of the level below by coordinates
+     * 
+     * @param k Index of the upper level
+     * @param id Id of a vertex on level k+1
+     * @param lowerId Id of the same vertex on level k
+     */
+    private void setBelow(int k, int id, int lowerId) {
+        int[] ids = this.below.get(k);
+        if (id >= ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(id + 1, 2 * ids.length));
+            this.below.set(k, ids);
+        }
+        ids[id] = lowerId;
+    }
+    
+    /**
+     * 
+     * @param k Index of the level that was just walked
+     * @param triangle Triangle found on that level, or the quad around the edge v is on
+     * @param v Vertex being located
+     * @return Vertex on the level below closest to v out of the finite triangle vertices, or null if the triangle was not found
+     */
+    private Vertex descend(int k, Vertex[] triangle, Vertex v) {
+        if (triangle == null) {
+            return null;
+        }
+        Graph level = this.levels.get(k);
+        Vertex closest = null;
+        for (Vertex t : triangle) {
+            if (!level.isInfiniteVertex(t) && 
+                    (closest == null || Utility.euclideanDistance(t, v) < Utility.euclideanDistance(closest, v))) {
+                closest = t;
+            }
+        }
+        if (closest == null) {
+            return null;
+        }
+        Graph lower = k == 0 ? this.base : this.levels.get(k-1);
+        return lower.getVertexById(this.below.get(k)[level.getVertexId(closest)]);
+    }
+    
+    /**
+     * Connect p to its containing face and restore the Euclidean Delaunay property with edge flips
+     * 
+     * @param level Graph of an upper level
+     * @param p Vertex to insert
+     * @param triangle Vertices of the level containing p
+     */
+    private void insertVertex(Graph level, Vertex p, Vertex[] triangle) {
+        Vertex[] link = level.insertVertex(p, triangle, -1);
+        
+        // Edges to the vertex at infinity have no face across and are skipped
+        Deque<Vertex[]> suspectEdges = new ArrayDeque<>();
+        for (int i = 0; i < link.length; i ++) {
+            suspectEdges.push(new Vertex[]{link[i], link[(i+1) % link.length]});
+        }
+        while (!suspectEdges.isEmpty()) {
+            Vertex[] e = suspectEdges.pop();
+            Vertex d = level.findOppositeVertex(e[0], e[1], p);
+            if (d == null) {
+                continue;
+            }
+            double orientation = Math.signum(Utility.orientation(e[0], e[1], p));
+            if (orientation * Utility.inCircle(e[0], e[1], p, d) > 0 && level.flipEdge(new Edge(e[0], e[1]), p, d)) {
+                suspectEdges.push(new Vertex[]{e[0], d});
+                suspectEdges.push(new Vertex[]{d, e[1]});
+            }
+        }
+    }
+    
+}
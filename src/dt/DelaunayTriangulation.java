@@ -6,11 +6,17 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
@@ -22,6 +28,7 @@ import javax.swing.Timer;
 public class DelaunayTriangulation extends JPanel {
 
     private Graph dtGraph;
+    private DelaunayHierarchy hierarchy; // Used to locate the triangle containing a new vertex
     private List<Vertex> voronoiVertices; // voronoiVertices used for animation
     protected Quadrilateral quad;
     private List<Bisector> displayEdges;
@@ -31,11 +38,14 @@ public class DelaunayTriangulation extends JPanel {
     private int scaleIterations;
     private Timer timer;
     private FindBisectorsTwoSites b2s;
+    private final BisectorCache b2sCache; // Kept across reset so rebuilds with the same quad reuse B2S
     private FindBisectorsThreeSites b3s;
     private final Painter painter;
-    private double[][] shortestPaths; // Shortest path lengths between any 2 vertices in the DT
-    private Integer[][] next; // Holds shortestPaths indices for finding path between 2 vertices
-    private double stretchFactor;
+    private ShortestPaths shortestPaths; // Shortest paths between any 2 display vertices in the DT, repaired as dtGraph changes, or null until they are next queried
+    private long shortestPathMemoryLimit = 64L << 20; // Max bytes of cached shortest path rows
+    private boolean integerGrid = false; // True to snap vertices to the integer grid and triangulate with exact integer predicates
+    private double stretchFactor; // -1 while it is not tracked
+    private boolean stretchFactorTracked; // True while the stretch factor is kept up to date as vertices are added
     private final Integer[] sfVertices;
     private ArrayList<Vertex> curSelectedPath, oldSelectedPath; // Last path user has queried
     private ArrayList<int[]> performanceData;
@@ -45,7 +55,7 @@ public class DelaunayTriangulation extends JPanel {
     private boolean showB2S_hgRegion = false, showB2S_hgVertices = false, showB2S_hiddenCones = true, showB2S = false;
     private boolean showB3S_fgRegion = false, showB3S_hidden = false, showB3S = false;
     private final boolean doAnimation = false;
-    private boolean showCoordinates = true, highlightShortestPath = true, showBoundaryTriangle = true;
+    private boolean showCoordinates = true, highlightShortestPath = true;
     
     private Vertex movingVertex = null, movingVertexOldLoc = null;
     private int movingVertIndex = -1;
@@ -68,15 +78,18 @@ public class DelaunayTriangulation extends JPanel {
         this.scaleIterations = 0;
         this.curScale = 1.0;
         this.stretchFactor = 0;
+        this.stretchFactorTracked = true;
         this.sfVertices = new Integer[]{null, null};
         this.curSelectedPath = new ArrayList();
         this.oldSelectedPath = new ArrayList();
         this.chosenB3S = new ArrayList();
         this.performanceData = new ArrayList();
         this.screenSize = screenSize;
-        this.dtGraph = new Graph(this.screenSize.width, this.screenSize.height);
+        this.dtGraph = new Graph(this.integerGrid);
+        this.hierarchy = new DelaunayHierarchy(this.dtGraph);
         
-        this.b2s = new FindBisectorsTwoSites();
+        this.b2sCache = new BisectorCache();
+        this.b2s = new FindBisectorsTwoSites(this.b2sCache);
         this.b3s = new FindBisectorsThreeSites(this.getBounds().getSize().height, this.getBounds().getSize().width);
         
         addVertexSet(vertices);
@@ -87,11 +100,51 @@ public class DelaunayTriangulation extends JPanel {
     }
     
     /**
-     * Calls addVertex for initial vertex set passed to constructor
+     * Bulk build used for the initial vertex set and whenever the DT is rebuilt.
+     * Duplicates are dropped and the rest are inserted in spatially sorted
+     * randomized order so each walk starts next to the previous insertion.
+     * Only the triangulation is built. Shortest paths are dropped and built
+     * again when they are next queried, and finding the stretch factor from
+     * scratch takes one Dijkstra per vertex, so it is no longer tracked until
+     * computeStretchFactor is called
+     * 
+     * @param pts Vertices to add
      */
     private void addVertexSet(List<Vertex> pts) {
-        for (int i = 0; i < pts.size(); i ++) {
-            addVertex(pts.get(i));
+        addVertexSet(pts, null);
+    }
+    
+    /**
+     * 
+     * @param pts Vertices to add
+     * @param ids Id to give each vertex if it is free, or null to give out any free ids
+     */
+    private void addVertexSet(List<Vertex> pts, Map<Vertex, Integer> ids) {
+        dropShortestPaths();
+        List<Vertex> unique = new ArrayList<>(new LinkedHashSet<>(pts));
+        for (Vertex v : SpatialSort.brioOrder(unique, new Random(0))) {
+            insertVertex(v, ids == null ? -1 : ids.get(v));
+        }
+        
+        setStretchFactorTracked(this.dtGraph.getVertexCount() == 0);
+        repaint();
+    }
+    
+    /**
+     * Rebuild the DT from scratch, e.g. with a new quad, keeping the stretch
+     * factor tracked if it was. The vertices keep their ids
+     */
+    private void rebuild() {
+        List<Vertex> pts = this.dtGraph.getVertices();
+        Map<Vertex, Integer> ids = new HashMap<>();
+        for (Vertex v : pts) {
+            ids.put(v, this.dtGraph.getVertexId(v));
+        }
+        boolean tracked = this.stretchFactorTracked;
+        reset();
+        addVertexSet(pts, ids);
+        if (tracked) {
+            computeStretchFactor();
         }
     }
     
@@ -101,17 +154,18 @@ public class DelaunayTriangulation extends JPanel {
     public void reset() {
         this.displayEdges = Collections.synchronizedList(new ArrayList());
         this.voronoiVertices = Collections.synchronizedList(new ArrayList());
-        this.dtGraph = new Graph(this.screenSize.width, this.screenSize.height);
+        this.dtGraph = new Graph(this.integerGrid);
+        this.hierarchy = new DelaunayHierarchy(this.dtGraph);
         this.scaleIterations = 0;
         this.chosenB2S = new HashMap();
         this.chosenB3S = new ArrayList();
         this.performanceData = new ArrayList();
         this.oldSelectedPath = new ArrayList();
         this.curSelectedPath = new ArrayList();
-        this.sfVertices[0] = this.sfVertices[1] = null;
-        this.stretchFactor = 0.0;
+        dropShortestPaths();
+        setStretchFactorTracked(true);
         
-        this.b2s = new FindBisectorsTwoSites();
+        this.b2s = new FindBisectorsTwoSites(this.b2sCache);
         this.b3s = new FindBisectorsThreeSites(this.getBounds().getSize().height, this.getBounds().getSize().width);
         this.repaint();
     }
@@ -132,36 +186,70 @@ public class DelaunayTriangulation extends JPanel {
      * @param v New Vertex to add to the Delaunay triangulation
      */
     public void addVertex(Vertex v) {
-        if (this.dtGraph.getVertices().contains(v)) {
-            Utility.debugPrintln("Vertex not added. Already exists.");
+        if (!insertVertex(v, -1)) {
             return;
         }
-        Utility.debugPrintln("Adding vertex " + v + "\n");
         
-        Vertex[] triangle = this.dtGraph.locateTriangle(v);
-        if (triangle == null) {
-            Utility.debugPrintln("Skipping adding vertex because it is on a line.");
-            return;
+        // Shortest paths were repaired as edges changed, so only the stretch factor is left
+        updateShortestPaths();
+        
+        Utility.debugPrintln("");
+        repaint();
+    }
+    
+    /**
+     * Triangulate v without updating shortest paths or the display
+     * 
+     * @param v New Vertex to add to the Delaunay triangulation
+     * @param id Id to give v if it is free, e.g. to keep the id it had before a rebuild, or -1 for any free id
+     * @return True if v was added, false if it already exists or lies on an edge that cannot be split
+     */
+    private boolean insertVertex(Vertex v, int id) {
+        if (this.integerGrid) {
+            v = IntegerGrid.snap(v);
+            if (v == null) {
+                Utility.debugPrintln("Vertex not added. Outside the integer grid.");
+                return false;
+            }
+        }
+        if (this.dtGraph.containsVertex(v)) {
+            Utility.debugPrintln("Vertex not added. Already exists.");
+            return false;
+        }
+        if (Utility.debugMode) {
+            Utility.debugPrintln("Adding vertex " + v + "\n");
         }
-        Utility.debugPrintln("V contained by vertices: " + Arrays.toString(triangle));
         
-        // Connect new vertex with all vertices in the located triangle
-        this.dtGraph.addVertex(v);
-        for (Vertex tVert : triangle) {
-            this.dtGraph.addEdge(v, tVert);
+        Vertex[] container = this.hierarchy.locateTriangle(v);
+        if (container == null) {
+            Utility.debugPrintln("Skipping adding vertex because it is on an edge that cannot be split.");
+            return false;
+        }
+        if (Utility.debugMode) {
+            Utility.debugPrintln("V contained by vertices: " + Arrays.toString(container));
         }
         
-        // Faces to calculate B3S for and check minQuad
-        Vertex[][] faces = findQuestionableFaces(v, triangle);
-        Utility.debugPrintln("Questionable faces:");
-        for (Vertex[] face : faces) {
-            Utility.debugPrintln("  " + Arrays.toString(face));
+        // Connect new vertex with all vertices in the located face, or the quad
+        // around the edge it is on. Outside the convex hull it is also joined to
+        // the hull vertices it sees
+        Vertex[] link = this.dtGraph.insertVertex(v, container, id);
+        
+        // Faces to calculate B3S for, whose min quads are shown
+        Vertex[][] faces = findQuestionableFaces(v, link);
+        if (Utility.debugMode) {
+            Utility.debugPrintln("Questionable faces:");
+            for (Vertex[] face : faces) {
+                Utility.debugPrintln("  " + Arrays.toString(face));
+            }
         }
         
-        HashMap<List<Vertex>, List<Bisector>> bisectors2S = calculateB2S(faces);
-        this.chosenB2S = bisectors2S;
-        List<Bisector> bisectors3S;
-        bisectors3S = calculateB3S(faces, bisectors2S);
+        // The B2S and B3S polylines are only built when they are drawn, and only for quads
+        if ((this.showB2S || this.showB2S_hgVertices || this.showB3S || this.showB3S_fgRegion) && this.quad.getVertexCount() == 4) {
+            traceBisectors(faces);
+        } else {
+            this.chosenB2S = new HashMap();
+        }
+        List<Bisector> bisectors3S = calculateB3S(faces);
         Utility.debugPrintln("");
         
         this.chosenB3S = new ArrayList();
@@ -173,101 +261,45 @@ public class DelaunayTriangulation extends JPanel {
             }
         }
         
-        checkForBadEdges(v, bisectors3S); // If necessary, flip bad edges
-        
-        // Calculate all pairs shortest paths and stretch factor of the DT
-        updateShortestPaths();
-        
-        Utility.debugPrintln("");
-        repaint();
+        // While all vertices are on one line they form a path of Delaunay edges
+        if (link.length > 0) {
+            flipBadEdges(v, link); // If necessary, flip bad edges
+            updateLiveEdges(v);
+        }
+        this.hierarchy.addVertex(v);
+        return true;
     }
     
     /**
      * 
      * @param v Newly triangulated vertex
-     * @param vContainerFace Vertices containing v
+     * @param vContainerFace Neighbours of v counter clockwise, the triangle or quad containing it if it is inside the convex hull
      * @return Array of faces that should be checked with empty quad
      */
     private Vertex[][] findQuestionableFaces(Vertex v, Vertex[] vContainerFace) {
-        Vertex[][] faces = new Vertex[6][3];
-        
-        // 3 Faces adjacent to v
-        faces[0] = new Vertex[]{v, vContainerFace[0], vContainerFace[1]};
-        faces[1] = new Vertex[]{v, vContainerFace[1], vContainerFace[2]};
-        faces[2] = new Vertex[]{v, vContainerFace[2], vContainerFace[0]};
-        
-        // 3 Faces commonly adjacent to vContainerFace
-        List<Vertex> commonVerts = intersectVertexSets(vContainerFace[0].getNeighbours(), vContainerFace[1].getNeighbours());
-        Vertex closest = closestVertex(vContainerFace[0], vContainerFace[1], commonVerts, new Vertex[]{v, vContainerFace[2]});
-        if (closest == null) {
-            faces[3] = null;
-        } else {
-            faces[3] = new Vertex[]{vContainerFace[0], vContainerFace[1], closest};
-        }
-        
-        commonVerts = intersectVertexSets(vContainerFace[1].getNeighbours(), vContainerFace[2].getNeighbours());
-        closest = closestVertex(vContainerFace[1], vContainerFace[2], commonVerts, new Vertex[]{v, vContainerFace[0]});
-        if (closest == null) {
-            faces[4] = null;
-        } else {
-            faces[4] = new Vertex[]{vContainerFace[1], vContainerFace[2], closest};
-        }
+        int n = vContainerFace.length;
+        Vertex[][] faces = new Vertex[2*n][3];
         
-        commonVerts = intersectVertexSets(vContainerFace[2].getNeighbours(), vContainerFace[0].getNeighbours());
-        closest = closestVertex(vContainerFace[2], vContainerFace[0], commonVerts, new Vertex[]{v, vContainerFace[1]});
-        if (closest == null) {
-            faces[5] = null;
-        } else {
-            faces[5] = new Vertex[]{vContainerFace[2], vContainerFace[0], closest};
+        // Faces adjacent to v. Infinite faces have no homothet
+        for (int i = 0; i < n; i ++) {
+            if (this.dtGraph.isInfiniteVertex(vContainerFace[i]) || this.dtGraph.isInfiniteVertex(vContainerFace[(i+1) % n])) {
+                faces[i] = null;
+            } else {
+                faces[i] = new Vertex[]{v, vContainerFace[i], vContainerFace[(i+1) % n]};
+            }
         }
         
-        return faces;
-    }
-    
-    /**
-     * 
-     * @param v1 A vertex of edge v1v2
-     * @param v2 A vertex of edge v1v2
-     * @param comparators List of vertices to compare distance to v1v2
-     * @param ignore Vertex to ignore
-     * @return Vertex having min distance to v1 and v2
-     */
-    private Vertex closestVertex(Vertex v1, Vertex v2, List<Vertex> comparators, Vertex[] ignore) {
-        Vertex closest = null;
-        for (Vertex c : comparators) {
-            if (!c.equals(ignore[0]) && !c.equals(ignore[1]) &&
-                    (closest == null || (Utility.euclideanDistance(v1, c) + Utility.euclideanDistance(v1, c)) <
-                    (Utility.euclideanDistance(v1, closest) + Utility.euclideanDistance(v2, closest)))) {
-                // Line through v1,v2 used to find the closest vertex on the side of the line opposite to v, the newly added vertex (ignore[0])
-                Vertex[] lineCheck = constructLine(v1, v2);
-                if (Utility.doLineSegmentsIntersect(lineCheck[0], lineCheck[1], ignore[0], c) != null) {
-                    closest = c;
-                }
+        // Faces across the edges of vContainerFace
+        for (int i = 0; i < n; i ++) {
+            Vertex opposite = this.dtGraph.findAdjacentFaceVertex(vContainerFace[i], vContainerFace[(i+1) % n], v);
+            if (opposite == null) {
+                faces[n+i] = null;
+            } else {
+                faces[n+i] = new Vertex[]{vContainerFace[i], vContainerFace[(i+1) % n], opposite};
             }
         }
-        return closest;
-    }
-    
-    /**
-     * 
-     * @param v1 A vertex of a line segment
-     * @param v2 A vertex of a line segment
-     * @return Line through the line segment v1,v2
-     */
-    private Vertex[] constructLine(Vertex v1, Vertex v2) {
-        double rayEndx = Utility.RAY_SIZE;
-        if (v1.x > v2.x || (v1.x == v2.x && v1.y > v2.y)) {
-            rayEndx = -Utility.RAY_SIZE;
-        }
-        Vertex rayEnd1 = new Vertex(rayEndx, Utility.midpoint(v1, v2).y); // End vertex of ray which is basically + or - infinity
-        Vertex rayEnd2 = new Vertex(-rayEndx, Utility.midpoint(v1, v2).y);
         
-        double angle = Utility.calculateAngle(v1, v2); // Angle that slope(v1, v2) makes with x axis
-        
-        // Define line by rotating rayEnd such that it has slope(v1, v2)
-        Vertex[] line = new Vertex[]{this.b3s.findBoundaryVertexOnRay(Utility.rotateVertex(rayEnd1, new Vertex(0,0), -angle), Utility.midpoint(v1, v2)), 
-                this.b3s.findBoundaryVertexOnRay(Utility.rotateVertex(rayEnd2, new Vertex(0,0), -angle), Utility.midpoint(v1, v2))};
-        return line;
+        return faces;
     }
     
     /**
@@ -290,7 +322,7 @@ public class DelaunayTriangulation extends JPanel {
                     ii = i+1;
                 }
                 // Calculate b2s between each of the vertices in the list
-                tempB2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, face[i].deepCopy(), face[ii].deepCopy()));
+                tempB2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, face[i], face[ii]));
             }
         }
         Utility.debugPrintln("");
@@ -298,13 +330,41 @@ public class DelaunayTriangulation extends JPanel {
         return tempB2S;
     }
     
+    /**
+     * Build the B2S and B3S polylines of the given faces so they can be drawn.
+     * The triangulation itself only uses the homothets from findB3S
+     * 
+     * @param faces Array of faces to build bisectors for
+     */
+    private void traceBisectors(Vertex[][] faces) {
+        HashMap<List<Vertex>, List<Bisector>> bisectors2S = calculateB2S(faces);
+        this.chosenB2S = bisectors2S;
+        
+        for (Vertex[] face : faces) {
+            if (face == null) {
+                continue;
+            }
+            
+            try {
+                this.b3s.findBisectorOfThreeSites(this.quad, bisectors2S, face[0], face[1], face[2]);
+            } catch (NullPointerException e) {
+                if (Utility.debugMode) {
+                    Utility.debugPrintln("[traceBisectors] Could not trace B3S of " + Arrays.toString(face));
+                }
+            }
+        }
+        
+        if (showB3S_fgRegion) {
+            this.displayEdges.addAll(this.b3s.getDisplayEdges());
+        }
+    }
+    
     /**
      * 
      * @param faces Array of faces to calculate B3S for
-     * @param bisectors2S HashMap of B2S
      * @return List of Bisector representing B3S for each given face
      */
-    private List<Bisector> calculateB3S(Vertex[][] faces, HashMap<List<Vertex>, List<Bisector>> bisectors2S) {
+    private List<Bisector> calculateB3S(Vertex[][] faces) {
         List<Bisector> tempB3S = Collections.synchronizedList(new ArrayList());
         
         // Find B3S for each face
@@ -313,400 +373,249 @@ public class DelaunayTriangulation extends JPanel {
                 continue;
             }
             
-            Bisector b = this.b3s.findBisectorOfThreeSites(this.quad, bisectors2S, face[0].deepCopy(), face[1].deepCopy(), face[2].deepCopy());
+            Bisector b = findB3S(face[0], face[1], face[2]);
             
             if (b != null) {
                 tempB3S.add(b);
             } else {
-                tempB3S.add(new Bisector(new Vertex[]{face[0].deepCopy(), face[1].deepCopy(), face[2].deepCopy()}, null, null, ""));
+                tempB3S.add(new Bisector(new Vertex[]{face[0], face[1], face[2]}, null, null, ""));
             }
         }
         
-        if (showB3S_fgRegion) {
-            this.displayEdges.addAll(cleanFGEdges(this.b3s.getDisplayEdges()));
-        }
         return tempB3S;
     }
     
     /**
+     * The B3S vertex of three sites is the center of the smallest homothet of
+     * the quad through them, which is solved for directly
      * 
-     * @param v Newly triangulated vertex
-     * @param b3sList List of B3S to check
+     * @param v1 A vertex in the face
+     * @param v2 A vertex in the face
+     * @param v3 A vertex in the face
+     * @return Chosen B3S with its min quad scaling set, or null if no homothet goes through all three vertices
      */
-    private void checkForBadEdges(Vertex v, List<Bisector> b3sList) {
-        List<Bisector> originalB3SList = new ArrayList(Arrays.asList(Utility.deepCopyVBArray(b3sList.toArray(new Bisector[b3sList.size()]))));
-        List<Bisector> nullB3S = new ArrayList();
-        
-        List<Bisector> possibleBadEdges = new ArrayList(); // Queue of b3s to check for edges that need to be removed after b3sList is empty
-        
-        while (!b3sList.isEmpty()) {
-            Bisector b = b3sList.get(0).deepCopy();
-            b3sList.remove(0);
-            Vertex vInQuad;
-            if (b.getEndVertex() != null && 
-                    (vInQuad = vertexInsideQuad(calculateMinQuad(b), b, b.getAdjacentPtsList(), this.dtGraph.getVertices())) != null &&
-                    !b.getAdjacentPtsList().contains(vInQuad)) {
-                Vertex v1 = null, v2 = null;
-                // Get the two vertices in the bad edge
-                for (Vertex adjV : b.getAdjacentPtsArray()) {
-                    if (this.dtGraph.getVertex(adjV.x, adjV.y).getNeighbours().contains(v)) {
-                        if (v1 == null) {
-                            v1 = this.dtGraph.getVertex(adjV.x, adjV.y);
-                        } else {
-                            v2 = this.dtGraph.getVertex(adjV.x, adjV.y);
-                        }
-                    }
-                }
-                
-                if ((v1 == null || v2 == null /*TODO: verify this is correct. I don't think they should ever be null??*/) || 
-                        this.dtGraph.getBoundaryTriangle().contains(v1) && 
-                        this.dtGraph.getBoundaryTriangle().contains(v2)) {
-                    Utility.debugPrintln("vInQuad was either part of min quad or boundary triangle. Skipped.");
-                    // The "bad edge" is a boundary edge so don't flip it
-                    continue;
-                }
-                
-                // Find the vertex opposite v in the convex quad using original b3sList
-                Vertex newEdgeVert = findOppoVertInConvexQuad(v1, v2, v, originalB3SList);
-                
-                // if it's still null, search the nullB3SList
-                if (newEdgeVert == null) {
-                    newEdgeVert = findOppoVertInConvexQuad(v1, v2, v, nullB3S);
-                }
-                
-                // if it's still null then we have a problem
-                if (newEdgeVert == null) {
-                    Utility.debugPrintln("[checkForBadEdges] new Edge vertex is null - This shouldn't happen!!");
-                }
-                
-                // Flip edge and check affacted faces
-                if (flipEdge(new Edge(v1, v2), v, newEdgeVert)) {
-                    
-                    // Check possibleBadEdges and remove b3s related to edge flip
-                    for (Bisector badB : possibleBadEdges.toArray(new Bisector[possibleBadEdges.size()])) {
-                        if (badB.getAdjacentPtsList().contains(v1) && badB.getAdjacentPtsList().contains(v2)) {
-                            possibleBadEdges.remove(badB);
-                        }
-                    }
-                    
-                    // Check queue and remove B3S if it corresponds to a face altered by edge flip
-                    // Old faces were (v, v1, v2) and (v1, v2, newEdgeVert)
-                    for (Bisector oldB3S : b3sList.toArray(new Bisector[b3sList.size()])) {
-                        if ((oldB3S.getAdjacentPtsList().contains(v) &&
-                                oldB3S.getAdjacentPtsList().contains(v1) &&
-                                oldB3S.getAdjacentPtsList().contains(v2)) 
-                                ||
-                                (oldB3S.getAdjacentPtsList().contains(v1) &&
-                                oldB3S.getAdjacentPtsList().contains(v2) &&
-                                oldB3S.getAdjacentPtsList().contains(newEdgeVert))) {
-                            Utility.debugPrintln("Removing B3S from queue: " + oldB3S.getAdjacentPtsList().toString());
-                            b3sList.remove(oldB3S);
-                            originalB3SList.remove(oldB3S);
-                        }
-                    }
-                    // Check nullB3S queue and remove B3S if it corresponds to a face altered by edge flip
-                    for (Bisector nB3S : nullB3S.toArray(new Bisector[nullB3S.size()])) {
-                        if ((nB3S.getAdjacentPtsList().contains(v) &&
-                                nB3S.getAdjacentPtsList().contains(v1) &&
-                                nB3S.getAdjacentPtsList().contains(v2)) 
-                                ||
-                                (nB3S.getAdjacentPtsList().contains(v1) &&
-                                nB3S.getAdjacentPtsList().contains(v2) &&
-                                nB3S.getAdjacentPtsList().contains(newEdgeVert))) {
-                            Utility.debugPrintln("Removing B3S from nullB3S queue: " + nB3S.getAdjacentPtsList().toString());
-                            nullB3S.remove(nB3S);
-                        }
-                    }
-                    
-                    // Calc the 4 corresponding B3S and add to b3sList
-                    Bisector tempB;
-                    
-                    // For B3S between v, v1, closest
-                    if ((tempB = checkFaceAfterFlip(v, v1, Utility.midpoint(v1, v2))) != null) {
-                        Utility.debugPrintln("1Adding B3S: " + tempB.getAdjacentPtsList().toString());
-                        b3sList.add(tempB);
-                        originalB3SList.add(tempB);
-                    }
-                    
-                    // For B3S between v, v2, closest
-                    if ((tempB = checkFaceAfterFlip(v, v2, Utility.midpoint(v1, v2))) != null) {
-                        Utility.debugPrintln("2Adding B3S: " + tempB.getAdjacentPtsList().toString());
-                        b3sList.add(tempB);
-                        originalB3SList.add(tempB);
-                    }
-                    
-                    // For B3S between v1, newEdgeVert, closest
-                    if ((tempB = checkFaceAfterFlip(v1, newEdgeVert, Utility.midpoint(v1, v2))) != null) {
-                        Utility.debugPrintln("3Adding B3S: " + tempB.getAdjacentPtsList().toString());
-                        b3sList.add(tempB);
-                        originalB3SList.add(tempB);
-                    }
-                    
-                    // For B3S between v2, newEdgeVert, closest
-                    if ((tempB = checkFaceAfterFlip(v2, newEdgeVert, Utility.midpoint(v1, v2))) != null) {
-                        Utility.debugPrintln("4Adding B3S: " + tempB.getAdjacentPtsList().toString());
-                        b3sList.add(tempB);
-                        originalB3SList.add(tempB);
-                    }
-                    
-                    // Test two triangles in the flip quadrilateral for boundary edge to be removed
-                    
-                    // Test (v1, v, newEdgeVert)
-                    if (checkInnerQuadFaceAfterFlip(v, v1, newEdgeVert) == null) {
-                        possibleBadEdges.add(new Bisector(new Vertex[]{v, v1, newEdgeVert}, null, null, ""));
-                    }
-                    
-                    // Test (v2, v, newEdgeVert)
-                    if (checkInnerQuadFaceAfterFlip(v, v2, newEdgeVert) == null) {
-                        possibleBadEdges.add(new Bisector(new Vertex[]{v, v2, newEdgeVert}, null, null, ""));
-                    }
-                }
-            } else if (b.getEndVertex() == null) {
-                nullB3S.add(b);
-            }
-        }
-        
-        Bisector rmFromQueue;
-        while (!nullB3S.isEmpty()) {
-            if ((rmFromQueue = removeEdgeIfNecessary(nullB3S.get(0))) != null) {
-                // Remove the b3s because a flip has occurred and it no longer needs to be considered
-                nullB3S.remove(rmFromQueue);
-            }
-            nullB3S.remove(0);
-        }
-        for (Bisector b : possibleBadEdges) {
-            if ((rmFromQueue = removeEdgeIfNecessary(b)) != null) {
-                // Remove the b3s because a flip has occurred and it no longer needs to be considered
-                possibleBadEdges.remove(rmFromQueue);
-            }
-        }
-        
-        Utility.debugPrintln("\n");
-    }
-    
-    private Vertex findOppoVertInConvexQuad(Vertex v1, Vertex v2, Vertex v, List<Bisector> b3sList) {
-        Vertex newEdgeVert = null;
-        for (Bisector bisector : b3sList) {
-            if (bisector.getAdjacentPtsList().contains(v1) && bisector.getAdjacentPtsList().contains(v2) &&
-                    !bisector.getAdjacentPtsList().contains(v)) {
-                for (Vertex vertex : bisector.getAdjacentPtsArray()) {
-                    if (!vertex.equals(v1) && !vertex.equals(v2)) {
-                        newEdgeVert = vertex;
-                    }
-                }
-            }
+    private Bisector findB3S(Vertex v1, Vertex v2, Vertex v3) {
+        double[] homothet = this.quad.getHomothetSolver().circumscribe(v1, v2, v3);
+        if (homothet == null) {
+            return null;
         }
-        return newEdgeVert;
+        Vertex center = new Vertex(homothet[0], homothet[1]);
+        Bisector b = new Bisector(new Vertex[]{v1, v2, v3}, center, center, "b3s_chosen");
+        b.setMinQuadScale(homothet[2]);
+        return b;
     }
     
     /**
+     * Flip the edges around v that are bad for the faces on both sides, as
+     * Lawson's algorithm does, until the faces around v are Delaunay. Removed
+     * edges are still part of the mesh, so they are flipped the same way and
+     * the mesh stays a triangulation of the convex hull
      * 
-     * @param b B3S to check whether an edge should be removed
+     * @param v Newly triangulated vertex
+     * @param link Vertices around v as returned by Graph.insertVertex
      */
-    private Bisector removeEdgeIfNecessary(Bisector b) {
-        Utility.debugPrintln("Considering b3s: " + b.getAdjacentPtsList());
-        
-        // Look for an edge of b that has previously been removed
-        // If such an edge is found, determine whether re-adding it then
-        // flipping it is necessary
-        Bisector rmFromQueue;
-        if ((rmFromQueue = flipRemovedEdge(b)) != null) {
-            return rmFromQueue;
+    private void flipBadEdges(Vertex v, Vertex[] link) {
+        // Edges to the vertex at infinity have no face across and are skipped
+        Deque<Vertex[]> suspectEdges = new ArrayDeque();
+        for (int i = 0; i < link.length; i ++) {
+            suspectEdges.push(new Vertex[]{link[i], link[(i+1) % link.length]});
         }
-        
-        int ii, iii; // i, ii, iii are indices of each of the face vertices
-        for (int i = 0; i < b.getAdjacentPtsArray().length; i ++) {
-            if (i == b.getAdjacentPtsArray().length-1) {
-                ii = 0;
-            } else {
-                ii = i+1;
-            }
-            if (ii == b.getAdjacentPtsArray().length-1) {
-                iii = 0;
-            } else {
-                iii = ii+1;
+        while (!suspectEdges.isEmpty()) {
+            Vertex[] e = suspectEdges.pop();
+            Vertex w = this.dtGraph.findOppositeVertex(e[0], e[1], v);
+            if (w == null) {
+                continue;
             }
-            List<Vertex> commonVerts = intersectVertexSets(this.dtGraph.getVertex(b.getAdjacentPtsArray()[i].x, 
-                    b.getAdjacentPtsArray()[i].y).getNeighbours(), this.dtGraph.getVertex(b.getAdjacentPtsArray()[ii].x, 
-                    b.getAdjacentPtsArray()[ii].y).getNeighbours());
-             
-            // If edge exists in graph and it is an exterior then remove it
-            if (this.dtGraph.getEdges().contains(new Edge(b.getAdjacentPtsArray()[i], b.getAdjacentPtsArray()[ii])) &&
-                    closestVertex(b.getAdjacentPtsArray()[i], b.getAdjacentPtsArray()[ii], commonVerts, 
-                    new Vertex[]{b.getAdjacentPtsArray()[iii], b.getAdjacentPtsArray()[iii]}) == null) {
-                Utility.debugPrintln("Found and removed bad exterior edge: " + b.getAdjacentPtsArray()[i] + ", " + b.getAdjacentPtsArray()[ii]);
-                this.dtGraph.removeEdge(new Edge(b.getAdjacentPtsArray()[i], b.getAdjacentPtsArray()[ii]), false);
+            if (isBadEdge(e[0], e[1], v, w) && this.dtGraph.flipEdge(new Edge(e[0], e[1]), v, w)) {
+                if (Utility.debugMode) {
+                    Utility.debugPrintln("Flipped edge " + new Edge(e[0], e[1]) + " to " + new Edge(v, w));
+                }
+                suspectEdges.push(new Vertex[]{e[0], w});
+                suspectEdges.push(new Vertex[]{w, e[1]});
             }
         }
-        return null;
     }
     
     /**
-     * @param b B3S to inspect
-     * @return boolean true if a removed edge was flipped, false otherwise
+     * The min quads through a and b form one family, which drops the sites on
+     * one side of ab as it takes in the sites on the other side. So the min
+     * quad through c splits the family, and every min quad contains c or d
+     * iff d is inside it. With no min quad through a, b and c, c is either
+     * inside all of them or outside all of them
+     * 
+     * @param a A vertex of the edge ab
+     * @param b The other vertex of the edge ab
+     * @param c Vertex of the face on one side of ab
+     * @param d Vertex of the face on the other side of ab
+     * @return True if every min quad through a and b has c or d strictly inside it, so ab is not a Delaunay edge
      */
-    private Bisector flipRemovedEdge(Bisector b) {
-        Edge removedEdge = null;
-        Vertex other = null;
-        
-        // if the ith vertex of the b3s is not a neighbour to the (i+1)th, the edge has already been removed and we need to add it back and flip it
-        if (!this.dtGraph.getVertex(b.getAdjacentPtsArray()[0].x, b.getAdjacentPtsArray()[0].y).getNeighbours().contains(
-                this.dtGraph.getVertex(b.getAdjacentPtsArray()[1].x, b.getAdjacentPtsArray()[1].y))) {
-            
-            removedEdge = new Edge(b.getAdjacentPtsArray()[0], b.getAdjacentPtsArray()[1]);
-            other = b.getAdjacentPtsArray()[2];
-            
-        } else if (!this.dtGraph.getVertex(b.getAdjacentPtsArray()[0].x, b.getAdjacentPtsArray()[0].y).getNeighbours().contains(
-                this.dtGraph.getVertex(b.getAdjacentPtsArray()[2].x, b.getAdjacentPtsArray()[2].y))) {
-            
-            removedEdge = new Edge(b.getAdjacentPtsArray()[0], b.getAdjacentPtsArray()[2]);
-            other = b.getAdjacentPtsArray()[1];
-            
-        } else if (!this.dtGraph.getVertex(b.getAdjacentPtsArray()[1].x, b.getAdjacentPtsArray()[1].y).getNeighbours().contains(
-                this.dtGraph.getVertex(b.getAdjacentPtsArray()[2].x, b.getAdjacentPtsArray()[2].y))) {
-            
-            removedEdge = new Edge(b.getAdjacentPtsArray()[1], b.getAdjacentPtsArray()[2]);
-            other = b.getAdjacentPtsArray()[0];
-            
-        }
-        
-        // We found a removed edge in the last conditional block.
-        // Determine if it should be added back and flipped.
-        if (removedEdge != null) {
-            Utility.debugPrintln("Found a removed edge: " + removedEdge);
-            List<Vertex> commonVerts = intersectVertexSets(this.dtGraph.getVertex(removedEdge.getVertices()[0].x, 
-                    removedEdge.getVertices()[0].y).getNeighbours(), this.dtGraph.getVertex(removedEdge.getVertices()[1].x, 
-                    removedEdge.getVertices()[1].y).getNeighbours());
-            
-            // if a "closestVertex" is found then that means removedEdge is not an exterior edge and needs to be added and flipped
-            Vertex flipVert;
-            if ((flipVert = closestVertex(removedEdge.getVertices()[0], removedEdge.getVertices()[1], commonVerts, new Vertex[]{other, other})) != null
-                    && flipEdge(removedEdge, flipVert, other)) {
-                Utility.debugPrintln("Adding edge (re-added removed edge and flipped): " + new Edge(flipVert, other));
-                return new Bisector(new Vertex[]{removedEdge.getVertices()[0], removedEdge.getVertices()[1], flipVert}, null, null, null);
+    private boolean isBadEdge(Vertex a, Vertex b, Vertex c, Vertex d) {
+        if (this.integerGrid) {
+            ExactHomothetSolver exact = this.quad.getExactHomothetSolver();
+            BigInteger[] homothet = exact.circumscribe(a, b, c);
+            if (homothet != null) {
+                return exact.containsStrictly(homothet, d);
             }
+            return isInsideEveryHomothet(a, b, c) || 
+                    (exact.circumscribe(a, b, d) == null && isInsideEveryHomothet(a, b, d));
         }
-        return null;
+        HomothetSolver solver = this.quad.getHomothetSolver();
+        double[] homothet = solver.circumscribe(a, b, c);
+        if (homothet != null) {
+            return solver.containsStrictly(homothet, d);
+        }
+        return isInsideEveryHomothet(a, b, c) || 
+                (solver.circumscribe(a, b, d) == null && isInsideEveryHomothet(a, b, d));
     }
     
     /**
      * 
-     * @param v1 A vertex in the face to be checked
-     * @param v2 A vertex in the face to be checked
-     * @param v3 A vertex in the face to be checked
-     * @return a B3S if it exists
-     */
-    private Bisector checkInnerQuadFaceAfterFlip(Vertex v1, Vertex v2, Vertex v3) {
-        HashMap<List<Vertex>, List<Bisector>> bisectors2S = new HashMap();
-        bisectors2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, v1.deepCopy(), v2.deepCopy()));
-        bisectors2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, v2.deepCopy(), v3.deepCopy()));
-        bisectors2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, v3.deepCopy(), v1.deepCopy()));
-        
-        return this.b3s.findBisectorOfThreeSites(this.quad, bisectors2S, v1.deepCopy(), v2.deepCopy(), v3.deepCopy());
+     * @param a A vertex of the edge ab
+     * @param b The other vertex of the edge ab
+     * @param x Vertex with no min quad through a, b and x
+     * @return True if x is inside every min quad through a and b
+     */
+    private boolean isInsideEveryHomothet(Vertex a, Vertex b, Vertex x) {
+        // The min quads growing away from x are the last to let it go
+        return Utility.orientation(a, b, x) > 0 ? containsInLimit(a, b, x) : containsInLimit(b, a, x);
     }
     
     /**
      * 
-     * @param v1 A vertex in the face to be checked
-     * @param v2 A vertex in the face to be checked
-     * @param ptInQuad A point inside the quad that the flip happened
-     * @return A B3S if it exists, null otherwise
-     */
-    private Bisector checkFaceAfterFlip(Vertex v1, Vertex v2, Vertex ptInQuad) {
-        List<Vertex> commonVerts = intersectVertexSets(this.dtGraph.getVertex(v1.x, v1.y).getNeighbours(), 
-                this.dtGraph.getVertex(v2.x, v2.y).getNeighbours());
-        Vertex v3 = closestVertex(v1, v2, commonVerts, new Vertex[]{ptInQuad, ptInQuad});
-        if (v3 == null) {
-            return null;
+     * @param a A vertex of the edge ab
+     * @param b The other vertex of the edge ab
+     * @param x Query point
+     * @return True if x is strictly inside the limit of the min quads through a and b growing to the right of ab, decided exactly on the integer grid
+     */
+    private boolean containsInLimit(Vertex a, Vertex b, Vertex x) {
+        if (this.integerGrid) {
+            return this.quad.getExactHomothetSolver().containsInLimit(a, b, x);
         }
-        
-        HashMap<List<Vertex>, List<Bisector>> bisectors2S = new HashMap();
-        bisectors2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, v1.deepCopy(), v2.deepCopy()));
-        bisectors2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, v2.deepCopy(), v3.deepCopy()));
-        bisectors2S.putAll(this.b2s.findBisectorOfTwoSites(this.quad, v3.deepCopy(), v1.deepCopy()));
-        Utility.debugPrintln("Checking B3S between " + v1 + ", " + v2 + ", " + v3);
-        return this.b3s.findBisectorOfThreeSites(this.quad, bisectors2S, v1.deepCopy(), v2.deepCopy(), v3.deepCopy());
+        return this.quad.getHomothetSolver().containsInLimit(a, b, x);
     }
     
     /**
+     * Only the faces around v changed, so only the edges of those faces can
+     * change from live to removed or back. An edge inside the convex hull is
+     * live iff it is not bad for the faces on both sides, and an edge of the
+     * convex hull iff no vertex is inside the limit of the min quads through
+     * it growing out of the hull
      * 
-     * @param vSet1 An array of vertices
-     * @param vSet2 An array of vertices
-     * @return The vertex in common between the two arrays
-     */
-    private List<Vertex> intersectVertexSets(List<Vertex> vSet1, List<Vertex> vSet2) {
-        List<Vertex> intersection = new ArrayList();
-        for (Vertex v1 : vSet1) {
-            for (Vertex v2 : vSet2) {
-                if (v1.equals(v2)) {
-                    intersection.add(v1);
-                }
+     * @param v Newly triangulated vertex
+     */
+    private void updateLiveEdges(Vertex v) {
+        Vertex[] link = this.dtGraph.getLink(v);
+        int n = link.length;
+        for (int i = 0; i < n; i ++) {
+            Vertex prev = link[(i+n-1) % n], a = link[i], next = link[(i+1) % n];
+            if (this.dtGraph.isInfiniteVertex(a)) {
+                continue;
+            }
+            if (this.dtGraph.isInfiniteVertex(next)) {
+                setLive(v, a, isDelaunayEdge(v, a, prev, null));
+                continue;
             }
+            setLive(v, a, this.dtGraph.isInfiniteVertex(prev) ? isDelaunayEdge(v, a, next, null) : isDelaunayEdge(v, a, prev, next));
+            setLive(a, next, isDelaunayEdge(a, next, v, this.dtGraph.findOppositeVertex(a, next, v)));
         }
-        
-        if (intersection.isEmpty()) {
-            Utility.debugPrintln("[intersectVertexSets] Intersection of vertex sets is empty. This shouldn't happen");
+    }
+    
+    /**
+     * 
+     * @param a A vertex of the edge ab
+     * @param b The other vertex of the edge ab
+     * @param c Vertex of the face on one side of ab
+     * @param d Vertex of the face on the other side of ab, or null if ab is on the convex hull
+     * @return True if some min quad through a and b has no vertex strictly inside it
+     */
+    private boolean isDelaunayEdge(Vertex a, Vertex b, Vertex c, Vertex d) {
+        if (d == null) {
+            return (Utility.orientation(a, b, c) > 0 ? vertexInsideLimit(a, b) : vertexInsideLimit(b, a)) == null;
         }
-        
-        return intersection;
+        return !isBadEdge(a, b, c, d);
     }
     
     /**
      * 
-     * @param oldE Edge to flip
-     * @param newV1 Newly added vertex
-     * @param newV2 Other vertex for the new edge
-     */
-    private boolean flipEdge(Edge oldE, Vertex newV1, Vertex newV2) {
-        // Check if flipping edge leads to edge overlap
-        for (Edge compareEdge : this.dtGraph.getEdges()) {
-            Vertex intersectionPt = Utility.doLineSegmentsIntersect(compareEdge.getVertices()[0], 
-                    compareEdge.getVertices()[1], newV1, newV2);
-            if (!compareEdge.equals(oldE) && intersectionPt != null && 
-                    !intersectionPt.equals(newV1) && !intersectionPt.equals(newV2)) {
-                Utility.debugPrintln("Edge flip would lead to edge overlap. skipping...");
-                return false;
+     * @param a A vertex of an edge of the mesh
+     * @param b The other vertex of the edge
+     * @param live True to keep the edge or bring it back, false to remove it
+     */
+    private void setLive(Vertex a, Vertex b, boolean live) {
+        if (live) {
+            this.dtGraph.addEdge(a, b);
+        } else if (this.dtGraph.containsEdge(a, b)) {
+            if (Utility.debugMode) {
+                Utility.debugPrintln("Removing edge that is not Delaunay: " + new Edge(a, b));
             }
+            this.dtGraph.removeEdge(new Edge(a, b), false);
         }
-        
-        Utility.debugPrintln("Flipping edge " + oldE);
-        this.dtGraph.removeEdge(oldE, true);
-        Utility.debugPrintln("Adding new flipped edge " + new Edge(newV1, newV2));
-        this.dtGraph.addEdge(this.dtGraph.getVertex(newV1.x, newV1.y), this.dtGraph.getVertex(newV2.x, newV2.y));
-        return true;
     }
     
     /**
-     * Update shortest paths matrix and stretch factor of the DT
+     * The limit left of ab is a triangle with base ab, so only the triangles
+     * of the mesh it overlaps, walked from the one next to ab, can hold a
+     * vertex inside it
+     * 
+     * @param a A vertex of a convex hull edge
+     * @param b The other vertex, with the outside of the hull on the right of ab
+     * @return A vertex strictly inside the limit of the homothets through a and b growing to the right of ab, or null if there is none
+     */
+    private Vertex vertexInsideLimit(final Vertex a, final Vertex b) {
+        final HomothetSolver solver = this.quad.getHomothetSolver();
+        final Vertex[] inside = new Vertex[1];
+        this.dtGraph.visitRegion(a, b, new MeshVisitor() {
+            @Override
+            public void visitVertex(Vertex x) {
+                if (inside[0] == null && !x.equals(a) && !x.equals(b) && containsInLimit(a, b, x)) {
+                    inside[0] = x;
+                }
+            }
+            
+            @Override
+            public boolean crossEdge(Vertex p, Vertex q) {
+                return inside[0] == null && solver.limitMeetsSegment(a, b, p, q);
+            }
+        });
+        return inside[0];
+    }
+    
+    /**
+     * Update the stretch factor of the DT after a vertex was added, if it is
+     * tracked. The paths are repaired as edges change, so nothing else is left
      */
     private void updateShortestPaths() {
         this.oldSelectedPath = this.curSelectedPath;
         this.curSelectedPath = new ArrayList();
-        this.shortestPaths = findAllPairsShortestPath();
         
-        updateStretchFactor();
+        if (this.stretchFactorTracked) {
+            updateStretchFactor();
+        }
     }
     
     /**
-     * @param quad Array of vertices defining the quad
-     * @param vIgnore List of vertices on the quad boundary
-     * @param pts List of vertices to check
-     * @return True if a vertex in the vertex set lies inside quad. False otherwise
+     * Forget the shortest paths and stop dtGraph reporting its edge changes,
+     * for when the DT is about to be rebuilt
      */
-    private Vertex vertexInsideQuad(Vertex[] quad, Bisector b3s, List<Vertex> vIgnore, List<Vertex> pts) {
-        for (Vertex v : pts) {
-            if (!vIgnore.contains(v) &&
-                    Utility.isLeftOfSegment(quad[0], quad[1], v, 0.1) <= 0 &&
-                    Utility.isLeftOfSegment(quad[1], quad[2], v, 0.1) <= 0 &&
-                    Utility.isLeftOfSegment(quad[2], quad[3], v, 0.1) <= 0 &&
-                    Utility.isLeftOfSegment(quad[3], quad[0], v, 0.1) <= 0) {
-                Utility.debugPrintln("Vertex " + v + " inside " + Arrays.toString(b3s.getAdjacentPtsArray()));
-                
-                return v;
-            }
+    private void dropShortestPaths() {
+        this.dtGraph.setListener(null);
+        this.shortestPaths = null;
+        this.oldSelectedPath = this.curSelectedPath;
+        this.curSelectedPath = new ArrayList();
+    }
+    
+    /**
+     * Rows are found on demand, so building the paths only costs the
+     * adjacency lists. dtGraph reports its edge changes to them from then on
+     * 
+     * @return Shortest paths of the DT, built first if there are none
+     */
+    private ShortestPaths getShortestPaths() {
+        if (this.shortestPaths == null) {
+            this.shortestPaths = new ShortestPaths(this.dtGraph, this.shortestPathMemoryLimit);
+            this.dtGraph.setListener(this.shortestPaths);
         }
-        //Utility.debugPrintln("No vertex inside quad");
-        return null;
+        return this.shortestPaths;
     }
     
     /**
@@ -714,8 +623,8 @@ public class DelaunayTriangulation extends JPanel {
      * @return Min quad around given chosenB3S
      */
     public Vertex[] calculateMinQuad(Bisector chosenB3S) {
-        Double scale;
-        if (chosenB3S.getTag().contains("chosen") && (scale = findMinimumQuadScaling(chosenB3S)) != null) {
+        if (chosenB3S.getTag().contains("chosen")) {
+            double scale = findMinimumQuadScaling(chosenB3S);
             chosenB3S.setMinQuadScale(scale);
             return this.quad.getPixelVertsForVertex(chosenB3S.getEndVertex(), scale, true);
         } else {
@@ -728,211 +637,147 @@ public class DelaunayTriangulation extends JPanel {
      * @param chosenB3S Chosen VoronoiBisector between 3 sites
      * @return Amount the quad needs to be scaled such that it goes through the adjacent B3S vertices
      */
-    private Double findMinimumQuadScaling(Bisector chosenB3S) {
-        Vertex[] qVerts = this.quad.getPixelVertsForVertex(chosenB3S.getEndVertex(), this.curScale, true);
-        
-        Vertex[][] quadRays = new Vertex[this.quad.getVertices().length][2]; // Rays from quad center through each vertex
-        for (int i = 0; i < this.quad.getVertices().length; i ++) {
-            quadRays[i] = findMinQuadRay(chosenB3S.getEndVertex(), chosenB3S.getEndVertex(), qVerts[i]);
-        }
-        
-        Double scale = null, tempScale;
+    private double findMinimumQuadScaling(Bisector chosenB3S) {
+        HomothetSolver solver = this.quad.getHomothetSolver();
+        double scale = 0;
         for (Vertex adj : chosenB3S.getAdjacentPtsArray()) {
-            tempScale = findScaleForAdjacentB3SPt(adj, quadRays, qVerts, chosenB3S.getEndVertex());
-            if (scale == null || tempScale > scale) {
-                scale = tempScale;
-            }
+            scale = Math.max(scale, solver.scaleThrough(chosenB3S.getEndVertex(), adj));
         }
-        
         return scale;
     }
     
     /**
      * 
-     * @param adj A Vertex belonging to the B3S
-     * @param quadRays Rays from quad center through each vertex
-     * @param qVerts Vertex array of quad vertices
-     * @return Quad scaling based on intersection of adj Vertex parallel to all quad vertices and the quad rays
-     */
-    private Double findScaleForAdjacentB3SPt(Vertex adj, Vertex[][] quadRays, Vertex[] qVerts, Vertex chosenB3SPt) {
-        Double scale = null;
-        Vertex intersectionPt;
-        
-        int ii;
-        // For each edge of the quad
-        for (int i = 0; i < qVerts.length; i ++) {
-            if (i == qVerts.length-1) {
-                ii = 0;
-            } else {
-                ii = i+1;
-            }
-            
-            double tempScale;
-            // Create ray from adj parallel to quad edge
-            Vertex[] intersectionRay1 = findMinQuadRay(adj, qVerts[i], qVerts[ii]);
-            if ((intersectionPt = Utility.doLineSegmentsIntersect(intersectionRay1[0], intersectionRay1[1], quadRays[i][0], quadRays[i][1])) != null) {
-                tempScale = Utility.euclideanDistance(intersectionPt, chosenB3SPt) / Utility.euclideanDistance(qVerts[i], chosenB3SPt);
-                if (scale == null || tempScale > scale) {
-                    scale = tempScale;
-                }
-            }
-            if ((intersectionPt = Utility.doLineSegmentsIntersect(intersectionRay1[0], intersectionRay1[1], quadRays[ii][0], quadRays[ii][1])) != null) {
-                tempScale = Utility.euclideanDistance(intersectionPt, chosenB3SPt) / Utility.euclideanDistance(qVerts[ii], chosenB3SPt);
-                if (scale == null || tempScale > scale) {
-                    scale = tempScale;
-                }
-            }
-            
-            // Create ray from adj parallel to quad edge in other direction
-            Vertex[] intersectionRay2 = findMinQuadRay(adj, qVerts[ii], qVerts[i]);
-            if ((intersectionPt = Utility.doLineSegmentsIntersect(intersectionRay2[0], intersectionRay2[1], quadRays[i][0], quadRays[i][1])) != null) {
-                tempScale = Utility.euclideanDistance(intersectionPt, chosenB3SPt) / Utility.euclideanDistance(qVerts[i], chosenB3SPt);
-                if (scale == null || tempScale > scale) {
-                    scale = tempScale;
-                }
-            }
-            if ((intersectionPt = Utility.doLineSegmentsIntersect(intersectionRay2[0], intersectionRay2[1], quadRays[ii][0], quadRays[ii][1])) != null) {
-                tempScale = Utility.euclideanDistance(intersectionPt, chosenB3SPt) / Utility.euclideanDistance(qVerts[ii], chosenB3SPt);
-                if (scale == null || tempScale > scale) {
-                    scale = tempScale;
-                }
-            }
+     * @param u Id of a Vertex in the DT
+     * @param v Id of a Vertex in the DT
+     * @return List of vertices making up a path from u to v
+     */
+    public ArrayList<Vertex> shortestPath(int u, int v) {
+        if (getShortestPaths().getNextHop(u, v) == -1) {
+            return new ArrayList();
+        }
+        ArrayList<Vertex> path = new ArrayList();
+        path.add(this.dtGraph.getVertexById(u));
+        while (u != v) {
+            u = this.shortestPaths.getNextHop(u, v);
+            path.add(this.dtGraph.getVertexById(u));
         }
         
-        return scale;
+        this.oldSelectedPath = new ArrayList(this.curSelectedPath);
+        this.curSelectedPath = new ArrayList(path);
+        return path;
     }
     
     /**
-     * Constructs a ray from startPt through throughPt then translated to translatePt
      * 
-     * @param translatePt Vertex ray startPt will be translated to
-     * @param startPt Initial start vertex of ray
-     * @param throughPt Vertex the ray will pass through before being translated
-     */
-    private Vertex[] findMinQuadRay(Vertex translatePt, Vertex startPt, Vertex throughPt) {
-        // Define the direction of the ray starting at a
-        double rayEndx = Utility.RAY_SIZE;
-        if (startPt.x > throughPt.x || (startPt.x == throughPt.x && startPt.y > throughPt.y)) {
-            rayEndx = -Utility.RAY_SIZE;
-        }
-        Vertex rayEnd = new Vertex(rayEndx, startPt.y); // End vertex of ray which is basically + or - infinity
-        
-        double angle  = Utility.calculateAngle(startPt, throughPt); // Angle that slope(a, nonInnerVertex) makes with x axis
-        
-        // Define ray by rotating rayEnd such that it has slope(a, nonInnerVertex)
-        Vertex[] ray = {new Vertex(startPt.x, startPt.y), Utility.rotateVertex(rayEnd, new Vertex(0,0), -angle)};
-        
-        //Translate ray so that it starts at endPt
-        ray[0].x += translatePt.x - startPt.x;
-        ray[0].y += translatePt.y - startPt.y;
-        ray[1].x += translatePt.x - startPt.x;
-        ray[1].y += translatePt.y - startPt.y;
-        
-        return new Vertex[]{ray[0], ray[1]};
+     * @param vi Id of v1
+     * @param vj Id of v2
+     * @return Shortest path length between v1 and v2
+     */
+    public double getShortestPathLength(int vi, int vj) {
+        return getShortestPaths().getDistance(vi, vj);
     }
     
     /**
-     * Uses Floyd-Warshall algorithm to find the shortest path between each pair of vertices
-     * @return 
+     * 
+     * @return Cache of B2S, whose hit and miss counts help size it
      */
-    private double[][] findAllPairsShortestPath() {
-        // 2D array representing distance between each vertex in DT
-        double[][] dist = new double[this.dtGraph.getDisplayVertices().size()][this.dtGraph.getDisplayVertices().size()];
-        this.next = new Integer[this.dtGraph.getDisplayVertices().size()][this.dtGraph.getDisplayVertices().size()];
-        // Initialize 2D array with infinity
-        for (double[] arr : dist) {
-            Arrays.fill(arr, Double.MAX_VALUE);
-        }
-        // Initialize 2D array with null
-        for (Integer[] arr : this.next) {
-            Arrays.fill(arr, null);
-        }
-        
-        // Set distance from vertices sharing an edge to the weight of the edge
-        for (Edge e : this.dtGraph.getDisplayEdges()) {
-            dist[this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[0])][this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[1])] = e.getWeight();
-            dist[this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[1])][this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[0])] = e.getWeight();
-        
-            next[this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[0])][this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[1])] = this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[1]);
-            next[this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[1])][this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[0])] = this.dtGraph.getDisplayVertices().indexOf(e.getVertices()[0]);
-        }
-        
-        // Set distance from a vertex to itself as 0 (diagonal)
-        for (int i = 0; i < dist.length; i ++) {
-            dist[i][i] = 0;
-        }
-        
-        for (int k = 0; k < dist.length; k ++) 
-        {
-            for (int i = 0; i < dist.length; i ++) 
-            {
-                for (int j = 0; j < dist.length; j ++) 
-                {
-                    if (dist[i][j] > dist[i][k] + dist[k][j]) {
-                        dist[i][j] = dist[i][k] + dist[k][j];
-                        next[i][j] = next[i][k];
-                    }
-                    
-                }
-            }
-        }
-        
-        return dist;
+    public BisectorCache getBisectorCache() {
+        return this.b2sCache;
     }
     
     /**
      * 
-     * @param u Index of a Vertex in the DT
-     * @param v Index of a Vertex in the DT
-     * @return List of vertices making up a path from u to v
+     * @param bytes Max number of bytes used to cache shortest path rows
      */
-    public ArrayList<Vertex> shortestPath(int u, int v) {
-        if (this.next[u][v] == null) {
-            return new ArrayList();
+    public void setShortestPathMemoryLimit(long bytes) {
+        this.shortestPathMemoryLimit = bytes;
+        dropShortestPaths();
+        setStretchFactorTracked(this.stretchFactorTracked);
+    }
+    
+    /**
+     * Rebuild the DT in or out of integer grid mode. On the grid vertices are
+     * rounded to integer coordinates, looked up exactly and triangulated with
+     * exact integer orientation tests. Which edges are Delaunay is decided by
+     * ExactHomothetSolver, so no tolerance is involved. The two modes only
+     * agree where the floating point tolerance is not needed: on near ties,
+     * such as four sites on one min quad, the grid keeps the exact answer, so
+     * the same sites can give a few different edges in each mode. The B2S and
+     * B3S drawn for the display are still found in floating point
+     * 
+     * @param setting True to use the integer grid
+     */
+    public void setIntegerGrid(boolean setting) {
+        if (setting == this.integerGrid) {
+            return;
         }
-        ArrayList<Vertex> path = new ArrayList();
-        path.add(this.dtGraph.getDisplayVertices().get(u));
-        while (u != v) {
-            u = this.next[u][v];
-            path.add(this.dtGraph.getDisplayVertices().get(u));
+        this.integerGrid = setting;
+        rebuild();
+    }
+    
+    /**
+     * 
+     * @return Exact stretch factor of the DT, kept up to date as vertices are added, or -1 if it is not tracked
+     */
+    public double getStretchFactor() {
+        return this.stretchFactor;
+    }
+    
+    /**
+     * Find the exact stretch factor of the DT with one Dijkstra per vertex,
+     * then keep it up to date as vertices are added, until the next bulk load
+     */
+    public void computeStretchFactor() {
+        setStretchFactorTracked(true);
+        repaint();
+    }
+    
+    /**
+     * 
+     * @param tracked True to find the stretch factor now and keep it up to date, false to stop tracking it
+     */
+    private void setStretchFactorTracked(boolean tracked) {
+        this.stretchFactorTracked = tracked;
+        this.stretchFactor = tracked ? 0 : -1;
+        this.sfVertices[0] = this.sfVertices[1] = null;
+        if (tracked) {
+            updateStretchFactor();
         }
-        
-        this.oldSelectedPath = new ArrayList(this.curSelectedPath);
-        this.curSelectedPath = new ArrayList(path);
-        return path;
     }
     
     /**
+     * Cheap alternative to getStretchFactor for large vertex sets, which only
+     * measures one pair per well-separated pair of clusters
      * 
-     * @param vi Index of v1
-     * @param vj Index of v2
-     * @return Shortest path length between v1 and v2
+     * @param epsilon Relative error allowed, greater than 0
+     * @return Estimate of the stretch factor of the DT with a witness pair and certified bounds
      */
-    public double getShortestPathLength(int vi, int vj) {
-        return this.shortestPaths[vi][vj];
+    public ApproximateStretchFactor estimateStretchFactor(double epsilon) {
+        return new ApproximateStretchFactor(this.dtGraph.getVertices(), getShortestPaths(), epsilon);
     }
     
     /**
+     * Exact stretch factor computed from scratch in parallel, for reports
+     * that need more than the single worst pair
      * 
-     * @return Stretch factor of VD
+     * @param k Number of pairs to report
+     * @return The k pairs of display vertices with the largest stretch, worst first
+     */
+    public List<ExactStretchFactor.Pair> getWorstStretchPairs(int k) {
+        return new ExactStretchFactor(this.dtGraph, k).getWorstPairs();
+    }
+    
+    /**
+     * Update the stretch factor of the DT and the pair of vertices it is attained by
      */
     private void updateStretchFactor() {
-        double stretch = -1;
-        Integer v1 = null, v2 = null;
-        for (int i = 0; i < this.shortestPaths.length; i ++) {
-            for (int j = i+1; j < this.shortestPaths.length; j ++) {
-                if (this.shortestPaths[i][j] != Double.MAX_VALUE /*Avoid infinitely large paths bc no edge*/&&
-                        this.shortestPaths[i][j] / (Utility.euclideanDistance(this.dtGraph.getDisplayVertices().get(i), this.dtGraph.getDisplayVertices().get(j))) > stretch) {
-                    stretch = this.shortestPaths[i][j] / (Utility.euclideanDistance(this.dtGraph.getDisplayVertices().get(i), this.dtGraph.getDisplayVertices().get(j)));
-                    v1 = i;
-                    v2 = j;
-                }
-            }
-        }
-        if (v1 != null && v2 != null) {
-            this.stretchFactor = stretch;
-            this.sfVertices[0] = v1;
-            this.sfVertices[1] = v2;
+        int[] pair = getShortestPaths().getStretchFactorPair();
+        if (pair != null) {
+            this.stretchFactor = this.shortestPaths.getDistance(pair[0], pair[1]) / 
+                    Utility.euclideanDistance(this.dtGraph.getVertexById(pair[0]), this.dtGraph.getVertexById(pair[1]));
+            this.sfVertices[0] = pair[0];
+            this.sfVertices[1] = pair[1];
         }
     }
     
@@ -955,17 +800,22 @@ public class DelaunayTriangulation extends JPanel {
      * @return Vertex at given (x,y) or null if no such vertex exists
      */
     public Vertex vertexAt(int x, int y) {
-        for (Vertex v : this.dtGraph.getVertices()) {
-            if (v.x <= x+this.vertexRadius && v.x >= x-this.vertexRadius &&
-                    v.y <= y+this.vertexRadius && v.y >= y-this.vertexRadius) {
-                return v;
-            }
-        }
-        return null;
+        return this.dtGraph.getVertexNear(x, y, this.vertexRadius);
     }
     
+    /**
+     * Taking v out of the mesh would leave a hole that may open the convex
+     * hull, so the DT is rebuilt as by removeVertex(int)
+     * 
+     * @param v Vertex to remove from vertex set
+     */
     public void removeVertex(Vertex v) {
-        this.dtGraph.removeVertex(this.dtGraph.getVertex(v.x, v.y));
+        Vertex existing = this.dtGraph.getVertex(v.x, v.y);
+        if (existing != null) {
+            removeVertex(this.dtGraph.getVertexId(existing));
+        } else {
+            Utility.debugPrintln("Couldn't delete vertex because it doesn't exist.");
+        }
     }
     
     /**
@@ -974,12 +824,9 @@ public class DelaunayTriangulation extends JPanel {
      */
     public void newQuad(Vertex[] verts) {
         this.quad = new Quadrilateral(verts);
-        Vertex[] tempPts = this.dtGraph.getVertices().toArray(new Vertex[this.dtGraph.getVertices().size()]);
-        reset();
+        this.b2sCache.clear();
         // Reconstruct VoronoiDiagram with new quad
-        for (Vertex tempP : tempPts) {
-            addVertex(tempP);
-        }
+        rebuild();
     }
     
     /**
@@ -992,19 +839,18 @@ public class DelaunayTriangulation extends JPanel {
     }
     
     /**
-     * Remove vertex and reconstruct Voronoi Diagram
-     * @param i Vertex to remove from vertex set
+     * Remove vertex and reconstruct Voronoi Diagram. The remaining vertices keep their ids
+     * @param id Id of the vertex to remove from vertex set
      */
-    public void removeVertex(int i) {
-        i += 3; // To account for boundary vertices
-        if (this.dtGraph.getVertices().size() > i) {
-            this.dtGraph.removeVertex(new Vertex(this.dtGraph.getVertices().get(i).x, this.dtGraph.getVertices().get(i).y));
-            Vertex[] tempPts = this.dtGraph.getVertices().toArray(new Vertex[this.dtGraph.getVertices().size()]);
-            reset();
+    public void removeVertex(int id) {
+        Vertex v = this.dtGraph.getVertexById(id);
+        if (v != null) {
+            this.b2sCache.invalidate(v);
+            // The paths are rebuilt with the DT, so they need not follow the removal
+            dropShortestPaths();
+            this.dtGraph.removeVertex(v);
             // Reconstruct VoronoiDiagram with remaining vertices
-            for (Vertex tempP : tempPts) {
-                addVertex(tempP);
-            }
+            rebuild();
         } else {
             Utility.debugPrintln("Couldn't delete vertex because it doesn't exist.");
         }
@@ -1020,7 +866,7 @@ public class DelaunayTriangulation extends JPanel {
             this.movingVertexOldLoc = new Vertex(x, y);
             this.movingVertex = new Vertex(x, y);
         } else {
-            this.movingVertexOldLoc = this.movingVertex.deepCopy();
+            this.movingVertexOldLoc = this.movingVertex;
             this.movingVertex = new Vertex(x, y);
         }
         this.repaint();
@@ -1133,21 +979,20 @@ public class DelaunayTriangulation extends JPanel {
     
     /**
      * 
-     * @param setting Boolean to set
+     * @return Boolean highlightShortestPath
      */
-    public void setShowBoundaryTriangle(boolean setting) {
-        this.showBoundaryTriangle = setting;
-        this.repaint();
+    public boolean getHighlightShortestPath() {
+        return this.highlightShortestPath;
     }
     
     /**
      * 
-     * @return Boolean highlightShortestPath
+     * @return Boolean integerGrid
      */
-    public boolean getHighlightShortestPath() {
-        return this.highlightShortestPath;
+    public boolean getIntegerGrid() {
+        return this.integerGrid;
     }
-    
+
     /**
      * 
      * @return List<Vertex> list of vertices in the DT
@@ -1155,37 +1000,29 @@ public class DelaunayTriangulation extends JPanel {
     public List<Vertex> getVertices() {
         return this.dtGraph.getVertices();
     }
-    
+
+    /**
+     *
+     * @param visitor Gets visitFace once for each face of the DT, a triangle whose edges are all Delaunay edges
+     */
+    public void visitFaces(MeshVisitor visitor) {
+        this.dtGraph.visitFaces(visitor);
+    }
+
     /**
      * 
-     * @return ArrayList holding performance data of operation vs. time
+     * @return Number of vertices in the DT
      */
-    public ArrayList<int[]> getPerformanceData() {
-        return new ArrayList(this.performanceData);
+    public int getVertexCount() {
+        return this.dtGraph.getVertexCount();
     }
     
     /**
      * 
-     * @param fgEdges List of edges that make up the FG region
-     * @return List of FG edges ignoring the boundary triangle vertices
-     */
-    private List<Bisector> cleanFGEdges(List<Bisector> fgEdges) {
-        List<Bisector> cleanEdges = new ArrayList();
-        List<Vertex> boundaryVerts = this.dtGraph.getBoundaryTriangle();
-        Utility.debugPrintln(boundaryVerts.toString());
-        for (Bisector b : fgEdges) {
-            boolean edgeIsClean = true;
-            for (Vertex v : b.getAdjacentPtsArray()) {
-                if (boundaryVerts.contains(v)) {
-                    edgeIsClean = false;
-                    break;
-                }
-            }
-            if (edgeIsClean) {
-                cleanEdges.add(b);
-            }
-        }
-        return cleanEdges;
+     * @return ArrayList holding performance data of operation vs. time
+     */
+    public ArrayList<int[]> getPerformanceData() {
+        return new ArrayList(this.performanceData);
     }
     
     /**
@@ -1201,12 +1038,7 @@ public class DelaunayTriangulation extends JPanel {
         int voronoiVertexRadius = 1;
         int yMax = this.getBounds().getSize().height;
         
-        if (this.showBoundaryTriangle) {
-            painter.drawVerticesAndQuads(g2d, this.dtGraph.getVertices(), this.quad, yMax, this.vertexRadius, this.curScale);
-        } else {
-            // Take away boundary vertices from vertex set
-            painter.drawVerticesAndQuads(g2d, this.dtGraph.getDisplayVertices(), this.quad, yMax, this.vertexRadius, this.curScale);
-        }
+        painter.drawVerticesAndQuads(g2d, this.dtGraph, this.quad, yMax, this.vertexRadius, this.curScale);
         
         painter.drawBisectorRayVertices(g2d, this.voronoiVertices, yMax, voronoiVertexRadius);
         
@@ -1233,17 +1065,12 @@ public class DelaunayTriangulation extends JPanel {
         }
         
         if (this.showCoordinates) {
-            painter.drawVertexCoordinates(g2d, this.dtGraph.getDisplayVertices(), yMax);
+            painter.drawVertexCoordinates(g2d, this.dtGraph, yMax);
         }
         
         painter.drawMouseCoordinates(g2d, mouseX, mouseY, yMax);
         
-        if (this.showBoundaryTriangle) {
-            painter.drawDelaunayEdges(g2d, this.dtGraph.getEdges(), yMax);
-        } else {
-            // Take away boundary vertices from vertex set
-            painter.drawDelaunayEdges(g2d, this.dtGraph.getDisplayEdges(), yMax);
-        }
+        painter.drawDelaunayEdges(g2d, this.dtGraph, yMax);
         
         painter.drawStretchFactor(g2d, this.sfVertices, this.stretchFactor);
         
@@ -1256,9 +1083,9 @@ public class DelaunayTriangulation extends JPanel {
         
         if (this.movingVertex != null) {
             // Paint over old location of vertex
-            painter.drawMovingVertex(g2d, this.movingVertexOldLoc, this.quad, this.movingVertIndex-this.dtGraph.getBoundaryTriangle().size(), this.vertexRadius, yMax, this.getBackground());
+            painter.drawMovingVertex(g2d, this.movingVertexOldLoc, this.quad, this.movingVertIndex, this.vertexRadius, yMax, this.getBackground());
             // Draw vertex at new location
-            painter.drawMovingVertex(g2d, this.movingVertex, this.quad, this.movingVertIndex-this.dtGraph.getBoundaryTriangle().size(), this.vertexRadius, yMax, Color.black);
+            painter.drawMovingVertex(g2d, this.movingVertex, this.quad, this.movingVertIndex, this.vertexRadius, yMax, Color.black);
         }
     }
 
@@ -1298,14 +1125,15 @@ public class DelaunayTriangulation extends JPanel {
      */
     private void animationStep() {
         Utility.debugPrintln("Doing animation step");
+        // The quad is drawn and intersected at curScale, so it is not rescaled itself
         this.curScale += 0.1;
-        this.quad.scaleQuad(this.curScale);
 
         // for each pair of vertices, check for quad intersection
-        for (int i = 0; i < this.dtGraph.getVertices().size(); i++) {
-            for (int j = i + 1; j < this.dtGraph.getVertices().size(); j++) {
+        List<Vertex> vertices = this.dtGraph.getVertices();
+        for (int i = 0; i < vertices.size(); i++) {
+            for (int j = i + 1; j < vertices.size(); j++) {
                 // Find and store intersections for current quad scaling
-                findQuadIntersections(this.quad, this.dtGraph.getVertices().get(i), this.dtGraph.getVertices().get(j));
+                findQuadIntersections(this.quad, vertices.get(i), vertices.get(j));
             }
         }
     }
@@ -1323,14 +1151,14 @@ public class DelaunayTriangulation extends JPanel {
         Vertex[] quad2 = q.getPixelVertsForVertex(p2, this.curScale, false);
 
         int k, l;
-        for (int i = 0; i < 4; i++) {
-            if (i == 3) {
+        for (int i = 0; i < quad1.length; i++) {
+            if (i == quad1.length - 1) {
                 k = 0;
             } else {
                 k = i + 1;
             }
-            for (int j = 0; j < 4; j++) {
-                if (j == 3) {
+            for (int j = 0; j < quad2.length; j++) {
+                if (j == quad2.length - 1) {
                     l = 0;
                 } else {
                     l = j + 1;
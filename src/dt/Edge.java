@@ -11,7 +11,7 @@ import java.util.Objects;
 public class Edge {
 
     private final Vertex v1, v2;
-    private final double weight;
+    private double weight; // Computed on first use since most Edge objects are only built for lookups
     
     /**
      * 
@@ -21,7 +21,7 @@ public class Edge {
     public Edge(Vertex v1, Vertex v2){
         this.v1 = v1;
         this.v2 = v2;
-        this.weight = Utility.euclideanDistance(v1, v2);
+        this.weight = -1;
     }
     
     /**
@@ -39,10 +39,26 @@ public class Edge {
     
     /**
      * 
-     * @return Deep copy of the end vertices of this edge
+     * @return The end vertices of this edge
      */
     public Vertex[] getVertices() {
-        return Utility.deepCopyVertexArray(new Vertex[]{this.v1, this.v2});
+        return new Vertex[]{this.v1, this.v2};
+    }
+    
+    /**
+     * 
+     * @return The first vertex in the Edge, without allocating an array
+     */
+    public Vertex getFirstVertex() {
+        return this.v1;
+    }
+    
+    /**
+     * 
+     * @return The second vertex in the Edge, without allocating an array
+     */
+    public Vertex getSecondVertex() {
+        return this.v2;
     }
     
     /**
@@ -50,6 +66,9 @@ public class Edge {
      * @return The length of this Edge
      */
     public double getWeight(){
+        if (this.weight < 0) {
+            this.weight = Utility.euclideanDistance(this.v1, this.v2);
+        }
         return this.weight;
     }
     
@@ -59,7 +78,7 @@ public class Edge {
      */
     @Override
     public String toString(){
-        return "({" + this.v1 + ", " + this.v2 + "}, " + this.weight + ")";
+        return "({" + this.v1 + ", " + this.v2 + "}, " + getWeight() + ")";
     }
     
     /**
@@ -78,5 +97,11 @@ public class Edge {
         return (e.v1.equals(this.v1) && e.v2.equals(this.v2)) ||
                 (e.v2.equals(this.v1) && e.v1.equals(this.v2));
     }
+
+    @Override
+    public int hashCode() {
+        // Symmetric so that both orientations of an Edge hash the same
+        return this.v1.hashCode() + this.v2.hashCode();
+    }
     
 }
@@ -0,0 +1,252 @@
+package dt;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exact counterpart of HomothetSolver for sites on the integer grid. The
+ * polygon and its center are scaled by the power of two that makes every
+ * coordinate an integer, which changes the scale of a homothet but not its
+ * shape, so with integer sites every test below is the sign of an integer
+ * polynomial. The edge normals are kept unnormalized, n_i = (-(y_i+1 - y_i),
+ * x_i+1 - x_i) with h_i = n_i . (v_i - center), and the min quad at p with
+ * scale s contains x iff n_i . (p - x) <= s h_i for every edge i, as in
+ * HomothetSolver. A homothet through three sites is solved by Cramer's rule
+ * and kept as the integers {D p, D s, D} with D > 0, so no division and no
+ * tolerance is needed. The adjugate of every assignment of sites to edges is
+ * computed once, so a query costs O(k^4) integer operations for k edges
+ *
+ * @author Lee Glendenning
+ */
+public class ExactHomothetSolver {
+
+    private final BigInteger[] nx, ny; // Unnormalized outward normal of the edge from vertex i to vertex i+1
+    private final BigInteger[] h; // n_i . (v_i - center), positive for a center inside the polygon
+    private final int[][] edges; // Edges {e1, e2, e3} of each assignment with a unique solution
+    private final BigInteger[][] adjugates; // Adjugate of the system of each assignment, signed so its determinant is positive
+    private final BigInteger[] determinants;
+
+    /**
+     *
+     * @param vertices Vertices of a convex polygon in clockwise order
+     * @param center Point inside the polygon
+     */
+    public ExactHomothetSolver(Vertex[] vertices, Vertex center) {
+        int n = vertices.length;
+        int digits = scale(center.x, center.y, 0);
+        for (Vertex v : vertices) {
+            digits = scale(v.x, v.y, digits);
+        }
+        BigInteger cx = toInteger(center.x, digits), cy = toInteger(center.y, digits);
+        this.nx = new BigInteger[n];
+        this.ny = new BigInteger[n];
+        this.h = new BigInteger[n];
+        for (int i = 0; i < n; i ++) {
+            Vertex a = vertices[i], b = vertices[(i + 1) % n];
+            BigInteger ax = toInteger(a.x, digits), ay = toInteger(a.y, digits);
+            // Clockwise order puts the inside on the right of each edge
+            this.nx[i] = ay.subtract(toInteger(b.y, digits));
+            this.ny[i] = toInteger(b.x, digits).subtract(ax);
+            this.h[i] = this.nx[i].multiply(ax.subtract(cx)).add(this.ny[i].multiply(ay.subtract(cy)));
+        }
+
+        // n_e . p - h_e s = n_e . a for each site a on edge e
+        List<int[]> found = new ArrayList<>();
+        List<BigInteger[]> adj = new ArrayList<>();
+        List<BigInteger> det = new ArrayList<>();
+        for (int e1 = 0; e1 < n; e1 ++) {
+            for (int e2 = 0; e2 < n; e2 ++) {
+                for (int e3 = 0; e3 < n; e3 ++) {
+                    if (e1 == e2 || e2 == e3 || e1 == e3) {
+                        continue;
+                    }
+                    BigInteger[] m = {this.nx[e1], this.ny[e1], this.h[e1].negate(),
+                            this.nx[e2], this.ny[e2], this.h[e2].negate(),
+                            this.nx[e3], this.ny[e3], this.h[e3].negate()};
+                    BigInteger[] a = adjugate(m);
+                    BigInteger d = m[0].multiply(a[0]).add(m[1].multiply(a[3])).add(m[2].multiply(a[6]));
+                    if (d.signum() == 0) {
+                        continue;
+                    }
+                    if (d.signum() < 0) {
+                        d = d.negate();
+                        for (int k = 0; k < 9; k ++) {
+                            a[k] = a[k].negate();
+                        }
+                    }
+                    found.add(new int[]{e1, e2, e3});
+                    adj.add(a);
+                    det.add(d);
+                }
+            }
+        }
+        this.edges = found.toArray(new int[0][]);
+        this.adjugates = adj.toArray(new BigInteger[0][]);
+        this.determinants = det.toArray(new BigInteger[0]);
+    }
+
+    /**
+     * Smallest homothet of the polygon with all three sites on its boundary
+     *
+     * @param a1 A grid site
+     * @param a2 A grid site
+     * @param a3 A grid site
+     * @return {D x, D y, D scale, D} of the center and scale of the min quad for some D > 0, or null if no homothet goes through all three sites
+     */
+    public BigInteger[] circumscribe(Vertex a1, Vertex a2, Vertex a3) {
+        // Work relative to a1, so every site difference fits in a long
+        long bx = (long) a2.x - (long) a1.x, by = (long) a2.y - (long) a1.y;
+        long cx = (long) a3.x - (long) a1.x, cy = (long) a3.y - (long) a1.y;
+        if (bx == 0 && by == 0 && cx == 0 && cy == 0) {
+            return null;
+        }
+
+        BigInteger[] best = null;
+        for (int k = 0; k < this.edges.length; k ++) {
+            int[] e = this.edges[k];
+            BigInteger[] a = this.adjugates[k];
+            BigInteger d = this.determinants[k];
+            BigInteger r2 = dot(e[1], bx, by), r3 = dot(e[2], cx, cy);
+            // The site on e1 is the origin, so its right hand side is 0
+            BigInteger s = a[7].multiply(r2).add(a[8].multiply(r3));
+            if (s.signum() <= 0 || (best != null && s.multiply(best[3]).compareTo(best[2].multiply(d)) >= 0)) {
+                continue;
+            }
+            BigInteger px = a[1].multiply(r2).add(a[2].multiply(r3));
+            BigInteger py = a[4].multiply(r2).add(a[5].multiply(r3));
+            if (isInside(px, py, s, d, 0, 0, false) && isInside(px, py, s, d, bx, by, false) && isInside(px, py, s, d, cx, cy, false)) {
+                best = new BigInteger[]{px, py, s, d};
+            }
+        }
+
+        if (best != null) {
+            best[0] = best[0].add(best[3].multiply(BigInteger.valueOf((long) a1.x)));
+            best[1] = best[1].add(best[3].multiply(BigInteger.valueOf((long) a1.y)));
+        }
+        return best;
+    }
+
+    /**
+     *
+     * @param homothet Min quad as returned by circumscribe
+     * @param x Grid point
+     * @return True if x is inside the min quad and not on its boundary
+     */
+    public boolean containsStrictly(BigInteger[] homothet, Vertex x) {
+        BigInteger d = homothet[3];
+        BigInteger px = homothet[0].subtract(d.multiply(BigInteger.valueOf((long) x.x)));
+        BigInteger py = homothet[1].subtract(d.multiply(BigInteger.valueOf((long) x.y)));
+        return isInside(px, py, homothet[2], d, 0, 0, true);
+    }
+
+    /**
+     * Exact form of HomothetSolver.containsInLimit. The edges that bound the
+     * limit meet at the vertex furthest to the right of ab, and an edge
+     * parallel to ab bounds it alone
+     *
+     * @param a A grid site
+     * @param b Another grid site
+     * @param x Grid point
+     * @return True if x is strictly inside the limit of the min quads through a and b growing to the right of ab
+     */
+    public boolean containsInLimit(Vertex a, Vertex b, Vertex x) {
+        long dx = (long) b.x - (long) a.x, dy = (long) b.y - (long) a.y;
+        long rx = (long) x.x - (long) a.x, ry = (long) x.y - (long) a.y;
+        int n = this.h.length;
+
+        // Right of ab is (dy, -dx), which is clockwise from the normal before the extreme vertex k and not after the one at k
+        int k = -1;
+        for (int i = 0; i < n && k < 0; i ++) {
+            int j = (i + n - 1) % n;
+            if (cross(j, dy, -dx).signum() <= 0 && cross(i, dy, -dx).signum() >= 0) {
+                k = i;
+            }
+        }
+        int j = (k + n - 1) % n;
+        int[] bounds = {j, k};
+        for (int i : new int[]{j, k}) {
+            if (cross(i, dy, -dx).signum() == 0 && dot(i, dy, -dx).signum() > 0) {
+                bounds = new int[]{i};
+            }
+        }
+        for (int i : bounds) {
+            // Each edge line touches the limit at a or b, whichever is further against the normal
+            BigInteger toB = dot(i, dx, dy);
+            BigInteger margin = dot(i, rx, ry).subtract(toB.signum() < 0 ? toB : BigInteger.ZERO);
+            if (margin.signum() <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return True if site (ax, ay) is inside the min quad {px, py, s} / d, on its boundary too unless strict
+     */
+    private boolean isInside(BigInteger px, BigInteger py, BigInteger s, BigInteger d, long ax, long ay, boolean strict) {
+        BigInteger qx = px.subtract(d.multiply(BigInteger.valueOf(ax)));
+        BigInteger qy = py.subtract(d.multiply(BigInteger.valueOf(ay)));
+        for (int i = 0; i < this.h.length; i ++) {
+            int sign = this.nx[i].multiply(qx).add(this.ny[i].multiply(qy)).compareTo(s.multiply(this.h[i]));
+            if (sign > 0 || (strict && sign == 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return n_i . (x, y)
+     */
+    private BigInteger dot(int i, long x, long y) {
+        return this.nx[i].multiply(BigInteger.valueOf(x)).add(this.ny[i].multiply(BigInteger.valueOf(y)));
+    }
+
+    /**
+     *
+     * @return n_i x (x, y), negative if (x, y) is clockwise from n_i
+     */
+    private BigInteger cross(int i, long x, long y) {
+        return this.nx[i].multiply(BigInteger.valueOf(y)).subtract(this.ny[i].multiply(BigInteger.valueOf(x)));
+    }
+
+    /**
+     *
+     * @param m 3x3 matrix by rows
+     * @return Adjugate of m by rows, so m times it is det(m) times the identity
+     */
+    private static BigInteger[] adjugate(BigInteger[] m) {
+        BigInteger[] a = new BigInteger[9];
+        for (int r = 0; r < 3; r ++) {
+            for (int c = 0; c < 3; c ++) {
+                // Cofactor of m[c][r], with the cyclic order giving its sign
+                int r1 = (c + 1) % 3, r2 = (c + 2) % 3, c1 = (r + 1) % 3, c2 = (r + 2) % 3;
+                a[3 * r + c] = m[3 * r1 + c1].multiply(m[3 * r2 + c2]).subtract(m[3 * r1 + c2].multiply(m[3 * r2 + c1]));
+            }
+        }
+        return a;
+    }
+
+    /**
+     *
+     * @param x A coordinate
+     * @param y A coordinate
+     * @param digits Digits needed so far
+     * @return Digits after the point of x, y and the earlier coordinates, which for a double are also the halvings it is made of
+     */
+    private static int scale(double x, double y, int digits) {
+        return Math.max(digits, Math.max(new BigDecimal(x).stripTrailingZeros().scale(), new BigDecimal(y).stripTrailingZeros().scale()));
+    }
+
+    /**
+     *
+     * @return x times 2^digits, an integer when digits is at least its scale
+     */
+    private static BigInteger toInteger(double x, int digits) {
+        return new BigDecimal(x).multiply(new BigDecimal(BigInteger.ONE.shiftLeft(digits))).toBigIntegerExact();
+    }
+}
@@ -0,0 +1,509 @@
+package dt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact stretch factor of the DT with its k worst pairs, for reports where
+ * the cost of checking every pair is acceptable. Sources run Dijkstra in
+ * parallel on a snapshot of the graph, so the DT may change afterwards.
+ *
+ * A few hub vertices get full Dijkstra rows first, which bound every
+ * distance by d(u,v) <= d(h,u) + d(h,v). A target whose bound over its
+ * Euclidean distance cannot beat the k-th worst stretch found so far is
+ * skipped, and each search stops once its remaining targets are settled.
+ * Vertices are bucketed into grid cells, so whole cells of targets are
+ * skipped at once using the largest hub distance in each cell and the gap
+ * between their bounding boxes
+ *
+ * @author Lee Glendenning
+ */
+public class ExactStretchFactor {
+
+    private static final int HUB_COUNT = 4;
+    private static final int VERTICES_PER_CELL = 16;
+
+    private final List<Vertex> vertices;
+    private final int[] ids; // Graph vertex id of each vertex in the snapshot
+    private final int n;
+    private final int[] adjStart; // Neighbours of vertex i are adjTarget[adjStart[i]] to adjTarget[adjStart[i+1]-1]
+    private final int[] adjTarget;
+    private final double[] adjWeight;
+    private final int k;
+    private final double[][] hubDist;
+    private final boolean[] isHub;
+    private final PriorityQueue<Pair> worst; // k worst pairs found so far, the least bad at the head
+    private volatile double threshold; // Stretch a pair must beat to enter worst
+    private int[] cellStart; // Vertices of cell c are cellVertex[cellStart[c]] to cellVertex[cellStart[c+1]-1]
+    private int[] cellVertex;
+    private double[] cellBox; // minX, minY, maxX, maxY of each cell's vertices
+    private double[] cellHubMax; // Largest distance from hub h to a vertex of cell c at c * hubs + h
+    private final ConcurrentLinkedQueue<Search> idle; // Searches not in use by a task
+
+    /**
+     * Pair of vertices, by vertex id, and the stretch between them
+     */
+    public static class Pair {
+        private final int i, j;
+        private final double stretch;
+
+        private Pair(int i, int j, double stretch) {
+            this.i = Math.min(i, j);
+            this.j = Math.max(i, j);
+            this.stretch = stretch;
+        }
+
+        /**
+         *
+         * @return Smaller vertex id of the pair
+         */
+        public int getI() {
+            return this.i;
+        }
+
+        /**
+         *
+         * @return Larger vertex id of the pair
+         */
+        public int getJ() {
+            return this.j;
+        }
+
+        /**
+         *
+         * @return Ratio of the shortest path length between the vertices to their Euclidean distance
+         */
+        public double getStretch() {
+            return this.stretch;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + this.i + ", " + this.j + ") " + this.stretch;
+        }
+    }
+
+    /**
+     * Dijkstra state borrowed by one task at a time and reused for all of its
+     * sources. Distances are unreached everywhere between searches
+     */
+    private static class Search {
+        private final double[] dist;
+        private final int[] stamp; // stamp[v] is u + 1 while v is a target of source u
+        private final int[] touched;
+        private int touchedCount;
+        private final IndexMinHeap heap;
+        private int[] candidates; // Vertices of the cells a source cell cannot skip
+
+        private Search(int n) {
+            this.dist = new double[n];
+            this.stamp = new int[n];
+            this.touched = new int[n];
+            this.heap = new IndexMinHeap(n);
+            this.candidates = new int[16];
+            Arrays.fill(this.dist, Double.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Runs on the common fork join pool
+     *
+     * @param graph Graph of the DT, whose live edges form the graph
+     * @param k Number of worst pairs to keep, at least 1
+     */
+    public ExactStretchFactor(Graph graph, int k) {
+        this(graph, k, ForkJoinPool.commonPool());
+    }
+
+    /**
+     *
+     * @param graph Graph of the DT, whose live edges form the graph
+     * @param k Number of worst pairs to keep, at least 1
+     * @param pool Pool to run the searches on
+     */
+    public ExactStretchFactor(Graph graph, int k, ForkJoinPool pool) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        List<Vertex> vertices = graph.getVertices();
+        this.vertices = vertices;
+        this.n = vertices.size();
+        this.k = k;
+        // Position of each vertex in the snapshot by vertex id, -1 for free ids
+        int bound = graph.getVertexIdBound();
+        int[] index = new int[bound];
+        Arrays.fill(index, -1);
+        this.ids = new int[this.n];
+        for (int i = 0; i < this.n; i ++) {
+            this.ids[i] = graph.getVertexId(vertices.get(i));
+            index[this.ids[i]] = i;
+        }
+
+        // Compressed adjacency lists
+        this.adjStart = new int[this.n + 1];
+        int[] target = new int[16];
+        double[] weight = new double[16];
+        int m = 0;
+        for (int i = 0; i < this.n; i ++) {
+            this.adjStart[i] = m;
+            for (Vertex neighbour : graph.getNeighbours(vertices.get(i))) {
+                int id = graph.getVertexId(neighbour);
+                int j = id >= 0 && id < bound ? index[id] : -1;
+                if (j < 0) {
+                    continue;
+                }
+                if (m == target.length) {
+                    target = Arrays.copyOf(target, 2 * m);
+                    weight = Arrays.copyOf(weight, 2 * m);
+                }
+                target[m] = j;
+                weight[m] = Utility.euclideanDistance(vertices.get(i), neighbour);
+                m ++;
+            }
+        }
+        this.adjStart[this.n] = m;
+        this.adjTarget = target;
+        this.adjWeight = weight;
+
+        this.worst = new PriorityQueue<>(k, new Comparator<Pair>() {
+            @Override
+            public int compare(Pair p1, Pair p2) {
+                return Double.compare(p1.stretch, p2.stretch);
+            }
+        });
+        this.threshold = 0;
+        this.idle = new ConcurrentLinkedQueue<>();
+        this.isHub = new boolean[this.n];
+        this.hubDist = computeHubs();
+        if (this.n > 1) {
+            computeCells();
+            pool.invoke(new SourceTask(0, this.cellStart.length - 1));
+        }
+        this.idle.clear();
+    }
+
+    /**
+     *
+     * @return Largest ratio of shortest path length to Euclidean distance over all connected pairs, or 0 if there are none
+     */
+    public double getStretchFactor() {
+        List<Pair> pairs = getWorstPairs();
+        return pairs.isEmpty() ? 0 : pairs.get(0).stretch;
+    }
+
+    /**
+     *
+     * @return Up to k connected pairs with the largest stretch, worst first
+     */
+    public List<Pair> getWorstPairs() {
+        List<Pair> pairs = new ArrayList<>(this.worst);
+        Collections.sort(pairs, Collections.reverseOrder(this.worst.comparator()));
+        return pairs;
+    }
+
+    /**
+     * Parallel loop over a range of source cells, split in half until it is a
+     * single cell
+     */
+    @SuppressWarnings("serial")
+    private class SourceTask extends RecursiveAction {
+        private final int from, to;
+
+        private SourceTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= 1) {
+                Search search = ExactStretchFactor.this.idle.poll();
+                if (search == null) {
+                    search = new Search(ExactStretchFactor.this.n);
+                }
+                for (int c = this.from; c < this.to; c ++) {
+                    searchFromCell(c, search);
+                }
+                ExactStretchFactor.this.idle.offer(search);
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new SourceTask(this.from, mid), new SourceTask(mid, this.to));
+        }
+    }
+
+    /**
+     * Pick hubs spread across the graph, each the vertex farthest from those
+     * already picked, and record their pairs, which are then known exactly
+     *
+     * @return Distances from each hub to every vertex
+     */
+    private double[][] computeHubs() {
+        int hubs = Math.min(HUB_COUNT, this.n);
+        double[][] rows = new double[hubs][];
+        double[] nearestHub = new double[this.n];
+        Arrays.fill(nearestHub, Double.MAX_VALUE);
+        int hub = 0;
+        for (int h = 0; h < hubs; h ++) {
+            Search search = new Search(this.n);
+            dijkstra(hub, search, Integer.MAX_VALUE);
+            rows[h] = search.dist.clone();
+            this.isHub[hub] = true; // Pairs with earlier hubs were offered from their rows
+            for (int v = 0; v < this.n; v ++) {
+                if (!this.isHub[v] && rows[h][v] != Double.MAX_VALUE) {
+                    offer(hub, v, rows[h][v] / Utility.euclideanDistance(this.vertices.get(hub), this.vertices.get(v)));
+                }
+            }
+
+            int next = -1;
+            for (int v = 0; v < this.n; v ++) {
+                if (rows[h][v] != Double.MAX_VALUE) {
+                    nearestHub[v] = Math.min(nearestHub[v], rows[h][v]);
+                }
+                if (!this.isHub[v] && nearestHub[v] != Double.MAX_VALUE && (next < 0 || nearestHub[v] > nearestHub[next])) {
+                    next = v;
+                }
+            }
+            if (next < 0) {
+                return Arrays.copyOf(rows, h + 1);
+            }
+            hub = next;
+        }
+        return rows;
+    }
+
+    /**
+     * Bucket the vertices into a square grid over their bounding box, with
+     * about VERTICES_PER_CELL vertices per cell, and record each cell's
+     * bounding box and largest distance from every hub
+     */
+    private void computeCells() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Vertex v : this.vertices) {
+            minX = Math.min(minX, v.x);
+            minY = Math.min(minY, v.y);
+            maxX = Math.max(maxX, v.x);
+            maxY = Math.max(maxY, v.y);
+        }
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt((double) this.n / VERTICES_PER_CELL)));
+        double width = Math.max(maxX - minX, Double.MIN_NORMAL) / side;
+        double height = Math.max(maxY - minY, Double.MIN_NORMAL) / side;
+        int cells = side * side;
+
+        int[] cellOf = new int[this.n];
+        this.cellStart = new int[cells + 1];
+        for (int i = 0; i < this.n; i ++) {
+            Vertex v = this.vertices.get(i);
+            int cx = Math.min(side - 1, (int) ((v.x - minX) / width));
+            int cy = Math.min(side - 1, (int) ((v.y - minY) / height));
+            cellOf[i] = cy * side + cx;
+            this.cellStart[cellOf[i] + 1] ++;
+        }
+        for (int c = 0; c < cells; c ++) {
+            this.cellStart[c + 1] += this.cellStart[c];
+        }
+        this.cellVertex = new int[this.n];
+        int[] fill = Arrays.copyOf(this.cellStart, cells);
+        for (int i = 0; i < this.n; i ++) {
+            this.cellVertex[fill[cellOf[i]] ++] = i;
+        }
+
+        int hubs = this.hubDist.length;
+        this.cellBox = new double[4 * cells];
+        this.cellHubMax = new double[cells * hubs];
+        for (int c = 0; c < cells; c ++) {
+            double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+            for (int p = this.cellStart[c]; p < this.cellStart[c + 1]; p ++) {
+                int i = this.cellVertex[p];
+                Vertex v = this.vertices.get(i);
+                box[0] = Math.min(box[0], v.x);
+                box[1] = Math.min(box[1], v.y);
+                box[2] = Math.max(box[2], v.x);
+                box[3] = Math.max(box[3], v.y);
+                for (int h = 0; h < hubs; h ++) {
+                    this.cellHubMax[c * hubs + h] = Math.max(this.cellHubMax[c * hubs + h], this.hubDist[h][i]);
+                }
+            }
+            System.arraycopy(box, 0, this.cellBox, 4 * c, 4);
+        }
+    }
+
+    /**
+     *
+     * @param a Index of a cell
+     * @param b Index of another cell
+     * @param tau Stretch a pair must beat
+     * @return True if no pair with one vertex in each cell can beat tau
+     */
+    private boolean cellsSkippable(int a, int b, double tau) {
+        int hubs = this.hubDist.length;
+        double bound = Double.MAX_VALUE;
+        for (int h = 0; h < hubs; h ++) {
+            double reachA = this.cellHubMax[a * hubs + h], reachB = this.cellHubMax[b * hubs + h];
+            if (reachA != Double.MAX_VALUE && reachB != Double.MAX_VALUE) {
+                bound = Math.min(bound, reachA + reachB); // Every vertex of both cells is connected through h
+            }
+        }
+        if (bound == Double.MAX_VALUE) {
+            return false;
+        }
+        double dx = Math.max(0, Math.max(this.cellBox[4 * a] - this.cellBox[4 * b + 2], this.cellBox[4 * b] - this.cellBox[4 * a + 2]));
+        double dy = Math.max(0, Math.max(this.cellBox[4 * a + 1] - this.cellBox[4 * b + 3], this.cellBox[4 * b + 1] - this.cellBox[4 * a + 3]));
+        return bound <= tau * Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Collect the vertices of the later cells that cell a cannot skip as a
+     * whole, then search from each vertex of a
+     *
+     * @param a Index of the source cell
+     * @param search Dijkstra state of this task
+     */
+    private void searchFromCell(int a, Search search) {
+        if (this.cellStart[a] == this.cellStart[a + 1]) {
+            return;
+        }
+        double tau = this.threshold;
+        int count = 0;
+        for (int b = a + 1; b < this.cellStart.length - 1; b ++) {
+            int size = this.cellStart[b + 1] - this.cellStart[b];
+            if (size == 0 || cellsSkippable(a, b, tau)) {
+                continue;
+            }
+            if (count + size > search.candidates.length) {
+                search.candidates = Arrays.copyOf(search.candidates, Math.max(2 * search.candidates.length, count + size));
+            }
+            System.arraycopy(this.cellVertex, this.cellStart[b], search.candidates, count, size);
+            count += size;
+        }
+        for (int p = this.cellStart[a]; p < this.cellStart[a + 1]; p ++) {
+            searchFrom(p, this.cellStart[a + 1], search, count);
+        }
+    }
+
+    /**
+     * Find the pairs of u with the vertices after it in its cell and with
+     * the candidates that could beat the current threshold, then search from
+     * u until all of them are settled
+     *
+     * @param p Position of the source u in cellVertex
+     * @param end Position just past the last vertex of u's cell
+     * @param search Dijkstra state of this task, holding the candidates of u's cell
+     * @param count Number of candidates
+     */
+    private void searchFrom(int p, int end, Search search, int count) {
+        int u = this.cellVertex[p];
+        if (this.isHub[u]) {
+            return;
+        }
+        double tau = this.threshold;
+        int targets = 0;
+        for (int q = p + 1; q < end; q ++) {
+            targets += stampTarget(u, this.cellVertex[q], tau, search);
+        }
+        for (int t = 0; t < count; t ++) {
+            targets += stampTarget(u, search.candidates[t], tau, search);
+        }
+        if (targets > 0) {
+            dijkstra(u, search, targets);
+        }
+
+        search.heap.clear();
+        for (int t = 0; t < search.touchedCount; t ++) {
+            search.dist[search.touched[t]] = Double.MAX_VALUE;
+        }
+        search.touchedCount = 0;
+    }
+
+    /**
+     * Stamp v as a target of u unless the hubs show that the pair is not
+     * connected or cannot beat tau
+     *
+     * @param u Index of the source
+     * @param v Index of another vertex
+     * @param tau Stretch the pair must beat
+     * @param search Dijkstra state of this task
+     * @return 1 if v was stamped, otherwise 0
+     */
+    private int stampTarget(int u, int v, double tau, Search search) {
+        if (this.isHub[v]) {
+            return 0;
+        }
+        double bound = Double.MAX_VALUE;
+        for (double[] row : this.hubDist) {
+            if ((row[u] == Double.MAX_VALUE) != (row[v] == Double.MAX_VALUE)) {
+                return 0; // Exactly one of them is connected to the hub
+            }
+            if (row[u] != Double.MAX_VALUE) {
+                bound = Math.min(bound, row[u] + row[v]);
+            }
+        }
+        if (bound != Double.MAX_VALUE &&
+                bound <= tau * Utility.euclideanDistance(this.vertices.get(u), this.vertices.get(v))) {
+            return 0;
+        }
+        search.stamp[v] = u + 1;
+        return 1;
+    }
+
+    /**
+     * Dijkstra from u, offering each stamped target as it is settled
+     *
+     * @param u Index of the source
+     * @param search Dijkstra state, unreached everywhere
+     * @param targets Number of stamped targets, after which the search stops
+     */
+    private void dijkstra(int u, Search search, int targets) {
+        search.dist[u] = 0;
+        search.touched[search.touchedCount ++] = u;
+        search.heap.insertOrDecrease(u, 0);
+        while (!search.heap.isEmpty() && targets > 0) {
+            int x = search.heap.pollMin();
+            if (search.stamp[x] == u + 1) {
+                targets --;
+                double stretch = search.dist[x] / Utility.euclideanDistance(this.vertices.get(u), this.vertices.get(x));
+                if (stretch > this.threshold) {
+                    offer(u, x, stretch);
+                }
+            }
+            for (int e = this.adjStart[x]; e < this.adjStart[x + 1]; e ++) {
+                int w = this.adjTarget[e];
+                double d = search.dist[x] + this.adjWeight[e];
+                if (d < search.dist[w]) {
+                    if (search.dist[w] == Double.MAX_VALUE) {
+                        search.touched[search.touchedCount ++] = w;
+                    }
+                    search.dist[w] = d;
+                    search.heap.insertOrDecrease(w, d);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param u Index of a vertex
+     * @param v Index of another vertex
+     * @param stretch Stretch between u and v
+     */
+    private synchronized void offer(int u, int v, double stretch) {
+        int uId = this.ids[u], vId = this.ids[v];
+        if (this.worst.size() < this.k) {
+            this.worst.add(new Pair(uId, vId, stretch));
+        } else if (stretch > this.worst.peek().stretch) {
+            this.worst.poll();
+            this.worst.add(new Pair(uId, vId, stretch));
+        }
+        if (this.worst.size() == this.k) {
+            this.threshold = this.worst.peek().stretch;
+        }
+    }
+}
@@ -37,10 +37,16 @@ public class FindBisectorsThreeSites {
      */
     public Bisector findBisectorOfThreeSites(Quadrilateral q, HashMap<List<Vertex>, List<Bisector>> bisectors2S, Vertex v1, Vertex v2, Vertex v3) throws NullPointerException {
         Utility.debugPrintln("\nFinding Bisector Between 3 sites:");
-        Vertex pLeft = new Vertex(), pRight = new Vertex();
-        Utility.setLeftAndRightVertex(v1, v2, pLeft, pRight, Utility.calculateAngle(v1, v2));
+        if (q.isCentrallySymmetric()) {
+            return findParallelogramB3S(q, v1, v2, v3);
+        }
+        
+        Vertex[] leftRight = Utility.leftAndRightVertex(v1, v2);
+        Vertex pLeft = leftRight[0], pRight = leftRight[1];
                     
-        Utility.debugPrintln("a1 = " + pLeft + " a2 = " + pRight + " a3 = " + v3);
+        if (Utility.debugMode) {
+            Utility.debugPrintln("a1 = " + pLeft + " a2 = " + pRight + " a3 = " + v3);
+        }
         int bisectorCase = caseBisectorBetween3Vertices(q, pLeft, pRight, v3);
         if (bisectorCase == 1) {
             return null;
@@ -88,6 +94,29 @@ public class FindBisectorsThreeSites {
         return null;
     }
     
+    /**
+     * For a quad symmetric about its center the B3S is the center of the
+     * smallest homothet through the three sites, so the case analysis and the
+     * B2S intersections are skipped
+     * 
+     * @param q Quadrilateral around each vertex
+     * @param v1 A vertex to find bisector of
+     * @param v2 A vertex to find bisector of
+     * @param v3 A vertex to find bisector of
+     * @return The chosen B3S, or null if no homothet goes through the three sites
+     */
+    private Bisector findParallelogramB3S(Quadrilateral q, Vertex v1, Vertex v2, Vertex v3) {
+        double[] homothet = q.getHomothetSolver().circumscribe(v1, v2, v3);
+        if (homothet == null) {
+            return null;
+        }
+        Vertex center = new Vertex(homothet[0], homothet[1]);
+        Bisector bisector = new Bisector(new Vertex[]{v1, v2, v3}, center, center, "b3s_chosen");
+        bisector.setMinQuadScale(homothet[2]);
+        this.chosenBisectors.add(bisector.deepCopy());
+        return bisector;
+    }
+    
     /**
      * Case 1. If a3 lies in the interior of FG12 then BC(a1; a2; a3) is empty.
      * Case 2. If a3 lies in the complement of FG12 then BC(a1; a2; a3) consists of exactly
@@ -244,9 +273,9 @@ public class FindBisectorsThreeSites {
      * @return Vertex array holding u and vertices representing its 2 rays and v and vertices representing its 2 rays respectively
      */
     private Vertex[] finduv(Quadrilateral q, Vertex a1, Vertex a2) throws NullPointerException{
-        double angle = Utility.calculateAngle(a1, a2);
         Vertex[] td = new Vertex[2];
-        ArrayList<Vertex> niVerts = Utility.findNonInnerVertices(q, a1, a2, angle);
+        ArrayList<Vertex> niVerts = Utility.findNonInnerVertices(q, a1, a2);
+        double[] direction = QuadProfile.getDirection(a1, a2); // Frame with a1a2 parallel to x axis
         
         switch (niVerts.size()) {
             case 2:
@@ -255,14 +284,14 @@ public class FindBisectorsThreeSites {
                 break;
             case 3:
                 double tolerance = 0.00001;
-                if (Math.abs(Utility.rotateVertex(niVerts.get(0), Utility.midpoint(a1, a2), angle).y - Utility.rotateVertex(niVerts.get(1), Utility.midpoint(a1, a2), angle).y) < tolerance) {
+                if (Math.abs(QuadProfile.rotatedYGap(niVerts.get(0), niVerts.get(1), direction)) < tolerance) {
                     if (niVerts.get(0).x > niVerts.get(1).x) {
                         td[0] = niVerts.get(0);
                     } else {
                         td[0] = niVerts.get(1);
                     }   
                     td[1] = niVerts.get(2);
-                } else if (Math.abs(Utility.rotateVertex(niVerts.get(1), Utility.midpoint(a1, a2), angle).y - Utility.rotateVertex(niVerts.get(2), Utility.midpoint(a1, a2), angle).y) < tolerance) {
+                } else if (Math.abs(QuadProfile.rotatedYGap(niVerts.get(1), niVerts.get(2), direction)) < tolerance) {
                     td[0] = niVerts.get(0);
                     if (niVerts.get(1).x > niVerts.get(2).x) {
                         td[1] = niVerts.get(1);
@@ -272,12 +301,12 @@ public class FindBisectorsThreeSites {
                 }
                 break;
             case 4:
-                if (Utility.rotateVertex(niVerts.get(0), Utility.midpoint(a1, a2), angle).x > Utility.rotateVertex(niVerts.get(1), Utility.midpoint(a1, a2), angle).x) {
+                if (QuadProfile.rotatedXGap(niVerts.get(1), niVerts.get(0), direction) > 0) {
                     td[0] = niVerts.get(0);
                 } else {
                     td[0] = niVerts.get(1);
                 }
-                if (Utility.rotateVertex(niVerts.get(2), Utility.midpoint(a1, a2), angle).x > Utility.rotateVertex(niVerts.get(1), Utility.midpoint(a1, a2), angle).x) {
+                if (QuadProfile.rotatedXGap(niVerts.get(1), niVerts.get(2), direction) > 0) {
                     td[1] = niVerts.get(2);
                 } else {
                     td[1] = niVerts.get(3);
@@ -291,7 +320,7 @@ public class FindBisectorsThreeSites {
         double tolerance = 0.00001;
         Vertex[] v1;
         // Edge parallel to a1a2
-        if (Math.abs(td[1].y - Utility.rotateVertex(q.prevVertex(td[1]), Utility.midpoint(a1, a2), angle).y) < tolerance) {
+        if (Math.abs(QuadProfile.rotatedYGap(q.prevVertex(td[1]), td[1], direction)) < tolerance) {
             Utility.debugPrintln("Handling B3S triangle FG region");
             v1 = findB3SUVRays(q, td[1], a1, q.prevVertex(td[1]));
         } else {
@@ -300,28 +329,23 @@ public class FindBisectorsThreeSites {
         
         Vertex[] v2 = findB3SUVRays(q, td[1], a2, q.prevVertex(td[1]));
         
-        Vertex u = Utility.doLineSegmentsIntersect(u1[0], u1[1], u2[0], u2[1]);
-        Vertex v = Utility.doLineSegmentsIntersect(v1[0], v1[1], v2[0], v2[1]);
+        Vertex u = intersectRays(u1, u2);
+        Vertex v = intersectRays(v1, v2);
         
         // If u or v are null, it is possible that an FG line segment passes through
-        // vertex a1 or a2. This is an extra check for that case since it is not
-        // caught in the first check for some reason
+        // vertex a1 or a2, so the rays are parallel
         if (u == null) {
-            if (Utility.isLeftOfSegment(Utility.rotateVertex(u2[0], Utility.midpoint(a1, a2), -angle),
-                    Utility.rotateVertex(u2[1], Utility.midpoint(a1, a2), -angle), a1, 0.1) == 0) {
-                u = a1.deepCopy();
-            } else if (Utility.isLeftOfSegment(Utility.rotateVertex(u1[0], Utility.midpoint(a1, a2), -angle),
-                    Utility.rotateVertex(u1[1], Utility.midpoint(a1, a2), -angle), a2, 0.1) == 0) {
-                u = a2.deepCopy();
+            if (isOnRay(u2, a1)) {
+                u = a1;
+            } else if (isOnRay(u1, a2)) {
+                u = a2;
             }
         }
         if (v == null) {
-            if (Utility.isLeftOfSegment(Utility.rotateVertex(v2[0], Utility.midpoint(a1, a2), -angle),
-                    Utility.rotateVertex(v2[1], Utility.midpoint(a1, a2), -angle), a1, 0.1) == 0) {
-                v = a1.deepCopy();
-            } else if (Utility.isLeftOfSegment(Utility.rotateVertex(v1[0], Utility.midpoint(a1, a2), -angle),
-                    Utility.rotateVertex(v1[1], Utility.midpoint(a1, a2), -angle), a2, 0.1) == 0) {
-                v = a2.deepCopy();
+            if (isOnRay(v2, a1)) {
+                v = a1;
+            } else if (isOnRay(v1, a2)) {
+                v = a2;
             }
         }
         
@@ -334,48 +358,43 @@ public class FindBisectorsThreeSites {
         return new Vertex[]{u, u1[3], u2[3], v, v1[3], v2[3]};
     }
     
+    /**
+     * 
+     * @param ray1 Ray as {origin, far point, ...} from findB3SUVRays
+     * @param ray2 Ray as {origin, far point, ...} from findB3SUVRays
+     * @return Intersection vertex of the rays, or null if they are parallel or do not meet
+     */
+    private static Vertex intersectRays(Vertex[] ray1, Vertex[] ray2) {
+        double[] intersection = new double[2];
+        if (GeometryKernel.intersectRays(ray1[0].x, ray1[0].y, ray1[1].x - ray1[0].x, ray1[1].y - ray1[0].y,
+                ray2[0].x, ray2[0].y, ray2[1].x - ray2[0].x, ray2[1].y - ray2[0].y, intersection)) {
+            return new Vertex(intersection[0], intersection[1]);
+        }
+        return null;
+    }
+    
+    /**
+     * 
+     * @param ray Ray as {origin, far point, ...} from findB3SUVRays
+     * @param c Query vertex
+     * @return True if c is on the ray
+     */
+    private static boolean isOnRay(Vertex[] ray, Vertex c) {
+        return Utility.isLeftOfSegment(ray[0], ray[1], c, 0.1) == 0;
+    }
+    
     /**
      * 
      * @param endPt Initial endPt of ray
      * @param a Vertex to translate endPt to
      * @param nextPt Vertex initial ray passes through
-     * @return Vertex array containing ray starting at endPt and passing through nextPt then translated to a
+     * @return Vertex array containing ray starting at endPt and passing through nextPt then translated to a, and the opposite ray from a, each as {origin, far point}
      */
     private Vertex[] findB3SUVRays(Quadrilateral quad, Vertex endPt, Vertex a, Vertex nextPt) {
-        Vertex v1 = new Vertex(), v2 = new Vertex();
-        // EndPt is relative to Quadrilateral. Translate relative to a
-        v1.x = endPt.x + a.x - quad.getCenter().x;
-        v1.y = endPt.y + a.y - quad.getCenter().y;
-        
-        // NonInnerVertex is relative to Quadrilateral. Translate relative to a
-        v2.x = nextPt.x + a.x - quad.getCenter().x;
-        v2.y = nextPt.y + a.y - quad.getCenter().y;
-        
-        // v1,v2 is now an edge of the quad around a
-        
-        // Define the direction of the ray starting at a
-        double rayEndx = Utility.RAY_SIZE;
-        //Utility.debugPrintln(a + " : " + nonInnerVertex);
-        double tolerance = 0.0001;
-        if (v1.x > v2.x+tolerance || (Math.abs(Math.abs(v1.x) - Math.abs(v2.x)) < tolerance && v1.y+tolerance < v2.y)) {
-            rayEndx = -Utility.RAY_SIZE;
-        }
-        
-        Vertex rayEnd = new Vertex(rayEndx, a.y); // End vertex of ray which is basically + or - infinity
-        Vertex rayEnd2 = new Vertex(-rayEndx, a.y);
-        
-        double angle = Utility.calculateAngle(v1, v2);
-        // Make angle negative due to the rayEndx direction
-        // Maybe could be cleaner but this works
-        if (angle > 0) {
-            angle *= -1;
-        }
-        
-        // Define ray by rotating rayEnd such that it has slope(a, nonInnerVertex)
-        Vertex[] ray = {a, Utility.rotateVertex(rayEnd, a, angle)};
-        Vertex[] ray2 = {a, Utility.rotateVertex(rayEnd2, a, angle)};
+        // Translating the quad edge from endPt to nextPt to a keeps its direction
+        double dx = nextPt.x - endPt.x, dy = nextPt.y - endPt.y;
         
-        return new Vertex[]{ray[0], ray[1], ray2[0], ray2[1]};
+        return new Vertex[]{a, Utility.farPointOnRay(a, dx, dy), a, Utility.farPointOnRay(a, -dx, -dy)};
     }
     
     /**
@@ -591,16 +610,17 @@ public class FindBisectorsThreeSites {
      * @return Line segment representing overlap of P and Q
      */
     private Vertex[] doLineSegmentsOverlap(Vertex v1, Vertex v2, Vertex q1, Vertex q2) {
-        if (v1.equals(v2) || q1.equals(q2)) {
+        if (Utility.equalVertexs(v1, v2, 0.01) || Utility.equalVertexs(q1, q2, 0.01)) {
             return null;
         }
         
         double overlapTolerane = 0.1;
         Vertex[] overlap = {null, null};
         
-        Vertex pl = new Vertex(), pr = new Vertex(), ql = new Vertex(), qr = new Vertex();
-        Utility.setLeftAndRightVertex(v1, v2, pl, pr, Utility.calculateAngle(v1, v2));
-        Utility.setLeftAndRightVertex(q1, q2, ql, qr, Utility.calculateAngle(q1, q2));
+        Vertex[] leftRight = Utility.leftAndRightVertex(v1, v2);
+        Vertex pl = leftRight[0], pr = leftRight[1];
+        leftRight = Utility.leftAndRightVertex(q1, q2);
+        Vertex ql = leftRight[0], qr = leftRight[1];
         
         // Adjust ray endvertices to be at screen boundary
         if (vertexIsInfinite(pl)) {
@@ -645,7 +665,7 @@ public class FindBisectorsThreeSites {
             overlap[1] = pr;
         }
         
-        if (overlap[0] == null || overlap[1] == null || overlap[0].equals(overlap[1])) {
+        if (overlap[0] == null || overlap[1] == null || Utility.equalVertexs(overlap[0], overlap[1], 0.01)) {
             return null;
         } else {
             return overlap;
@@ -3,7 +3,6 @@ package dt;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 
@@ -17,8 +16,21 @@ public class FindBisectorsTwoSites {
     private final HashMap<List<Vertex>, List<Bisector>> bisectors2S; // Keyed by adjacent Vertices[2]
     private final List<Bisector> displayEdges;
     private int coneID = 0;
+    private final BisectorCache cache;
     
+    /**
+     * Empty constructor uses a cache of its own
+     */
     public FindBisectorsTwoSites() {
+        this(new BisectorCache());
+    }
+    
+    /**
+     * 
+     * @param cache Cache of B2S shared with earlier instances, valid for the sites still in the vertex set
+     */
+    public FindBisectorsTwoSites(BisectorCache cache) {
+        this.cache = cache;
         this.h1 = new ArrayList();
         this.h2 = new ArrayList();
         this.g1 = new ArrayList();
@@ -37,37 +49,235 @@ public class FindBisectorsTwoSites {
      * @return HashMap of B2S
      */
     public HashMap<List<Vertex>, List<Bisector>> findBisectorOfTwoSites(Quadrilateral quad, Vertex p1, Vertex p2) {
-        double angle = Utility.calculateAngle(p1, p2); // Angle that slope(p1p2) makes with x axis
+        BisectorCache.Entry cached = this.cache.get(quad, p1, p2);
+        if (cached != null) {
+            Vertex[] hg = cached.getHgVertices();
+            if (hg != null) {
+                addHgVertices(hg);
+            }
+            HashMap<List<Vertex>, List<Bisector>> tempB2S = new HashMap<>();
+            tempB2S.put(Arrays.asList(p1, p2), copyWithNewConeIDs(cached.getBisectors(), p1, p2));
+            return tempB2S;
+        }
         
-        Vertex a1 = new Vertex(), a2 = new Vertex();
-        Utility.setLeftAndRightVertex(p1, p2, a1, a2, angle);
+        int hgCount = this.h1.size();
         
-        // Two "middle" vertices of quad wrt y value and angle
-        Vertex[] innerVertices = findInnerVertices(quad, angle);
+        BisectorTemplate template = quad.getProfile().getTemplate(p1, p2);
+        HashMap<List<Vertex>, List<Bisector>> tempB2S;
+        if (quad.isCentrallySymmetric()) {
+            tempB2S = instantiateParallelogram((ParallelogramSolver)quad.getHomothetSolver(), p1, p2);
+        } else if (template != null) {
+            tempB2S = instantiateTemplate(template, quad, p1, p2);
+        } else {
+            tempB2S = constructBisector(quad, p1, p2);
+        }
+        
+        // Templates and constructed B2S add one set of h and g vertices, parallelograms none
+        Vertex[] hg = this.h1.size() == hgCount ? null : new Vertex[]{this.h1.get(hgCount), this.h2.get(hgCount), this.g1.get(hgCount), this.g2.get(hgCount)};
+        this.cache.put(quad, p1, p2, new BisectorCache.Entry(new ArrayList<>(tempB2S.get(Arrays.asList(p1, p2))), hg));
+        return tempB2S;
+    }
+    
+    /**
+     * 
+     * @param hg {h1, h2, g1, g2} of a pair of sites, to show with the others
+     */
+    private void addHgVertices(Vertex[] hg) {
+        this.h1.add(hg[0]);
+        this.h2.add(hg[1]);
+        this.g1.add(hg[2]);
+        this.g2.add(hg[3]);
+    }
+    
+    /**
+     * Find the B2S for a direction with no ties between quad vertices, whose
+     * shape is known from the template
+     * 
+     * @param template Template of the B2S for the direction of p1p2
+     * @param quad Quadrilateral to iterate over
+     * @param p1 A vertex in the vertex set
+     * @param p2 A vertex in the vertex set
+     * @return HashMap of B2S
+     */
+    private HashMap<List<Vertex>, List<Bisector>> instantiateTemplate(BisectorTemplate template, Quadrilateral quad, Vertex p1, Vertex p2) {
+        double[] direction = QuadProfile.getDirection(p1, p2);
+        Vertex a1, a2;
+        if (QuadProfile.rotatedXGap(p1, p2, direction) >= 0) {
+            a1 = p1;
+            a2 = p2;
+        } else {
+            a1 = p2;
+            a2 = p1;
+        }
         
-        h1.add(new Vertex());
-        h2.add(new Vertex());
-        g1.add(new Vertex());
-        g2.add(new Vertex());
-        findh12g12(h1.get(h1.size()-1), h2.get(h1.size()-1), g1.get(h1.size()-1), g2.get(h1.size()-1), a1, a2, quad, innerVertices, angle);
+        Vertex[] h12g12 = template.findh12g12(a1, a2, quad.getCenter(), direction);
+        addHgVertices(h12g12);
         
         // Endvertices of main bisector between p1 and p2
-        Vertex h = doRaysIntersect(a1, h1.get(h1.size()-1), a2, h2.get(h2.size()-1));
-        Vertex g = doRaysIntersect(a1, g1.get(g1.size()-1), a2, g2.get(g2.size()-1));
+        Vertex h = intersectRays(a1, h12g12[0], a2, h12g12[1]);
+        Vertex g = intersectRays(a1, h12g12[2], a2, h12g12[3]);
+        
+        ArrayList<Bisector> tempB = new ArrayList<>();
+        tempB.add(new Bisector(new Vertex[]{p1, p2}, h, g, "b2s_chosen"));
+        
+        // No hidden cones away from critical directions, just one ray from each end
+        QuadProfile profile = quad.getProfile();
+        Vertex[] ray = findBisectorRay(h, a1, profile.getVertex(template.getLowVertex()), quad);
+        tempB.add(new Bisector(new Vertex[]{p1, p2}, ray[0], ray[1], "b2s_chosen"));
+        ray = findBisectorRay(g, a1, profile.getVertex(template.getHighVertex()), quad);
+        tempB.add(new Bisector(new Vertex[]{p1, p2}, ray[0], ray[1], "b2s_chosen"));
+        
+        HashMap<List<Vertex>, List<Bisector>> tempB2S = new HashMap<>();
+        tempB2S.put(Arrays.asList(p1, p2), tempB);
+        return tempB2S;
+    }
+    
+    /**
+     * Find the B2S for a quad symmetric about its center. In the frame where the
+     * quad is a square the B2S is the L infinity bisector: a segment across the
+     * larger coordinate gap of p1p2 with a 45 degree ray from each end, or a cone
+     * at each end when p1p2 is parallel to an edge of the square
+     * 
+     * @param solver Solver of the quad, which holds the map to the square frame
+     * @param p1 A vertex in the vertex set
+     * @param p2 A vertex in the vertex set
+     * @return HashMap of B2S
+     */
+    private HashMap<List<Vertex>, List<Bisector>> instantiateParallelogram(ParallelogramSolver solver, Vertex p1, Vertex p2) {
+        double[] d = new double[2];
+        solver.toSquareFrame(p2.x - p1.x, p2.y - p1.y, d);
+        
+        // Work in (major, minor) coordinates, major being the larger gap between the sites
+        boolean uMajor = Math.abs(d[0]) >= Math.abs(d[1]);
+        double major = uMajor ? d[0] : d[1];
+        double minor = uMajor ? d[1] : d[0];
+        double half = (Math.abs(major) - Math.abs(minor)) / 2;
+        Vertex top = fromMajorMinor(solver, p1, uMajor, major / 2, minor / 2 + half);
+        Vertex bottom = fromMajorMinor(solver, p1, uMajor, major / 2, minor / 2 - half);
+        
+        Vertex[] adjacents = new Vertex[]{p1, p2};
+        ArrayList<Bisector> tempB = new ArrayList<>();
+        tempB.add(new Bisector(adjacents, top, bottom, "b2s_chosen"));
+        
+        if (Math.abs(minor) < GeometryKernel.PARALLEL_TOLERANCE * Math.abs(major)) {
+            // The sites are at equal distance from every point beyond either end
+            Vertex[] leftRight = Utility.leftAndRightVertex(p1, p2);
+            addCone(tempB, solver, adjacents, top, uMajor, 1, leftRight[0], leftRight[1]);
+            addCone(tempB, solver, adjacents, bottom, uMajor, -1, leftRight[0], leftRight[1]);
+        } else {
+            double sign = Math.signum(major) * Math.signum(minor);
+            Vertex ray = fromMajorMinor(solver, new Vertex(0, 0), uMajor, -sign, 1);
+            tempB.add(new Bisector(adjacents, top, Utility.farPointOnRay(top, ray.x, ray.y), "b2s_chosen"));
+            ray = fromMajorMinor(solver, new Vertex(0, 0), uMajor, sign, -1);
+            tempB.add(new Bisector(adjacents, bottom, Utility.farPointOnRay(bottom, ray.x, ray.y), "b2s_chosen"));
+        }
+        
+        HashMap<List<Vertex>, List<Bisector>> tempB2S = new HashMap<>();
+        tempB2S.put(Arrays.asList(p1, p2), tempB);
+        return tempB2S;
+    }
+    
+    /**
+     * Add the two edges of a cone of an L infinity B2S. The edge further along
+     * a1a2 is chosen and the other hidden, as in calculateAllBisectorRays
+     * 
+     * @param tempB B2S being built
+     * @param solver Solver of the quad, which holds the map to the square frame
+     * @param adjacents The two sites of the B2S
+     * @param apex Apex of the cone
+     * @param uMajor True if the major coordinate is the first of the square frame
+     * @param side 1 for the cone above the segment in the minor coordinate, -1 for the one below
+     * @param a1 Left site
+     * @param a2 Right site
+     */
+    private void addCone(ArrayList<Bisector> tempB, ParallelogramSolver solver, Vertex[] adjacents, Vertex apex, boolean uMajor, int side, Vertex a1, Vertex a2) {
+        Vertex first = fromMajorMinor(solver, new Vertex(0, 0), uMajor, -1, side);
+        Vertex second = fromMajorMinor(solver, new Vertex(0, 0), uMajor, 1, side);
+        boolean firstChosen = first.x * (a2.x - a1.x) + first.y * (a2.y - a1.y) > second.x * (a2.x - a1.x) + second.y * (a2.y - a1.y);
+        tempB.add(new Bisector(adjacents, apex, Utility.farPointOnRay(apex, first.x, first.y), (firstChosen ? "b2s_chosen_cone=" : "b2s_hidden_cone=") + this.coneID));
+        tempB.add(new Bisector(adjacents, apex, Utility.farPointOnRay(apex, second.x, second.y), (firstChosen ? "b2s_hidden_cone=" : "b2s_chosen_cone=") + this.coneID));
+        this.coneID ++;
+    }
+    
+    /**
+     * 
+     * @param solver Solver of the quad, which holds the map to the square frame
+     * @param origin World point the vector is added to
+     * @param uMajor True if the major coordinate is the first of the square frame
+     * @param major Major coordinate of a vector in the square frame
+     * @param minor Minor coordinate of a vector in the square frame
+     * @return origin plus the vector mapped back to the world
+     */
+    private Vertex fromMajorMinor(ParallelogramSolver solver, Vertex origin, boolean uMajor, double major, double minor) {
+        return uMajor ? solver.fromSquareFrame(origin, major, minor) : solver.fromSquareFrame(origin, minor, major);
+    }
+    
+    /**
+     * Find the B2S by measuring the quad along and across p1p2, for any direction
+     * 
+     * @param quad Quadrilateral to iterate over
+     * @param p1 A vertex in the vertex set
+     * @param p2 A vertex in the vertex set
+     * @return HashMap of B2S
+     */
+    private HashMap<List<Vertex>, List<Bisector>> constructBisector(Quadrilateral quad, Vertex p1, Vertex p2) {
+        double[] direction = QuadProfile.getDirection(p1, p2); // Frame with p1p2 parallel to x axis
+        
+        Vertex[] leftRight = Utility.leftAndRightVertex(p1, p2);
+        Vertex a1 = leftRight[0], a2 = leftRight[1];
+        
+        // Two "middle" vertices of quad wrt y value in that frame
+        Vertex[] innerVertices = findInnerVertices(quad, p1, p2);
+        
+        Vertex[] h12g12 = findh12g12(a1, a2, quad, innerVertices, direction);
+        h1.add(h12g12[0]);
+        h2.add(h12g12[1]);
+        g1.add(h12g12[2]);
+        g2.add(h12g12[3]);
+        
+        // Endvertices of main bisector between p1 and p2
+        Vertex h = doRaysIntersect(a1, h12g12[0], a2, h12g12[1]);
+        Vertex g = doRaysIntersect(a1, h12g12[2], a2, h12g12[3]);
         
         HashMap<List<Vertex>, List<Bisector>> tempB2S = new HashMap();
         
-        ArrayList<Bisector> tempB = new ArrayList();
+        ArrayList<Bisector> tempB = new ArrayList<>();
         tempB.add(new Bisector(new Vertex[]{p1, p2}, h, g, "b2s_chosen"));
         tempB2S.put(Arrays.asList(p1, p2), new ArrayList(tempB));
         
         // Find intersections between non-inner vertices
-        ArrayList<Vertex> nonInnerVertices = Utility.findNonInnerVertices(quad, a1, a2, angle);
-        calculateAllBisectorRays(nonInnerVertices, quad, h, g, a1, p1, p2, angle, tempB2S); // Adds them to tempB2S
+        ArrayList<Vertex> nonInnerVertices = Utility.findNonInnerVertices(quad, a1, a2);
+        calculateAllBisectorRays(nonInnerVertices, quad, h, g, a1, p1, p2, direction, tempB2S); // Adds them to tempB2S
         
         return tempB2S;
     }
     
+    /**
+     * Cones are matched up in FindBisectorsThreeSites by consecutive IDs, so
+     * cached cones are numbered again as if they had just been found
+     * 
+     * @param bisectors Cached B2S of p1 and p2
+     * @param p1 First site
+     * @param p2 Second site
+     * @return New bisectors with the same geometry belonging to p1 and p2
+     */
+    private List<Bisector> copyWithNewConeIDs(List<Bisector> bisectors, Vertex p1, Vertex p2) {
+        List<Bisector> copy = new ArrayList<>();
+        HashMap<String, Integer> newIDs = new HashMap<>();
+        for (Bisector b : bisectors) {
+            String tag = b.getTag();
+            if (tag.contains("cone=")) {
+                String oldID = tag.substring(tag.indexOf("=")+1);
+                if (!newIDs.containsKey(oldID)) {
+                    newIDs.put(oldID, this.coneID ++);
+                }
+                tag = tag.substring(0, tag.indexOf("=")+1) + newIDs.get(oldID);
+            }
+            copy.add(new Bisector(new Vertex[]{p1, p2}, b.getStartVertex(), b.getEndVertex(), tag));
+        }
+        return copy;
+    }
+    
     /**
      * 
      * @param nonInnerVertices ArrayList of non-inner vertices of the Quadrilateral
@@ -76,13 +286,10 @@ public class FindBisectorsTwoSites {
      * @param a1 A center vertex of the Quadrilateral
      * @param p1 An adjacent vertex of the bisector rays
      * @param p2 An adjacent vertex of the bisector rays
+     * @param direction {sin, cos} from QuadProfile.getDirection for p1 and p2
      */
     private void calculateAllBisectorRays(ArrayList<Vertex> nonInnerVertices, Quadrilateral quad, 
-            Vertex h, Vertex g, Vertex a1, Vertex p1, Vertex p2, double angle, HashMap<List<Vertex>, List<Bisector>> tempB2S) {
-        ArrayList<Vertex> rNonInner = new ArrayList();
-        for (Vertex niVert : nonInnerVertices) {
-            rNonInner.add(Utility.rotateVertex(niVert, a1, angle));
-        }
+            Vertex h, Vertex g, Vertex a1, Vertex p1, Vertex p2, double[] direction, HashMap<List<Vertex>, List<Bisector>> tempB2S) {
         
         List<Vertex> key;
         // Get the Bisector from the HashMap and add this ray to it
@@ -108,8 +315,8 @@ public class FindBisectorsTwoSites {
         }
         
         double tolerance = 0.00001;
-        if (nonInnerVertices.size() == 3 && Math.abs(rNonInner.get(0).y - rNonInner.get(1).y) < tolerance) {
-            if (rNonInner.get(0).x < rNonInner.get(1).x) {
+        if (nonInnerVertices.size() == 3 && Math.abs(QuadProfile.rotatedYGap(nonInnerVertices.get(0), nonInnerVertices.get(1), direction)) < tolerance) {
+            if (QuadProfile.rotatedXGap(nonInnerVertices.get(0), nonInnerVertices.get(1), direction) > 0) {
                 ray = findBisectorRay(h, a1, nonInnerVertices.get(0), quad);
                 tempB2S.get(key).add(new Bisector(key.toArray(new Vertex[2]), ray[0], ray[1], "b2s_hidden_cone=" + coneID));
                 
@@ -131,11 +338,11 @@ public class FindBisectorsTwoSites {
             tempB2S.get(key).add(new Bisector(key.toArray(new Vertex[2]), ray[0], ray[1], "b2s_chosen"));
         }
         
-        if (nonInnerVertices.size() == 3 && Math.abs(rNonInner.get(1).y - rNonInner.get(2).y) < tolerance) {
+        if (nonInnerVertices.size() == 3 && Math.abs(QuadProfile.rotatedYGap(nonInnerVertices.get(1), nonInnerVertices.get(2), direction)) < tolerance) {
             ray = findBisectorRay(h, a1, nonInnerVertices.get(0), quad);
             tempB2S.get(key).add(new Bisector(key.toArray(new Vertex[2]), ray[0], ray[1], "b2s_chosen"));
             
-            if (rNonInner.get(1).x < rNonInner.get(2).x) {
+            if (QuadProfile.rotatedXGap(nonInnerVertices.get(1), nonInnerVertices.get(2), direction) > 0) {
                 ray = findBisectorRay(g, a1, nonInnerVertices.get(1), quad);
                 tempB2S.get(key).add(new Bisector(key.toArray(new Vertex[2]), ray[0], ray[1], "b2s_hidden_cone=" + coneID));
                 
@@ -155,7 +362,7 @@ public class FindBisectorsTwoSites {
         }
         
         if (nonInnerVertices.size() == 4) {
-            if (rNonInner.get(0).x < rNonInner.get(1).x) {
+            if (QuadProfile.rotatedXGap(nonInnerVertices.get(0), nonInnerVertices.get(1), direction) > 0) {
                 ray = findBisectorRay(h, a1, nonInnerVertices.get(0), quad);
                 tempB2S.get(key).add(new Bisector(key.toArray(new Vertex[2]), ray[0], ray[1], "b2s_hidden_cone=" + coneID));
                 
@@ -173,7 +380,7 @@ public class FindBisectorsTwoSites {
                 this.coneID ++;
             }
             
-            if (rNonInner.get(2).x < rNonInner.get(3).x) {
+            if (QuadProfile.rotatedXGap(nonInnerVertices.get(2), nonInnerVertices.get(3), direction) > 0) {
                 ray = findBisectorRay(g, a1, nonInnerVertices.get(2), quad);
                 tempB2S.get(key).add(new Bisector(key.toArray(new Vertex[2]), ray[0], ray[1], "b2s_hidden_cone=" + coneID));
                 
@@ -194,146 +401,110 @@ public class FindBisectorsTwoSites {
     }
     
     /**
-     * Find the two vertices of a quad that do not have max or min y values wrt an angle
+     * Find the two vertices of a quad that do not have max or min y values wrt the direction of p1p2
      * 
      * @param q A quadrilateral to iterate over
-     * @param angle Angle to rotate quad by such that a1a2 is parallel to x axis
+     * @param p1 First site
+     * @param p2 Second site
      * @return Array of inner vertices of size 2
      */
-    private Vertex[] findInnerVertices(Quadrilateral q, double angle) {
-        Vertex[] innerVerts = new Vertex[2], rVerts = new Vertex[4];
-        
-        // Rotate all quad vertices
-        for (int i = 0; i < q.getVertices().length; i ++) {
-            rVerts[i] = Utility.rotateVertex(q.getVertices()[i], q.getCenter(), angle);
-        }
-        
-        // Sort rotated quad vertices by ascending y value (more or less sweep line)
-        Arrays.sort(rVerts, new Comparator<Vertex>() {
-            @Override
-            public int compare(Vertex p1, Vertex p2) {
-                if (p1.y > p2.y) {
-                    return +1;
-                } else if (p1.y < p2.y) {
-                     return -1;
-                } else {
-                    return 0;
-                }
-            }
-        });
-        
-        innerVerts[0] = rVerts[1];
-        innerVerts[1] = rVerts[2];
+    private Vertex[] findInnerVertices(Quadrilateral q, Vertex p1, Vertex p2) {
+        QuadProfile profile = q.getProfile();
+        // Quad vertex indices by ascending y in the frame of p1p2
+        int[] order = profile.getSortedOrder(p1, p2);
         
-        return innerVerts;
+        return new Vertex[]{profile.getVertex(order[1]), profile.getVertex(order[2])};
     }
     
     /**
      * Find intersection vertices of lines through inner vertices with the right side of the quad around the left vertex a1
      * 
-     * @param h1 Will be assigned. Intersection vertex of line through upper inner vertex with right side of quad
-     * @param g1 Will be assigned. Intersection vertex of line through lower inner vertex with right side of quad
-     * @param h2 Will be assigned. Intersection vertex of line through upper inner vertex with left side of quad
-     * @param g2 Will be assigned. Intersection vertex of line through lower inner vertex with left side of quad
      * @param a1 Left vertex
      * @param a1 Right vertex
      * @param q Quadrilateral to iterate over
      * @param innerVerts Array of size two holding the inner vertices on the quad
-     * @param slope Slope of the lines through inner vertices
+     * @param direction {sin, cos} from QuadProfile.getDirection for a1 and a2
+     * @return {h1, h2, g1, g2}. h1 and g1 are where the lines through the upper and lower inner vertices meet the right side of the quad around a1, h2 and g2 the left side of the quad around a2
      */
-    private void findh12g12(Vertex h1, Vertex h2, Vertex g1, Vertex g2, Vertex a1, Vertex a2, Quadrilateral q, Vertex[] innerVerts, double angle) {
-        Vertex temph1 = null, temph2 = null, tempg1 = null, tempg2 = null;
-        
-        // If inner vertex is to the right of center of quad
-        if (innerVerts[0].x > q.getCenter().x) {
-            temph1 = innerVerts[0];
-        } else {
-            temph2 = innerVerts[0];
-        }
-        
-        // If inner vertex is to the right of center of quad
-        if (innerVerts[1].x > q.getCenter().x) {
-            tempg1 = innerVerts[1];
-        } else {
-            tempg2 = innerVerts[1];
+    private Vertex[] findh12g12(Vertex a1, Vertex a2, Quadrilateral q, Vertex[] innerVerts, double[] direction) {
+        Vertex[] qVerts = q.getVertices();
+        Vertex center = q.getCenter();
+        
+        // The line through each inner vertex parallel to a1a2 meets the quad boundary once more
+        Vertex temph1 = innerVerts[0], temph2 = findParallelCrossing(qVerts, innerVerts[0], direction);
+        Vertex tempg1 = innerVerts[1], tempg2 = findParallelCrossing(qVerts, innerVerts[1], direction);
+        
+        // Assert that temph1 is right of temph2 and tempg1 right of tempg2 along a1a2
+        if (QuadProfile.rotatedXGap(temph2, temph1, direction) < 0) {
+            Vertex temp = temph1;
+            temph1 = temph2;
+            temph2 = temp;
         }
-        
-        Vertex[] rVerts = new Vertex[q.getVertices().length];
-        // Rotate all quad vertices so a1a2 is parallel to x axis
-        for (int i = 0; i < q.getVertices().length; i ++) {
-            rVerts[i] = Utility.rotateVertex(q.getVertices()[i], q.getCenter(), angle);
+        if (QuadProfile.rotatedXGap(tempg2, tempg1, direction) < 0) {
+            Vertex temp = tempg1;
+            tempg1 = tempg2;
+            tempg2 = temp;
         }
         
-        // Horizontal lines going through the inner vertices
-        Vertex[] l1 = {new Vertex(-Utility.RAY_SIZE, innerVerts[0].y), new Vertex(Utility.RAY_SIZE, innerVerts[0].y)};
-        Vertex[] l2 = {new Vertex(-Utility.RAY_SIZE, innerVerts[1].y), new Vertex(Utility.RAY_SIZE, innerVerts[1].y)};
-        
-        // Find other h and g vertices and rotate quad back to its original place
+        // Translate vertices to a1 and a2
+        return new Vertex[]{
+            new Vertex(a1.x + temph1.x - center.x, a1.y + temph1.y - center.y),
+            new Vertex(a2.x + temph2.x - center.x, a2.y + temph2.y - center.y),
+            new Vertex(a1.x + tempg1.x - center.x, a1.y + tempg1.y - center.y),
+            new Vertex(a2.x + tempg2.x - center.x, a2.y + tempg2.y - center.y)};
+    }
+    
+    /**
+     * 
+     * @param qVerts Vertices of the quad
+     * @param inner An inner vertex of the quad
+     * @param direction {sin, cos} from QuadProfile.getDirection
+     * @return Point other than inner where the line through inner parallel to the direction meets the quad boundary
+     */
+    private Vertex findParallelCrossing(Vertex[] qVerts, Vertex inner, double[] direction) {
         int j;
-        for (int i = 0; i < q.getVertices().length; i ++) {
-            if (i == 3) {
+        for (int i = 0; i < qVerts.length; i ++) {
+            if (i == qVerts.length - 1) {
                 j = 0;
             } else {
                 j = i + 1;
             }
-            Vertex intersectionVertex1;
-            // Found an h
-            if ((intersectionVertex1 = Utility.doLineSegmentsIntersect(l1[0], l1[1], rVerts[i], rVerts[j])) != null && !intersectionVertex1.equals(innerVerts[0])) {
-                if (temph1 == null && intersectionVertex1.x > temph2.x) {
-                    temph1 = intersectionVertex1;
-                } else if (temph2 == null) {
-                    temph2 = intersectionVertex1;
-                }
+            // Heights of the edge ends above the line, across the direction
+            double hi = QuadProfile.rotatedYGap(inner, qVerts[i], direction);
+            double hj = QuadProfile.rotatedYGap(inner, qVerts[j], direction);
+            if (Math.abs(hj - hi) < GeometryKernel.PARALLEL_TOLERANCE || (hi > 0 && hj > 0) || (hi < 0 && hj < 0)) {
+                continue; // Edge is parallel to the line or does not reach it
             }
-            
-            Vertex intersectionVertex2;
-            
-            // found a g
-            if ((intersectionVertex2 = Utility.doLineSegmentsIntersect(l2[0], l2[1], rVerts[i], rVerts[j])) != null && !intersectionVertex2.equals(innerVerts[1])) {
-                if (tempg1 == null && intersectionVertex2.x > tempg2.x) {
-                    tempg1 = intersectionVertex2;
-                } else if (tempg2 == null) {
-                    tempg2 = intersectionVertex2;
-                }
+            double mu = hi / (hi - hj);
+            Vertex crossing = new Vertex(qVerts[i].x + mu * (qVerts[j].x - qVerts[i].x), qVerts[i].y + mu * (qVerts[j].y - qVerts[i].y));
+            if (!Utility.equalVertexs(crossing, inner, 0.01)) {
+                return crossing;
             }
         }
-        
-        // Assert that temph1.x > temph2.x and tempg1.x > tempg2.x
-        if (temph1.x < temph2.x) {
-            Vertex temp = new Vertex(temph1.x, temph1.y);
-            
-            temph1.x = temph2.x;
-            temph1.y = temph2.y;
-            
-            temph2.x = temp.x;
-            temph2.y = temp.y;
-        }
-        if (tempg1.x < tempg2.x) {
-            Vertex temp = new Vertex(tempg1.x, tempg1.y);
-            
-            tempg1.x = tempg2.x;
-            tempg1.y = tempg2.y;
-            
-            tempg2.x = temp.x;
-            tempg2.y = temp.y;
+        return inner;
+    }
+    
+    /**
+     * Intersect the ray from a1 through h1 with the ray from a2 through h2
+     * directly, falling back to doRaysIntersect when they are parallel
+     * 
+     * @param a1 Envertex of a ray
+     * @param h1 Vertex on the ray from a1
+     * @param a2 Envertex of another ray
+     * @param h2 Vertex on the ray from a2
+     * @return Intersection vertex of rays, or null if they do not meet
+     */
+    private Vertex intersectRays(Vertex a1, Vertex h1, Vertex a2, Vertex h2) {
+        double d1x = h1.x - a1.x, d1y = h1.y - a1.y, d2x = h2.x - a2.x, d2y = h2.y - a2.y;
+        if (GeometryKernel.isParallel(d1x, d1y, d2x, d2y, GeometryKernel.PARALLEL_TOLERANCE)) {
+            return doRaysIntersect(a1, h1, a2, h2);
         }
         
-        // Rotate vertices back to original coordinate system and translate to a1 and a2
-        temph1 = Utility.rotateVertex(temph1, q.getCenter(), -angle);
-        temph2 = Utility.rotateVertex(temph2, q.getCenter(), -angle);
-        tempg1 = Utility.rotateVertex(tempg1, q.getCenter(), -angle);
-        tempg2 = Utility.rotateVertex(tempg2, q.getCenter(), -angle);
-        
-        h1.x = a1.x + temph1.x - q.getCenter().x;
-        h1.y = a1.y + temph1.y - q.getCenter().y;
-        g1.x = a1.x + tempg1.x - q.getCenter().x;
-        g1.y = a1.y + tempg1.y - q.getCenter().y;
-        
-        h2.x = a2.x + temph2.x - q.getCenter().x;
-        h2.y = a2.y + temph2.y - q.getCenter().y;
-        g2.x = a2.x + tempg2.x - q.getCenter().x;
-        g2.y = a2.y + tempg2.y - q.getCenter().y;
-        
+        double[] intersection = new double[2];
+        if (!GeometryKernel.intersectRays(a1.x, a1.y, d1x, d1y, a2.x, a2.y, d2x, d2y, intersection)) {
+            return null;
+        }
+        return new Vertex(intersection[0], intersection[1]);
     }
     
     /**
@@ -346,68 +517,23 @@ public class FindBisectorsTwoSites {
      * @return Intersection vertex of rays
      */
     private Vertex doRaysIntersect(Vertex a1, Vertex h1, Vertex a2, Vertex h2) {
+        double d1x = h1.x - a1.x, d1y = h1.y - a1.y, d2x = h2.x - a2.x, d2y = h2.y - a2.y;
         
-        // Rotate a1h1 to be horizontal with x axis
-        double angle = Utility.calculateAngle(a1, h1); // Angle that slope(a1h1) makes with x axis
+        this.displayEdges.add(new Bisector(new Vertex[]{}, a1, Utility.farPointOnRay(a1, d1x, d1y), "b2s_step"));
+        this.displayEdges.add(new Bisector(new Vertex[]{}, a2, Utility.farPointOnRay(a2, d2x, d2y), "b2s_step"));
         
-        Vertex ra1 = Utility.rotateVertex(a1, Utility.midpoint(a1, h1), angle);
-        Vertex rh1 = Utility.rotateVertex(h1, Utility.midpoint(a1, h1), angle);
-        
-        // Define the ray a1h1 and rotate back to original position
-        double rayEndx1 = Utility.RAY_SIZE;
-        double rayEndy1 = rh1.y;
-        if (a1.x > h1.x) {
-            rayEndx1 = -Utility.RAY_SIZE;
+        if (GeometryKernel.isParallel(d1x, d1y, d2x, d2y, GeometryKernel.PARALLEL_TOLERANCE)) {
+            // Both rays lie along a1a2. Take the point at the same scaling s of both, a1 + s d1 = a2 + s d2
+            double ex = d1x - d2x, ey = d1y - d2y;
+            double s = ((a2.x - a1.x) * ex + (a2.y - a1.y) * ey) / (ex * ex + ey * ey);
+            return new Vertex(a2.x + s * d2x, a2.y + s * d2y);
         }
         
-        //Utility.debugPrintln("raya1h1 end = " + new Vertex(rayEndx1, rayEndy1));
-        Vertex[] raya1h1 = new Vertex[2];
-        if (a1.x == h1.x) {
-            raya1h1[0] = new Vertex(a1.x, a1.y);
-            raya1h1[1] = new Vertex(a1.x, (a1.y < h1.y) ? Utility.RAY_SIZE : -Utility.RAY_SIZE);
-        } else {
-            raya1h1[0] = Utility.rotateVertex(new Vertex(ra1.x, ra1.y), Utility.midpoint(a1, h1), -angle);
-            raya1h1[1] = Utility.rotateVertex(new Vertex(rayEndx1, rayEndy1), Utility.midpoint(a1, h1), -angle);
-        }
-        
-        this.displayEdges.add(new Bisector(new Vertex[]{}, raya1h1[0], raya1h1[1], "b2s_step"));
-        
-        // Rotate a2h2 to be horizontal with x axis
-        angle = Utility.calculateAngle(a2, h2);
-        
-        Vertex ra2 = Utility.rotateVertex(a2, Utility.midpoint(a2, h2), angle);
-        Vertex rh2 = Utility.rotateVertex(h2, Utility.midpoint(a2, h2), angle);
-        
-        // Define the ray a1h1 and rotate back to original position
-        double rayEndx2 = Utility.RAY_SIZE;
-        double rayEndy2 = rh2.y;
-        if (a2.x > h2.x) {
-            rayEndx2 = -Utility.RAY_SIZE;
-        }
-        
-        //Utility.debugPrintln("raya2h2 end = " + new Vertex(rayEndx2, rayEndy2));
-        Vertex[] raya2h2 = new Vertex[2];
-        if (a2.x == h2.x) {
-            raya2h2[0] = new Vertex(a2.x, a2.y);
-            raya2h2[1] = new Vertex(a2.x, (a2.y < h2.y) ? Utility.RAY_SIZE : -Utility.RAY_SIZE);
-        } else {
-            raya2h2[0] = Utility.rotateVertex(new Vertex(ra2.x, ra2.y), Utility.midpoint(a2, h2), -angle);
-            raya2h2[1] = Utility.rotateVertex(new Vertex(rayEndx2, rayEndy2), Utility.midpoint(a2, h2), -angle);
-        }
-        
-        this.displayEdges.add(new Bisector(new Vertex[]{}, raya2h2[0], raya2h2[1], "b2s_step"));
-        
-        double tolerance = 0.00001;
-        if (Math.abs(Utility.slope(a1, h1) - Utility.slope(a2, h2)) < tolerance || (Utility.slope(a1, h1) == Double.POSITIVE_INFINITY && Utility.slope(a2, h2) == Double.NEGATIVE_INFINITY) || (Utility.slope(a1, h1) == Double.NEGATIVE_INFINITY && Utility.slope(a2, h2) == Double.POSITIVE_INFINITY)) {
-            ra1 = Utility.rotateVertex(a1, Utility.midpoint(a1, a2), angle);
-            ra2 = Utility.rotateVertex(a2, Utility.midpoint(a1, a2), angle);
-            rh1 = Utility.rotateVertex(h1, Utility.midpoint(a1, a2), angle);
-            rh2 = Utility.rotateVertex(h2, Utility.midpoint(a1, a2), angle);
-            
-            return Utility.rotateVertex(new Vertex((ra1.x*rh2.x - rh1.x*ra2.x) / (ra1.x - rh1.x + rh2.x - ra2.x), rh2.y), Utility.midpoint(a1, a2), -angle);
-        } else {
-            return Utility.doLineSegmentsIntersect(raya1h1[0], raya1h1[1], raya2h2[0], raya2h2[1]);
+        double[] intersection = new double[2];
+        if (GeometryKernel.intersectRays(a1.x, a1.y, d1x, d1y, a2.x, a2.y, d2x, d2y, intersection)) {
+            return new Vertex(intersection[0], intersection[1]);
         }
+        return null;
     }
     
     /**
@@ -416,34 +542,20 @@ public class FindBisectorsTwoSites {
      * @param endPt Endvertex of main bisector
      * @param a Vertex in a quad
      * @param nonInnerVertex A vertex of the quad with an extreme y value
+     * @return The ray as {endPt, a far point standing in for its end}
      */
     private Vertex[] findBisectorRay(Vertex endPt, Vertex a, Vertex niVertex, Quadrilateral quad) {
-        // NonInnerVertex is relative to Quadrilateral. Translate relative to a
-        Vertex nonInnerVertex = new Vertex(niVertex.x, niVertex.y);
-        nonInnerVertex.x += a.x - quad.getCenter().x;
-        nonInnerVertex.y += a.y - quad.getCenter().y;
-        
-        // Define the direction of the ray starting at a
-        double rayEndx = Utility.RAY_SIZE;
-        //Utility.debugPrintln(a + " : " + nonInnerVertex);
-        if (a.x > nonInnerVertex.x || (a.x == nonInnerVertex.x && a.y > nonInnerVertex.y)) {
-            rayEndx = -Utility.RAY_SIZE;
-        }
-        Vertex rayEnd = new Vertex(rayEndx, a.y); // End vertex of ray which is basically + or - infinity
-        
-        double angle = Utility.calculateAngle(a, nonInnerVertex); // Angle that slope(a, nonInnerVertex) makes with x axis
-        
-        // Define ray by rotating rayEnd such that it has slope(a, nonInnerVertex)
-        Vertex[] ray = {new Vertex(a.x, a.y), Utility.rotateVertex(rayEnd, new Vertex(0,0), -angle)};
-        
-        //Translate ray so that it starts at endPt
-        ray[0].x += endPt.x - a.x;
-        ray[0].y += endPt.y - a.y;
-        ray[1].x += endPt.x - a.x;
-        ray[1].y += endPt.y - a.y;
-        
-        //this.voronoiEdges.add(new VoronoiBisector(ray[0], ray[1]));
-        return new Vertex[]{ray[0], ray[1]};
+        // The ray from a through nonInnerVertex translated relative to a has the direction of nonInnerVertex from the quad center
+        Vertex center = quad.getCenter();
+        return new Vertex[]{endPt, Utility.farPointOnRay(endPt, niVertex.x - center.x, niVertex.y - center.y)};
+    }
+    
+    /**
+     * 
+     * @return Cache of B2S used by this instance
+     */
+    public BisectorCache getCache() {
+        return this.cache;
     }
     
     /**
@@ -464,34 +576,34 @@ public class FindBisectorsTwoSites {
     
     /**
      * 
-     * @return Deep copy array of h1 List
+     * @return Array of h1 List
      */
     public Vertex[] geth1() {
-        return Utility.deepCopyVertexArray(this.h1.toArray(new Vertex[this.h1.size()]));
+        return this.h1.toArray(new Vertex[this.h1.size()]);
     }
     
     /**
      * 
-     * @return Deep copy array of h2 List
+     * @return Array of h2 List
      */
     public Vertex[] geth2() {
-        return Utility.deepCopyVertexArray(this.h2.toArray(new Vertex[this.h2.size()]));
+        return this.h2.toArray(new Vertex[this.h2.size()]);
     }
     
     /**
      * 
-     * @return Deep copy array of g1 List
+     * @return Array of g1 List
      */
     public Vertex[] getg1() {
-        return Utility.deepCopyVertexArray(this.g1.toArray(new Vertex[this.g1.size()]));
+        return this.g1.toArray(new Vertex[this.g1.size()]);
     }
     
     /**
      * 
-     * @return Deep copy array of g2 List
+     * @return Array of g2 List
      */
     public Vertex[] getg2() {
-        return Utility.deepCopyVertexArray(this.g2.toArray(new Vertex[this.g2.size()]));
+        return this.g2.toArray(new Vertex[this.g2.size()]);
     }
     
 }
@@ -0,0 +1,181 @@
+package dt;
+
+/**
+ * Geometry primitives on raw coordinates. Results are returned as primitives
+ * or written to arrays the caller owns, so hot loops can reuse one scratch
+ * array instead of allocating a Vertex per intermediate point. The Vertex
+ * helpers in Utility are thin wrappers over these and compute bit for bit
+ * the same values
+ *
+ * @author Lee Glendenning
+ */
+public class GeometryKernel {
+
+    public static final int NO_INTERSECTION = 0;
+    public static final int AT_FIRST_START = 1; // Collinear segments sharing the first segment's start
+    public static final int AT_FIRST_END = 2; // Collinear segments sharing the first segment's end
+    public static final int CROSSING = 3; // Proper intersection, written to the output array
+    public static final double PARALLEL_TOLERANCE = 0.00001; // Sine of the angle below which two directions are parallel
+
+    /**
+     *
+     * @return Cross product of (ax, ay) and (bx, by)
+     */
+    public static double cross(double ax, double ay, double bx, double by) {
+        return (ax * by) - (ay * bx);
+    }
+
+    /**
+     *
+     * @return Twice the signed area of triangle abc. Positive if a, b, c are in counter clockwise order, negative if clockwise
+     */
+    public static double orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax)*(cy - ay) - (by - ay)*(cx - ax);
+    }
+
+    /**
+     *
+     * @return Euclidean distance between (x1, y1) and (x2, y2)
+     */
+    public static double distance(double x1, double y1, double x2, double y2) {
+        double dx = x1 - x2, dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     *
+     * @param tolerance Largest sine of the angle between the directions still taken as parallel
+     * @return True if directions (d1x, d1y) and (d2x, d2y) are parallel or opposite
+     */
+    public static boolean isParallel(double d1x, double d1y, double d2x, double d2y, double tolerance) {
+        return Math.abs(cross(d1x, d1y, d2x, d2y)) <= tolerance * Math.sqrt((d1x*d1x + d1y*d1y) * (d2x*d2x + d2y*d2y));
+    }
+
+    /**
+     * Intersect two rays, each given by its origin and a direction of any
+     * length. Parallel rays are reported as not meeting
+     *
+     * @param out Receives the intersection point at out[0], out[1]
+     * @return True if the rays meet at a single point
+     */
+    public static boolean intersectRays(double o1x, double o1y, double d1x, double d1y,
+            double o2x, double o2y, double d2x, double d2y, double[] out) {
+        double denominator = cross(d1x, d1y, d2x, d2y);
+        if (isParallel(d1x, d1y, d2x, d2y, PARALLEL_TOLERANCE)) {
+            return false;
+        }
+        double wx = o2x - o1x, wy = o2y - o1y;
+        double s = cross(wx, wy, d2x, d2y) / denominator;
+        double t = cross(wx, wy, d1x, d1y) / denominator;
+        if (s < 0 || t < 0) {
+            return false;
+        }
+        out[0] = o1x + s * d1x;
+        out[1] = o1y + s * d1y;
+        return true;
+    }
+
+    /**
+     * Intersect segments v1v2 and q1q2 as Utility.doLineSegmentsIntersect does
+     *
+     * @param out Receives the intersection point at out[0], out[1] when the result is CROSSING
+     * @return NO_INTERSECTION, AT_FIRST_START, AT_FIRST_END or CROSSING
+     */
+    public static int segmentIntersection(double v1x, double v1y, double v2x, double v2y,
+            double q1x, double q1y, double q2x, double q2y, double[] out) {
+        double rx = v2x - v1x, ry = v2y - v1y;
+        double sx = q2x - q1x, sy = q2y - q1y;
+        double qvx = q1x - v1x, qvy = q1y - v1y;
+
+        double numerator = cross(qvx, qvy, rx, ry);
+        double denominator = cross(rx, ry, sx, sy);
+
+        // Lines are collinear, they only meet if they share an endpoint
+        double tolerance = 0.01;
+        if (Math.abs(numerator) < tolerance && Math.abs(denominator) < tolerance) {
+            if (near(v1x, v1y, q1x, q1y, tolerance) || near(v1x, v1y, q2x, q2y, tolerance)) {
+                return AT_FIRST_START;
+            }
+            if (near(v2x, v2y, q1x, q1y, tolerance) || near(v2x, v2y, q2x, q2y, tolerance)) {
+                return AT_FIRST_END;
+            }
+            return NO_INTERSECTION;
+        }
+
+        // Lines are parallel and do not intersect
+        if (Math.abs(denominator) < tolerance) {
+            return NO_INTERSECTION;
+        }
+
+        double u = numerator / denominator;
+        double t = cross(qvx, qvy, sx, sy) / denominator;
+        if ((t >= 0) && (t <= 1) && (u >= 0) && (u <= 1)) {
+            out[0] = v1x + rx * t;
+            out[1] = v1y + ry * t;
+            return CROSSING;
+        }
+        return NO_INTERSECTION;
+    }
+
+    /**
+     * Intersect segments v1v2 and q1q2 as Utility.doLineSegmentsIntersect
+     * does, writing the point it would return
+     *
+     * @param out Receives the intersection point at out[0], out[1]
+     * @return True if the segments intersect
+     */
+    public static boolean intersectSegments(double v1x, double v1y, double v2x, double v2y,
+            double q1x, double q1y, double q2x, double q2y, double[] out) {
+        switch (segmentIntersection(v1x, v1y, v2x, v2y, q1x, q1y, q2x, q2y, out)) {
+            case AT_FIRST_START:
+                out[0] = v1x;
+                out[1] = v1y;
+                return true;
+            case AT_FIRST_END:
+                out[0] = v2x;
+                out[1] = v2y;
+                return true;
+            case CROSSING:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Side of segment ab that c is on, as Utility.isLeftOfSegment
+     *
+     * @param tolerance Double tolerance for comparing equivalence of doubles
+     * @return +1 if c is left of ab (ccw order), 0 if c is on segment ab, -1 otherwise (cw order)
+     */
+    public static int isLeftOfSegment(double ax, double ay, double bx, double by, double cx, double cy, double tolerance) {
+        double dx = bx - ax, dy = by - ay;
+        double cross = cross(dx, dy, cx - ax, cy - ay);
+        double length = Math.sqrt(dx*dx + dy*dy);
+
+        // Test if point c is on segment ab, from its distance to the line and its position along ab
+        double offset, along;
+        if (length == 0) {
+            offset = distance(ax, ay, cx, cy);
+            along = 0;
+        } else {
+            offset = cross / length;
+            along = (dx*(cx - ax) + dy*(cy - ay)) / length;
+        }
+        if ((Math.abs(offset) < tolerance || cross == 0) && along > -tolerance && along < length + tolerance) {
+            return 0;
+        } else if (cross > 1) {
+            return 1;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     *
+     * @return True if both coordinates differ by less than tolerance
+     */
+    private static boolean near(double x1, double y1, double x2, double y2, double tolerance) {
+        return Math.abs(x1 - x2) < tolerance && Math.abs(y1 - y2) < tolerance;
+    }
+}
@@ -3,246 +3,557 @@ package dt;
 import java.util.*;
 
 /**
- * Graph class used to store the Delaunay triangulation
+ * Graph class used to store the Delaunay triangulation. The triangles cover
+ * the convex hull of the vertices, and a single symbolic vertex at infinity
+ * is joined to every hull vertex so that each hull edge also bounds an
+ * infinite face. Every point of the plane is then in some face without any
+ * coordinates being reserved for a bounding shape. The half-edge mesh is
+ * kept in int arrays: the halves of edge pair p are the half-edges 2p and
+ * 2p + 1, so the twin of h is h ^ 1, and each half-edge only stores the id
+ * of its origin and the next half-edge around its face. Pair slots of
+ * deleted edges are handed out again, so ids of live half-edges never change
  * @author Lee Glendenning
  * Adapted from Michael Levet, June 09, 2015
  */
 public class Graph {
     
-    private Vertex[] boundaryTriangle;
-    private List<Vertex> vertices;
-    private List<Edge> edges;
-    private int xmax, ymax;
-    private double BOUNDARY_SIZE;
-    private List<Edge> removedEdges; // Includes flipped edges
+    private static final int INFINITE_ID = Integer.MAX_VALUE; // Id of the vertex at infinity, never given out by the store
+    private static final int NONE = -1; // No half-edge
+    private static final int INITIAL_PAIRS = 16;
+    private Vertex infinite; // Symbolic vertex at infinity, kept out of the store and never live
+    private int infiniteHalfEdge; // An outgoing half-edge of the vertex at infinity, NONE while all vertices are collinear
+    private VertexStore store; // Vertices and their outgoing half-edges by id
+    private int[] origins; // Origin vertex id of each half-edge, INFINITE_ID for the vertex at infinity, or NONE if its pair is free
+    private int[] nexts; // Next half-edge counter clockwise around the face left of each half-edge
+    private boolean[] removed; // Removed pairs stay in the mesh so point location still sees every triangle. Edges to infinity and free pairs are always removed
+    private int[] freePairs; // Stack of free pair slots below pairBound
+    private int freePairCount;
+    private int pairBound; // Number of pair slots handed out
+    private int pairCount; // Number of pairs in the mesh, including removed edges
+    private final Object meshLock = new Object(); // Guards the pair slots against readers on other threads
+    private LongIntMap vertexGrid; // Id of the first vertex of each grid cell, the rest are chained by id in the store, so lookups by coordinates are O(1)
+    private LongIntMap edgeIndex; // Half-edge from the lower to the higher vertex id of every edge, keyed by edgeKey
+    private LongIntMap gridPointIndex; // Vertex ids keyed by IntegerGrid.key, only used on the integer grid
+    private boolean integerGrid; // True if every vertex is a grid point so lookups and predicates are exact
+    private GraphListener listener; // Notified of vertex and live edge changes, or null
+    private final Random random = new Random(0); // Fixed seed so the same input always walks the same way
+    private static final double GRID_CELL_SIZE = 16;
     
     /**
      * Empty constructor initializes instance variables
-     * @param xmax Max x pixel value for JFrame
-     * @param ymax Max y pixel value for JFrame
      */
-    public Graph(int xmax, int ymax){
-        initInstances(xmax, ymax);
+    public Graph(){
+        initInstances(false);
+    }
+    
+    /**
+     * 
+     * @param integerGrid True if only grid points will be added. Vertex lookups
+     *                    are then exact and orientations use integer arithmetic
+     */
+    public Graph(boolean integerGrid){
+        initInstances(integerGrid);
     }
     
     /**
      * 
      * @param vertices Vertex List for the graph
-     * @param xmax Max x pixel value for JFrame
-     * @param ymax Max y pixel value for JFrame
      */
-    public Graph(ArrayList<Vertex> vertices, int xmax, int ymax){
-        initInstances(xmax, ymax);
+    public Graph(ArrayList<Vertex> vertices){
+        initInstances(false);
         
         for(Vertex v: vertices){
-            this.vertices.add(v);
+            addVertex(v);
         }
         
     }
     
     /**
-     * Initialize all instance variables and the boundary triangle
+     * Initialize all instance variables and the vertex at infinity
      */
-    private void initInstances(int xmax, int ymax) {
-        this.BOUNDARY_SIZE = Math.max(xmax, ymax);
-        this.xmax = xmax;
-        this.ymax = ymax;
-        this.vertices = Collections.synchronizedList(new ArrayList());
-        this.edges = Collections.synchronizedList(new ArrayList());
-        this.removedEdges = Collections.synchronizedList(new ArrayList());
-        constructBoundaryTriangle();
+    private void initInstances(boolean integerGrid) {
+        this.integerGrid = integerGrid;
+        this.gridPointIndex = new LongIntMap();
+        this.store = new VertexStore();
+        this.origins = new int[2 * INITIAL_PAIRS];
+        this.nexts = new int[2 * INITIAL_PAIRS];
+        this.removed = new boolean[INITIAL_PAIRS];
+        this.freePairs = new int[INITIAL_PAIRS];
+        this.freePairCount = 0;
+        this.pairBound = 0;
+        this.pairCount = 0;
+        this.infiniteHalfEdge = NONE;
+        this.vertexGrid = new LongIntMap();
+        this.edgeIndex = new LongIntMap();
+        this.infinite = new Vertex(Double.NaN, Double.NaN);
     }
     
     /**
-     * Define boundary triangle vertices and edges and add them to the graph
+     * 
+     * @param v A Vertex
+     * @return True if v is the vertex at infinity of this Graph
      */
-    private void constructBoundaryTriangle() {
-        this.boundaryTriangle = new Vertex[]{new Vertex(this.xmax/2, this.ymax/2+BOUNDARY_SIZE*2.16506350946),
-            new Vertex(this.xmax/2-BOUNDARY_SIZE*2.5, this.ymax/2-BOUNDARY_SIZE*2.16506350946), 
-            new Vertex(this.xmax/2+BOUNDARY_SIZE*2.5, this.ymax/2-BOUNDARY_SIZE*2.16506350946)};
-        
-        for (Vertex v : this.boundaryTriangle) {
-            addVertex(v);
-        }
-        
-        addEdge(this.boundaryTriangle[0], this.boundaryTriangle[1]);
-        addEdge(this.boundaryTriangle[1], this.boundaryTriangle[2]);
-        addEdge(this.boundaryTriangle[2], this.boundaryTriangle[0]);
+    public boolean isInfiniteVertex(Vertex v) {
+        return v == this.infinite;
     }
     
     /**
+     * Jump-and-walk point location. A random sample of about n^(1/3) vertices
+     * (plus the most recently added vertex) picks the vertex closest to v, then a
+     * remembering stochastic walk moves across triangle edges until v is reached.
+     * Removed edges are walked over as well so that the walk always covers the
+     * whole convex hull. A vertex outside the hull is located in the infinite
+     * face of a hull edge it lies beyond
      * 
-     * @return Deep copy of boundary triangle vertices as List
+     * @param v Vertex to locate
+     * @return Array of vertices containing v, empty if there are no triangles yet because all vertices are collinear, or null if v is on an edge that cannot be split. See checkContainingTriangle
      */
-    public List<Vertex> getBoundaryTriangle() {
-        return Arrays.asList(new Vertex[]{this.boundaryTriangle[0].deepCopy(), this.boundaryTriangle[1].deepCopy(), this.boundaryTriangle[2].deepCopy()});
+    public Vertex[] locateTriangle(Vertex v) {
+        return locateTriangle(v, null);
     }
     
     /**
-     * Uses slab method
+     * Walk from a given start vertex to the triangle containing v. Used by
+     * DelaunayHierarchy, which finds a start vertex close to v on the level above
+     * 
      * @param v Vertex to locate
-     * @return Array of vertices containing v
+     * @param start Vertex in this Graph to start walking from, or null to use jump-and-walk sampling
+     * @return Array of vertices containing v, empty if there are no triangles yet because all vertices are collinear, or null if v is on an edge that cannot be split. See checkContainingTriangle
      */
-    public Vertex[] locateTriangle(Vertex v) {
-        Utility.debugPrintln("Locating triangle:");
-        // Copy vertices List
-        List<Vertex> slabs = new ArrayList(this.vertices);
+    public Vertex[] locateTriangle(Vertex v, Vertex start) {
+        if (Utility.debugMode) {
+            Utility.debugPrintln("Locating triangle:");
+        }
+        if (this.infiniteHalfEdge == NONE) {
+            return new Vertex[]{};
+        }
+        int startId = start == null ? NONE : getVertexId(start);
+        if (startId == NONE) {
+            startId = sampleStartVertex(v);
+        }
+        int face = incidentFace(startId);
+        if (face == NONE) {
+            return locateTriangleExhaustive(v);
+        }
         
-        // Sort vertices by x value to create slabs
-        Collections.sort(slabs, new Comparator<Vertex>() {
-            @Override
-            public int compare(Vertex v1, Vertex v2) {
-                if (v1.x > v2.x || (v1.x == v2.x && v1.y > v2.y)) {
-                    return +1;
-                } else if (v1.x <= v2.x) {
-                     return -1;
-                } else {
-                    // This shouldn't happen. Vertices cannot be equal
-                    return 0;
+        // Half-edge the walk last crossed, skipped when choosing the next edge
+        int crossed = NONE;
+        int maxSteps = 4 * this.pairCount + 3;
+        for (int step = 0; step < maxSteps; step ++) {
+            boolean moved = false;
+            int h = face;
+            for (int k = this.random.nextInt(3); k > 0; k --) {
+                h = this.nexts[h];
+            }
+            for (int k = 0; k < 3 && !moved; k ++, h = this.nexts[h]) {
+                if (h == crossed) {
+                    continue;
+                }
+                
+                // Face is counter clockwise so v is beyond h if it is right of it
+                if (orientation(this.origins[h], this.origins[h ^ 1], v) < 0) {
+                    if (!isTriangleFace(h ^ 1)) {
+                        if (isInfiniteFace(h ^ 1)) {
+                            // v is outside the convex hull, beyond the hull edge h
+                            return checkContainingTriangle(h ^ 1, v);
+                        }
+                        // Edges overlap after a bad flip
+                        return locateTriangleExhaustive(v);
+                    }
+                    face = h ^ 1;
+                    crossed = face;
+                    moved = true;
                 }
             }
-        });
+            
+            if (!moved) {
+                return checkContainingTriangle(face, v);
+            }
+        }
         
-        // Find which horizontal slab v is in
-        int i;
-        for (i = 0; i < slabs.size()-1; i ++) {
-            double tolerance = 0.0001;
-            // if v on left slab line or between left and right slab lines it is considered in the slab
-            // if we are considering the last slab and v is on the right slab line, v is condsidered in the last slab
-            if ((v.x > slabs.get(i).x || Math.abs(v.x - slabs.get(i).x) < tolerance)
-                    && (v.x < slabs.get(i+1).x || i+1 == slabs.size()-1)) {
-                // v between slab i and slab i+1
-                break;
+        Utility.debugPrintln("[locateTriangle] Walk did not terminate - this shouldn't happen.");
+        return locateTriangleExhaustive(v);
+    }
+    
+    /**
+     * Fallback for when the walk cannot reach v because edges overlap after a bad flip.
+     * Checks the triangles on both sides of every edge, then the hull edges
+     * 
+     * @param v Vertex to locate
+     * @return Array of vertices containing v, empty if v is in no face, or null if v is on an edge that cannot be split. See checkContainingTriangle
+     */
+    private Vertex[] locateTriangleExhaustive(Vertex v) {
+        Utility.debugPrintln("[locateTriangle] Walk failed. Searching all triangles.");
+        for (int h = 0; h < 2 * this.pairBound; h ++) {
+            if (!isFreePair(h >> 1) && isTriangleFace(h) &&
+                    orientation(this.origins[h], this.origins[h ^ 1], v) >= 0 &&
+                    orientation(this.origins[this.nexts[h]], this.origins[this.nexts[h] ^ 1], v) >= 0 &&
+                    orientation(this.origins[this.nexts[this.nexts[h]]], this.origins[h], v) >= 0) {
+                return checkContainingTriangle(h, v);
             }
         }
         
-        // Holds line segments represnting the intersection of edges with slab i,i+1, keyed by the edge in the DT
-        List<EdgeSegment> slabSegs = findSlabSegments(slabs.get(i).x, slabs.get(i+1).x);
-
-        // Sort y-monotonic slabSegs vertically
-        Collections.sort(slabSegs, new Comparator<EdgeSegment>() {
-            @Override
-            public int compare(EdgeSegment e1, EdgeSegment e2) {
-                // Determine left and right vertices of e1 and e2
-                Vertex e1Left = new Vertex(), e1Right = new Vertex();
-                Utility.setLeftAndRightVertex(e1.valEdge.getVertices()[0], e1.valEdge.getVertices()[1], e1Left, e1Right, 0);
-                Vertex e2Left = new Vertex(), e2Right = new Vertex();
-                Utility.setLeftAndRightVertex(e2.valEdge.getVertices()[0], e2.valEdge.getVertices()[1], e2Left, e2Right, 0);
-
-                double tolerance = 0.0001;
-                if ((e1Left.y > e2Left.y || Math.abs(e1Left.y - e2Left.y) < tolerance) && 
-                        (e1Right.y > e2Right.y || Math.abs(e1Right.y - e2Right.y) < tolerance)) {
-                    return +1;
-                } else if (e1Left.y < e2Left.y || e1Right.y < e2Right.y) {
-                     return -1;
-                } else {
-                    // This shouldn't happen. 2 Edges cannot be equal
-                    return 0;
+        // The infinite faces around the vertex at infinity hold the hull edges clockwise
+        int h = this.infiniteHalfEdge;
+        do {
+            int hull = this.nexts[h];
+            if (orientation(this.origins[hull], this.origins[hull ^ 1], v) > 0) {
+                return checkContainingTriangle(hull, v);
+            }
+            h = this.nexts[h ^ 1];
+        } while (h != this.infiniteHalfEdge);
+        Utility.debugPrintln("v outside regions. ");
+        return new Vertex[]{};
+    }
+    
+    /**
+     * 
+     * @param h A half-edge of a triangle face or an infinite face
+     * @return Counter clockwise vertices of the face left of h, starting from the origin of h
+     */
+    private Vertex[] faceVertices(int h) {
+        return new Vertex[]{getOrigin(h), getOrigin(this.nexts[h]), getOrigin(this.nexts[this.nexts[h]])};
+    }
+    
+    /**
+     * 
+     * @param h A half-edge
+     * @return True if the face left of h has the vertex at infinity as one of its three vertices
+     */
+    private boolean isInfiniteFace(int h) {
+        return this.origins[h] == INFINITE_ID || this.origins[this.nexts[h]] == INFINITE_ID || 
+                this.origins[this.nexts[this.nexts[h]]] == INFINITE_ID;
+    }
+    
+    /**
+     * 
+     * @param h A half-edge
+     * @return True if h and the next two half-edges close a counter clockwise triangle of finite vertices
+     */
+    private boolean isTriangleFace(int h) {
+        int h1 = this.nexts[h], h2 = this.nexts[h1];
+        int a = this.origins[h], b = this.origins[h1], c = this.origins[h2];
+        return this.nexts[h2] == h && a != INFINITE_ID && b != INFINITE_ID && c != INFINITE_ID && 
+                orientation(a, b, c) > 0;
+    }
+    
+    /**
+     * 
+     * @param h A half-edge
+     * @return Half-edge whose next is h
+     */
+    private int getPrev(int h) {
+        int prev = this.nexts[h];
+        while (this.nexts[prev] != h) {
+            prev = this.nexts[prev];
+        }
+        return prev;
+    }
+    
+    /**
+     * 
+     * @param h A half-edge
+     * @return Vertex h starts from, which may be the vertex at infinity
+     */
+    private Vertex getOrigin(int h) {
+        return vertexOf(this.origins[h]);
+    }
+    
+    /**
+     * 
+     * @param id Id of a vertex in this Graph or INFINITE_ID
+     * @return The vertex, which is the vertex at infinity for INFINITE_ID
+     */
+    private Vertex vertexOf(int id) {
+        return id == INFINITE_ID ? this.infinite : this.store.get(id);
+    }
+    
+    /**
+     * 
+     * @param v A vertex in this Graph or the vertex at infinity
+     * @return Id of v, INFINITE_ID for the vertex at infinity, or NONE if v is not in this Graph
+     */
+    private int idOf(Vertex v) {
+        return v == this.infinite ? INFINITE_ID : getVertexId(v);
+    }
+    
+    /**
+     * 
+     * @param h A half-edge
+     * @return Vertex h points to, which may be the vertex at infinity
+     */
+    private Vertex getDestination(int h) {
+        return getOrigin(h ^ 1);
+    }
+    
+    /**
+     * 
+     * @param h Either half of a pair
+     * @return True if the edge of h has been removed from the triangulation but is kept for point location
+     */
+    private boolean isRemoved(int h) {
+        return this.removed[h >> 1];
+    }
+    
+    /**
+     * 
+     * @param h Either half of a pair
+     * @param removed True to remove the edge of h from the triangulation, false to bring it back
+     */
+    private void setRemoved(int h, boolean removed) {
+        this.removed[h >> 1] = removed;
+    }
+    
+    /**
+     * 
+     * @param p A pair slot below pairBound
+     * @return True if no edge holds the slot
+     */
+    private boolean isFreePair(int p) {
+        return this.origins[2 * p] == NONE;
+    }
+    
+    /**
+     * Edge objects are not kept by the mesh and are built on request
+     * 
+     * @param h Either half of a pair between finite vertices
+     * @return Edge of the pair, from the origin of its even half to the origin of its odd half
+     */
+    private Edge getEdge(int h) {
+        return new Edge(getOrigin(h & ~1), getOrigin(h | 1));
+    }
+    
+    /**
+     * 
+     * @param face Half-edge of the counter clockwise triangle containing v, with a finite origin. 
+     *             For v outside the convex hull, the hull edge of the infinite face containing it
+     * @param v Vertex being located
+     * @return The triangle starting from its lowest vertex by x then y, with the vertex at infinity never first. 
+     *         If v is exactly on an edge pq of it, the counter clockwise quad p, s, q, r around v made with the 
+     *         triangle qps on the other side of pq, with p the lower end of pq by x then y. Null if v is on an 
+     *         edge with no face on the other side
+     */
+    private Vertex[] checkContainingTriangle(int face, Vertex v) {
+        Vertex[] triangle = faceVertices(face);
+        int first = 0;
+        int h = face;
+        for (int i = 0; i < 3; i ++, h = this.nexts[h]) {
+            Vertex p = triangle[i], q = triangle[(i + 1) % 3];
+            if (p != this.infinite && q != this.infinite && orientation(p, q, v) == 0) {
+                // v is on an edge, split it with the triangle across
+                if (!isTriangleFace(h ^ 1) && !isInfiniteFace(h ^ 1)) {
+                    return null;
+                }
+                if (isLower(getDestination(h), getOrigin(h))) {
+                    h ^= 1;
                 }
+                return new Vertex[]{getOrigin(h), getDestination(this.nexts[h ^ 1]), getDestination(h), getDestination(this.nexts[h])};
             }
-        });
-
-        if (slabSegs.isEmpty() ||
-                Utility.isLeftOfSegment(slabSegs.get(0).valEdge.getVertices()[0], slabSegs.get(0).valEdge.getVertices()[1], v, 0.1) == -1 || 
-                Utility.isLeftOfSegment(slabSegs.get(slabSegs.size()-1).valEdge.getVertices()[0], slabSegs.get(slabSegs.size()-1).valEdge.getVertices()[1], v, 0.1) == 1) {
-            // v outside all regions
-            Utility.debugPrintln("v outside regions. ");
-            return new Vertex[]{};
-        } 
-
-        // Determine which vertical region v is in
-        // If v on a line, it is considered to be in the region having the line as its top boundary
-        int j;
-        for (j = 0; j < slabSegs.size()-1; j ++) {
-            if (Utility.isLeftOfSegment(slabSegs.get(j).valEdge.getVertices()[0], slabSegs.get(j).valEdge.getVertices()[1], v, 0.1) == 0 ||
-                    Utility.isLeftOfSegment(slabSegs.get(j+1).valEdge.getVertices()[0], slabSegs.get(j+1).valEdge.getVertices()[1], v, 0.1) == 0) {
-                // New vertex is on a line. Cannot triangulate.
-                return null;
+            if (isLower(triangle[i], triangle[first])) {
+                first = i;
             }
-            if (Utility.isLeftOfSegment(slabSegs.get(j).valEdge.getVertices()[0], slabSegs.get(j).valEdge.getVertices()[1], v, 0.1) == 1 &&
-                    Utility.isLeftOfSegment(slabSegs.get(j+1).valEdge.getVertices()[0], slabSegs.get(j+1).valEdge.getVertices()[1], v, 0.1) == -1) {
-                // v between slabSeg j and slabSeg j+1
-                break;
+        }
+        // Start from the same vertex regardless of the path the walk took
+        return new Vertex[]{triangle[first], triangle[(first + 1) % 3], triangle[(first + 2) % 3]};
+    }
+    
+    /**
+     * Always false for the vertex at infinity since its coordinates are NaN
+     * 
+     * @param a A Vertex
+     * @param b A Vertex
+     * @return True if a comes before b by x then y
+     */
+    private boolean isLower(Vertex a, Vertex b) {
+        return a.x < b.x || (a.x == b.x && a.y < b.y);
+    }
+    
+    /**
+     * 
+     * @param v Vertex being located
+     * @return Id of the vertex closest to v out of a random sample of about n^(1/3) vertices and the last added vertex
+     */
+    private int sampleStartVertex(Vertex v) {
+        int n = this.store.size();
+        int closest = n - 1;
+        while (!this.store.contains(closest)) {
+            closest --;
+        }
+        double closestDist = squaredDistance(closest, v);
+        int sampleSize = (int) Math.max(1, Math.round(Math.cbrt(this.store.count())));
+        for (int i = 0; i < sampleSize; i ++) {
+            int candidate = this.random.nextInt(n);
+            if (!this.store.contains(candidate)) {
+                continue;
+            }
+            double dist = squaredDistance(candidate, v);
+            if (dist < closestDist) {
+                closest = candidate;
+                closestDist = dist;
             }
         }
-        
-        List<Vertex> triangle = new ArrayList();
-        
-        Vertex tempV = slabSegs.get(j).keyEdge.getVertices()[0];
-        triangle.add(getVertex(tempV.x, tempV.y));
-        
-        tempV = slabSegs.get(j).keyEdge.getVertices()[1];
-        triangle.add(getVertex(tempV.x, tempV.y));
-        
-        if (!triangle.contains(slabSegs.get(j+1).keyEdge.getVertices()[0])) {
-            tempV = slabSegs.get(j+1).keyEdge.getVertices()[0];
-            triangle.add(getVertex(tempV.x, tempV.y));
+        return closest;
+    }
+    
+    /**
+     * 
+     * @param v Id of a vertex in this Graph
+     * @return Half-edge leaving v whose left face is a triangle, or NONE if v has no triangle
+     */
+    private int incidentFace(int v) {
+        int first = getHalfEdge(v);
+        if (first == NONE) {
+            return NONE;
         }
-        if (!triangle.contains(slabSegs.get(j+1).keyEdge.getVertices()[1])) {
-            tempV = slabSegs.get(j+1).keyEdge.getVertices()[1];
-            triangle.add(getVertex(tempV.x, tempV.y));
+        int h = first;
+        do {
+            if (isTriangleFace(h)) {
+                return h;
+            }
+            h = this.nexts[h ^ 1];
+        } while (h != first);
+        return NONE;
+    }
+    
+    /**
+     * 
+     * @param p A vertex of the edge pq
+     * @param q A vertex of the edge pq
+     * @param r Vertex on one side of pq
+     * @return Third vertex of the triangle adjacent to pq on the side opposite r, or null if there is none
+     */
+    public Vertex findOppositeVertex(Vertex p, Vertex q, Vertex r) {
+        int face = findOppositeFace(p, q, r);
+        return face == NONE ? null : getDestination(this.nexts[face]);
+    }
+    
+    /**
+     * Unlike findOppositeVertex, faces bounded by a removed edge other than pq
+     * do not count since they are no longer part of the triangulation
+     * 
+     * @param p A vertex of the edge pq
+     * @param q A vertex of the edge pq
+     * @param r Vertex or point on one side of pq
+     * @return Third vertex of the Delaunay face adjacent to pq on the side opposite r, or null if there is none
+     */
+    public Vertex findAdjacentFaceVertex(Vertex p, Vertex q, Vertex r) {
+        int face = findOppositeFace(p, q, r);
+        if (face == NONE || isRemoved(this.nexts[face]) || isRemoved(this.nexts[this.nexts[face]])) {
+            return null;
         }
-        return triangle.toArray(new Vertex[triangle.size()]);
+        return getDestination(this.nexts[face]);
     }
     
     /**
-     * EdgeSegment class used for slab decomposition.
-     * Object is keyed by an edge in the DT, having 
-     * value of a line segment of the edge that intersects a slab
+     * 
+     * @param p A vertex of the edge pq
+     * @param q A vertex of the edge pq
+     * @param r Vertex or point on one side of pq
+     * @return Half-edge along pq whose left face is the triangle on the side opposite r, or NONE if there is none
      */
-    private class EdgeSegment {
-        protected Edge keyEdge, valEdge;
-        protected EdgeSegment(Edge keyEdge, Edge valEdge) {
-            this.keyEdge = keyEdge;
-            this.valEdge = valEdge;
+    private int findOppositeFace(Vertex p, Vertex q, Vertex r) {
+        int h = findHalfEdge(findVertexId(p.x, p.y), findVertexId(q.x, q.y));
+        if (h == NONE) {
+            return NONE;
         }
+        if (orientation(p, q, r) > 0) {
+            h ^= 1;
+        }
+        return isTriangleFace(h) ? h : NONE;
     }
     
     /**
      * 
-     * @param leftSlabX X coordinate of left slab line
-     * @param rightSlabX X coordinate of right slab line
-     * @return List of EdgeSegments keyed by edge in the DT, having a value of the edge segment that overlaps the slab
+     * @param p Id of a vertex in this Graph or INFINITE_ID, or NONE
+     * @param q Id of a vertex in this Graph or INFINITE_ID, or NONE
+     * @return Half-edge from p to q, live or removed, or NONE if there is no edge between them
      */
-    private List<EdgeSegment> findSlabSegments(double leftSlabX, double rightSlabX) {
-        // TODO: consider case where vertical edge has both vertices on same slab edge? Idk if this is a problem or not
-        List<EdgeSegment> slabSegs = new ArrayList();
-        double tolerance = 0.0001;
-        
-        // Take copy of edge list
-        List<Edge> allEdges = new ArrayList(this.edges);
-        allEdges.addAll(this.removedEdges);
-        
-        // Find the edges that cross slab i,i+1
-        for (Edge e : allEdges) {
-            Vertex left, right;
-            // If a vertex is on the left slab line
-            if (Math.abs(e.getVertices()[0].x - leftSlabX) < tolerance) {
-                left = e.getVertices()[0];
-            } else if (Math.abs(e.getVertices()[1].x - leftSlabX) < tolerance) {
-                left = e.getVertices()[1];
-            } else {
-                // Neither edge vertex is on the slab line so find where it intersects
-                left = Utility.doLineSegmentsIntersect(new Vertex(leftSlabX, -Utility.RAY_SIZE), new Vertex(leftSlabX, Utility.RAY_SIZE), 
-                        e.getVertices()[0], e.getVertices()[1]);
-            }
-
-            // If a vertex is on the right slab line
-            if (Math.abs(e.getVertices()[0].x - rightSlabX) < tolerance) {
-                right = e.getVertices()[0];
-            } else if (Math.abs(e.getVertices()[1].x - rightSlabX) < tolerance) {
-                right = e.getVertices()[1];
-            } else {
-                // Neither edge vertex is on the slab line so find where it intersects
-                right = Utility.doLineSegmentsIntersect(new Vertex(rightSlabX, -Utility.RAY_SIZE), new Vertex(rightSlabX, Utility.RAY_SIZE), 
-                        e.getVertices()[0], e.getVertices()[1]);
-            }
-
-            if (left != null && right != null) {
-                slabSegs.add(new EdgeSegment(e, new Edge(left, right)));
-            }
+    private int findHalfEdge(int p, int q) {
+        if (p == NONE || q == NONE) {
+            return NONE;
+        }
+        int h = this.edgeIndex.get(edgeKey(p, q));
+        if (h == NONE) {
+            return NONE;
+        }
+        return this.origins[h] == p ? h : h ^ 1;
+    }
+    
+    /**
+     * 
+     * @param p Id of a vertex in this Graph
+     * @param q Id of a vertex in this Graph
+     * @return Key of the unordered pair of vertex ids in edgeIndex
+     */
+    private long edgeKey(int p, int q) {
+        long low = Math.min(p, q);
+        long high = Math.max(p, q);
+        return (low << 32) | high;
+    }
+    
+    /**
+     * 
+     * @param h Either half of an edge in the mesh
+     */
+    private void indexEdge(int h) {
+        this.edgeIndex.put(edgeKey(this.origins[h], this.origins[h ^ 1]), 
+                this.origins[h] < this.origins[h ^ 1] ? h : h ^ 1);
+    }
+    
+    /**
+     * 
+     * @param a A Vertex
+     * @param b A Vertex
+     * @param c A Vertex
+     * @return Twice the signed area of triangle abc with the exact sign, in integer arithmetic on the integer grid
+     */
+    private double orientation(Vertex a, Vertex b, Vertex c) {
+        return orientation(a.x, a.y, b.x, b.y, c.x, c.y);
+    }
+    
+    /**
+     * 
+     * @return Orientation of the points (ax, ay), (bx, by), (cx, cy) as for orientation(Vertex, Vertex, Vertex)
+     */
+    private double orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        if (this.integerGrid) {
+            return IntegerGrid.orientation(ax, ay, bx, by, cx, cy);
         }
-        return slabSegs;
+        return RobustPredicates.orient2d(ax, ay, bx, by, cx, cy);
+    }
+    
+    /**
+     * 
+     * @param a Id of a vertex in this Graph
+     * @param b Id of a vertex in this Graph
+     * @param c A Vertex
+     * @return Orientation of a, b and c as for orientation(Vertex, Vertex, Vertex), read from the store
+     */
+    private double orientation(int a, int b, Vertex c) {
+        return orientation(this.store.getX(a), this.store.getY(a), this.store.getX(b), this.store.getY(b), c.x, c.y);
+    }
+    
+    /**
+     * 
+     * @param a Id of a vertex in this Graph
+     * @param b Id of a vertex in this Graph
+     * @param c Id of a vertex in this Graph
+     * @return Orientation of a, b and c as for orientation(Vertex, Vertex, Vertex), read from the store
+     */
+    private double orientation(int a, int b, int c) {
+        return orientation(this.store.getX(a), this.store.getY(a), this.store.getX(b), this.store.getY(b), 
+                this.store.getX(c), this.store.getY(c));
+    }
+    
+    /**
+     * 
+     * @param id Id of a vertex in this Graph
+     * @param v A Vertex
+     * @return Squared Euclidean distance between the vertex and v
+     */
+    private double squaredDistance(int id, Vertex v) {
+        double dx = this.store.getX(id) - v.x, dy = this.store.getY(id) - v.y;
+        return dx * dx + dy * dy;
     }
     
     /**
@@ -252,9 +563,9 @@ public class Graph {
      */
     public boolean isTriangleFace(Vertex[] vertices) {
         if (vertices.length == 3 && 
-                this.edges.contains(new Edge(vertices[0], vertices[1])) &&
-                this.edges.contains(new Edge(vertices[1], vertices[2])) &&
-                this.edges.contains(new Edge(vertices[2], vertices[0]))) {
+                containsEdge(vertices[0], vertices[1]) &&
+                containsEdge(vertices[1], vertices[2]) &&
+                containsEdge(vertices[2], vertices[0])) {
             return true;
         }
         return false;
@@ -264,129 +575,1193 @@ public class Graph {
      * 
      * @param x X coordinate of desired vertex
      * @param y Y coordinate of desired vertex
-     * @return Actual vertex in this Graph having the given coordinates
+     * @return View of the vertex in this Graph having the given coordinates, or null if there is none
      */
     public Vertex getVertex(double x, double y) {
-        for (Vertex v : this.vertices) {
-            double tolerance = 0.0001;
-            if (Math.abs(v.x - x) < tolerance && Math.abs(v.y - y) < tolerance) {
-                return v;
-            }
-        }
-        return null;
+        int id = findVertexId(x, y);
+        return id == NONE ? null : this.store.get(id);
     }
     
     /**
-     * @param v1 The first Vertex of the Edge
-     * @param v2 The second Vertex of the Edge
-     * @return true iff the Edge does not already exists in the Graph
+     * 
+     * @param x X coordinate of desired vertex
+     * @param y Y coordinate of desired vertex
+     * @return Id of the vertex getVertex returns, or NONE if there is none
      */
-    public boolean addEdge(Vertex v1, Vertex v2){
-        v1 = getVertex(v1.x, v1.y);
-        v2 = getVertex(v2.x, v2.y);
-        if (v1 == null || v2 == null) {
-            Utility.debugPrintln("Edge not added because at least one vertex does not exist.");
-            return false;
+    private int findVertexId(double x, double y) {
+        if (this.integerGrid) {
+            return IntegerGrid.isGridPoint(x, y) ? this.gridPointIndex.get(IntegerGrid.key(x, y)) : NONE;
         }
-        
-        // Ensure the Edge is not in the Graph
-        Edge e = new Edge(v1, v2);
-        if(this.edges.contains(e)){
-            return false;
+        return findVertexIdNear(x, y, 0.0001);
+    }
+    
+    /**
+     * Vertices closer than 0.01 along both axes count as the same vertex
+     * when adding them, as with Utility.equalVertexs
+     * 
+     * @param v A Vertex
+     * @return True if this Graph has a vertex at v
+     */
+    public boolean containsVertex(Vertex v) {
+        if (this.integerGrid) {
+            return findVertexId(v.x, v.y) != NONE;
         }
-        
-        this.edges.add(e);
-        v1.addNeighbor(e);
-        v2.addNeighbor(e);
-        return true;
+        return findVertexIdNear(v.x, v.y, 0.01) != NONE;
     }
     
     /**
-     * Removes the specified Edge from the Graph,
-     * including each vertex's incidence neighborhood
      * 
-     * @param e The Edge to remove from the Graph
-     * @param isDueToEdgeFlip Boolean true if edge is being removed due to an edge flip, false otherwise
+     * @return True if only grid points are added to this Graph
      */
-    public void removeEdge(Edge e, boolean isDueToEdgeFlip){
-       Utility.debugPrintln("Removing edge: " + e);
-       
-       getVertex(e.getVertices()[0].x, e.getVertices()[0].y).removeNeighbor(e);
-       getVertex(e.getVertices()[1].x, e.getVertices()[1].y).removeNeighbor(e);
-       if (!isDueToEdgeFlip) {
-           this.removedEdges.add(e);
-       } else if (this.removedEdges.contains(e)) {
-           this.removedEdges.remove(e);
-       }
-       
-       this.edges.remove(e);
+    public boolean isIntegerGrid() {
+        return this.integerGrid;
     }
     
     /**
+     * Only the grid cells overlapping the square around (x, y) are searched
      * 
-     * @return Deep copy of Vertex List
+     * @param x X coordinate of the query point
+     * @param y Y coordinate of the query point
+     * @param tolerance Max distance along each axis from the query point
+     * @return Vertex in this Graph closest to (x, y) within the tolerance, or null if there is none
      */
-    public List<Vertex> getVertices() {
-        return new ArrayList(this.vertices);
+    public Vertex getVertexNear(double x, double y, double tolerance) {
+        int id = findVertexIdNear(x, y, tolerance);
+        return id == NONE ? null : this.store.get(id);
     }
     
     /**
      * 
-     * @return List of vertices without the boundary ones
+     * @param x X coordinate of the query point
+     * @param y Y coordinate of the query point
+     * @param tolerance Max distance along each axis from the query point
+     * @return Id of the vertex getVertexNear returns, or NONE if there is none
      */
-    public List<Vertex> getDisplayVertices () {
-        List<Vertex> displayVerts = new ArrayList();
-        List<Vertex> boundaryVList = Arrays.asList(this.boundaryTriangle);
-        for (int i = 0; i < this.vertices.size(); i ++) {
-            if (!boundaryVList.contains(this.vertices.get(i))) {
-                displayVerts.add(this.vertices.get(i));
+    private int findVertexIdNear(double x, double y, double tolerance) {
+        int closest = NONE;
+        double closestDist = Double.MAX_VALUE;
+        for (long cx = snapToGrid(x - tolerance); cx <= snapToGrid(x + tolerance); cx ++) {
+            for (long cy = snapToGrid(y - tolerance); cy <= snapToGrid(y + tolerance); cy ++) {
+                for (int id = this.vertexGrid.get(gridKey(cx, cy)); id >= 0; id = this.store.getNextInCell(id)) {
+                    double dx = this.store.getX(id) - x, dy = this.store.getY(id) - y;
+                    double dist = dx * dx + dy * dy;
+                    if (Math.abs(dx) <= tolerance && Math.abs(dy) <= tolerance && dist < closestDist) {
+                        closest = id;
+                        closestDist = dist;
+                    }
+                }
             }
         }
-        return displayVerts;
+        return closest;
     }
     
     /**
      * 
-     * @param vertex Vertex to add
+     * @param c A coordinate
+     * @return Index of the grid cell containing c along its axis
      */
-    public void addVertex(Vertex vertex){
-        this.vertices.add(vertex);
+    private long snapToGrid(double c) {
+        return (long) Math.floor(c / GRID_CELL_SIZE);
     }
     
     /**
      * 
-     * @param v The vertex to remove
+     * @param cx Grid cell index along x
+     * @param cy Grid cell index along y
+     * @return Key of the grid cell in vertexGrid
      */
-    public void removeVertex(Vertex v){
-        Utility.debugPrintln("Removing vertex " + v);
-        this.vertices.remove(v);
-        
-        for (int i = v.getNeighborCount()-1; i >= 0; i --) {
-            this.removeEdge(v.getNeighbor(i), true);
-        }
+    private long gridKey(long cx, long cy) {
+        return (cx << 32) ^ (cy & 0xffffffffL);
     }
     
     /**
      * 
-     * @return List<Edge> The Edges of the Graph
+     * @param x X coordinate of a point
+     * @param y Y coordinate of a point
+     * @return Key of the grid cell containing the point in vertexGrid
      */
-    public List<Edge> getEdges(){
-        return new ArrayList(this.edges);
+    private long gridCellKey(double x, double y) {
+        return gridKey(snapToGrid(x), snapToGrid(y));
+    }
+    
+    /**
+     * 
+     * @param id Id of a vertex in the store to put first in its grid cell
+     */
+    private void addToGridCell(int id) {
+        int first = this.vertexGrid.put(gridCellKey(this.store.getX(id), this.store.getY(id)), id);
+        this.store.setNextInCell(id, first);
+    }
+    
+    /**
+     * 
+     * @param id Id of a vertex in the store to unlink from its grid cell
+     */
+    private void removeFromGridCell(int id) {
+        long key = gridCellKey(this.store.getX(id), this.store.getY(id));
+        int next = this.store.getNextInCell(id);
+        int first = this.vertexGrid.get(key);
+        if (first == id) {
+            if (next < 0) {
+                this.vertexGrid.remove(key);
+            } else {
+                this.vertexGrid.put(key, next);
+            }
+            return;
+        }
+        int prev = first;
+        while (this.store.getNextInCell(prev) != id) {
+            prev = this.store.getNextInCell(prev);
+        }
+        this.store.setNextInCell(prev, next);
     }
     
     /**
      * 
-     * @return 
+     * @param v1 A vertex of the edge
+     * @param v2 A vertex of the edge
+     * @return True if there is an edge between v1 and v2 which has not been removed
+     */
+    public boolean containsEdge(Vertex v1, Vertex v2) {
+        int h = findHalfEdge(findVertexId(v1.x, v1.y), findVertexId(v2.x, v2.y));
+        return h != NONE && !isRemoved(h);
+    }
+    
+    /**
+     * @param v1 The first Vertex of the Edge
+     * @param v2 The second Vertex of the Edge
+     * @return true iff the Edge does not already exists in the Graph
      */
-    public List<Edge> getDisplayEdges() {
-        List<Edge> displayEdges = new ArrayList();
-        List<Vertex> boundaryVList = Arrays.asList(this.boundaryTriangle);
-        for (int i = 0; i < this.edges.size(); i ++) {
-            if (!boundaryVList.contains(this.edges.get(i).getVertices()[0]) &&
-                    !boundaryVList.contains(this.edges.get(i).getVertices()[1])) {
-                displayEdges.add(this.edges.get(i));
+    public boolean addEdge(Vertex v1, Vertex v2){
+        int id1 = findVertexId(v1.x, v1.y), id2 = findVertexId(v2.x, v2.y);
+        if (id1 == NONE || id2 == NONE) {
+            Utility.debugPrintln("Edge not added because at least one vertex does not exist.");
+            return false;
+        }
+        v1 = this.store.get(id1);
+        v2 = this.store.get(id2);
+        
+        // Ensure the Edge is not in the Graph. A removed edge is brought back instead
+        int existing = findHalfEdge(id1, id2);
+        if (existing != NONE) {
+            if (!isRemoved(existing)) {
+                return false;
+            }
+            setRemoved(existing, false);
+            if (this.listener != null) {
+                this.listener.edgeAdded(v1, v2);
+            }
+            return true;
+        }
+        
+        int h = newHalfEdges(id1, id2);
+        spliceHalfEdge(h);
+        spliceHalfEdge(h ^ 1);
+        if (this.listener != null) {
+            this.listener.edgeAdded(v1, v2);
+        }
+        return true;
+    }
+    
+    /**
+     * Create both halves of a new edge in a free pair slot and index them,
+     * without linking them into the mesh. Edges to the vertex at infinity are
+     * always removed, so nothing outside this class sees them
+     * 
+     * @param v1 Id of a vertex in this Graph or INFINITE_ID
+     * @param v2 Id of another vertex in this Graph or INFINITE_ID
+     * @return Half-edge from v1 to v2, the even half of its pair
+     */
+    private int newHalfEdges(int v1, int v2) {
+        int h;
+        synchronized (this.meshLock) {
+            int p;
+            if (this.freePairCount > 0) {
+                p = this.freePairs[-- this.freePairCount];
+            } else {
+                if (this.pairBound == this.removed.length) {
+                    growPairs();
+                }
+                p = this.pairBound ++;
+            }
+            h = 2 * p;
+            this.origins[h] = v1;
+            this.origins[h + 1] = v2;
+            this.nexts[h] = NONE;
+            this.nexts[h + 1] = NONE;
+            this.removed[p] = v1 == INFINITE_ID || v2 == INFINITE_ID;
+            this.pairCount ++;
+        }
+        indexEdge(h);
+        return h;
+    }
+    
+    /**
+     * Grow the pair arrays by half
+     */
+    private void growPairs() {
+        int capacity = this.removed.length + (this.removed.length >> 1);
+        this.origins = Arrays.copyOf(this.origins, 2 * capacity);
+        this.nexts = Arrays.copyOf(this.nexts, 2 * capacity);
+        this.removed = Arrays.copyOf(this.removed, capacity);
+    }
+    
+    /**
+     * 
+     * @param p Slot of a pair that is no longer in the mesh, to hand out again
+     */
+    private void freePair(int p) {
+        synchronized (this.meshLock) {
+            this.origins[2 * p] = NONE;
+            this.origins[2 * p + 1] = NONE;
+            this.removed[p] = true;
+            if (this.freePairCount == this.freePairs.length) {
+                this.freePairs = Arrays.copyOf(this.freePairs, 2 * this.freePairCount);
+            }
+            this.freePairs[this.freePairCount ++] = p;
+            this.pairCount --;
+        }
+    }
+    
+    /**
+     * Link a new half-edge into the rotation around its origin, between the
+     * outgoing half-edges on either side of it
+     * 
+     * @param h Half-edge of a new pair
+     */
+    private void spliceHalfEdge(int h) {
+        int o = this.origins[h];
+        if (getHalfEdge(o) == NONE) {
+            this.nexts[h ^ 1] = h;
+            setHalfEdge(o, h);
+            return;
+        }
+        
+        // First outgoing half-edge counter clockwise from h
+        int ccw = NONE;
+        double minAngle = Double.MAX_VALUE;
+        int first = getHalfEdge(o), out = first;
+        do {
+            double angle = counterClockwiseAngle(getOrigin(h), getDestination(h), getDestination(out));
+            if (angle < minAngle) {
+                ccw = out;
+                minAngle = angle;
+            }
+            out = this.nexts[out ^ 1];
+        } while (out != first);
+        this.nexts[h ^ 1] = this.nexts[ccw ^ 1];
+        this.nexts[ccw ^ 1] = h;
+    }
+    
+    /**
+     * 
+     * @param o Common origin
+     * @param a End of the first direction
+     * @param b End of the second direction
+     * @return Angle in (0, 2pi] turning counter clockwise from oa to ob
+     */
+    private double counterClockwiseAngle(Vertex o, Vertex a, Vertex b) {
+        double angle = Math.atan2(orientation(o, a, b), 
+                (a.x - o.x) * (b.x - o.x) + (a.y - o.y) * (b.y - o.y));
+        return angle <= 0 ? angle + 2 * Math.PI : angle;
+    }
+    
+    /**
+     * Removes the specified Edge from the Graph. Edges removed as exterior
+     * edges are only marked as removed so that the walk in locateTriangle can
+     * still cross them
+     * 
+     * @param e The Edge to remove from the Graph
+     * @param isDueToEdgeFlip Boolean true if edge is being removed due to an edge flip, false otherwise
+     */
+    public void removeEdge(Edge e, boolean isDueToEdgeFlip){
+       if (Utility.debugMode) {
+           Utility.debugPrintln("Removing edge: " + e);
+       }
+       
+       int h = findHalfEdge(findVertexId(e.getFirstVertex().x, e.getFirstVertex().y), 
+               findVertexId(e.getSecondVertex().x, e.getSecondVertex().y));
+       if (h == NONE) {
+           Utility.debugPrintln("Edge not removed because it does not exist.");
+           return;
+       }
+       
+       if (this.listener != null && !isRemoved(h)) {
+           this.listener.edgeRemoved(getOrigin(h), getDestination(h));
+       }
+       if (!isDueToEdgeFlip) {
+           setRemoved(h, true);
+       } else {
+           deleteHalfEdges(h);
+       }
+    }
+    
+    /**
+     * Unlink both halves of an edge from the mesh and free their pair slot
+     * 
+     * @param h Either half of the edge to delete
+     */
+    private void deleteHalfEdges(int h) {
+        int twin = h ^ 1;
+        int hPrev = getPrev(h);
+        int twinPrev = getPrev(twin);
+        int o = this.origins[h], d = this.origins[twin];
+        if (getHalfEdge(o) == h) {
+            setHalfEdge(o, this.nexts[twin] == h ? NONE : this.nexts[twin]);
+        }
+        if (getHalfEdge(d) == twin) {
+            setHalfEdge(d, this.nexts[h] == twin ? NONE : this.nexts[h]);
+        }
+        this.nexts[hPrev] = this.nexts[twin];
+        this.nexts[twinPrev] = this.nexts[h];
+        this.edgeIndex.remove(edgeKey(this.origins[h], this.origins[twin]));
+        freePair(h >> 1);
+    }
+    
+    /**
+     * Replace the diagonal ab of the convex quad formed by the two triangles
+     * adjacent to ab with the other diagonal cd
+     * 
+     * @param e Edge ab to flip, either live or removed
+     * @param c A vertex of the new edge
+     * @param d The other vertex of the new edge
+     * @return True if the edge was flipped, false if c and d are not the vertices opposite ab or the quad is not convex
+     */
+    public boolean flipEdge(Edge e, Vertex c, Vertex d) {
+        int h = findHalfEdge(findVertexId(e.getFirstVertex().x, e.getFirstVertex().y), 
+                findVertexId(e.getSecondVertex().x, e.getSecondVertex().y));
+        if (h == NONE || c == null || d == null || !isTriangleFace(h) || !isTriangleFace(h ^ 1)) {
+            return false;
+        }
+        
+        Vertex a = getOrigin(h), b = getDestination(h);
+        Vertex x = getDestination(this.nexts[h]), y = getDestination(this.nexts[h ^ 1]);
+        if (!((x.equals(c) && y.equals(d)) || (x.equals(d) && y.equals(c))) ||
+                orientation(y, x, a) <= 0 || orientation(x, y, b) <= 0) {
+            return false;
+        }
+        boolean wasRemoved = isRemoved(h);
+        flip(h);
+        
+        // Report the new edge first so distances through ab can be rerouted across xy
+        if (this.listener != null) {
+            this.listener.edgeAdded(x, y);
+            if (!wasRemoved) {
+                this.listener.edgeRemoved(a, b);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Turn the edge of h into the other diagonal of the quad formed by its two
+     * faces, without checking that the quad is convex. The new edge is live
+     * unless it goes to the vertex at infinity
+     * 
+     * @param h Half-edge from a to b of the edge ab to flip, with the faces (a, b, x) and (b, a, y)
+     */
+    private void flip(int h) {
+        int twin = h ^ 1;
+        int h1 = this.nexts[h], h2 = this.nexts[h1], twin1 = this.nexts[twin], twin2 = this.nexts[twin1];
+        int a = this.origins[h], b = this.origins[twin];
+        int x = this.origins[h2], y = this.origins[twin2];
+        
+        // New faces are (y, x, a) and (x, y, b), and the pair keeps its slot
+        if (getHalfEdge(a) == h) {
+            setHalfEdge(a, twin1);
+        }
+        if (getHalfEdge(b) == twin) {
+            setHalfEdge(b, h1);
+        }
+        this.edgeIndex.remove(edgeKey(this.origins[h], this.origins[twin]));
+        this.origins[h] = y;
+        this.origins[twin] = x;
+        setRemoved(h, x == INFINITE_ID || y == INFINITE_ID);
+        this.nexts[h] = h2;
+        this.nexts[h2] = twin1;
+        this.nexts[twin1] = h;
+        this.nexts[twin] = twin2;
+        this.nexts[twin2] = h1;
+        this.nexts[h1] = twin;
+        indexEdge(h);
+    }
+    
+    /**
+     * Replace the edge pq with the edges vp and vq for a vertex v lying on pq.
+     * If pq was removed as an exterior edge, vp and vq are removed too
+     * 
+     * @param v Vertex in this Graph on the segment pq, with no edges yet
+     * @param p A vertex of the edge to split
+     * @param q The other vertex of the edge to split
+     * @return True if the edge was split, false if there is no edge pq
+     */
+    public boolean splitEdge(Vertex v, Vertex p, Vertex q) {
+        int h = findHalfEdge(findVertexId(p.x, p.y), findVertexId(q.x, q.y));
+        if (h == NONE) {
+            return false;
+        }
+        p = getOrigin(h);
+        q = getDestination(h);
+        
+        // Unlink pq before vp and vq are spliced in along the same directions
+        boolean wasRemoved = isRemoved(h);
+        deleteHalfEdges(h);
+        addEdge(v, p);
+        addEdge(v, q);
+        if (wasRemoved) {
+            removeEdge(new Edge(v, p), false);
+            removeEdge(new Edge(v, q), false);
+        } else if (this.listener != null) {
+            // Report the new edges first so distances through pq can be rerouted through v
+            this.listener.edgeRemoved(p, q);
+        }
+        return true;
+    }
+    
+    /**
+     * Add v and join it to the face or edge containing it. A vertex outside the
+     * convex hull is joined to the infinite face it was located in and then to
+     * every hull vertex it sees, by flipping edges to the vertex at infinity,
+     * so the triangles keep covering the hull. Removed hull edges that end up
+     * inside the hull are brought back. While all vertices are collinear they
+     * are only joined in order along their line
+     * 
+     * @param v Vertex to add, which is not in this Graph yet
+     * @param container Vertices containing v as returned by locateTriangle
+     * @param id Id to give v if it is free, or -1 for any free id
+     * @return The container if v is inside the convex hull or on its boundary, otherwise the neighbours 
+     *         of v counter clockwise from the lowest by x then y, including the vertex at infinity. 
+     *         Empty while all vertices are collinear
+     */
+    public Vertex[] insertVertex(Vertex v, Vertex[] container, int id) {
+        int vId = putVertex(v, id);
+        if (this.infiniteHalfEdge == NONE) {
+            insertCollinear(vId);
+            return this.infiniteHalfEdge == NONE ? new Vertex[]{} : getLink(vId);
+        }
+        
+        if (container.length == 4) {
+            // v is on the edge pq between the two faces, which are merged and joined to v
+            int h = findHalfEdge(idOf(container[0]), idOf(container[2]));
+            int face = this.nexts[h];
+            boolean wasRemoved = isRemoved(h);
+            deleteHalfEdges(h);
+            fanFace(vId, face);
+            if (wasRemoved) {
+                removeEdge(new Edge(v, container[0]), false);
+                removeEdge(new Edge(v, container[2]), false);
+            } else if (this.listener != null) {
+                this.listener.edgeRemoved(container[0], container[2]);
+            }
+            return container;
+        }
+        
+        int face = findHalfEdge(idOf(container[0]), idOf(container[1]));
+        if (!isInfiniteFace(face)) {
+            fanFace(vId, face);
+            return container;
+        }
+        
+        // The hull edge of the infinite face is now inside the hull
+        int hull = face;
+        while (this.origins[hull] == INFINITE_ID || this.origins[hull ^ 1] == INFINITE_ID) {
+            hull = this.nexts[hull];
+        }
+        fanFace(vId, face);
+        restoreEdge(hull);
+        makeHullConvex(vId);
+        return getLink(vId);
+    }
+    
+    /**
+     * Join a vertex to the other vertices while they are all on one line,
+     * which keeps them as a path, until a vertex off the line lifts the
+     * Graph into the plane
+     * 
+     * @param v Id of a vertex in this Graph with no edges yet
+     */
+    private void insertCollinear(int v) {
+        if (this.pairCount == 0) {
+            for (int id = 0; id < this.store.size(); id ++) {
+                if (this.store.contains(id) && id != v) {
+                    addEdge(this.store.get(v), this.store.get(id));
+                }
+            }
+            return;
+        }
+        
+        int first = 0;
+        while (isFreePair(first)) {
+            first ++;
+        }
+        if (orientation(this.origins[2 * first], this.origins[2 * first + 1], v) != 0) {
+            liftToPlane(v);
+            return;
+        }
+        
+        // Split the edge v lies on, or else join v to the closest end of the path
+        Vertex vertex = this.store.get(v);
+        for (int i = first; i < this.pairBound; i ++) {
+            if (isFreePair(i)) {
+                continue;
+            }
+            Vertex p = getOrigin(2 * i), q = getOrigin(2 * i + 1);
+            if ((p.x - vertex.x) * (q.x - vertex.x) + (p.y - vertex.y) * (q.y - vertex.y) < 0) {
+                splitEdge(vertex, p, q);
+                return;
+            }
+        }
+        int closest = NONE;
+        double closestDist = Double.MAX_VALUE;
+        for (int id = 0; id < this.store.size(); id ++) {
+            if (this.store.contains(id) && id != v && squaredDistance(id, vertex) < closestDist) {
+                closest = id;
+                closestDist = squaredDistance(id, vertex);
+            }
+        }
+        addEdge(vertex, this.store.get(closest));
+    }
+    
+    /**
+     * The first vertex off the line of the others sees all of them, so it is
+     * joined to each and the one face that is not a triangle, the outside of
+     * the fan, is closed with the vertex at infinity
+     * 
+     * @param v Id of a vertex in this Graph with no edges yet, not collinear with the path of the others
+     */
+    private void liftToPlane(int v) {
+        for (int id = 0; id < this.store.size(); id ++) {
+            if (this.store.contains(id) && id != v) {
+                addEdge(this.store.get(v), this.store.get(id));
+            }
+        }
+        int first = getHalfEdge(v), h = first;
+        do {
+            if (!isTriangleFace(h)) {
+                fanFace(INFINITE_ID, h);
+                return;
+            }
+            h = this.nexts[h ^ 1];
+        } while (h != first);
+    }
+    
+    /**
+     * Join c to every vertex of the face left of face, which becomes a fan of
+     * triangles around c. New edges to finite vertices are reported
+     * 
+     * @param c Id of a vertex with no edges yet, inside the face, or INFINITE_ID
+     * @param face A half-edge of the face
+     */
+    private void fanFace(int c, int face) {
+        int n = 0;
+        int e = face;
+        do {
+            n ++;
+            e = this.nexts[e];
+        } while (e != face);
+        int[] boundary = new int[n];
+        for (int i = 0; i < n; i ++, e = this.nexts[e]) {
+            boundary[i] = e;
+        }
+        
+        // Spoke i goes from c to the origin of boundary half-edge i
+        int[] spokes = new int[n];
+        for (int i = 0; i < n; i ++) {
+            spokes[i] = newHalfEdges(c, this.origins[boundary[i]]);
+        }
+        for (int i = 0; i < n; i ++) {
+            int in = spokes[(i + 1) % n] ^ 1;
+            this.nexts[boundary[i]] = in;
+            this.nexts[in] = spokes[i];
+            this.nexts[spokes[i]] = boundary[i];
+        }
+        setHalfEdge(c, spokes[0]);
+        if (this.listener != null) {
+            for (int spoke : spokes) {
+                if (!isRemoved(spoke)) {
+                    this.listener.edgeAdded(getOrigin(spoke), getDestination(spoke));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Flip the edges to the vertex at infinity around a new hull vertex v while
+     * the hull is reflex at its neighbour, on both sides of v. Each flip joins
+     * v to the next hull vertex and the vertex passed over moves inside the
+     * hull, along with its removed hull edge
+     * 
+     * @param v Id of the vertex just joined to the infinite face it was located in
+     */
+    private void makeHullConvex(int v) {
+        // Counter clockwise along the hull from v: v, x, z
+        int x = this.origins[this.nexts[findHalfEdge(v, INFINITE_ID)] ^ 1];
+        while (true) {
+            int xToInfinity = findHalfEdge(x, INFINITE_ID);
+            int zx = this.nexts[this.nexts[xToInfinity]];
+            int z = this.origins[zx];
+            if (orientation(v, x, z) >= 0) {
+                break;
+            }
+            flip(xToInfinity);
+            if (this.listener != null) {
+                this.listener.edgeAdded(vertexOf(v), vertexOf(z));
+            }
+            restoreEdge(zx);
+            x = z;
+        }
+        
+        // Clockwise along the hull from v: v, y, w
+        int y = this.origins[this.nexts[findHalfEdge(INFINITE_ID, v)] ^ 1];
+        while (true) {
+            int infinityToY = findHalfEdge(INFINITE_ID, y);
+            int yw = this.nexts[infinityToY];
+            int w = this.origins[yw ^ 1];
+            if (orientation(w, y, v) >= 0) {
+                break;
+            }
+            flip(infinityToY);
+            if (this.listener != null) {
+                this.listener.edgeAdded(vertexOf(v), vertexOf(w));
+            }
+            restoreEdge(yw);
+            y = w;
+        }
+    }
+    
+    /**
+     * 
+     * @param h Either half of an edge that is no longer on the convex hull, brought back if it was removed
+     */
+    private void restoreEdge(int h) {
+        if (isRemoved(h)) {
+            setRemoved(h, false);
+            if (this.listener != null) {
+                this.listener.edgeAdded(getOrigin(h), getDestination(h));
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @param v A vertex in this Graph
+     * @return Neighbours of v counter clockwise from the lowest by x then y, including the vertex at infinity. 
+     *         Empty if v has no edges
+     */
+    public Vertex[] getLink(Vertex v) {
+        return getLink(idOf(v));
+    }
+    
+    /**
+     * 
+     * @param v Id of a vertex in this Graph, or NONE
+     * @return Neighbours of v as for getLink(Vertex)
+     */
+    private Vertex[] getLink(int v) {
+        int start = getHalfEdge(v);
+        if (start == NONE) {
+            return new Vertex[0];
+        }
+        int n = 0;
+        int first = this.origins[start ^ 1] == INFINITE_ID ? this.nexts[start ^ 1] : start;
+        int h = start;
+        do {
+            if (isLower(getDestination(h), getDestination(first))) {
+                first = h;
+            }
+            n ++;
+            h = this.nexts[h ^ 1];
+        } while (h != start);
+        
+        // Outgoing half-edges rotate clockwise, so the link fills backwards from first
+        Vertex[] link = new Vertex[n];
+        h = first;
+        for (int i = 0; i < n; i ++) {
+            link[(n - i) % n] = getDestination(h);
+            h = this.nexts[h ^ 1];
+        }
+        return link;
+    }
+    
+    /**
+     * 
+     * @param listener Listener to notify of vertex and live edge changes from now on, or null for none
+     */
+    public void setListener(GraphListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * 
+     * @return New views of the vertices in id order
+     */
+    public List<Vertex> getVertices() {
+        return this.store.getVertices();
+    }
+    
+    /**
+     * O(1) lookup of the vertex with a given id. Ids are assigned by addVertex,
+     * stay the same until the vertex is removed and are then given to later
+     * vertices, so they stay below getVertexIdBound
+     * 
+     * @param id A vertex id
+     * @return New view of the vertex in this Graph with the id, or null if there is none
+     */
+    public Vertex getVertexById(int id) {
+        return id >= 0 && id < this.store.size() ? this.store.get(id) : null;
+    }
+    
+    /**
+     * Ids are kept by this Graph rather than by the vertices, so the same
+     * point has its own id in every Graph holding it. The point is looked up
+     * exactly in its grid cell, or in the grid point index on the integer grid
+     * 
+     * @param v A Vertex
+     * @return Id of the vertex of this Graph with exactly the coordinates of v, otherwise -1
+     */
+    public int getVertexId(Vertex v) {
+        if (this.integerGrid) {
+            return IntegerGrid.isGridPoint(v.x, v.y) ? this.gridPointIndex.get(IntegerGrid.key(v.x, v.y)) : NONE;
+        }
+        for (int id = this.vertexGrid.get(gridCellKey(v.x, v.y)); id >= 0; id = this.store.getNextInCell(id)) {
+            if (this.store.getX(id) == v.x && this.store.getY(id) == v.y) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+    
+    /**
+     * 
+     * @return One more than the largest vertex id, the size of arrays indexed by id
+     */
+    public int getVertexIdBound() {
+        return this.store.size();
+    }
+    
+    /**
+     * 
+     * @return Number of vertices, without copying them
+     */
+    public int getVertexCount() {
+        return this.store.count();
+    }
+    
+    /**
+     * 
+     * @param v Id of a vertex in this Graph, INFINITE_ID, or NONE
+     * @return An outgoing half-edge of v, or NONE if it has no edges or is not in this Graph
+     */
+    private int getHalfEdge(int v) {
+        if (v == INFINITE_ID) {
+            return this.infiniteHalfEdge;
+        }
+        return v == NONE ? NONE : this.store.getHalfEdge(v);
+    }
+    
+    /**
+     * 
+     * @param v Id of a vertex in this Graph or INFINITE_ID
+     * @param h Outgoing half-edge of v to keep, or NONE if v has no edges left
+     */
+    private void setHalfEdge(int v, int h) {
+        if (v == INFINITE_ID) {
+            this.infiniteHalfEdge = h;
+        } else {
+            this.store.setHalfEdge(v, h);
+        }
+    }
+    
+    /**
+     * 
+     * @param v A Vertex
+     * @param index The index of the Edge to retrieve
+     * @return Edge The Edge at the specified index in the rotation around v
+     */
+    public Edge getNeighbor(Vertex v, int index) {
+        int first = getHalfEdge(idOf(v));
+        if (first != NONE) {
+            int h = first;
+            int i = 0;
+            do {
+                if (!isRemoved(h) && i ++ == index) {
+                    return getEdge(h);
+                }
+                h = this.nexts[h ^ 1];
+            } while (h != first);
+        }
+        throw new IndexOutOfBoundsException("Index " + index + " out of range for the neighbours of " + v);
+    }
+    
+    /**
+     * 
+     * @param v A Vertex
+     * @return The number of neighbors of v in this Graph
+     */
+    public int getNeighborCount(Vertex v) {
+        int first = getHalfEdge(idOf(v));
+        if (first == NONE) {
+            return 0;
+        }
+        int count = 0;
+        int h = first;
+        do {
+            if (!isRemoved(h)) {
+                count ++;
+            }
+            h = this.nexts[h ^ 1];
+        } while (h != first);
+        return count;
+    }
+    
+    /**
+     * 
+     * @param v A Vertex
+     * @return ArrayList of the vertices joined to v by an edge of this Graph
+     */
+    public ArrayList<Vertex> getNeighbours(Vertex v) {
+        final ArrayList<Vertex> neighbours = new ArrayList<>();
+        visitNeighbours(v, new MeshVisitor() {
+            @Override
+            public void visitEdge(Vertex v1, Vertex v2) {
+                neighbours.add(v2);
+            }
+        });
+        return neighbours;
+    }
+    
+    /**
+     * Walks the rotation around v without building a list
+     * 
+     * @param v A Vertex
+     * @param visitor Gets visitEdge(v, neighbour) for each live edge of v, in the order of getNeighbours
+     */
+    public void visitNeighbours(Vertex v, MeshVisitor visitor) {
+        int first = getHalfEdge(idOf(v));
+        if (first == NONE) {
+            return;
+        }
+        int h = first;
+        do {
+            if (!isRemoved(h)) {
+                visitor.visitEdge(v, getDestination(h));
+            }
+            h = this.nexts[h ^ 1];
+        } while (h != first);
+    }
+    
+    /**
+     * Walks the rotation around the vertex at infinity, whose faces hold the
+     * hull edges. Nothing is visited while all vertices are collinear
+     * 
+     * @param visitor Gets visitEdge(a, b) for each live edge ab of the convex hull, with the hull to the left of ab
+     */
+    public void visitHullEdges(MeshVisitor visitor) {
+        int first = this.infiniteHalfEdge;
+        if (first == NONE) {
+            return;
+        }
+        int h = first;
+        do {
+            // Face (infinity, b, a) holds the hull edge ab from its outer side
+            int hull = this.nexts[h];
+            if (!isRemoved(hull)) {
+                visitor.visitEdge(getDestination(hull), getOrigin(hull));
+            }
+            h = this.nexts[h ^ 1];
+        } while (h != first);
+    }
+    
+    /**
+     * Breadth first walk over the triangles of the mesh, live or removed,
+     * from the one left of ab, crossing into a neighbouring triangle only
+     * where the visitor accepts the edge between them. A visitor that accepts
+     * the edges meeting a convex region gets every vertex inside the region
+     * that the triangle left of ab reaches, and little else
+     * 
+     * @param a A vertex of an edge of the mesh
+     * @param b The other vertex, with the triangle to start from left of ab
+     * @param visitor Gets visitVertex once for each vertex of the triangles walked, and crossEdge for the edges that lead out of them
+     */
+    public void visitRegion(Vertex a, Vertex b, MeshVisitor visitor) {
+        int start = findHalfEdge(idOf(a), idOf(b));
+        if (start == NONE || !isTriangleFace(start)) {
+            return;
+        }
+        LongIntMap seenFaces = new LongIntMap();
+        LongIntMap seenVertices = new LongIntMap();
+        int[] queue = new int[16];
+        int head = 0, tail = 0;
+        queue[tail ++] = start;
+        seenFaces.put(faceKey(start), 0);
+        while (head < tail) {
+            int face = queue[head ++];
+            int h = face;
+            do {
+                if (seenVertices.put(this.origins[h], 0) < 0) {
+                    visitor.visitVertex(getOrigin(h));
+                }
+                int beyond = h ^ 1;
+                if (isTriangleFace(beyond) && !seenFaces.containsKey(faceKey(beyond)) && 
+                        visitor.crossEdge(getOrigin(h), getDestination(h))) {
+                    seenFaces.put(faceKey(beyond), 0);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, 2 * tail);
+                    }
+                    queue[tail ++] = beyond;
+                }
+                h = this.nexts[h];
+            } while (h != face);
+        }
+    }
+    
+    /**
+     * 
+     * @param h A half-edge of a triangle
+     * @return Same key for the three half-edges of the triangle
+     */
+    private long faceKey(int h) {
+        return Math.min(h, Math.min(this.nexts[h], this.nexts[this.nexts[h]]));
+    }
+    
+    /**
+     * 
+     * @param visitor Gets visitVertex for each vertex in id order, the order of getVertices
+     */
+    public void visitVertices(MeshVisitor visitor) {
+        for (int id = 0; id < this.store.size(); id ++) {
+            Vertex v = this.store.get(id);
+            if (v != null) {
+                visitor.visitVertex(v);
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @param visitor Gets visitEdge for each live edge with the vertices in Edge order, in the order of getEdges
+     */
+    public void visitEdges(MeshVisitor visitor) {
+        synchronized (this.meshLock) {
+            for (int p = 0; p < this.pairBound; p ++) {
+                if (!this.removed[p]) {
+                    visitor.visitEdge(getOrigin(2 * p), getOrigin(2 * p + 1));
+                }
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @param visitor Gets visitFace once for each triangle whose edges are all live
+     */
+    public void visitFaces(MeshVisitor visitor) {
+        synchronized (this.meshLock) {
+            for (int h = 0; h < 2 * this.pairBound; h ++) {
+                if (isFaceRepresentative(h)) {
+                    visitor.visitFace(getOrigin(h), getOrigin(this.nexts[h]), getOrigin(this.nexts[this.nexts[h]]));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Spliterator over the vertices by id. Ids are recycled so they stay dense
+     * and ranges of ids split evenly for parallel streams
+     * 
+     * @return Spliterator over the vertices in id order, valid while the Graph does not change
+     */
+    public Spliterator<Vertex> vertexSpliterator() {
+        return new VertexSpliterator(0, this.store.size());
+    }
+    
+    /**
+     * 
+     * @return Spliterator over the live edges in the order of getEdges, valid while the Graph does not change
+     */
+    public Spliterator<Edge> edgeSpliterator() {
+        return new EdgeSpliterator(0, this.pairBound);
+    }
+    
+    /**
+     * Spliterator over the faces of visitFaces. Unlike the visitor it
+     * allocates an array per face
+     * 
+     * @return Spliterator over the triangles whose edges are all live as counter clockwise vertex arrays, valid while the Graph does not change
+     */
+    public Spliterator<Vertex[]> faceSpliterator() {
+        return new FaceSpliterator(0, 2 * this.pairBound);
+    }
+    
+    /**
+     * Each triangle is reported by its half-edge leaving the vertex with the
+     * smallest id, so it is found once without remembering visited faces
+     * 
+     * @param h A half-edge
+     * @return True if the face left of h is a triangle of live edges and h reports it
+     */
+    private boolean isFaceRepresentative(int h) {
+        if (isRemoved(h)) {
+            return false;
+        }
+        int h1 = this.nexts[h], h2 = this.nexts[h1];
+        if (isRemoved(h1) || isRemoved(h2) || !isTriangleFace(h)) {
+            return false;
+        }
+        return this.origins[h] < this.origins[h1] && this.origins[h] < this.origins[h2];
+    }
+    
+    /**
+     * Spliterator over ranges of vertex ids
+     */
+    private class VertexSpliterator extends IndexSpliterator<Vertex> {
+        
+        private VertexSpliterator(int origin, int fence) {
+            super(origin, fence);
+        }
+        
+        @Override
+        Vertex get(int index) {
+            return Graph.this.store.get(index);
+        }
+        
+        @Override
+        IndexSpliterator<Vertex> split(int origin, int fence) {
+            return new VertexSpliterator(origin, fence);
+        }
+        
+        @Override
+        public int characteristics() {
+            return super.characteristics() | DISTINCT;
+        }
+    }
+    
+    /**
+     * Spliterator over ranges of pair slots
+     */
+    private class EdgeSpliterator extends IndexSpliterator<Edge> {
+        
+        private EdgeSpliterator(int origin, int fence) {
+            super(origin, fence);
+        }
+        
+        @Override
+        Edge get(int index) {
+            return Graph.this.removed[index] ? null : getEdge(2 * index);
+        }
+        
+        @Override
+        IndexSpliterator<Edge> split(int origin, int fence) {
+            return new EdgeSpliterator(origin, fence);
+        }
+    }
+    
+    /**
+     * Spliterator over ranges of half-edges, two slots per pair
+     */
+    private class FaceSpliterator extends IndexSpliterator<Vertex[]> {
+        
+        private FaceSpliterator(int origin, int fence) {
+            super(origin, fence);
+        }
+        
+        @Override
+        Vertex[] get(int index) {
+            if (!isFaceRepresentative(index)) {
+                return null;
+            }
+            return faceVertices(index);
+        }
+        
+        @Override
+        IndexSpliterator<Vertex[]> split(int origin, int fence) {
+            return new FaceSpliterator(origin, fence);
+        }
+    }
+    
+    /**
+     * 
+     * @param vertex Vertex to add, which gets the most recently freed id or else the next new one
+     */
+    public void addVertex(Vertex vertex){
+        addVertex(vertex, -1);
+    }
+    
+    /**
+     * Vertices moved from another Graph, e.g. when the DT is rebuilt, can
+     * keep their ids so that arrays indexed by id stay valid
+     * 
+     * @param vertex Vertex to add
+     * @param id Id to give the vertex if it is free, or -1 for any free id
+     */
+    public void addVertex(Vertex vertex, int id){
+        putVertex(vertex, id);
+    }
+    
+    /**
+     * 
+     * @param vertex Vertex to add
+     * @param id Id to give the vertex if it is free, or -1 for any free id
+     * @return Id the vertex was given
+     */
+    private int putVertex(Vertex vertex, int id) {
+        id = this.store.add(vertex, id);
+        addToGridCell(id);
+        if (this.integerGrid) {
+            this.gridPointIndex.put(IntegerGrid.key(vertex.x, vertex.y), id);
+        }
+        if (this.listener != null) {
+            this.listener.vertexAdded(vertex);
+        }
+        return id;
+    }
+    
+    /**
+     * 
+     * @param v The vertex to remove
+     */
+    public void removeVertex(Vertex v){
+        if (Utility.debugMode) {
+            Utility.debugPrintln("Removing vertex " + v);
+        }
+        int id = findVertexId(v.x, v.y);
+        if (id == NONE) {
+            Utility.debugPrintln("Vertex not removed because it does not exist.");
+            return;
+        }
+        v = this.store.get(id);
+        
+        // Deleting an edge moves the half-edge of v on clockwise to the next one
+        for (int h = getHalfEdge(id); h != NONE; h = getHalfEdge(id)) {
+            if (this.listener != null && !isRemoved(h)) {
+                this.listener.edgeRemoved(v, getDestination(h));
+            }
+            deleteHalfEdges(h);
+        }
+        if (this.listener != null) {
+            this.listener.vertexRemoved(v);
+        }
+        // The listener looks v up by its coordinates, so it leaves the grid only after the listener is told
+        removeFromGridCell(id);
+        if (this.integerGrid) {
+            this.gridPointIndex.remove(IntegerGrid.key(v.x, v.y));
+        }
+        this.store.remove(id);
+    }
+    
+    /**
+     * 
+     * @return List<Edge> The Edges of the Graph
+     */
+    public List<Edge> getEdges(){
+        List<Edge> edges = new ArrayList<>();
+        synchronized (this.meshLock) {
+            for (int p = 0; p < this.pairBound; p ++) {
+                if (!this.removed[p]) {
+                    edges.add(getEdge(2 * p));
+                }
             }
         }
-        return displayEdges;
+        return edges;
     }
 }
@@ -0,0 +1,38 @@
+package dt;
+
+/**
+ * Receives changes to the vertices and live edges of a Graph as they happen,
+ * so structures derived from the graph can be repaired locally instead of
+ * being rebuilt. Removed edges kept in the mesh count as absent
+ *
+ * @author Lee Glendenning
+ */
+public interface GraphListener {
+
+    /**
+     *
+     * @param v Vertex added to the graph, without any edges yet
+     */
+    public void vertexAdded(Vertex v);
+
+    /**
+     * Called after the edges of v have been reported as removed
+     *
+     * @param v Vertex removed from the graph
+     */
+    public void vertexRemoved(Vertex v);
+
+    /**
+     *
+     * @param v1 A vertex of the edge which became live
+     * @param v2 The other vertex of the edge
+     */
+    public void edgeAdded(Vertex v1, Vertex v2);
+
+    /**
+     *
+     * @param v1 A vertex of the live edge which was removed or flipped away
+     * @param v2 The other vertex of the edge
+     */
+    public void edgeRemoved(Vertex v1, Vertex v2);
+}
@@ -0,0 +1,260 @@
+package dt;
+
+/**
+ * Closed form solver for the homothets of a quad used by the Delaunay
+ * triangulation. The min quad of a B3S vertex p is the quad reflected about
+ * its center, translated to p and scaled by s, and contains a point x iff
+ * n_i . (p - x) <= s h_i for every edge i, where n_i is the outward unit
+ * normal of the edge and h_i its distance from the quad center. A homothet
+ * through three sites has every site tight on one edge, so it solves a 3x3
+ * linear system in (p, s) for one assignment of sites to edges. The
+ * assignments to distinct edges, 24 for a quad, are tried and the smallest
+ * feasible homothet is kept, which replaces building and intersecting the
+ * three B2S polylines
+ *
+ * @author Lee Glendenning
+ */
+public class HomothetSolver {
+
+    protected static final double FEASIBILITY_TOLERANCE = 1e-9; // Relative slack allowed on an edge constraint
+    private static final double SINGULAR_TOLERANCE = 1e-12; // Systems with a smaller relative determinant have no unique solution
+    private static final double BOUNDARY_TOLERANCE = 1e-9; // Relative margin below which the in-quad test is decided exactly
+
+    private final SupportTable table;
+    private final double[] nx, ny; // Outward unit normal of the edge from vertex i to vertex i+1
+    private final double[] h; // Distance from the quad center to the line through edge i
+    private final double hMax;
+
+    /**
+     *
+     * @param vertices Vertices of the quad in clockwise order
+     * @param center Center of the quad
+     */
+    public HomothetSolver(Vertex[] vertices, Vertex center) {
+        this.table = new SupportTable(vertices, center);
+        int n = this.table.size();
+        this.nx = new double[n];
+        this.ny = new double[n];
+        this.h = new double[n];
+        double max = 0;
+        for (int i = 0; i < n; i ++) {
+            Vertex normal = this.table.getNormal(i);
+            this.nx[i] = normal.x;
+            this.ny[i] = normal.y;
+            this.h[i] = this.table.getHeight(i);
+            max = Math.max(max, this.h[i]);
+        }
+        this.hMax = max;
+    }
+
+    /**
+     * Smallest homothet of the quad with all three sites on its boundary
+     *
+     * @param a1 A site
+     * @param a2 A site
+     * @param a3 A site
+     * @return {x, y, scale} of the center and scale of the min quad, or null if no homothet goes through all three sites
+     */
+    public double[] circumscribe(Vertex a1, Vertex a2, Vertex a3) {
+        // Work relative to a1 so the system does not lose precision to large coordinates
+        double bx = a2.x - a1.x, by = a2.y - a1.y;
+        double cx = a3.x - a1.x, cy = a3.y - a1.y;
+        double extent = Math.max(Math.max(Math.abs(bx), Math.abs(by)), Math.max(Math.abs(cx), Math.abs(cy)));
+        if (extent == 0) {
+            return null;
+        }
+
+        // Two sites on the same edge give equal rows, so only distinct edges are tried.
+        // A site at a corner is found by putting it on either edge of the corner
+        double[] best = null;
+        int n = this.h.length;
+        for (int e1 = 0; e1 < n; e1 ++) {
+            for (int e2 = 0; e2 < n; e2 ++) {
+                for (int e3 = 0; e3 < n; e3 ++) {
+                    if (e1 == e2 || e2 == e3 || e1 == e3) {
+                        continue;
+                    }
+                    // n_e . p - h_e s = n_e . a for each site a on edge e
+                    double r1 = 0;
+                    double r2 = this.nx[e2] * bx + this.ny[e2] * by;
+                    double r3 = this.nx[e3] * cx + this.ny[e3] * cy;
+                    double det = det3(this.nx[e1], this.ny[e1], -this.h[e1],
+                            this.nx[e2], this.ny[e2], -this.h[e2],
+                            this.nx[e3], this.ny[e3], -this.h[e3]);
+                    if (Math.abs(det) < SINGULAR_TOLERANCE * this.hMax) {
+                        continue;
+                    }
+                    double px = det3(r1, this.ny[e1], -this.h[e1], r2, this.ny[e2], -this.h[e2], r3, this.ny[e3], -this.h[e3]) / det;
+                    double py = det3(this.nx[e1], r1, -this.h[e1], this.nx[e2], r2, -this.h[e2], this.nx[e3], r3, -this.h[e3]) / det;
+                    double s = det3(this.nx[e1], this.ny[e1], r1, this.nx[e2], this.ny[e2], r2, this.nx[e3], this.ny[e3], r3) / det;
+                    if (s > 0 && (best == null || s < best[2]) &&
+                            isFeasible(px, py, s, 0, 0, extent) && isFeasible(px, py, s, bx, by, extent) && isFeasible(px, py, s, cx, cy, extent)) {
+                        best = new double[]{px, py, s};
+                    }
+                }
+            }
+        }
+
+        if (best != null) {
+            best[0] += a1.x;
+            best[1] += a1.y;
+        }
+        return best;
+    }
+
+    /**
+     *
+     * @param p Center of the min quad
+     * @param x A point
+     * @return Smallest scale of the min quad at p that contains x
+     */
+    public double scaleThrough(Vertex p, Vertex x) {
+        double scale = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.h.length; i ++) {
+            scale = Math.max(scale, (this.nx[i] * (p.x - x.x) + this.ny[i] * (p.y - x.y)) / this.h[i]);
+        }
+        return scale;
+    }
+
+    /**
+     * O(1) test of a point against the min quad at p. Points clearly inside or
+     * outside are decided from the edge normals. Points within rounding of the
+     * boundary are tested exactly against the corners of the min quad, as
+     * RobustPredicates.inQuad does, so a point on the boundary counts as inside
+     *
+     * @param quad The quad this solver was built for
+     * @param p Center of the min quad
+     * @param scale Scale of the min quad
+     * @param x Query point
+     * @return True if x is inside or on the boundary of the min quad
+     */
+    public boolean contains(Quadrilateral quad, Vertex p, double scale, Vertex x) {
+        double margin = scaleThrough(p, x) - scale;
+        if (Math.abs(margin) > BOUNDARY_TOLERANCE * Math.max(scale, 1)) {
+            return margin < 0;
+        }
+        return RobustPredicates.inQuad(quad.getPixelVertsForVertex(p, scale, true), x.x, x.y) >= 0;
+    }
+
+    /**
+     *
+     * @param homothet Center x, center y and scale of a min quad, as returned by circumscribe
+     * @param x Query point
+     * @return True if x is inside the min quad by more than rounding, so sites on its boundary are not
+     */
+    public boolean containsStrictly(double[] homothet, Vertex x) {
+        return scaleThrough(new Vertex(homothet[0], homothet[1]), x) < homothet[2] * (1 - FEASIBILITY_TOLERANCE);
+    }
+
+    /**
+     * Min quads through a and b whose centers run off to the right of ab
+     * converge to the wedge bounded by the two edges that face ab, or to a
+     * half-plane if one of them is parallel to ab, and each of them covers
+     * the part of that limit left of ab. With no sites right of ab, as for an
+     * edge of the convex hull, ab is a Delaunay edge iff no site is strictly
+     * inside the limit. The two edges are found in the support table in
+     * O(log k) for k edges
+     *
+     * @param a A site
+     * @param b Another site
+     * @param x Query point
+     * @return True if x is strictly inside the limit of the min quads through a and b growing to the right of ab
+     */
+    public boolean containsInLimit(Vertex a, Vertex b, Vertex x) {
+        double dx = b.x - a.x, dy = b.y - a.y;
+        double length = Math.hypot(dx, dy);
+        double tolerance = FEASIBILITY_TOLERANCE * Math.max(length, Math.abs(x.x - a.x) + Math.abs(x.y - a.y));
+        for (int i : limitEdges(dx, dy, length)) {
+            // Each edge line touches the limit at a or b, whichever is further against the normal
+            double margin = this.nx[i] * (x.x - a.x) + this.ny[i] * (x.y - a.y) - Math.min(0, this.nx[i] * dx + this.ny[i] * dy);
+            if (margin <= tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loose form of containsInLimit for walking the mesh towards the sites
+     * that may be inside the limit, which accepts segments within tolerance
+     * of it so rounding never cuts the walk short
+     *
+     * @param a A site
+     * @param b Another site
+     * @param p An end of a segment
+     * @param q The other end of the segment
+     * @return True if some point of pq is inside the limit of the min quads through a and b growing to the right of ab, or close to it
+     */
+    public boolean limitMeetsSegment(Vertex a, Vertex b, Vertex p, Vertex q) {
+        double dx = b.x - a.x, dy = b.y - a.y;
+        double length = Math.hypot(dx, dy);
+        double tolerance = FEASIBILITY_TOLERANCE * (length + Math.abs(p.x - a.x) + Math.abs(p.y - a.y) + 
+                Math.abs(q.x - a.x) + Math.abs(q.y - a.y));
+        double from = 0, to = 1; // Part of pq inside every edge bound so far
+        for (int i : limitEdges(dx, dy, length)) {
+            double offset = Math.min(0, this.nx[i] * dx + this.ny[i] * dy) - tolerance;
+            double mp = this.nx[i] * (p.x - a.x) + this.ny[i] * (p.y - a.y) - offset;
+            double mq = this.nx[i] * (q.x - a.x) + this.ny[i] * (q.y - a.y) - offset;
+            if (mp <= 0 && mq <= 0) {
+                return false;
+            }
+            if (mp <= 0) {
+                from = Math.max(from, mp / (mp - mq));
+            } else if (mq <= 0) {
+                to = Math.min(to, mp / (mp - mq));
+            }
+        }
+        return from <= to;
+    }
+
+    /**
+     *
+     * @param dx x of b - a
+     * @param dy y of b - a
+     * @param length Length of ab
+     * @return Edges that bound the limit of the min quads through a and b growing to the right of ab
+     */
+    private int[] limitEdges(double dx, double dy, double length) {
+        double ux = dy / length, uy = -dx / length; // Right of ab
+        int n = this.h.length;
+        int k = this.table.extremeVertex(ux, uy), j = (k + n - 1) % n;
+        int[] edges = {j, k};
+        for (int i : new int[]{j, k}) {
+            if (Math.abs(GeometryKernel.cross(this.nx[i], this.ny[i], ux, uy)) <= SINGULAR_TOLERANCE) {
+                // An edge parallel to ab alone bounds the limit
+                edges = new int[]{i};
+            }
+        }
+        return edges;
+    }
+
+    /**
+     *
+     * @return Support table of the quad about its center
+     */
+    public SupportTable getSupportTable() {
+        return this.table;
+    }
+
+    /**
+     *
+     * @return True if site (ax, ay), relative to a1, is inside the homothet within tolerance
+     */
+    private boolean isFeasible(double px, double py, double s, double ax, double ay, double extent) {
+        for (int i = 0; i < this.h.length; i ++) {
+            double d = this.nx[i] * (px - ax) + this.ny[i] * (py - ay);
+            if (d > s * this.h[i] + FEASIBILITY_TOLERANCE * (s * this.h[i] + extent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return Determinant of the 3x3 matrix given by rows
+     */
+    private static double det3(double a, double b, double c, double d, double e, double f, double g, double i, double j) {
+        return a * (e * j - f * i) - b * (d * j - f * g) + c * (d * i - e * g);
+    }
+}
@@ -0,0 +1,179 @@
+package dt;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of int indices in [0, capacity) ordered by double keys.
+ * Positions of indices are tracked so keys can be changed in O(log n)
+ * without boxing, as needed by Dijkstra's algorithm
+ *
+ * @author Lee Glendenning
+ */
+public class IndexMinHeap {
+
+    private final int[] heap;
+    private final int[] pos; // Position of each index in heap, or -1 if it is not in the heap
+    private final double[] keys;
+    private int size;
+
+    /**
+     *
+     * @param capacity Number of distinct indices the heap can hold
+     */
+    public IndexMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.pos = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(this.pos, -1);
+        this.size = 0;
+    }
+
+    /**
+     *
+     * @return True if the heap holds no indices
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Remove all indices from the heap
+     */
+    public void clear() {
+        for (int p = 0; p < this.size; p ++) {
+            this.pos[this.heap[p]] = -1;
+        }
+        this.size = 0;
+    }
+
+    /**
+     *
+     * @param i An index
+     * @return True if i is in the heap
+     */
+    public boolean contains(int i) {
+        return this.pos[i] >= 0;
+    }
+
+    /**
+     * Insert i, or lower its key if it is already in the heap with a larger one
+     *
+     * @param i Index to insert
+     * @param key Key of i
+     */
+    public void insertOrDecrease(int i, double key) {
+        if (this.pos[i] < 0) {
+            this.heap[this.size] = i;
+            this.pos[i] = this.size;
+            this.keys[i] = key;
+            siftUp(this.size ++);
+        } else if (key < this.keys[i]) {
+            this.keys[i] = key;
+            siftUp(this.pos[i]);
+        }
+    }
+
+    /**
+     * Insert i, or move it to its new key whether that is smaller or larger
+     *
+     * @param i Index to insert
+     * @param key Key of i
+     */
+    public void update(int i, double key) {
+        if (this.pos[i] < 0 || key < this.keys[i]) {
+            insertOrDecrease(i, key);
+        } else if (key > this.keys[i]) {
+            this.keys[i] = key;
+            siftDown(this.pos[i]);
+        }
+    }
+
+    /**
+     * Remove i from the heap if it is in it
+     *
+     * @param i Index to remove
+     */
+    public void remove(int i) {
+        int p = this.pos[i];
+        if (p < 0) {
+            return;
+        }
+        this.pos[i] = -1;
+        this.size --;
+        if (p < this.size) {
+            // The last index fills the gap and moves whichever way its key needs
+            int last = this.heap[this.size];
+            this.heap[p] = last;
+            this.pos[last] = p;
+            siftDown(p);
+            if (this.pos[last] == p) {
+                siftUp(p);
+            }
+        }
+    }
+
+    /**
+     *
+     * @return Index with the smallest key, which stays in the heap
+     */
+    public int peekMin() {
+        return this.heap[0];
+    }
+
+    /**
+     *
+     * @return Index with the smallest key, which is removed from the heap
+     */
+    public int pollMin() {
+        int min = this.heap[0];
+        this.pos[min] = -1;
+        this.size --;
+        if (this.size > 0) {
+            this.heap[0] = this.heap[this.size];
+            this.pos[this.heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     *
+     * @param p Position in heap to move up until its parent key is not larger
+     */
+    private void siftUp(int p) {
+        int i = this.heap[p];
+        while (p > 0) {
+            int parent = (p - 1) / 2;
+            if (this.keys[this.heap[parent]] <= this.keys[i]) {
+                break;
+            }
+            this.heap[p] = this.heap[parent];
+            this.pos[this.heap[p]] = p;
+            p = parent;
+        }
+        this.heap[p] = i;
+        this.pos[i] = p;
+    }
+
+    /**
+     *
+     * @param p Position in heap to move down until neither child key is smaller
+     */
+    private void siftDown(int p) {
+        int i = this.heap[p];
+        while (2 * p + 1 < this.size) {
+            int child = 2 * p + 1;
+            if (child + 1 < this.size && this.keys[this.heap[child + 1]] < this.keys[this.heap[child]]) {
+                child ++;
+            }
+            if (this.keys[i] <= this.keys[this.heap[child]]) {
+                break;
+            }
+            this.heap[p] = this.heap[child];
+            this.pos[this.heap[p]] = p;
+            p = child;
+        }
+        this.heap[p] = i;
+        this.pos[i] = p;
+    }
+}
@@ -0,0 +1,91 @@
+package dt;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over a range of slots of an array-backed structure of the
+ * Graph, such as vertex ids or edge pair slots. Slots are dense, since ids
+ * and the slots of deleted edges are handed out again, so halving the range
+ * halves the work and parallel streams split evenly. Empty slots are
+ * skipped. The Graph must not change while the spliterator is used
+ *
+ * @author Lee Glendenning
+ */
+abstract class IndexSpliterator<T> implements Spliterator<T> {
+
+    private static final int MIN_SPLIT = 64; // Ranges are not split below this many slots
+
+    private int origin;
+    private final int fence;
+
+    /**
+     *
+     * @param origin First slot
+     * @param fence One past the last slot
+     */
+    IndexSpliterator(int origin, int fence) {
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    /**
+     *
+     * @param index A slot in the range
+     * @return Element at the slot, or null if it is empty or filtered out
+     */
+    abstract T get(int index);
+
+    /**
+     *
+     * @param origin First slot of the split off range
+     * @param fence One past the last slot of the split off range
+     * @return Spliterator of the same kind over the range
+     */
+    abstract IndexSpliterator<T> split(int origin, int fence);
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (this.origin < this.fence) {
+            T element = get(this.origin ++);
+            if (element != null) {
+                action.accept(element);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        int i = this.origin;
+        this.origin = this.fence;
+        for (; i < this.fence; i ++) {
+            T element = get(i);
+            if (element != null) {
+                action.accept(element);
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int mid = (this.origin + this.fence) >>> 1;
+        if (mid - this.origin < MIN_SPLIT) {
+            return null;
+        }
+        IndexSpliterator<T> prefix = split(this.origin, mid);
+        this.origin = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.fence - this.origin;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,70 @@
+package dt;
+
+/**
+ * Exact arithmetic for vertices on the integer grid, e.g. pixel coordinates.
+ * Coordinates are bounded by MAX_COORDINATE so every orientation determinant
+ * fits in a long and is computed without rounding, and two grid vertices are
+ * the same exactly when their packed keys are equal
+ *
+ * @author Lee Glendenning
+ */
+public class IntegerGrid {
+
+    // Differences of bounded coordinates fit in 31 bits, so their products fit in 62 and a difference of products in 63
+    public static final long MAX_COORDINATE = (1L << 30) - 1;
+
+    /**
+     *
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return True if (x, y) is a grid point within the coordinate bound
+     */
+    public static boolean isGridPoint(double x, double y) {
+        return x == Math.rint(x) && y == Math.rint(y) &&
+                Math.abs(x) <= MAX_COORDINATE && Math.abs(y) <= MAX_COORDINATE;
+    }
+
+    /**
+     * Round a vertex to the nearest grid point
+     *
+     * @param v Vertex to round
+     * @return v itself if it is a grid point, otherwise the nearest grid point, or null if that is outside the coordinate bound
+     */
+    public static Vertex snap(Vertex v) {
+        double x = Math.rint(v.x), y = Math.rint(v.y);
+        if (!isGridPoint(x, y)) {
+            return null;
+        }
+        return (x == v.x && y == v.y) ? v : new Vertex(x, y);
+    }
+
+    /**
+     *
+     * @param x X coordinate of a grid point
+     * @param y Y coordinate of a grid point
+     * @return Key equal for two grid points iff they have the same coordinates
+     */
+    public static long key(double x, double y) {
+        return ((long) x << 32) ^ ((long) y & 0xffffffffL);
+    }
+
+    /**
+     *
+     * @param a A grid vertex
+     * @param b A grid vertex
+     * @param c A grid vertex
+     * @return Twice the signed area of triangle abc, exactly. Positive if a, b, c are in counter clockwise order, negative if clockwise
+     */
+    public static long orientation(Vertex a, Vertex b, Vertex c) {
+        return orientation(a.x, a.y, b.x, b.y, c.x, c.y);
+    }
+
+    /**
+     *
+     * @return Orientation of the grid points (ax, ay), (bx, by), (cx, cy) as for orientation(Vertex, Vertex, Vertex)
+     */
+    public static long orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        long x = (long) ax, y = (long) ay;
+        return ((long) bx - x) * ((long) cy - y) - ((long) by - y) * ((long) cx - x);
+    }
+}
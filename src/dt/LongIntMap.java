@@ -0,0 +1,192 @@
+package dt;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to non negative ints,
+ * with linear probing over parallel key and value arrays, so an entry costs
+ * 12 bytes per slot and nothing is boxed. Long.MIN_VALUE marks empty slots and
+ * cannot be used as a key, and -1 stands for a missing value
+ *
+ * @author Lee Glendenning
+ */
+public class LongIntMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Empty constructor creates a map with room for 16 keys before resizing
+     */
+    public LongIntMap() {
+        this(16);
+    }
+
+    /**
+     *
+     * @param expectedSize Number of keys the map should hold before resizing
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = 4;
+        while (capacity < expectedSize * 2) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     *
+     * @param capacity Number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    /**
+     *
+     * @param key Key to look up
+     * @return Value mapped to key, or -1 if there is none
+     */
+    public int get(long key) {
+        int mask = this.keys.length - 1;
+        for (int i = slot(key); this.keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (this.keys[i] == key) {
+                return this.values[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @param key Key to look up
+     * @return True if key is mapped to a value
+     */
+    public boolean containsKey(long key) {
+        return get(key) >= 0;
+    }
+
+    /**
+     *
+     * @param key Key to map, must not be Long.MIN_VALUE
+     * @param value Non negative value to map key to
+     * @return Value previously mapped to key, or -1 if there was none
+     */
+    public int put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE is reserved for empty slots");
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("-1 is reserved for missing values");
+        }
+        int mask = this.keys.length - 1;
+        int i = slot(key);
+        for (; this.keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (this.keys[i] == key) {
+                int old = this.values[i];
+                this.values[i] = value;
+                return old;
+            }
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.size ++;
+        if (this.size * 2 > this.keys.length) {
+            resize();
+        }
+        return -1;
+    }
+
+    /**
+     * Shifts later entries of the probe run back so lookups never stop at the freed slot
+     *
+     * @param key Key to remove
+     * @return Value that was mapped to key, or -1 if there was none
+     */
+    public int remove(long key) {
+        int mask = this.keys.length - 1;
+        int i = slot(key);
+        for (; this.keys[i] != key; i = (i + 1) & mask) {
+            if (this.keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+        int old = this.values[i];
+
+        int gap = i;
+        for (int j = (gap + 1) & mask; this.keys[j] != EMPTY; j = (j + 1) & mask) {
+            // Move the entry at j into the gap unless its home slot lies cyclically in (gap, j]
+            int home = slot(this.keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                this.keys[gap] = this.keys[j];
+                this.values[gap] = this.values[j];
+                gap = j;
+            }
+        }
+        this.keys[gap] = EMPTY;
+        this.size --;
+        return old;
+    }
+
+    /**
+     *
+     * @return Number of keys in the map
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove all keys from the map
+     */
+    public void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+    }
+
+    /**
+     * Double the number of slots and re-insert every entry
+     */
+    private void resize() {
+        long[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i ++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Used by resize to place an entry whose key is known to be absent
+     *
+     * @param key Key to map
+     * @param value Value to map key to
+     */
+    private void insert(long key, int value) {
+        int mask = this.keys.length - 1;
+        int i = slot(key);
+        while (this.keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        this.keys[i] = key;
+        this.values[i] = value;
+        this.size ++;
+    }
+
+    /**
+     *
+     * @param key A key
+     * @return Home slot of key, mixing the high bits in so that packed pairs spread evenly
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (this.keys.length - 1);
+    }
+}
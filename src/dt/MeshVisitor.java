@@ -0,0 +1,47 @@
+package dt;
+
+/**
+ * Visits the vertices, edges or faces of a Graph in place, so passes over the
+ * whole mesh neither copy it into lists nor allocate per element. Only the
+ * method for the kind of element being visited is called, so a visitor
+ * overrides just that one and leaves the others empty, along with crossEdge
+ * for walks that it steers
+ *
+ * @author Lee Glendenning
+ */
+public abstract class MeshVisitor {
+
+    /**
+     *
+     * @param v A vertex of the graph
+     */
+    public void visitVertex(Vertex v) {
+    }
+
+    /**
+     *
+     * @param v1 A vertex of a live edge, the center when visiting the neighbours of a vertex
+     * @param v2 The other vertex of the edge
+     */
+    public void visitEdge(Vertex v1, Vertex v2) {
+    }
+
+    /**
+     *
+     * @param a A vertex of a triangle whose edges are all live
+     * @param b Next vertex counter clockwise around the triangle
+     * @param c Last vertex counter clockwise around the triangle
+     */
+    public void visitFace(Vertex a, Vertex b, Vertex c) {
+    }
+
+    /**
+     *
+     * @param p A vertex of an edge on the border of the region walked so far
+     * @param q The other vertex of the edge
+     * @return True to walk across pq into the triangle beyond it
+     */
+    public boolean crossEdge(Vertex p, Vertex q) {
+        return false;
+    }
+}
@@ -26,20 +26,23 @@ public class Painter {
      * Draw vertices in vertex set and the Quadrilateral around each vertex
      * 
      * @param g2d Graphics2D object used to draw to the screen
-     * @param vertices List of vertices to draw
+     * @param graph Graph holding the vertices to draw, which are visited in place
      * @param quad Quadrilateral to draw around the vertices
      * @param vertexRadius Visual radius of vertices in vertex set
      * @param yMax Max y pixel on screen used to draw from bottom to top of screen as y increases
      * @param curScale Current scaling factor to draw Quadrilateral at
      */
-    public void drawVerticesAndQuads(Graphics2D g2d, List<Vertex> vertices, Quadrilateral quad, int yMax, int vertexRadius, double curScale) {
+    public void drawVerticesAndQuads(final Graphics2D g2d, Graph graph, final Quadrilateral quad, final int yMax, final int vertexRadius, double curScale) {
         g2d.setStroke(new BasicStroke(1));
-        for (Vertex v : vertices) {
-            g2d.setColor(v.getColour());
-            // Subtract vertexRadius because vertices are drawn at coordinates from top left
-            g2d.fill(new Ellipse2D.Double(v.x - vertexRadius, yMax - (v.y + vertexRadius), vertexRadius * 2, vertexRadius * 2)); // x, y, width, height
-            quad.drawQuad(g2d, v, 1.0, yMax, false); // Original quad
-        }
+        graph.visitVertices(new MeshVisitor() {
+            @Override
+            public void visitVertex(Vertex v) {
+                g2d.setColor(v.getColour());
+                // Subtract vertexRadius because vertices are drawn at coordinates from top left
+                g2d.fill(new Ellipse2D.Double(v.x - vertexRadius, yMax - (v.y + vertexRadius), vertexRadius * 2, vertexRadius * 2)); // x, y, width, height
+                quad.drawQuad(g2d, v, 1.0, yMax, false); // Original quad
+            }
+        });
     }
     
     /**
@@ -72,23 +75,28 @@ public class Painter {
     /**
      * 
      * @param g2d Graphics2D object used to draw to the screen
+     * @param graph Graph holding v, which knows its edges
      * @param v Moving vertex to draw to screen
      * @param yMax Max y pixel on screen used to draw from bottom to top of screen as y increases
      * @param c Color used to draw the moving vertex
      */
-    public void eraseEdgesAndCoords(Graphics2D g2d, Vertex v, int yMax, Color c) {
-        Utility.debugPrintln("erasing coords for " + v);
+    public void eraseEdgesAndCoords(Graphics2D g2d, Graph graph, Vertex v, int yMax, Color c) {
+        if (Utility.debugMode) {
+            Utility.debugPrintln("erasing coords for " + v);
+        }
         g2d.setStroke(new BasicStroke(1));
         g2d.setColor(c);
         int fontSize = 14;
         g2d.setFont(new Font("default", Font.PLAIN, fontSize));
         g2d.drawString(Math.round(v.x) + ", " + Math.round(v.y), Math.round(v.x)+25, Math.round(yMax - v.y));
         
-        for (int i = 0; i < v.getNeighborCount(); i ++) {
-            Edge edge = v.getNeighbor(i);
-            Utility.debugPrintln("erasing edge " + edge);
-            g2d.drawLine((int)Math.round(edge.getVertices()[0].x), yMax - (int)Math.round(edge.getVertices()[0].y), 
-                    (int)Math.round(edge.getVertices()[1].x), yMax - (int)Math.round(edge.getVertices()[1].y));
+        for (int i = 0; i < graph.getNeighborCount(v); i ++) {
+            Edge edge = graph.getNeighbor(v, i);
+            if (Utility.debugMode) {
+                Utility.debugPrintln("erasing edge " + edge);
+            }
+            g2d.drawLine((int)Math.round(edge.getFirstVertex().x), yMax - (int)Math.round(edge.getFirstVertex().y), 
+                    (int)Math.round(edge.getSecondVertex().x), yMax - (int)Math.round(edge.getSecondVertex().y));
         }
         g2d.setColor(Color.red);
         g2d.drawLine(100, yMax - 100, 200, yMax - 200);
@@ -238,17 +246,23 @@ public class Painter {
     /**
      * 
      * @param g2d Graphics2D object used to draw to the screen
-     * @param vertexSet Set of vertices to draw coordinates for
+     * @param graph Graph whose vertices to draw coordinates for, each labelled with its vertex id
      * @param yMax Max y pixel on screen used to draw from bottom to top of screen as y increases
      */
-    public void drawVertexCoordinates(Graphics2D g2d, List<Vertex> vertexSet, int yMax) {
+    public void drawVertexCoordinates(Graphics2D g2d, Graph graph, int yMax) {
         int fontSize = 14;
-        for (Vertex p : vertexSet) {
+        Font idFont = new Font("default", Font.BOLD, fontSize);
+        Font coordinateFont = new Font("default", Font.PLAIN, fontSize);
+        for (int id = 0; id < graph.getVertexIdBound(); id ++) {
+            Vertex p = graph.getVertexById(id);
+            if (p == null) {
+                continue;
+            }
             g2d.setColor(Color.black);
-            g2d.setFont(new Font("default", Font.BOLD, fontSize));
-            g2d.drawString(vertexSet.indexOf(p) + ": ", Math.round(p.x)+2, Math.round(yMax - p.y));
+            g2d.setFont(idFont);
+            g2d.drawString(id + ": ", Math.round(p.x)+2, Math.round(yMax - p.y));
             g2d.setColor(Color.red);
-            g2d.setFont(new Font("default", Font.PLAIN, fontSize));
+            g2d.setFont(coordinateFont);
             g2d.drawString(Math.round(p.x) + ", " + Math.round(p.y), Math.round(p.x)+25, Math.round(yMax - p.y));
         }
     }
@@ -256,28 +270,35 @@ public class Painter {
     /**
      * 
      * @param g2d Graphics2D object used to draw to the screen
-     * @param delaunayEdges List of vertex tuples representing edges of the Delaunay triangulation
+     * @param graph Graph holding the edges of the Delaunay triangulation, which are visited in place
      * @param yMax Max y pixel on screen used to draw from bottom to top of screen as y increases
      */
-    public void drawDelaunayEdges(Graphics2D g2d, List<Edge> delaunayEdges, int yMax) {
+    public void drawDelaunayEdges(final Graphics2D g2d, Graph graph, final int yMax) {
         g2d.setStroke(new BasicStroke(1));
         g2d.setColor(Color.black);
-        for (Edge edge : delaunayEdges) {
-            g2d.drawLine((int)Math.round(edge.getVertices()[0].x), yMax - (int)Math.round(edge.getVertices()[0].y), 
-                (int)Math.round(edge.getVertices()[1].x), yMax - (int)Math.round(edge.getVertices()[1].y));
-        }
+        graph.visitEdges(new MeshVisitor() {
+            @Override
+            public void visitEdge(Vertex v1, Vertex v2) {
+                g2d.drawLine((int)Math.round(v1.x), yMax - (int)Math.round(v1.y), 
+                    (int)Math.round(v2.x), yMax - (int)Math.round(v2.y));
+            }
+        });
     }
     
     /**
      * 
      * @param g2d Graphics2D object used to draw to the screen
-     * @param sfVertices Array of size 2 holding the vertex indices causing the stretch factor of the DT
-     * @param stretchFactor Double stretch factor to draw as a String to top left corner of screen
+     * @param sfVertices Array of size 2 holding the vertex ids causing the stretch factor of the DT
+     * @param stretchFactor Double stretch factor to draw as a String to top left corner of screen, or -1 if it has not been computed
      */
     public void drawStretchFactor(Graphics2D g2d, Integer[] sfVertices, double stretchFactor) {
         g2d.setColor(Color.white);
         g2d.fill(new Rectangle2D.Double(0, 0, 250, 32));
         g2d.setColor(Color.black);
+        if (stretchFactor < 0) {
+            g2d.drawString("Stretch factor not computed", 0, 14);
+            return;
+        }
         g2d.drawString("Stretch factor = " + stretchFactor, 0, 14);
         g2d.drawString("Between V" + sfVertices[0] + " and V" + sfVertices[1], 0, 28);
         
@@ -0,0 +1,172 @@
+package dt;
+
+/**
+ * Homothet solver for centrally symmetric quads. A quad symmetric about its
+ * center is a parallelogram, and the linear map taking it to the square
+ * [-1, 1] x [-1, 1] turns its distance into the L infinity norm. That covers
+ * squares, rectangles and rhombi alike, the diamond being L1, which is
+ * L infinity turned by 45 degrees. In that frame the min quad is an axis
+ * parallel square, so the homothet through three sites has two of them on
+ * opposite edges and is found from a handful of candidates instead of the
+ * 3x3 systems of the general solver
+ *
+ * @author Lee Glendenning
+ */
+public class ParallelogramSolver extends HomothetSolver {
+
+    private static final double SYMMETRY_TOLERANCE = 1e-9; // Relative to the size of the quad
+
+    private final double m00, m01, m10, m11; // Map from the world to the square frame
+    private final double i00, i01, i10, i11; // Map from the square frame to the world
+
+    /**
+     *
+     * @param vertices Vertices of the quad in clockwise order
+     * @param center Center of the quad, which it must be symmetric about
+     */
+    public ParallelogramSolver(Vertex[] vertices, Vertex center) {
+        super(vertices, center);
+        Vertex v0 = vertices[0], v1 = vertices[1];
+        double ex = v0.x - center.x, ey = v0.y - center.y;
+        double fx = v1.x - center.x, fy = v1.y - center.y;
+
+        // Vertex 0 goes to (1, 1) and vertex 1 to (1, -1), which keeps the clockwise order
+        this.i00 = (ex + fx) / 2;
+        this.i01 = (ex - fx) / 2;
+        this.i10 = (ey + fy) / 2;
+        this.i11 = (ey - fy) / 2;
+        double det = this.i00 * this.i11 - this.i01 * this.i10;
+        this.m00 = this.i11 / det;
+        this.m01 = -this.i01 / det;
+        this.m10 = -this.i10 / det;
+        this.m11 = this.i00 / det;
+    }
+
+    /**
+     *
+     * @param vertices Vertices of the quad in clockwise order
+     * @param center Center of the quad
+     * @return True if there are 4 vertices and the quad is symmetric about its center
+     */
+    public static boolean isCentrallySymmetric(Vertex[] vertices, Vertex center) {
+        if (vertices.length != 4) {
+            return false;
+        }
+        double extent = 0;
+        for (Vertex v : vertices) {
+            extent = Math.max(extent, Math.max(Math.abs(v.x - center.x), Math.abs(v.y - center.y)));
+        }
+        double tolerance = SYMMETRY_TOLERANCE * extent;
+        // Opposite vertices are reflections of each other through the center
+        for (int i = 0; i < 2; i ++) {
+            Vertex a = vertices[i], b = vertices[i + 2];
+            if (Math.abs(a.x + b.x - 2 * center.x) > tolerance || Math.abs(a.y + b.y - 2 * center.y) > tolerance) {
+                return false;
+            }
+        }
+        return extent > 0;
+    }
+
+    /**
+     * Map a vector of the world to the frame where the quad is the square
+     * [-1, 1] x [-1, 1]
+     *
+     * @param dx X of the vector
+     * @param dy Y of the vector
+     * @param out Receives the vector in the square frame at out[0], out[1]
+     */
+    public void toSquareFrame(double dx, double dy, double[] out) {
+        out[0] = this.m00 * dx + this.m01 * dy;
+        out[1] = this.m10 * dx + this.m11 * dy;
+    }
+
+    /**
+     *
+     * @param origin World point the vector is added to
+     * @param u First coordinate of a vector in the square frame
+     * @param v Second coordinate of a vector in the square frame
+     * @return origin plus the vector mapped back to the world
+     */
+    public Vertex fromSquareFrame(Vertex origin, double u, double v) {
+        return new Vertex(origin.x + this.i00 * u + this.i01 * v, origin.y + this.i10 * u + this.i11 * v);
+    }
+
+    /**
+     * Smallest homothet of the quad with all three sites on its boundary
+     *
+     * @param a1 A site
+     * @param a2 A site
+     * @param a3 A site
+     * @return {x, y, scale} of the center and scale of the min quad, or null if no homothet goes through all three sites
+     */
+    @Override
+    public double[] circumscribe(Vertex a1, Vertex a2, Vertex a3) {
+        // Sites in the square frame relative to a1
+        double[] u = new double[3], v = new double[3], temp = new double[2];
+        toSquareFrame(a2.x - a1.x, a2.y - a1.y, temp);
+        u[1] = temp[0];
+        v[1] = temp[1];
+        toSquareFrame(a3.x - a1.x, a3.y - a1.y, temp);
+        u[2] = temp[0];
+        v[2] = temp[1];
+        double extent = Math.max(Math.max(Math.abs(u[1]), Math.abs(v[1])), Math.max(Math.abs(u[2]), Math.abs(v[2])));
+        if (extent == 0) {
+            return null;
+        }
+
+        // Sites i and j on opposite edges fix the side of the square and one coordinate of its center.
+        // Site k on one of the other two edges fixes the other coordinate
+        double[] best = null;
+        for (int k = 0; k < 3; k ++) {
+            int i = (k + 1) % 3, j = (k + 2) % 3;
+            for (int side = -1; side <= 1; side += 2) {
+                double s = Math.abs(u[i] - u[j]) / 2;
+                best = keepSmaller(best, (u[i] + u[j]) / 2, v[k] - side * s, s, u, v, extent);
+                s = Math.abs(v[i] - v[j]) / 2;
+                best = keepSmaller(best, u[k] - side * s, (v[i] + v[j]) / 2, s, u, v, extent);
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        Vertex c = fromSquareFrame(a1, best[0], best[1]);
+        return new double[]{c.x, c.y, best[2]};
+    }
+
+    /**
+     *
+     * @param p Center of the min quad
+     * @param x A point
+     * @return Smallest scale of the min quad at p that contains x, the L infinity norm of p - x in the square frame
+     */
+    @Override
+    public double scaleThrough(Vertex p, Vertex x) {
+        double dx = p.x - x.x, dy = p.y - x.y;
+        return Math.max(Math.abs(this.m00 * dx + this.m01 * dy), Math.abs(this.m10 * dx + this.m11 * dy));
+    }
+
+    /**
+     *
+     * @param best Smallest feasible square so far as {u, v, s}, or null
+     * @param cu First coordinate of the center of a candidate square
+     * @param cv Second coordinate of the center of a candidate square
+     * @param s Half the side of the candidate square
+     * @param u First coordinates of the sites
+     * @param v Second coordinates of the sites
+     * @param extent Largest coordinate of the sites, used to scale the tolerance
+     * @return The candidate if it contains every site and is smaller than best, otherwise best
+     */
+    private static double[] keepSmaller(double[] best, double cu, double cv, double s, double[] u, double[] v, double extent) {
+        if (s <= 0 || (best != null && s >= best[2])) {
+            return best;
+        }
+        double limit = s + FEASIBILITY_TOLERANCE * (s + extent);
+        for (int i = 0; i < u.length; i ++) {
+            if (Math.abs(u[i] - cu) > limit || Math.abs(v[i] - cv) > limit) {
+                return best;
+            }
+        }
+        return new double[]{cu, cv, s};
+    }
+}
@@ -0,0 +1,282 @@
+package dt;
+
+/**
+ * Homothet solver for convex polygons of more than 4 vertices, which
+ * approximate rounded distance functions. Trying every assignment of the
+ * sites to edges would cost O(k^3) systems for k edges, so the homothet
+ * through three sites is found on the B2S of two of them instead. Scaled to
+ * the unit polygon, two sites on the boundary of a homothet become the ends
+ * of a chord parallel to the line through them, so the homothets through a1
+ * and a2 are swept by sliding that chord across the polygon. Between the
+ * heights of two polygon vertices both ends of the chord stay on one edge and
+ * the third site moves along a line, so where it crosses the boundary is
+ * solved piece by piece. The distance function and the extreme vertices are
+ * read from the support table in O(log k), which makes construction O(k) and
+ * a query O(k log k)
+ *
+ * @author Lee Glendenning
+ */
+public class PolygonSolver extends HomothetSolver {
+
+    private static final double[] DEGENERATE = new double[0]; // Returned by sweep when the third site runs along an edge
+
+    private final SupportTable table;
+    private final double[] vx, vy; // Vertex i relative to the center
+    private final double[] nx, ny; // Outward unit normal of the edge from vertex i to vertex i+1
+    private final double[] h; // Distance from the center to the line through edge i
+
+    /**
+     *
+     * @param vertices Vertices of the polygon in clockwise order
+     * @param center Center of the polygon
+     */
+    public PolygonSolver(Vertex[] vertices, Vertex center) {
+        super(vertices, center);
+        this.table = getSupportTable();
+        int n = this.table.size();
+        this.vx = new double[n];
+        this.vy = new double[n];
+        this.nx = new double[n];
+        this.ny = new double[n];
+        this.h = new double[n];
+        for (int i = 0; i < n; i ++) {
+            Vertex v = this.table.getVertex(i), normal = this.table.getNormal(i);
+            this.vx[i] = v.x;
+            this.vy[i] = v.y;
+            this.nx[i] = normal.x;
+            this.ny[i] = normal.y;
+            this.h[i] = this.table.getHeight(i);
+        }
+    }
+
+    /**
+     * Smallest homothet of the polygon with all three sites on its boundary
+     *
+     * @param a1 A site
+     * @param a2 A site
+     * @param a3 A site
+     * @return {x, y, scale} of the center and scale of the min quad, or null if no homothet goes through all three sites
+     */
+    @Override
+    public double[] circumscribe(Vertex a1, Vertex a2, Vertex a3) {
+        // Two sites on one edge leave a family of homothets through all three, which the
+        // general solver settles the same way for every polygon. So do collinear sites
+        if (RobustPredicates.orient2d(a1, a2, a3) == 0 || hasEdgeParallelTo(a1, a2) ||
+                hasEdgeParallelTo(a2, a3) || hasEdgeParallelTo(a1, a3)) {
+            return super.circumscribe(a1, a2, a3);
+        }
+
+        double[] homothet = sweep(a1, a2, a3);
+        if (homothet == DEGENERATE) {
+            return super.circumscribe(a1, a2, a3);
+        }
+        return homothet;
+    }
+
+    /**
+     *
+     * @param p Center of the min quad
+     * @param x A point
+     * @return Smallest scale of the min quad at p that contains x
+     */
+    @Override
+    public double scaleThrough(Vertex p, Vertex x) {
+        return this.table.gauge(p.x - x.x, p.y - x.y);
+    }
+
+    /**
+     * Sweep the homothets through a1 and a2 for the ones that also have a3 on
+     * their boundary. A homothet at p with scale s has site x on its boundary
+     * when z = (p - x) / s is on the boundary of the polygon. For a1 and a2 that
+     * makes z1 - z2 = (a2 - a1) / s a chord parallel to a1a2, and then
+     * z3 = z1 + (a1 - a3) / s
+     *
+     * @param a1 Site at the end of the chord further along a1a2
+     * @param a2 Site at the other end of the chord
+     * @param a3 Third site, not on the line through a1 and a2
+     * @return {x, y, scale} of the smallest homothet found, null if there is none, or DEGENERATE
+     */
+    private double[] sweep(Vertex a1, Vertex a2, Vertex a3) {
+        int n = this.h.length;
+        double wx = a2.x - a1.x, wy = a2.y - a1.y;
+        double ww = wx * wx + wy * wy;
+        double cx = a1.x - a3.x, cy = a1.y - a3.y;
+
+        // Chords are swept by their height across a1a2, from the lowest vertex to the highest
+        int bottom = this.table.extremeVertex(wy, -wx), top = this.table.extremeVertex(-wy, wx);
+
+        // The chain clockwise from the bottom is the near end of the chord, the other chain the far end
+        int near = bottom, far = bottom;
+        double prevFarX = this.vx[bottom], prevFarY = this.vy[bottom], prevLambda = 0;
+        double prevZ3x = this.vx[bottom], prevZ3y = this.vy[bottom], prevPhi = 0;
+        boolean atBottom = true;
+        double bestLambda = 0, bestFarX = 0, bestFarY = 0;
+        while (true) {
+            int nearNext = (near + 1) % n, farNext = (far + n - 1) % n;
+            double farX, farY, lambda, z3x, z3y, phi;
+            boolean atTop = nearNext == top && farNext == top;
+            if (atTop) {
+                farX = this.vx[top];
+                farY = this.vy[top];
+                lambda = 0;
+                z3x = farX;
+                z3y = farY;
+                phi = limit(top, prevZ3x - farX, prevZ3y - farY);
+            } else {
+                double nearX, nearY;
+                if (farNext == top || (nearNext != top && height(nearNext, wx, wy) <= height(farNext, wx, wy))) {
+                    near = nearNext;
+                    nearX = this.vx[near];
+                    nearY = this.vy[near];
+                    double t = edgeFraction(far, farNext, height(near, wx, wy), wx, wy);
+                    farX = this.vx[far] + t * (this.vx[farNext] - this.vx[far]);
+                    farY = this.vy[far] + t * (this.vy[farNext] - this.vy[far]);
+                } else {
+                    far = farNext;
+                    farX = this.vx[far];
+                    farY = this.vy[far];
+                    double t = edgeFraction(near, nearNext, height(far, wx, wy), wx, wy);
+                    nearX = this.vx[near] + t * (this.vx[nearNext] - this.vx[near]);
+                    nearY = this.vy[near] + t * (this.vy[nearNext] - this.vy[near]);
+                }
+                lambda = (wx * (farX - nearX) + wy * (farY - nearY)) / ww;
+                z3x = farX + lambda * cx;
+                z3y = farY + lambda * cy;
+                phi = this.table.gauge(z3x, z3y) - 1;
+                if (atBottom) {
+                    prevPhi = limit(bottom, z3x - this.vx[bottom], z3y - this.vy[bottom]);
+                    atBottom = false;
+                }
+            }
+            if (Double.isNaN(phi) || Double.isNaN(prevPhi)) {
+                return DEGENERATE;
+            }
+
+            double t = -1;
+            if (!atTop && Math.abs(phi) <= FEASIBILITY_TOLERANCE) {
+                t = 1; // a3 is on the boundary at this vertex height
+            } else if ((prevPhi > FEASIBILITY_TOLERANCE && phi < -FEASIBILITY_TOLERANCE) ||
+                    (prevPhi < -FEASIBILITY_TOLERANCE && phi > FEASIBILITY_TOLERANCE)) {
+                t = crossBoundary(prevZ3x, prevZ3y, z3x - prevZ3x, z3y - prevZ3y, prevPhi > 0 ? 0 : 1);
+            }
+            double rootLambda = prevLambda + t * (lambda - prevLambda);
+            if (t >= 0 && rootLambda > bestLambda) {
+                bestLambda = rootLambda;
+                bestFarX = prevFarX + t * (farX - prevFarX);
+                bestFarY = prevFarY + t * (farY - prevFarY);
+            }
+
+            if (atTop) {
+                break;
+            }
+            prevFarX = farX;
+            prevFarY = farY;
+            prevLambda = lambda;
+            prevZ3x = z3x;
+            prevZ3y = z3y;
+            prevPhi = phi;
+        }
+
+        if (bestLambda <= 0) {
+            return null;
+        }
+        double s = 1 / bestLambda;
+        return new double[]{a1.x + s * bestFarX, a1.y + s * bestFarY, s};
+    }
+
+    /**
+     * Find where a segment leaving or entering the polygon crosses its
+     * boundary. The distance function is convex along the segment, so Newton
+     * steps from the outside end never pass the crossing and stop once they
+     * stay on one edge
+     *
+     * @param ox X of the start of the segment
+     * @param oy Y of the start of the segment
+     * @param dx X of the segment
+     * @param dy Y of the segment
+     * @param t Fraction along the segment of its end outside the polygon, 0 or 1
+     * @return Fraction along the segment where it crosses the boundary
+     */
+    private double crossBoundary(double ox, double oy, double dx, double dy, double t) {
+        int edge = -1;
+        for (int i = 0; i < this.h.length; i ++) {
+            double x = ox + t * dx, y = oy + t * dy;
+            int e = this.table.edgeToward(x, y);
+            if (e == edge) {
+                break;
+            }
+            edge = e;
+            double slope = (this.nx[e] * dx + this.ny[e] * dy) / this.h[e];
+            if (slope == 0) {
+                break;
+            }
+            t -= ((this.nx[e] * x + this.ny[e] * y) / this.h[e] - 1) / slope;
+            t = Math.max(0, Math.min(1, t));
+        }
+        return t;
+    }
+
+    /**
+     * Sign of the distance function minus 1 just off a vertex, which is 0 at
+     * the vertex itself
+     *
+     * @param v Index of a vertex
+     * @param dx X of the direction moved off the vertex
+     * @param dy Y of the direction moved off the vertex
+     * @return 1 if the direction leaves the polygon, -1 if it enters, NaN if it runs along an edge
+     */
+    private double limit(int v, double dx, double dy) {
+        int before = (v + this.h.length - 1) % this.h.length;
+        double length = Math.hypot(dx, dy);
+        double rate = Math.max((this.nx[before] * dx + this.ny[before] * dy) / this.h[before],
+                (this.nx[v] * dx + this.ny[v] * dy) / this.h[v]);
+        if (Math.abs(rate) * Math.min(this.h[before], this.h[v]) <= GeometryKernel.PARALLEL_TOLERANCE * length) {
+            return Double.NaN;
+        }
+        return Math.signum(rate);
+    }
+
+    /**
+     * An edge parallel to ab is at one of the two vertices furthest across ab,
+     * so only those are checked
+     *
+     * @param a A site
+     * @param b Another site
+     * @return True if an edge of the polygon is parallel to ab
+     */
+    private boolean hasEdgeParallelTo(Vertex a, Vertex b) {
+        double wx = b.x - a.x, wy = b.y - a.y;
+        return hasEdgeAlong(this.table.extremeVertex(wy, -wx), wx, wy) || hasEdgeAlong(this.table.extremeVertex(-wy, wx), wx, wy);
+    }
+
+    /**
+     *
+     * @param v Index of a vertex
+     * @param wx X of a direction
+     * @param wy Y of a direction
+     * @return True if an edge at the vertex is parallel to the direction
+     */
+    private boolean hasEdgeAlong(int v, double wx, double wy) {
+        int n = this.h.length;
+        int before = (v + n - 1) % n, after = (v + 1) % n;
+        return GeometryKernel.isParallel(this.vx[v] - this.vx[before], this.vy[v] - this.vy[before], wx, wy, GeometryKernel.PARALLEL_TOLERANCE) ||
+                GeometryKernel.isParallel(this.vx[after] - this.vx[v], this.vy[after] - this.vy[v], wx, wy, GeometryKernel.PARALLEL_TOLERANCE);
+    }
+
+    /**
+     *
+     * @return Height of vertex v across the chord direction (wx, wy)
+     */
+    private double height(int v, double wx, double wy) {
+        return wx * this.vy[v] - wy * this.vx[v];
+    }
+
+    /**
+     *
+     * @return Fraction along the edge from vertex a to vertex b at the given height across (wx, wy)
+     */
+    private double edgeFraction(int a, int b, double height, double wx, double wy) {
+        double ha = height(a, wx, wy), hb = height(b, wx, wy);
+        return hb == ha ? 0 : (height - ha) / (hb - ha);
+    }
+}
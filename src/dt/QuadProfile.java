@@ -0,0 +1,223 @@
+package dt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Order of the vertices of a quadrilateral along every direction, computed
+ * once when the quad is created. The bisector code sorts the vertices by
+ * their rotated y, the height across the line through two sites as if that
+ * line were turned horizontal. That order only depends on the slope of the line, and it only changes
+ * at the slopes perpendicular to a line through two quad vertices, so the
+ * order for each interval between those critical slopes is stored and found
+ * by binary search. Each interval also keeps the template of the bisector
+ * between two sites in that direction.
+ *
+ * A direction is kept as {sin, cos} of the rotation making the line
+ * horizontal, with its angle in (-pi/2, pi/2] and -pi/2 for vertical lines,
+ * found from the coordinates by getDirection. That rotation maps a vertex v
+ * to a rotated y of v.x sin + v.y cos up to a constant, which for slope
+ * t = tan(angle) orders the vertices by v.x t + v.y
+ *
+ * @author Lee Glendenning
+ */
+public class QuadProfile {
+
+    private final Vertex[] vertices;
+    private final double[] criticalSlopes; // Sorted slopes at which two vertices have the same rotated y
+    private final int[][] intervalOrder; // intervalOrder[k] holds for slopes strictly between criticalSlopes[k-1] and criticalSlopes[k]
+    private final int[][] criticalOrder; // criticalOrder[k] holds at exactly criticalSlopes[k], tied vertices in index order
+    private final int[] verticalOrder; // For vertical lines, tied vertices in index order
+    private final BisectorTemplate[] intervalTemplates; // Bisector shape for each interval of intervalOrder
+
+    /**
+     *
+     * @param vertices Vertices of the quad in clockwise order
+     */
+    public QuadProfile(Vertex[] vertices) {
+        this.vertices = vertices.clone();
+
+        List<Double> slopes = new ArrayList<>();
+        for (int i = 0; i < this.vertices.length; i ++) {
+            for (int j = i + 1; j < this.vertices.length; j ++) {
+                Double slope = tieSlope(i, j);
+                if (slope != null && !slopes.contains(slope)) {
+                    slopes.add(slope);
+                }
+            }
+        }
+        this.criticalSlopes = new double[slopes.size()];
+        for (int k = 0; k < slopes.size(); k ++) {
+            this.criticalSlopes[k] = slopes.get(k);
+        }
+        Arrays.sort(this.criticalSlopes);
+
+        int m = this.criticalSlopes.length;
+        this.intervalOrder = new int[m + 1][];
+        this.criticalOrder = new int[m][];
+        this.intervalTemplates = new BisectorTemplate[m + 1];
+        for (int k = 0; k <= m; k ++) {
+            double sample;
+            if (m == 0) {
+                sample = 0;
+            } else if (k == 0) {
+                sample = this.criticalSlopes[0] - 1;
+            } else if (k == m) {
+                sample = this.criticalSlopes[m - 1] + 1;
+            } else {
+                sample = (this.criticalSlopes[k - 1] + this.criticalSlopes[k]) / 2;
+            }
+            this.intervalOrder[k] = sortBySlope(sample, false);
+            this.intervalTemplates[k] = new BisectorTemplate(this.vertices, this.intervalOrder[k], sample);
+            if (k < m) {
+                this.criticalOrder[k] = sortBySlope(this.criticalSlopes[k], false);
+            }
+        }
+        this.verticalOrder = sortBySlope(0, true);
+    }
+
+    /**
+     *
+     * @param p1 A point on the line
+     * @param p2 Another point on the line
+     * @return Indices of the quad vertices in ascending rotated y for the direction of p1p2. Must not be modified
+     */
+    public int[] getSortedOrder(Vertex p1, Vertex p2) {
+        double dx = p2.x - p1.x;
+        if (dx == 0) {
+            return this.verticalOrder;
+        }
+        int k = Arrays.binarySearch(this.criticalSlopes, (p1.y - p2.y) / dx);
+        return k >= 0 ? this.criticalOrder[k] : this.intervalOrder[-k - 1];
+    }
+
+    /**
+     * Bisector shape for the direction of p1p2. Directions at or within
+     * tolerance of a critical slope have edges parallel to p1p2 or hidden
+     * cones and are left to the general construction
+     *
+     * @param p1 A site
+     * @param p2 Another site
+     * @return Template of B2S(p1, p2), or null if the direction is degenerate
+     */
+    public BisectorTemplate getTemplate(Vertex p1, Vertex p2) {
+        double dx = p2.x - p1.x;
+        if (dx == 0) {
+            return null;
+        }
+        int k = Arrays.binarySearch(this.criticalSlopes, (p1.y - p2.y) / dx);
+        if (k >= 0) {
+            return null;
+        }
+        int[] order = this.intervalOrder[-k - 1];
+        double[] direction = getDirection(p1, p2);
+        double tolerance = 0.00001;
+        for (int i = 1; i < order.length; i ++) {
+            if (rotatedYGap(this.vertices[order[i - 1]], this.vertices[order[i]], direction) < tolerance) {
+                return null;
+            }
+        }
+        return this.intervalTemplates[-k - 1];
+    }
+
+    /**
+     * Sine and cosine of the rotation that makes p1p2 parallel to the x
+     * axis, found from the coordinates without trigonometry
+     *
+     * @param p1 A point on the line
+     * @param p2 Another point on the line
+     * @return {sin, cos} of the rotation that makes p1p2 horizontal
+     */
+    public static double[] getDirection(Vertex p1, Vertex p2) {
+        double dx = p2.x - p1.x, dy = p1.y - p2.y;
+        if (dx == 0) {
+            return new double[]{-1, 0};
+        }
+        double length = Math.hypot(dx, dy);
+        return new double[]{Math.signum(dx) * dy / length, Math.abs(dx) / length};
+    }
+
+    /**
+     *
+     * @param a A point
+     * @param b Another point
+     * @param direction {sin, cos} from getDirection
+     * @return Rotated y of b minus rotated y of a
+     */
+    public static double rotatedYGap(Vertex a, Vertex b, double[] direction) {
+        return (b.x - a.x) * direction[0] + (b.y - a.y) * direction[1];
+    }
+
+    /**
+     *
+     * @param a A point
+     * @param b Another point
+     * @param direction {sin, cos} from getDirection
+     * @return Rotated x of b minus rotated x of a
+     */
+    public static double rotatedXGap(Vertex a, Vertex b, double[] direction) {
+        return (b.x - a.x) * direction[1] - (b.y - a.y) * direction[0];
+    }
+
+    /**
+     *
+     * @param i Index of a quad vertex
+     * @return The vertex
+     */
+    public Vertex getVertex(int i) {
+        return this.vertices[i];
+    }
+
+    /**
+     *
+     * @param i Index of a quad vertex
+     * @param j Index of another quad vertex
+     * @return Slope at which i and j have the same rotated y, or null if only a vertical line gives that
+     */
+    private Double tieSlope(int i, int j) {
+        double dx = this.vertices[j].x - this.vertices[i].x;
+        if (dx == 0) {
+            return null;
+        }
+        return -(this.vertices[j].y - this.vertices[i].y) / dx;
+    }
+
+    /**
+     *
+     * @param slope Slope of the line
+     * @param vertical True to sort for a vertical line instead, ignoring slope
+     * @return Vertex indices in ascending rotated y, tied ones in index order like a stable sort
+     */
+    private int[] sortBySlope(double slope, boolean vertical) {
+        int[] order = {0, 1, 2, 3};
+        for (int a = 1; a < order.length; a ++) {
+            for (int b = a; b > 0 && compare(order[b - 1], order[b], slope, vertical) > 0; b --) {
+                int temp = order[b];
+                order[b] = order[b - 1];
+                order[b - 1] = temp;
+            }
+        }
+        return order;
+    }
+
+    /**
+     *
+     * @param i Index of a quad vertex
+     * @param j Index of another quad vertex
+     * @param slope Slope of the line
+     * @param vertical True for a vertical line
+     * @return Sign of rotated y of i minus rotated y of j, 0 if they are tied
+     */
+    private int compare(int i, int j, double slope, boolean vertical) {
+        Vertex a = this.vertices[i], b = this.vertices[j];
+        if (vertical) {
+            return Double.compare(b.x, a.x); // Rotated y is -x
+        }
+        Double tie = tieSlope(i, j);
+        if (tie != null && tie == slope) {
+            return 0;
+        }
+        return Double.compare(a.x * slope + a.y, b.x * slope + b.y);
+    }
+}
@@ -3,14 +3,20 @@ package dt;
 import java.awt.Graphics2D;
 
 /**
- * Maintains a quadrilateral given 4 vertices. Assumes that vertices are ordered clockwise
+ * Maintains a quadrilateral given 4 vertices. Assumes that vertices are ordered clockwise.
+ * Any convex polygon of 3 or more vertices is also accepted as the distance function of
+ * the triangulation, but the B2S and B3S polylines are only traced for 4 vertices
  * 
  * @author Lee Glendenning
  */
 public class Quadrilateral {
     
-    private Vertex[] vertices = new Vertex[4];
+    private Vertex[] vertices;
     private Vertex center;
+    private QuadProfile profile;
+    private HomothetSolver homothetSolver;
+    private ExactHomothetSolver exactSolver; // Only built once sites on the integer grid need it
+    private boolean centrallySymmetric;
 
     /**
      * Create quad using array of vertices. Center defined as average of vertices
@@ -21,6 +27,7 @@ public class Quadrilateral {
         this.vertices = vertices;
         this.center = new Vertex(0,0);
         computeCenter();
+        createSolver();
         printInfo();
     }
     
@@ -32,18 +39,66 @@ public class Quadrilateral {
      */
     public Quadrilateral(Vertex[] vertices, Vertex center) {
         this.vertices = vertices;
-        this.center = new Vertex(0,0);
         this.center = center;
+        createSolver();
         printInfo();
     }
     
+    /**
+     * The solvers assume a convex polygon in clockwise order, so every vertex
+     * must be on the right of every edge or on its line, and strictly right
+     * of the edges it is not an end of when they are next to it. This also
+     * rules out polygons that wind around more than once
+     * 
+     * @param vertices Vertices of a polygon
+     * @return True if the vertices are those of a convex polygon in clockwise order with no three consecutive vertices collinear
+     */
+    public static boolean isConvexClockwise(Vertex[] vertices) {
+        int n = vertices.length;
+        if (n < 3) {
+            return false;
+        }
+        for (int i = 0; i < n; i ++) {
+            Vertex a = vertices[i], b = vertices[(i + 1) % n];
+            if (Utility.orientation(a, b, vertices[(i + 2) % n]) >= 0) {
+                return false;
+            }
+            for (Vertex v : vertices) {
+                if (Utility.orientation(a, b, v) > 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Use the L infinity kernel of ParallelogramSolver if the quad is symmetric
+     * about its center, the support tables of PolygonSolver for polygons of more
+     * than 4 vertices, otherwise the general solver. The profile, whose size
+     * grows with the square of the vertex count, is only built for quads
+     */
+    private void createSolver() {
+        this.profile = (this.vertices.length == 4) ? new QuadProfile(this.vertices) : null;
+        this.centrallySymmetric = ParallelogramSolver.isCentrallySymmetric(this.vertices, this.center);
+        if (this.centrallySymmetric) {
+            this.homothetSolver = new ParallelogramSolver(this.vertices, this.center);
+        } else if (this.vertices.length > 4) {
+            this.homothetSolver = new PolygonSolver(this.vertices, this.center);
+        } else {
+            this.homothetSolver = new HomothetSolver(this.vertices, this.center);
+        }
+    }
+    
     /**
      * Print various details about the defined quadrilateral
      */
     private void printInfo() {
-        Utility.debugPrint("Original quad: ");
-        printVertices(this.vertices);
-        Utility.debugPrintln("Center of quad: (" + center.x + ", " + center.y + ")");
+        if (Utility.debugMode) {
+            Utility.debugPrint("Original quad: ");
+            printVertices(this.vertices);
+            Utility.debugPrintln("Center of quad: (" + center.x + ", " + center.y + ")");
+        }
     }
     
     /**
@@ -52,7 +107,10 @@ public class Quadrilateral {
      * @param verts Vertex array of vertices
      */
     public void printVertices(Vertex[] verts) {
-        for (int i = 0; i < 4; i ++) {
+        if (!Utility.debugMode) {
+            return;
+        }
+        for (int i = 0; i < verts.length; i ++) {
             Utility.debugPrint("(" + verts[i].x + ", " + verts[i].y + ") ");
         }
         Utility.debugPrintln("");
@@ -62,9 +120,12 @@ public class Quadrilateral {
      * Compute and store center of quad
      */
     private void computeCenter() {
-        double x = (vertices[0].x + vertices[1].x + vertices[2].x + vertices[3].x) / 4;
-        double y = (vertices[0].y + vertices[1].y + vertices[2].y + vertices[3].y) / 4;
-        this.center = new Vertex(x, y);
+        double x = 0, y = 0;
+        for (Vertex v : this.vertices) {
+            x += v.x;
+            y += v.y;
+        }
+        this.center = new Vertex(x / this.vertices.length, y / this.vertices.length);
     }
     
     /**
@@ -90,19 +151,11 @@ public class Quadrilateral {
      * @return Array of scaled vertices
      */
     public Vertex[] scaleQuad(double scaleFactor) {
-        Vertex[] scaledVertices = Utility.deepCopyVertexArray(this.vertices);
+        Vertex[] scaledVertices = new Vertex[this.vertices.length];
         for (int i = 0; i < this.vertices.length; i ++) {
-            // Translate center of quad to origin
-            scaledVertices[i].x -= this.center.x;
-            scaledVertices[i].y -= this.center.y;
-            
-            // Multiply x and y coords by scale factor
-            scaledVertices[i].x *= scaleFactor;
-            scaledVertices[i].y *= scaleFactor;
-            
-            // Translate quad back to its location
-            scaledVertices[i].x += this.center.x;
-            scaledVertices[i].y += this.center.y;
+            // Translate center of quad to origin, multiply x and y coords by scale factor and translate quad back to its location
+            scaledVertices[i] = new Vertex((this.vertices[i].x - this.center.x) * scaleFactor + this.center.x,
+                    (this.vertices[i].y - this.center.y) * scaleFactor + this.center.y);
         }
         
         return scaledVertices;
@@ -131,10 +184,53 @@ public class Quadrilateral {
     
     /**
      * 
-     * @return Cloned list of vertices defining the quad
+     * @return Cloned list of vertices defining the quad, which share the Vertex objects
      */
     public Vertex[] getVertices() {
-        return Utility.deepCopyVertexArray(this.vertices);
+        return this.vertices.clone();
+    }
+    
+    /**
+     * 
+     * @return Vertex order by direction, computed once when the quad was created, or null if it does not have 4 vertices
+     */
+    public QuadProfile getProfile() {
+        return this.profile;
+    }
+    
+    /**
+     * 
+     * @return Solver for the min quads through three sites, computed once when the quad was created
+     */
+    public HomothetSolver getHomothetSolver() {
+        return this.homothetSolver;
+    }
+    
+    /**
+     * 
+     * @return Exact solver for the min quads through three grid sites, computed the first time it is needed
+     */
+    public ExactHomothetSolver getExactHomothetSolver() {
+        if (this.exactSolver == null) {
+            this.exactSolver = new ExactHomothetSolver(this.vertices, this.center);
+        }
+        return this.exactSolver;
+    }
+    
+    /**
+     * 
+     * @return True if the quad is symmetric about its center, in which case getHomothetSolver is a ParallelogramSolver
+     */
+    public boolean isCentrallySymmetric() {
+        return this.centrallySymmetric;
+    }
+    
+    /**
+     * 
+     * @return Number of vertices, 4 unless the quad was given as another convex polygon
+     */
+    public int getVertexCount() {
+        return this.vertices.length;
     }
     
     /**
@@ -143,8 +239,8 @@ public class Quadrilateral {
      */
     public Vertex nextVertex(Vertex v) {
         for (int i = 0; i < this.vertices.length; i ++) {
-            if (v.equals(this.vertices[i])) {
-                return (i != this.vertices.length-1) ? new Vertex(this.vertices[i+1].x, this.vertices[i+1].y) : new Vertex(this.vertices[0].x, this.vertices[0].y);
+            if (Utility.equalVertexs(v, this.vertices[i], 0.01)) {
+                return (i != this.vertices.length-1) ? this.vertices[i+1] : this.vertices[0];
             }
         }
         return null; // v is an invalid vertex
@@ -156,8 +252,8 @@ public class Quadrilateral {
      */
     public Vertex prevVertex(Vertex v) {
         for (int i = 0; i < this.vertices.length; i ++) {
-            if (v.equals(this.vertices[i])) {
-                return (i != 0) ? new Vertex(this.vertices[i-1].x, this.vertices[i-1].y) : new Vertex(this.vertices[this.vertices.length-1].x, this.vertices[this.vertices.length-1].y);
+            if (Utility.equalVertexs(v, this.vertices[i], 0.01)) {
+                return (i != 0) ? this.vertices[i-1] : this.vertices[this.vertices.length-1];
             }
         }
         return null; // v is an invalid vertex
@@ -168,7 +264,7 @@ public class Quadrilateral {
      * @return Center point of quad
      */
     public Vertex getCenter() {
-        return new Vertex(this.center.x, this.center.y);
+        return this.center;
     }
     
     /**
@@ -185,9 +281,9 @@ public class Quadrilateral {
         
         Vertex[] distToCenter = computeVertDistToVertex(scaleQuad(scale), this.center);
         
-        int j = 1;
-        for (int i = 0; i < 4; i ++) {
-            j = (j==3) ? 0 : i+1; // Wrap around to draw edge from vertices[3] to vertices[0]
+        int j;
+        for (int i = 0; i < verts.length; i ++) {
+            j = (i == verts.length-1) ? 0 : i+1; // Wrap around to draw edge from the last vertex to vertices[0]
             if (isReflected) {
                 g2d.drawLine(((int)Math.round(verts[i].x)), yMax - ((int)Math.round(verts[i].y)), 
                     ((int)Math.round(verts[j].x)), yMax - ((int)Math.round(verts[j].y))); // x1, y1, x2, y2
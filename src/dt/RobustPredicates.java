@@ -0,0 +1,282 @@
+package dt;
+
+/**
+ * Adaptive precision geometric predicates after Shewchuk, "Adaptive Precision
+ * Floating-Point Arithmetic and Fast Robust Geometric Predicates". The plain
+ * floating point determinant is returned whenever its error bound proves the
+ * sign correct. Otherwise the determinant is refined with error-free
+ * transformations, up to an exact expansion, so the sign returned is always
+ * the sign of the exact determinant of the given doubles
+ *
+ * @author Lee Glendenning
+ */
+public class RobustPredicates {
+
+    private static final double EPSILON = 0x1p-53; // Half an ulp of 1
+    private static final double RESULT_ERR_BOUND = (3.0 + 8.0 * EPSILON) * EPSILON;
+    private static final double CCW_ERR_BOUND_A = (3.0 + 16.0 * EPSILON) * EPSILON;
+    private static final double CCW_ERR_BOUND_B = (2.0 + 12.0 * EPSILON) * EPSILON;
+    private static final double CCW_ERR_BOUND_C = (9.0 + 64.0 * EPSILON) * EPSILON * EPSILON;
+
+    /**
+     *
+     * @return Twice the signed area of triangle abc, with the exact sign. Positive if a, b, c are in counter clockwise order, negative if clockwise, 0 if collinear
+     */
+    public static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+        double detLeft = (ax - cx) * (by - cy);
+        double detRight = (ay - cy) * (bx - cx);
+        double det = detLeft - detRight;
+        double detSum;
+
+        if (detLeft > 0) {
+            if (detRight <= 0) {
+                return det;
+            }
+            detSum = detLeft + detRight;
+        } else if (detLeft < 0) {
+            if (detRight >= 0) {
+                return det;
+            }
+            detSum = -detLeft - detRight;
+        } else {
+            return det;
+        }
+
+        double errBound = CCW_ERR_BOUND_A * detSum;
+        if (det >= errBound || -det >= errBound) {
+            return det;
+        }
+        return orient2dAdapt(ax, ay, bx, by, cx, cy, detSum);
+    }
+
+    /**
+     *
+     * @return Twice the signed area of triangle abc, with the exact sign
+     */
+    public static double orient2d(Vertex a, Vertex b, Vertex c) {
+        return orient2d(a.x, a.y, b.x, b.y, c.x, c.y);
+    }
+
+    /**
+     * Exact test of a point against a convex quad, e.g. a quad scaled about a
+     * B3S vertex. Only the given corner coordinates are trusted, so a point
+     * exactly on an edge is reported as on the boundary
+     *
+     * @param quad Vertices of a convex quad in clockwise order
+     * @param px X of the query point
+     * @param py Y of the query point
+     * @return +1 if the point is strictly inside the quad, 0 if it is on its boundary, -1 if it is outside
+     */
+    public static int inQuad(Vertex[] quad, double px, double py) {
+        int result = 1;
+        for (int i = 0; i < quad.length; i ++) {
+            Vertex a = quad[i], b = quad[(i + 1) % quad.length];
+            double side = orient2d(a.x, a.y, b.x, b.y, px, py);
+            if (side > 0) {
+                // Left of a clockwise edge is outside
+                return -1;
+            } else if (side == 0) {
+                result = 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Refine the determinant once the fast filter could not decide its sign
+     *
+     * @param detSum Sum of the magnitudes of the two products, used to scale the error bounds
+     * @return Determinant whose sign is exact
+     */
+    private static double orient2dAdapt(double ax, double ay, double bx, double by, double cx, double cy, double detSum) {
+        double acx = ax - cx, bcx = bx - cx;
+        double acy = ay - cy, bcy = by - cy;
+
+        // Exact products of the rounded differences
+        double[] b = new double[4];
+        twoTwoDiff(acx * bcy, productTail(acx, bcy), acy * bcx, productTail(acy, bcx), b);
+        double det = estimate(b, 4);
+        double errBound = CCW_ERR_BOUND_B * detSum;
+        if (det >= errBound || -det >= errBound) {
+            return det;
+        }
+
+        // Roundoff of the differences themselves
+        double acxTail = differenceTail(ax, cx, acx);
+        double bcxTail = differenceTail(bx, cx, bcx);
+        double acyTail = differenceTail(ay, cy, acy);
+        double bcyTail = differenceTail(by, cy, bcy);
+        if (acxTail == 0 && acyTail == 0 && bcxTail == 0 && bcyTail == 0) {
+            return det;
+        }
+
+        errBound = CCW_ERR_BOUND_C * detSum + RESULT_ERR_BOUND * Math.abs(det);
+        det += (acx * bcyTail + bcy * acxTail) - (acy * bcxTail + bcx * acyTail);
+        if (det >= errBound || -det >= errBound) {
+            return det;
+        }
+
+        // Sum every term of the expanded determinant exactly
+        double[] u = new double[4];
+        double[] c1 = new double[8];
+        double[] c2 = new double[12];
+        double[] d = new double[16];
+
+        twoTwoDiff(acxTail * bcy, productTail(acxTail, bcy), acyTail * bcx, productTail(acyTail, bcx), u);
+        int c1Length = expansionSum(b, 4, u, 4, c1);
+
+        twoTwoDiff(acx * bcyTail, productTail(acx, bcyTail), acy * bcxTail, productTail(acy, bcxTail), u);
+        int c2Length = expansionSum(c1, c1Length, u, 4, c2);
+
+        twoTwoDiff(acxTail * bcyTail, productTail(acxTail, bcyTail), acyTail * bcxTail, productTail(acyTail, bcxTail), u);
+        int dLength = expansionSum(c2, c2Length, u, 4, d);
+
+        return d[dLength - 1];
+    }
+
+    /**
+     *
+     * @return Roundoff error of a * b, so that a * b is exactly (a * b) + productTail(a, b)
+     */
+    private static double productTail(double a, double b) {
+        return Math.fma(a, b, -(a * b));
+    }
+
+    /**
+     *
+     * @param x The rounded difference a - b
+     * @return Roundoff error of x, so that a - b is exactly x + differenceTail(a, b, x)
+     */
+    private static double differenceTail(double a, double b, double x) {
+        double bVirtual = a - x;
+        double aVirtual = x + bVirtual;
+        double bRoundoff = bVirtual - b;
+        double aRoundoff = a - aVirtual;
+        return aRoundoff + bRoundoff;
+    }
+
+    /**
+     *
+     * @param x The rounded sum a + b
+     * @return Roundoff error of x, so that a + b is exactly x + sumTail(a, b, x)
+     */
+    private static double sumTail(double a, double b, double x) {
+        double bVirtual = x - a;
+        double aVirtual = x - bVirtual;
+        double bRoundoff = b - bVirtual;
+        double aRoundoff = a - aVirtual;
+        return aRoundoff + bRoundoff;
+    }
+
+    /**
+     * Exact difference of two two-component expansions (a1 + a0) - (b1 + b0)
+     *
+     * @param out Receives the four components in increasing magnitude
+     */
+    private static void twoTwoDiff(double a1, double a0, double b1, double b0, double[] out) {
+        double i = a0 - b0;
+        out[0] = differenceTail(a0, b0, i);
+        double j = a1 + i;
+        double zero = sumTail(a1, i, j);
+
+        i = zero - b1;
+        out[1] = differenceTail(zero, b1, i);
+        out[3] = j + i;
+        out[2] = sumTail(j, i, out[3]);
+    }
+
+    /**
+     *
+     * @param e Expansion with components in increasing magnitude
+     * @param length Number of components in e
+     * @return Floating point approximation of e
+     */
+    private static double estimate(double[] e, int length) {
+        double q = e[0];
+        for (int i = 1; i < length; i ++) {
+            q += e[i];
+        }
+        return q;
+    }
+
+    /**
+     * Exact sum of two nonoverlapping expansions, dropping zero components
+     *
+     * @param e Expansion with components in increasing magnitude
+     * @param eLength Number of components in e
+     * @param f Expansion with components in increasing magnitude
+     * @param fLength Number of components in f
+     * @param h Receives the sum, at least eLength + fLength long
+     * @return Number of components written to h
+     */
+    private static int expansionSum(double[] e, int eLength, double[] f, int fLength, double[] h) {
+        int eIndex = 0, fIndex = 0, hIndex = 0;
+        double eNow = e[0], fNow = f[0];
+        double q, qNew, hh;
+
+        if ((fNow > eNow) == (fNow > -eNow)) {
+            q = eNow;
+            eNow = ++eIndex < eLength ? e[eIndex] : 0;
+        } else {
+            q = fNow;
+            fNow = ++fIndex < fLength ? f[fIndex] : 0;
+        }
+
+        if (eIndex < eLength && fIndex < fLength) {
+            // q is smaller than both next components, so the first sum is a fast two sum
+            if ((fNow > eNow) == (fNow > -eNow)) {
+                qNew = eNow + q;
+                hh = q - (qNew - eNow);
+                eNow = ++eIndex < eLength ? e[eIndex] : 0;
+            } else {
+                qNew = fNow + q;
+                hh = q - (qNew - fNow);
+                fNow = ++fIndex < fLength ? f[fIndex] : 0;
+            }
+            q = qNew;
+            if (hh != 0) {
+                h[hIndex ++] = hh;
+            }
+
+            while (eIndex < eLength && fIndex < fLength) {
+                if ((fNow > eNow) == (fNow > -eNow)) {
+                    qNew = q + eNow;
+                    hh = sumTail(q, eNow, qNew);
+                    eNow = ++eIndex < eLength ? e[eIndex] : 0;
+                } else {
+                    qNew = q + fNow;
+                    hh = sumTail(q, fNow, qNew);
+                    fNow = ++fIndex < fLength ? f[fIndex] : 0;
+                }
+                q = qNew;
+                if (hh != 0) {
+                    h[hIndex ++] = hh;
+                }
+            }
+        }
+
+        while (eIndex < eLength) {
+            qNew = q + eNow;
+            hh = sumTail(q, eNow, qNew);
+            eNow = ++eIndex < eLength ? e[eIndex] : 0;
+            q = qNew;
+            if (hh != 0) {
+                h[hIndex ++] = hh;
+            }
+        }
+        while (fIndex < fLength) {
+            qNew = q + fNow;
+            hh = sumTail(q, fNow, qNew);
+            fNow = ++fIndex < fLength ? f[fIndex] : 0;
+            q = qNew;
+            if (hh != 0) {
+                h[hIndex ++] = hh;
+            }
+        }
+
+        if (q != 0 || hIndex == 0) {
+            h[hIndex ++] = q;
+        }
+        return hIndex;
+    }
+}
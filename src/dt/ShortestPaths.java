@@ -0,0 +1,947 @@
+package dt;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shortest paths in the Delaunay triangulation between its vertices,
+ * indexed by their Graph vertex ids. The ids are stable and dense, so rows
+ * are plain arrays and vertices can come and go without renumbering. The triangulation is
+ * planar so Dijkstra's algorithm over its O(n) edges finds all paths from one
+ * vertex in O(n log n). Rows of distances and next hops are computed on demand
+ * and kept in a least recently used cache bounded by a memory limit. Scans
+ * that read every row once bypass the cache, since a sequential scan through
+ * an LRU cache smaller than the table never hits and would only evict the
+ * rows that point queries keep using.
+ *
+ * As a GraphListener the cached rows are repaired when edges change: an added
+ * edge only lowers the distances it improves, and a removed edge only resets
+ * the vertices whose path to the target used it.
+ *
+ * The stretch factor is found from a summary of every row kept outside the
+ * cache: an upper bound on the largest stretch of the row, which is exact
+ * with its witness pair until an edit may have changed it, in a heap with
+ * the largest bound on top. Distances are symmetric, so the two rows of the
+ * ends of a changed edge tell which summaries it can affect. An added edge
+ * only shortens paths so the bounds stay valid, and only the rows whose
+ * witness got shorter stop being exact. A removed edge lengthens a path that
+ * used it by at most the detour left between its ends, so the bounds of the
+ * rows whose shortest path tree used it grow by that ratio. A new vertex
+ * has its pairs added from its own row once before the next query. The
+ * query then recomputes rows only while the largest bound is not exact, so
+ * an edit costs O(n log n) for a few rows instead of one Dijkstra per row
+ *
+ * @author Lee Glendenning
+ */
+public class ShortestPaths implements GraphListener {
+
+    private static final int BYTES_PER_ROW_ENTRY = 8 + 4; // One double distance and one int next hop
+    private static final double TOLERANCE = 1e-9; // Relative error allowed between path lengths summed in different orders
+
+    private final Graph graph; // Graph of the DT, which keeps the ids of the vertices
+    private Vertex[] vertices; // Vertex with each id, null for free ids
+    private int count; // Number of vertices
+    private int[][] adjTarget; // Neighbours of vertex i are adjTarget[i][0] to adjTarget[i][degree[i]-1]
+    private double[][] adjWeight;
+    private int[] degree;
+    private final long memoryLimit;
+    private int maxRows;
+    private final LinkedHashMap<Integer, Row> rows;
+    private boolean[] cached; // True for the ids whose row is in rows
+
+    // Summary of every row, kept outside the cache so evicted rows are not recomputed to find the stretch factor
+    private double[] bound; // Upper bound on the largest stretch between each vertex and another, or -1 if it has no connected pair
+    private int[] witness; // Vertex paired with each vertex in its bound when the bound is exact, or -1
+    private boolean[] exact; // True if the bound of a vertex is the largest stretch of its row
+    private IndexMinHeap bounds; // Vertices keyed by their negated bound, so the largest bound is on top
+    private boolean[] pending; // True for vertices whose pairs may be missing from the bounds of the others
+    private int[] pendingIds;
+    private int pendingCount;
+
+    // Scratch space reused by every repair so an edit does not allocate per row
+    private IndexMinHeap heap;
+    private boolean[] marked;
+    private int[] changed;
+    private int changedCount;
+    private Row scratch; // Unreached everywhere between uses, for Dijkstra runs that are not cached
+    private int[] affected; // Uncached rows whose shortest path tree used a removed edge
+    private double[] affectedDist; // Distance from each of those targets to the farther end of the edge
+
+    /**
+     * Distances from every vertex to one target and the first hop on the
+     * shortest path towards it
+     */
+    private static class Row {
+        private double[] dist;
+        private int[] next;
+
+        private Row(double[] dist, int[] next) {
+            this.dist = dist;
+            this.next = next;
+        }
+    }
+
+    /**
+     *
+     * @param graph Graph of the DT, whose live edges form the graph
+     * @param memoryLimit Max number of bytes held by cached rows, at least one row is always kept
+     */
+    public ShortestPaths(Graph graph, long memoryLimit) {
+        this.graph = graph;
+        this.memoryLimit = memoryLimit;
+        this.vertices = new Vertex[Math.max(graph.getVertexIdBound(), 16)];
+        this.adjTarget = new int[this.vertices.length][];
+        this.adjWeight = new double[this.vertices.length][];
+        this.degree = new int[this.vertices.length];
+        for (int id = 0; id < graph.getVertexIdBound(); id ++) {
+            Vertex v = graph.getVertexById(id);
+            if (v != null) {
+                this.vertices[id] = v;
+                this.adjTarget[id] = new int[6];
+                this.adjWeight[id] = new double[6];
+                this.count ++;
+            }
+        }
+
+        // Adjacency lists
+        MeshVisitor adjacency = new MeshVisitor() {
+            @Override
+            public void visitEdge(Vertex v, Vertex neighbour) {
+                int j = getVertexId(neighbour);
+                if (j >= 0) {
+                    addAdjacency(getVertexId(v), j, Utility.euclideanDistance(v, neighbour));
+                }
+            }
+        };
+        for (Vertex v : this.vertices) {
+            if (v != null) {
+                graph.visitNeighbours(v, adjacency);
+            }
+        }
+
+        this.heap = new IndexMinHeap(this.adjTarget.length);
+        this.marked = new boolean[this.adjTarget.length];
+        this.changed = new int[this.adjTarget.length];
+        this.affected = new int[this.adjTarget.length];
+        this.affectedDist = new double[this.adjTarget.length];
+        this.cached = new boolean[this.adjTarget.length];
+        updateMaxRows();
+        this.rows = new LinkedHashMap<Integer, Row>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Row> eldest) {
+                if (size() > ShortestPaths.this.maxRows) {
+                    ShortestPaths.this.cached[eldest.getKey()] = false;
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        // Every pair is added when the rows are first flushed
+        this.bound = new double[this.adjTarget.length];
+        this.witness = new int[this.adjTarget.length];
+        this.exact = new boolean[this.adjTarget.length];
+        this.bounds = new IndexMinHeap(this.adjTarget.length);
+        this.pending = new boolean[this.adjTarget.length];
+        this.pendingIds = new int[this.adjTarget.length];
+        for (int id = 0; id < this.vertices.length; id ++) {
+            if (this.vertices[id] != null) {
+                setBound(id, -1, -1, true);
+                markPending(id);
+            }
+        }
+    }
+
+    /**
+     *
+     * @return Number of vertices
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     *
+     * @param id A vertex id
+     * @return Vertex with the id, or null if there is none
+     */
+    public Vertex getVertex(int id) {
+        return id >= 0 && id < this.vertices.length ? this.vertices[id] : null;
+    }
+
+    /**
+     *
+     * @param v A Vertex
+     * @return Id of v in the Graph if it is one of the vertices, otherwise -1
+     */
+    public int getVertexId(Vertex v) {
+        int id = this.graph.getVertexId(v);
+        return getVertex(id) != null ? id : -1;
+    }
+
+    /**
+     *
+     * @param u Id of a vertex
+     * @param v Id of a vertex
+     * @return Length of the shortest path between u and v, or Double.MAX_VALUE if there is none
+     */
+    public double getDistance(int u, int v) {
+        return getRow(v).dist[u];
+    }
+
+    /**
+     *
+     * @param v Id of the target vertex
+     * @return Distances from every vertex to v by id, Double.MAX_VALUE where there is no path or no vertex. Must not be modified
+     */
+    public double[] getDistances(int v) {
+        return getRow(v).dist;
+    }
+
+    /**
+     * Distances from one vertex to a few others. The cached row of source is
+     * used if there is one, otherwise an A* search stops as soon as every
+     * target is settled and nothing is cached. Edges are at least as long as
+     * the Euclidean distance between their ends, so the distance to a circle
+     * around the targets is a consistent lower bound on the rest of a path,
+     * and a target at path length d from source is found after settling only
+     * the vertices x with d(source, x) plus that bound at most d: the ellipse
+     * around a single pair instead of the disk of radius d
+     *
+     * @param source Id of the source vertex
+     * @param targets Ids of the target vertices
+     * @return Distance from source to each target in the same order, Double.MAX_VALUE where there is no path
+     */
+    public double[] getDistances(int source, int[] targets) {
+        double[] result = new double[targets.length];
+        Row row = this.rows.get(source);
+        if (row != null) {
+            for (int k = 0; k < targets.length; k ++) {
+                result[k] = row.dist[targets[k]];
+            }
+            return result;
+        }
+
+        ensureScratch();
+        int[] sorted = targets.clone();
+        Arrays.sort(sorted);
+        int remaining = 0;
+        for (int k = 0; k < sorted.length; k ++) {
+            if (k == 0 || sorted[k] != sorted[k - 1]) {
+                remaining ++;
+            }
+        }
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int t : targets) {
+            minX = Math.min(minX, this.vertices[t].x);
+            minY = Math.min(minY, this.vertices[t].y);
+            maxX = Math.max(maxX, this.vertices[t].x);
+            maxY = Math.max(maxY, this.vertices[t].y);
+        }
+        double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2, radius = GeometryKernel.distance(minX, minY, maxX, maxY) / 2;
+
+        lowerDistance(this.scratch, source, 0, -1);
+        while (!this.heap.isEmpty() && remaining > 0) {
+            int u = this.heap.pollMin();
+            if (Arrays.binarySearch(sorted, u) >= 0) {
+                remaining --;
+            }
+            for (int k = 0; k < this.degree[u]; k ++) {
+                int w = this.adjTarget[u][k];
+                double d = this.scratch.dist[u] + this.adjWeight[u][k];
+                if (d < this.scratch.dist[w]) {
+                    double rest = Math.max(0, GeometryKernel.distance(this.vertices[w].x, this.vertices[w].y, cx, cy) - radius);
+                    lowerDistance(this.scratch, w, d, u, d + rest);
+                }
+            }
+        }
+        for (int k = 0; k < targets.length; k ++) {
+            result[k] = this.scratch.dist[targets[k]];
+        }
+
+        this.heap.clear();
+        releaseScratch();
+        return result;
+    }
+
+    /**
+     *
+     * @param u Id of a vertex
+     * @param v Id of a vertex
+     * @return Id of the vertex after u on the shortest path from u to v, or -1 if u is v or there is no path
+     */
+    public int getNextHop(int u, int v) {
+        return getRow(v).next[u];
+    }
+
+    /**
+     * The pairs of pending vertices are added first. Then the row with the
+     * largest bound is recomputed until that bound is exact, so only rows
+     * whose bound was loosened above the stretch factor are read. Rows not in
+     * the cache are streamed through the scratch row so they evict nothing
+     *
+     * @return Ids {i, j} with i < j of the connected pair with the largest ratio of path length to Euclidean distance, or null if no pair is connected
+     */
+    public int[] getStretchFactorPair() {
+        flushPending();
+        while (!this.bounds.isEmpty()) {
+            int v = this.bounds.peekMin();
+            if (this.bound[v] < 0) {
+                return null;
+            }
+            if (this.exact[v]) {
+                int u = this.witness[v];
+                return u < v ? new int[]{u, v} : new int[]{v, u};
+            }
+            if (this.cached[v]) {
+                scanMaxStretch(v, this.rows.get(v));
+            } else {
+                scanMaxStretch(v, streamRow(v));
+                releaseScratch();
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param v New vertex, which may reuse the id of a removed one
+     */
+    @Override
+    public void vertexAdded(Vertex v) {
+        int id = this.graph.getVertexId(v);
+        if (id >= this.vertices.length) {
+            // Grow by a quarter so rows, which are sized to the id capacity, stay close to the live count the budget assumes
+            int capacity = Math.max(this.vertices.length + (this.vertices.length >> 2), id + 1);
+            this.vertices = Arrays.copyOf(this.vertices, capacity);
+            this.adjTarget = Arrays.copyOf(this.adjTarget, capacity);
+            this.adjWeight = Arrays.copyOf(this.adjWeight, capacity);
+            this.degree = Arrays.copyOf(this.degree, capacity);
+            this.heap = new IndexMinHeap(capacity);
+            this.marked = new boolean[capacity];
+            this.changed = new int[capacity];
+            this.affected = new int[capacity];
+            this.affectedDist = new double[capacity];
+            this.cached = Arrays.copyOf(this.cached, capacity);
+            this.bound = Arrays.copyOf(this.bound, capacity);
+            this.witness = Arrays.copyOf(this.witness, capacity);
+            this.exact = Arrays.copyOf(this.exact, capacity);
+            this.pending = Arrays.copyOf(this.pending, capacity);
+            this.bounds = new IndexMinHeap(capacity);
+            for (int u = 0; u < capacity; u ++) {
+                if (this.vertices[u] != null) {
+                    this.bounds.update(u, -this.bound[u]);
+                }
+            }
+        }
+        this.vertices[id] = v;
+        this.adjTarget[id] = new int[6];
+        this.adjWeight[id] = new double[6];
+        this.degree[id] = 0;
+        this.count ++;
+        setBound(id, -1, -1, true);
+
+        // The new vertex has no edges yet so it is unreachable from every cached target
+        for (Row row : this.rows.values()) {
+            if (id >= row.dist.length) {
+                int length = row.dist.length;
+                row.dist = Arrays.copyOf(row.dist, this.vertices.length);
+                row.next = Arrays.copyOf(row.next, this.vertices.length);
+                Arrays.fill(row.dist, length, this.vertices.length, Double.MAX_VALUE);
+                Arrays.fill(row.next, length, this.vertices.length, -1);
+            }
+            row.dist[id] = Double.MAX_VALUE;
+            row.next[id] = -1;
+        }
+
+        // Rows grow with n so fewer of them fit in the memory limit
+        updateMaxRows();
+        Iterator<Integer> it = this.rows.keySet().iterator();
+        while (this.rows.size() > this.maxRows) {
+            this.cached[it.next()] = false;
+            it.remove();
+        }
+    }
+
+    /**
+     * The edges of v were reported removed first, so it is already
+     * unreachable in every row and only its own row and id are dropped
+     *
+     * @param v Removed vertex
+     */
+    @Override
+    public void vertexRemoved(Vertex v) {
+        int id = getVertexId(v);
+        if (id < 0) {
+            return;
+        }
+        this.vertices[id] = null;
+        this.adjTarget[id] = null;
+        this.adjWeight[id] = null;
+        this.degree[id] = 0;
+        this.count --;
+        this.rows.remove(id);
+        this.cached[id] = false;
+        updateMaxRows();
+
+        // Bounds stay valid without the pairs of v, but they are no longer attained by them
+        this.pending[id] = false;
+        this.bounds.remove(id);
+        for (int u = 0; u < this.vertices.length; u ++) {
+            if (this.witness[u] == id) {
+                this.exact[u] = false;
+            }
+        }
+        this.witness[id] = -1;
+    }
+
+    /**
+     *
+     * @param v1 A vertex of the new edge
+     * @param v2 The other vertex of the new edge
+     */
+    @Override
+    public void edgeAdded(Vertex v1, Vertex v2) {
+        int i = getVertexId(v1), j = getVertexId(v2);
+        if (i < 0 || j < 0) {
+            return;
+        }
+        double weight = Utility.euclideanDistance(v1, v2);
+        if (this.degree[i] == 0 || this.degree[j] == 0) {
+            // No path runs through a vertex without edges, so it only gains pairs, which are added when it is flushed
+            if (this.degree[i] == 0) {
+                markPending(i);
+            }
+            if (this.degree[j] == 0) {
+                markPending(j);
+            }
+        } else {
+            checkWitnesses(i, j, weight);
+        }
+        addAdjacency(i, j, weight);
+        addAdjacency(j, i, weight);
+
+        for (Map.Entry<Integer, Row> entry : this.rows.entrySet()) {
+            Row row = entry.getValue();
+            // At most one direction can improve since weights are positive
+            if (row.dist[i] != Double.MAX_VALUE && row.dist[i] + weight < row.dist[j]) {
+                lowerDistance(row, j, row.dist[i] + weight, i);
+            } else if (row.dist[j] != Double.MAX_VALUE && row.dist[j] + weight < row.dist[i]) {
+                lowerDistance(row, i, row.dist[j] + weight, j);
+            } else {
+                continue;
+            }
+            propagate(row);
+            updateMaxStretch(entry.getKey(), row, false);
+        }
+    }
+
+    /**
+     *
+     * @param v1 A vertex of the removed edge
+     * @param v2 The other vertex of the removed edge
+     */
+    @Override
+    public void edgeRemoved(Vertex v1, Vertex v2) {
+        int i = getVertexId(v1), j = getVertexId(v2);
+        if (i < 0 || j < 0) {
+            return;
+        }
+        double weight = Utility.euclideanDistance(v1, v2);
+        int affectedCount = findLengthenedRows(i, j, weight);
+        removeAdjacency(i, j);
+        removeAdjacency(j, i);
+
+        for (Map.Entry<Integer, Row> entry : this.rows.entrySet()) {
+            Row row = entry.getValue();
+            // Only the subtree hanging off the edge in the shortest path tree towards the target changes
+            int root;
+            if (row.next[i] == j) {
+                root = i;
+            } else if (row.next[j] == i) {
+                root = j;
+            } else {
+                continue;
+            }
+            resetSubtree(row, root);
+            propagate(row);
+            updateMaxStretch(entry.getKey(), row, true);
+        }
+        loosenBounds(i, j, weight, affectedCount);
+    }
+
+    /**
+     * Before an edge is added, clear the exact flag of every uncached row
+     * whose witness pair gets a shorter path through it. By symmetry the rows
+     * of the ends hold the distances from every vertex to them, so this needs
+     * no other row. If the ends are not connected yet no path within either
+     * side changes, and the side with fewer vertices is made pending instead
+     *
+     * @param i Id of a vertex of the new edge, which has other edges
+     * @param j Id of the other vertex of the new edge, which has other edges
+     * @param weight Length of the new edge
+     */
+    private void checkWitnesses(int i, int j, double weight) {
+        double[] di = getRow(i).dist;
+        double[] dj = getRow(j).dist;
+        if (di[j] == Double.MAX_VALUE) {
+            int reachedI = 0, reachedJ = 0;
+            for (int u = 0; u < this.vertices.length; u ++) {
+                reachedI += di[u] != Double.MAX_VALUE ? 1 : 0;
+                reachedJ += dj[u] != Double.MAX_VALUE ? 1 : 0;
+            }
+            double[] smaller = reachedI <= reachedJ ? di : dj;
+            for (int u = 0; u < this.vertices.length; u ++) {
+                if (smaller[u] != Double.MAX_VALUE) {
+                    markPending(u);
+                }
+            }
+            return;
+        }
+
+        // Cached rows are repaired with the edge and checked then
+        for (int v = 0; v < this.vertices.length; v ++) {
+            int u = this.witness[v];
+            if (this.vertices[v] == null || this.cached[v] || this.pending[v] || !this.exact[v] || u < 0 || di[v] == Double.MAX_VALUE) {
+                continue;
+            }
+            double old = this.bound[v] * Utility.euclideanDistance(this.vertices[u], this.vertices[v]);
+            double through = Math.min(di[u] + weight + dj[v], dj[u] + weight + di[v]);
+            if (through < old * (1 - TOLERANCE)) {
+                this.exact[v] = false;
+            }
+        }
+    }
+
+    /**
+     * Before an edge is removed, record the uncached rows whose shortest path
+     * tree may use it. The rows of the ends hold the distances from every
+     * target to them, and the edge is in the tree of a target when those two
+     * distances differ by its length. An edge to a vertex of degree one is a
+     * bridge, which needs no rows
+     *
+     * @param i Id of a vertex of the edge
+     * @param j Id of the other vertex of the edge
+     * @param weight Length of the edge
+     * @return Number of rows recorded in affected
+     */
+    private int findLengthenedRows(int i, int j, double weight) {
+        if (this.degree[i] == 1 || this.degree[j] == 1) {
+            return 0;
+        }
+        double[] di = getRow(i).dist;
+        double[] dj = getRow(j).dist;
+        int affectedCount = 0;
+        for (int v = 0; v < this.vertices.length; v ++) {
+            if (this.vertices[v] == null || this.cached[v] || this.pending[v] || di[v] == Double.MAX_VALUE) {
+                continue;
+            }
+            if (Math.abs(di[v] - dj[v]) >= weight - TOLERANCE * (di[v] + dj[v] + weight)) {
+                this.affected[affectedCount] = v;
+                this.affectedDist[affectedCount] = Math.max(di[v], dj[v]);
+                affectedCount ++;
+            }
+        }
+        return affectedCount;
+    }
+
+    /**
+     * After an edge is removed, a path from u to v that used it is longer by
+     * at most the detour left between its ends, and was already at least the
+     * distance from v to the farther end, so the bound of each recorded row
+     * grows by their ratio. If the ends are no longer connected the edge was
+     * a bridge, which no path within either side used, so bounds stay valid
+     * and only the witnesses left on the other side stop being exact
+     *
+     * @param i Id of a vertex of the removed edge
+     * @param j Id of the other vertex of the removed edge
+     * @param weight Length of the removed edge
+     * @param affectedCount Number of rows recorded in affected
+     */
+    private void loosenBounds(int i, int j, double weight, int affectedCount) {
+        double detour = this.degree[i] == 0 || this.degree[j] == 0 ? Double.MAX_VALUE : getDistances(i, new int[]{j})[0];
+        if (detour != Double.MAX_VALUE) {
+            for (int k = 0; k < affectedCount; k ++) {
+                int v = this.affected[k];
+                if (this.bound[v] >= 0) {
+                    setBound(v, this.bound[v] * (1 + (detour - weight) / this.affectedDist[k]), this.witness[v], false);
+                }
+            }
+            return;
+        }
+
+        if (this.degree[i] == 0 || this.degree[j] == 0) {
+            // A vertex left without edges is a side of its own
+            for (int v = 0; v < this.vertices.length; v ++) {
+                int u = this.witness[v];
+                if ((u == i || u == j) && this.degree[u] == 0) {
+                    this.exact[v] = false;
+                }
+            }
+            if (this.degree[i] == 0) {
+                setBound(i, -1, -1, true);
+            }
+            if (this.degree[j] == 0) {
+                setBound(j, -1, -1, true);
+            }
+            return;
+        }
+        Row side = streamRow(i);
+        for (int v = 0; v < this.vertices.length; v ++) {
+            int u = this.witness[v];
+            if (this.vertices[v] != null && u >= 0 && (side.dist[v] == Double.MAX_VALUE) != (side.dist[u] == Double.MAX_VALUE)) {
+                this.exact[v] = false;
+            }
+        }
+        releaseScratch();
+    }
+
+    /**
+     *
+     * @param v Id of the target vertex
+     * @return Cached row for v, computed if it is not in the cache
+     */
+    private Row getRow(int v) {
+        Row row = this.rows.get(v);
+        if (row == null) {
+            row = dijkstra(v);
+            this.rows.put(v, row);
+            this.cached[v] = true;
+        }
+        return row;
+    }
+
+    /**
+     * Run Dijkstra into the scratch row instead of a new cached one, for
+     * reads that touch a row once. The vertices it reached are left recorded
+     * as changed until releaseScratch is called
+     *
+     * @param v Id of the target vertex
+     * @return Scratch row holding the distances and next hops towards v
+     */
+    private Row streamRow(int v) {
+        ensureScratch();
+        this.changedCount = 0;
+        lowerDistance(this.scratch, v, 0, -1);
+        propagate(this.scratch);
+        return this.scratch;
+    }
+
+    /**
+     * Allocate the scratch row, unreached everywhere, if there is none of the current size
+     */
+    private void ensureScratch() {
+        if (this.scratch == null || this.scratch.dist.length < this.adjTarget.length) {
+            this.scratch = new Row(new double[this.adjTarget.length], new int[this.adjTarget.length]);
+            Arrays.fill(this.scratch.dist, Double.MAX_VALUE);
+            Arrays.fill(this.scratch.next, -1);
+        }
+    }
+
+    /**
+     * Leave the scratch row unreached everywhere for the next use
+     */
+    private void releaseScratch() {
+        for (int s = 0; s < this.changedCount; s ++) {
+            this.scratch.dist[this.changed[s]] = Double.MAX_VALUE;
+            this.scratch.next[this.changed[s]] = -1;
+        }
+        clearChanged();
+    }
+
+    /**
+     * Edges are undirected, so the parent of u in the tree grown from v is the next hop from u towards v
+     *
+     * @param v Id of the source vertex
+     * @return Distances and next hops towards v
+     */
+    private Row dijkstra(int v) {
+        // Sized to the id capacity so added vertices fit without copying
+        double[] dist = new double[this.vertices.length];
+        int[] next = new int[this.vertices.length];
+        Arrays.fill(dist, Double.MAX_VALUE);
+        Arrays.fill(next, -1);
+        Row row = new Row(dist, next);
+
+        this.changedCount = 0;
+        lowerDistance(row, v, 0, -1);
+        propagate(row);
+        clearChanged();
+        return row;
+    }
+
+    /**
+     * Set a shorter distance for u, queue it for propagation and record it as changed
+     *
+     * @param row Row being repaired
+     * @param u Id of the vertex
+     * @param d New distance of u, smaller than its current one
+     * @param hop Next hop from u towards the target
+     */
+    private void lowerDistance(Row row, int u, double d, int hop) {
+        lowerDistance(row, u, d, hop, d);
+    }
+
+    /**
+     *
+     * @param row Row being repaired
+     * @param u Id of the vertex
+     * @param d New distance of u, smaller than its current one
+     * @param hop Next hop from u towards the target
+     * @param key Key of u in the heap, d plus a consistent lower bound on the rest of the path for an A* search
+     */
+    private void lowerDistance(Row row, int u, double d, int hop, double key) {
+        row.dist[u] = d;
+        row.next[u] = hop;
+        this.heap.insertOrDecrease(u, key);
+        if (!this.marked[u]) {
+            this.marked[u] = true;
+            this.changed[this.changedCount ++] = u;
+        }
+    }
+
+    /**
+     * Dijkstra from the queued vertices, which only continues through the
+     * vertices whose distances it lowers
+     *
+     * @param row Row being repaired
+     */
+    private void propagate(Row row) {
+        while (!this.heap.isEmpty()) {
+            int u = this.heap.pollMin();
+            for (int k = 0; k < this.degree[u]; k ++) {
+                int w = this.adjTarget[u][k];
+                double d = row.dist[u] + this.adjWeight[u][k];
+                if (d < row.dist[w]) {
+                    lowerDistance(row, w, d, u);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget the distances of root and every vertex whose path to the target
+     * runs through it, then queue each of them with its best distance through
+     * a neighbour outside the subtree
+     *
+     * @param row Row being repaired
+     * @param root Id of the vertex whose next hop was cut off
+     */
+    private void resetSubtree(Row row, int root) {
+        // Children of a vertex in the tree are neighbours whose next hop is that vertex
+        this.marked[root] = true;
+        this.changed[this.changedCount ++] = root;
+        for (int s = 0; s < this.changedCount; s ++) {
+            int u = this.changed[s];
+            for (int k = 0; k < this.degree[u]; k ++) {
+                int w = this.adjTarget[u][k];
+                if (row.next[w] == u && !this.marked[w]) {
+                    this.marked[w] = true;
+                    this.changed[this.changedCount ++] = w;
+                }
+            }
+        }
+        for (int s = 0; s < this.changedCount; s ++) {
+            row.dist[this.changed[s]] = Double.MAX_VALUE;
+            row.next[this.changed[s]] = -1;
+        }
+
+        for (int s = 0; s < this.changedCount; s ++) {
+            int u = this.changed[s];
+            for (int k = 0; k < this.degree[u]; k ++) {
+                int w = this.adjTarget[u][k];
+                if (!this.marked[w] && row.dist[w] != Double.MAX_VALUE && row.dist[w] + this.adjWeight[u][k] < row.dist[u]) {
+                    row.dist[u] = row.dist[w] + this.adjWeight[u][k];
+                    row.next[u] = w;
+                    this.heap.insertOrDecrease(u, row.dist[u]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bring the summary of a cached row up to date after the distances of
+     * the changed vertices were repaired, rescanning the row only when its
+     * witness may no longer be the largest or its bound was not exact
+     *
+     * @param v Id of the target vertex of the row
+     * @param row Repaired row
+     * @param increased True if the changed distances grew, false if they shrank
+     */
+    private void updateMaxStretch(int v, Row row, boolean increased) {
+        // The pairs of a pending row are all read when it is flushed
+        if (this.pending[v]) {
+            clearChanged();
+            return;
+        }
+
+        // A shorter path lowers the witness, and an unreachable witness says nothing about the rest of the row
+        int maxIndex = this.witness[v];
+        if (!this.exact[v] || (maxIndex >= 0 && this.marked[maxIndex] && (!increased || row.dist[maxIndex] == Double.MAX_VALUE))) {
+            clearChanged();
+            scanMaxStretch(v, row);
+            return;
+        }
+
+        // Otherwise the old witness is still a lower bound, and only changed entries can beat it
+        double maxStretch = maxIndex >= 0 ? stretch(maxIndex, v, row) : -1;
+        for (int s = 0; s < this.changedCount; s ++) {
+            int u = this.changed[s];
+            if (u != v && row.dist[u] != Double.MAX_VALUE) {
+                double stretch = stretch(u, v, row);
+                if (stretch > maxStretch) {
+                    maxStretch = stretch;
+                    maxIndex = u;
+                }
+            }
+        }
+        clearChanged();
+        setBound(v, maxStretch, maxIndex, true);
+    }
+
+    /**
+     *
+     * @param v Id of the target vertex of the row
+     * @param row Row to make the exact summary of v from
+     */
+    private void scanMaxStretch(int v, Row row) {
+        double maxStretch = -1;
+        int maxIndex = -1;
+        for (int u = 0; u < this.vertices.length; u ++) {
+            if (u != v && row.dist[u] != Double.MAX_VALUE) {
+                double stretch = stretch(u, v, row);
+                if (stretch > maxStretch) {
+                    maxStretch = stretch;
+                    maxIndex = u;
+                }
+            }
+        }
+        setBound(v, maxStretch, maxIndex, true);
+    }
+
+    /**
+     * Add the pairs of every pending vertex to the bounds of the others and
+     * make its own bound exact, reading each of their rows once
+     */
+    private void flushPending() {
+        for (int k = 0; k < this.pendingCount; k ++) {
+            int v = this.pendingIds[k];
+            if (!this.pending[v]) {
+                continue;
+            }
+            this.pending[v] = false;
+            Row row = this.cached[v] ? this.rows.get(v) : streamRow(v);
+            double maxStretch = -1;
+            int maxIndex = -1;
+            for (int u = 0; u < this.vertices.length; u ++) {
+                if (u != v && row.dist[u] != Double.MAX_VALUE) {
+                    double stretch = stretch(u, v, row);
+                    if (stretch > maxStretch) {
+                        maxStretch = stretch;
+                        maxIndex = u;
+                    }
+                    if (stretch > this.bound[u]) {
+                        setBound(u, stretch, v, this.exact[u]);
+                    }
+                }
+            }
+            setBound(v, maxStretch, maxIndex, true);
+            if (row == this.scratch) {
+                releaseScratch();
+            }
+        }
+        this.pendingCount = 0;
+    }
+
+    /**
+     *
+     * @param v Id of a vertex whose pairs are to be added to the bounds of the others
+     */
+    private void markPending(int v) {
+        if (this.pending[v]) {
+            return;
+        }
+        if (this.pendingCount == this.pendingIds.length) {
+            this.pendingIds = Arrays.copyOf(this.pendingIds, 2 * this.pendingCount);
+        }
+        this.pending[v] = true;
+        this.pendingIds[this.pendingCount ++] = v;
+    }
+
+    /**
+     *
+     * @param v Id of a vertex
+     * @param maxStretch Upper bound on the largest stretch of its row, or -1 if it has no connected pair
+     * @param maxIndex Vertex paired with v in the bound if it is exact, or -1
+     * @param isExact True if the bound is the largest stretch of the row
+     */
+    private void setBound(int v, double maxStretch, int maxIndex, boolean isExact) {
+        this.bound[v] = maxStretch;
+        this.witness[v] = maxIndex;
+        this.exact[v] = isExact;
+        this.bounds.update(v, -maxStretch);
+    }
+
+    /**
+     *
+     * @param u Id of a vertex connected to v
+     * @param v Id of the target vertex of the row
+     * @param row Row holding the distance from u to v
+     * @return Ratio of the path length between u and v to their Euclidean distance
+     */
+    private double stretch(int u, int v, Row row) {
+        return row.dist[u] / Utility.euclideanDistance(this.vertices[u], this.vertices[v]);
+    }
+
+    /**
+     * Unmark the vertices recorded as changed by the last repair
+     */
+    private void clearChanged() {
+        for (int s = 0; s < this.changedCount; s ++) {
+            this.marked[this.changed[s]] = false;
+        }
+        this.changedCount = 0;
+    }
+
+    /**
+     *
+     * @param i Id of a vertex
+     * @param j Id of the neighbour to append to its adjacency list
+     * @param weight Length of the edge
+     */
+    private void addAdjacency(int i, int j, double weight) {
+        if (this.degree[i] == this.adjTarget[i].length) {
+            this.adjTarget[i] = Arrays.copyOf(this.adjTarget[i], 2 * this.degree[i]);
+            this.adjWeight[i] = Arrays.copyOf(this.adjWeight[i], 2 * this.degree[i]);
+        }
+        this.adjTarget[i][this.degree[i]] = j;
+        this.adjWeight[i][this.degree[i]] = weight;
+        this.degree[i] ++;
+    }
+
+    /**
+     *
+     * @param i Id of a vertex
+     * @param j Id of the neighbour to remove from its adjacency list
+     */
+    private void removeAdjacency(int i, int j) {
+        for (int k = 0; k < this.degree[i]; k ++) {
+            if (this.adjTarget[i][k] == j) {
+                this.degree[i] --;
+                this.adjTarget[i][k] = this.adjTarget[i][this.degree[i]];
+                this.adjWeight[i][k] = this.adjWeight[i][this.degree[i]];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Number of rows that fit in the memory limit, at one entry per vertex
+     */
+    private void updateMaxRows() {
+        this.maxRows = (int) Math.max(1, this.memoryLimit / Math.max(1, (long) this.count * BYTES_PER_ROW_ENTRY));
+    }
+}
@@ -0,0 +1,110 @@
+package dt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Insertion order for building a triangulation from a whole vertex set.
+ * Vertices are shuffled into rounds of doubling size (biased randomized
+ * insertion order) and each round is sorted along a Hilbert curve, so every
+ * insertion lands close to the one before it while the order stays random
+ * enough to avoid worst case flip sequences
+ *
+ * @author Lee Glendenning
+ */
+public class SpatialSort {
+
+    private static final int HILBERT_ORDER = 16; // Hilbert curve on a 2^16 x 2^16 grid over the bounding box
+    private static final int MIN_ROUND_SIZE = 64; // Smaller rounds are merged into the first one
+
+    /**
+     *
+     * @param pts Vertices to order
+     * @param random Source of randomness for assigning vertices to rounds
+     * @return New list holding pts in biased randomized insertion order, each round sorted along a Hilbert curve
+     */
+    public static List<Vertex> brioOrder(List<Vertex> pts, Random random) {
+        List<Vertex> shuffled = new ArrayList<>(pts);
+        Collections.shuffle(shuffled, random);
+
+        // Round boundaries at n/2^k, ..., n/4, n/2, n
+        List<Integer> bounds = new ArrayList<>();
+        for (int end = shuffled.size(); end > MIN_ROUND_SIZE; end /= 2) {
+            bounds.add(0, end);
+        }
+        bounds.add(0, Math.min(shuffled.size(), MIN_ROUND_SIZE));
+
+        List<Vertex> ordered = new ArrayList<>();
+        int start = 0;
+        for (int end : bounds) {
+            List<Vertex> round = new ArrayList<>(shuffled.subList(start, end));
+            hilbertSort(round);
+            ordered.addAll(round);
+            start = end;
+        }
+        return ordered;
+    }
+
+    /**
+     * Sort vertices in place by their position along a Hilbert curve covering their bounding box
+     *
+     * @param pts Vertices to sort
+     */
+    public static void hilbertSort(List<Vertex> pts) {
+        if (pts.size() < 2) {
+            return;
+        }
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (Vertex v : pts) {
+            minX = Math.min(minX, v.x);
+            minY = Math.min(minY, v.y);
+            maxX = Math.max(maxX, v.x);
+            maxY = Math.max(maxY, v.y);
+        }
+        int side = 1 << HILBERT_ORDER;
+        double scale = (side - 1) / Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+
+        final IdentityHashMap<Vertex, Long> index = new IdentityHashMap<>();
+        for (Vertex v : pts) {
+            index.put(v, hilbertIndex((int) ((v.x - minX) * scale), (int) ((v.y - minY) * scale), side));
+        }
+        Collections.sort(pts, new Comparator<Vertex>() {
+            @Override
+            public int compare(Vertex v1, Vertex v2) {
+                return Long.compare(index.get(v1), index.get(v2));
+            }
+        });
+    }
+
+    /**
+     *
+     * @param x X cell of the grid
+     * @param y Y cell of the grid
+     * @param side Number of cells along each side of the grid, a power of two
+     * @return Distance along the Hilbert curve to cell (x, y)
+     */
+    private static long hilbertIndex(int x, int y, int side) {
+        long d = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+
+            // Rotate the quadrant so the curve inside it has the standard orientation
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return d;
+    }
+}
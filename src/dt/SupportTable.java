@@ -0,0 +1,168 @@
+package dt;
+
+/**
+ * Support tables of a convex polygon about its center, built once in O(k)
+ * for k vertices. Seen from the center, the vertices and the outward edge
+ * normals both turn clockwise around the polygon, so the edge hit by a ray
+ * from the center and the vertex furthest in a direction are found by binary
+ * search in O(log k) instead of scanning or sorting the vertices. Directions
+ * are ordered by their clockwise angle from vertex 0, or from the normal of
+ * edge 0, which is decided with cross products and no trigonometry
+ *
+ * @author Lee Glendenning
+ */
+public class SupportTable {
+
+    private final double[] vx, vy; // Vertex i relative to the center
+    private final double[] nx, ny; // Outward unit normal of the edge from vertex i to vertex i+1
+    private final double[] h; // Distance from the center to the line through edge i
+    private final boolean[] vertexPastHalf, normalPastHalf; // True if half a turn or more clockwise from the first one
+
+    /**
+     *
+     * @param vertices Vertices of a convex polygon in clockwise order
+     * @param center Point inside the polygon that distances are measured from
+     */
+    public SupportTable(Vertex[] vertices, Vertex center) {
+        int n = vertices.length;
+        this.vx = new double[n];
+        this.vy = new double[n];
+        this.nx = new double[n];
+        this.ny = new double[n];
+        this.h = new double[n];
+        for (int i = 0; i < n; i ++) {
+            Vertex a = vertices[i], b = vertices[(i + 1) % n];
+            double length = Math.hypot(b.x - a.x, b.y - a.y);
+            this.vx[i] = a.x - center.x;
+            this.vy[i] = a.y - center.y;
+            // Clockwise order puts the inside on the right of each edge
+            this.nx[i] = -(b.y - a.y) / length;
+            this.ny[i] = (b.x - a.x) / length;
+            this.h[i] = this.nx[i] * this.vx[i] + this.ny[i] * this.vy[i];
+        }
+
+        this.vertexPastHalf = new boolean[n];
+        this.normalPastHalf = new boolean[n];
+        for (int i = 0; i < n; i ++) {
+            this.vertexPastHalf[i] = isPastHalf(this.vx[0], this.vy[0], this.vx[i], this.vy[i]);
+            this.normalPastHalf[i] = isPastHalf(this.nx[0], this.ny[0], this.nx[i], this.ny[i]);
+        }
+    }
+
+    /**
+     *
+     * @return Number of vertices of the polygon
+     */
+    public int size() {
+        return this.vx.length;
+    }
+
+    /**
+     *
+     * @param i Index of a vertex
+     * @return The vertex relative to the center
+     */
+    public Vertex getVertex(int i) {
+        return new Vertex(this.vx[i], this.vy[i]);
+    }
+
+    /**
+     *
+     * @param i Index of the edge from vertex i to vertex i+1
+     * @return Outward unit normal of the edge
+     */
+    public Vertex getNormal(int i) {
+        return new Vertex(this.nx[i], this.ny[i]);
+    }
+
+    /**
+     *
+     * @param i Index of the edge from vertex i to vertex i+1
+     * @return Distance from the center to the line through the edge
+     */
+    public double getHeight(int i) {
+        return this.h[i];
+    }
+
+    /**
+     *
+     * @param dx X of a direction
+     * @param dy Y of a direction
+     * @return Index of the edge that the ray from the center in the direction leaves the polygon through
+     */
+    public int edgeToward(double dx, double dy) {
+        return lastNotAfter(this.vx, this.vy, this.vertexPastHalf, dx, dy);
+    }
+
+    /**
+     *
+     * @param dx X of a direction
+     * @param dy Y of a direction
+     * @return Index of a vertex furthest in the direction, the later one if an edge is perpendicular to it
+     */
+    public int extremeVertex(double dx, double dy) {
+        return (lastNotAfter(this.nx, this.ny, this.normalPastHalf, dx, dy) + 1) % this.vx.length;
+    }
+
+    /**
+     * Distance function of the polygon, the factor it must be scaled by about
+     * the center to reach (dx, dy). Equal to the largest n_i . d / h_i over all
+     * edges, read from the one edge the direction points at
+     *
+     * @param dx X relative to the center
+     * @param dy Y relative to the center
+     * @return Smallest scale of the polygon that contains the point
+     */
+    public double gauge(double dx, double dy) {
+        int i = edgeToward(dx, dy);
+        return (this.nx[i] * dx + this.ny[i] * dy) / this.h[i];
+    }
+
+    /**
+     *
+     * @param x X of directions turning clockwise
+     * @param y Y of directions turning clockwise
+     * @param pastHalf isPastHalf of each direction relative to the first
+     * @param dx X of the query direction
+     * @param dy Y of the query direction
+     * @return Largest index whose direction is not further clockwise from the first than the query
+     */
+    private static int lastNotAfter(double[] x, double[] y, boolean[] pastHalf, double dx, double dy) {
+        boolean queryPastHalf = isPastHalf(x[0], y[0], dx, dy);
+        int lo = 0, hi = x.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (isAfter(pastHalf[mid], x[mid], y[mid], queryPastHalf, dx, dy)) {
+                hi = mid - 1;
+            } else {
+                lo = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     *
+     * @return True if direction a is strictly further clockwise from the reference than direction b
+     */
+    private static boolean isAfter(boolean aPastHalf, double ax, double ay, boolean bPastHalf, double bx, double by) {
+        if (aPastHalf != bPastHalf) {
+            return aPastHalf;
+        }
+        // Within the same half turn a is after b if it is clockwise of b
+        return GeometryKernel.cross(bx, by, ax, ay) < 0;
+    }
+
+    /**
+     *
+     * @param rx X of the reference direction
+     * @param ry Y of the reference direction
+     * @param x X of a direction
+     * @param y Y of a direction
+     * @return True if the direction is half a turn or more clockwise from the reference
+     */
+    private static boolean isPastHalf(double rx, double ry, double x, double y) {
+        double cross = GeometryKernel.cross(rx, ry, x, y);
+        return cross > 0 || (cross == 0 && rx * x + ry * y <= 0);
+    }
+}
@@ -0,0 +1,67 @@
+package dt.Test;
+
+import dt.ApproximateStretchFactor;
+import dt.Edge;
+import dt.Graph;
+import dt.ShortestPaths;
+import dt.Utility;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test cases for ApproximateStretchFactor, whose estimate and upper bound
+ * must bracket the exact stretch factor from Floyd-Warshall within the
+ * allowed error, on whole triangulations and on ones with edges removed
+ *
+ * @author Lee Glendenning
+ */
+public class ApproximateStretchTest {
+
+    private static final double[] EPSILONS = {0.05, 0.25, 1, 4};
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Utility.debugMode = false;
+        int failures = 0;
+        for (long seed = 1; seed <= 4; seed ++) {
+            for (double removedShare : new double[]{0, 0.4}) {
+                Graph graph = TestUtility.triangulate(250, seed);
+                Random random = new Random(seed);
+                List<Edge> edges = graph.getEdges();
+                for (Edge e : edges) {
+                    if (random.nextDouble() < removedShare) {
+                        graph.removeEdge(e, false);
+                    }
+                }
+                ShortestPaths paths = new ShortestPaths(graph, 1L << 30);
+                double exact = TestUtility.stretchFactor(graph, TestUtility.allPairs(graph));
+
+                for (double epsilon : EPSILONS) {
+                    ApproximateStretchFactor approximate = new ApproximateStretchFactor(graph.getVertices(), paths, epsilon);
+                    double estimate = approximate.getEstimate(), upperBound = approximate.getUpperBound();
+                    String context = "seed " + seed + " removed " + removedShare + " epsilon " + epsilon + ": ";
+                    failures += TestUtility.check(estimate <= exact * (1 + 1e-9),
+                            context + "estimate " + estimate + " above the stretch factor " + exact);
+                    failures += TestUtility.check(exact <= upperBound * (1 + 1e-9),
+                            context + "upper bound " + upperBound + " below the stretch factor " + exact);
+                    failures += TestUtility.check(upperBound <= (1 + epsilon) * estimate * (1 + 1e-9),
+                            context + "upper bound " + upperBound + " above (1 + epsilon) times the estimate " + estimate);
+
+                    int[] pair = approximate.getPair();
+                    double pairStretch = paths.getDistance(pair[0], pair[1])
+                            / Utility.euclideanDistance(graph.getVertexById(pair[0]), graph.getVertexById(pair[1]));
+                    failures += TestUtility.check(TestUtility.close(pairStretch, estimate),
+                            context + "pair stretch " + pairStretch + " is not the estimate " + estimate);
+                    System.out.println(context + estimate + " <= " + exact + " <= " + upperBound
+                            + " from " + approximate.getPairCount() + " cluster pairs");
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "All ApproximateStretchFactor tests passed" : failures + " ApproximateStretchFactor checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dt.Test;
+
+import dt.DelaunayTriangulation;
+import dt.HomothetSolver;
+import dt.MeshVisitor;
+import dt.Quadrilateral;
+import dt.Utility;
+import dt.Vertex;
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test cases for the closed form homothets. Each min quad must have its three
+ * sites on its boundary, and the min quad of every face of a DT must hold no
+ * other vertex
+ *
+ * @author Lee Glendenning
+ */
+public class HomothetSolverTest {
+
+    private static final Vertex[][] QUADS = {
+        {new Vertex(0, 0), new Vertex(10, 30), new Vertex(30, 40), new Vertex(40, 10)},
+        {new Vertex(20, 20), new Vertex(20, 0), new Vertex(0, 0), new Vertex(0, 20)},
+        {new Vertex(0, 20), new Vertex(20, 40), new Vertex(40, 20), new Vertex(20, 0)},
+        {new Vertex(20, 0), new Vertex(10, 30), new Vertex(30, 40), new Vertex(40, 10)},
+        {new Vertex(0, 0), new Vertex(5, 40), new Vertex(45, 30), new Vertex(20, 2)}};
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Utility.debugMode = false;
+        int failures = 0;
+        for (int q = 0; q < QUADS.length; q ++) {
+            failures += checkSolver(new Quadrilateral(QUADS[q]), "quad " + q, q);
+        }
+        System.out.println(failures == 0 ? "All HomothetSolver tests passed" : failures + " HomothetSolver checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Random triples must lie on the boundary of their min quad, then the
+     * faces of a DT of random sites are checked for empty min quads
+     *
+     * @param quad Quad whose solver is tested
+     * @param name Name of the quad in failure messages
+     * @param seed Seed of the random sites
+     * @return Number of failed checks
+     */
+    static int checkSolver(Quadrilateral quad, String name, long seed) {
+        int failures = 0;
+        HomothetSolver solver = quad.getHomothetSolver();
+        Random random = new Random(seed);
+
+        int solved = 0;
+        for (int k = 0; k < 2000; k ++) {
+            Vertex[] sites = {randomSite(random), randomSite(random), randomSite(random)};
+            double[] homothet = solver.circumscribe(sites[0], sites[1], sites[2]);
+            if (homothet == null) {
+                continue;
+            }
+            solved ++;
+            Vertex center = new Vertex(homothet[0], homothet[1]);
+            for (Vertex site : sites) {
+                failures += TestUtility.check(Math.abs(solver.scaleThrough(center, site) - homothet[2]) <= 1e-9 * Math.max(1, homothet[2]),
+                        name + ": " + site + " is not on the min quad of " + sites[0] + " " + sites[1] + " " + sites[2]);
+            }
+        }
+        failures += TestUtility.check(solved > 0, name + ": no random triple has a min quad");
+
+        List<Vertex> sites = new ArrayList<>();
+        for (int k = 0; k < 300; k ++) {
+            sites.add(randomSite(random));
+        }
+        DelaunayTriangulation dt = new DelaunayTriangulation(quad, new ArrayList<Vertex>(sites), new Dimension(1920, 1080));
+        List<Vertex> vertices = dt.getVertices();
+        int[] faceTally = new int[2]; // Failed checks and faces visited
+        dt.visitFaces(new MeshVisitor() {
+            @Override
+            public void visitFace(Vertex a, Vertex b, Vertex c) {
+                faceTally[1] ++;
+                double[] homothet = solver.circumscribe(a, b, c);
+                if (homothet == null) {
+                    faceTally[0] += TestUtility.check(false, name + ": face " + a + " " + b + " " + c + " has no min quad");
+                    return;
+                }
+                for (Vertex x : vertices) {
+                    if (solver.containsStrictly(homothet, x)) {
+                        faceTally[0] += TestUtility.check(false, name + ": min quad of face " + a + " " + b + " " + c + " holds " + x);
+                    }
+                }
+            }
+        });
+        failures += faceTally[0] + TestUtility.check(faceTally[1] > 0, name + ": the DT has no faces");
+        System.out.println(name + ": " + solved + " random triples and " + faceTally[1] + " faces checked");
+        return failures;
+    }
+
+    /**
+     *
+     * @param random Source of randomness
+     * @return Site at a random point inside the window
+     */
+    private static Vertex randomSite(Random random) {
+        return new Vertex(100 + random.nextDouble() * 1600, 100 + random.nextDouble() * 800);
+    }
+}
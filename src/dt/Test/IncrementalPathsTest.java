@@ -0,0 +1,125 @@
+package dt.Test;
+
+import dt.Edge;
+import dt.Graph;
+import dt.ShortestPaths;
+import dt.Utility;
+import dt.Vertex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test cases for the repairs ShortestPaths makes when it listens to edges and
+ * vertices being added to and removed from a Graph, checked after every edit
+ * against Floyd-Warshall from scratch
+ *
+ * @author Lee Glendenning
+ */
+public class IncrementalPathsTest {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Utility.debugMode = false;
+        int failures = 0;
+        for (long seed = 1; seed <= 3; seed ++) {
+            Graph graph = TestUtility.triangulate(100, seed);
+            ShortestPaths paths = new ShortestPaths(graph, 8 * 12L * graph.getVertexIdBound());
+            graph.setListener(paths);
+            Random random = new Random(seed);
+            List<Edge> removed = new ArrayList<>();
+
+            for (int step = 0; step < 80; step ++) {
+                // Cache some rows so that the edit has rows to repair
+                for (int k = 0; k < 5; k ++) {
+                    paths.getDistances(random.nextInt(graph.getVertexIdBound()));
+                }
+
+                int op = random.nextInt(10);
+                String edit;
+                if (op < 5) {
+                    Edge e = liveEdge(graph, random);
+                    graph.removeEdge(e, false);
+                    removed.add(e);
+                    edit = "removing " + e.getFirstVertex() + " " + e.getSecondVertex();
+                } else if (op < 8 && !removed.isEmpty()) {
+                    Edge e = removed.remove(random.nextInt(removed.size()));
+                    graph.addEdge(e.getFirstVertex(), e.getSecondVertex());
+                    edit = "adding " + e.getFirstVertex() + " " + e.getSecondVertex();
+                } else {
+                    Vertex v = new Vertex(random.nextDouble() * 1000, random.nextDouble() * 1000);
+                    TestUtility.insert(graph, v);
+                    edit = "inserting " + v;
+                }
+                failures += checkPaths(graph, paths, random, "seed " + seed + " after " + edit);
+            }
+
+            // Removing vertices leaves holes in the triangulation, so they come last
+            for (int k = 0; k < 10; k ++) {
+                Vertex v = graph.getVertexById(random.nextInt(graph.getVertexIdBound()));
+                if (v != null) {
+                    graph.removeVertex(v);
+                    failures += checkPaths(graph, paths, random, "seed " + seed + " after removing " + v);
+                }
+            }
+        }
+        System.out.println(failures == 0 ? "All incremental ShortestPaths tests passed" : failures + " incremental ShortestPaths checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     *
+     * @param graph A Graph
+     * @param random Source of randomness
+     * @return A random edge of graph that does not end at the vertex at infinity
+     */
+    private static Edge liveEdge(Graph graph, Random random) {
+        List<Edge> edges = graph.getEdges();
+        while (true) {
+            Edge e = edges.get(random.nextInt(edges.size()));
+            if (!graph.isInfiniteVertex(e.getFirstVertex()) && !graph.isInfiniteVertex(e.getSecondVertex())) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Every cached row is read back along with the stretch factor pair, so
+     * rows that missed a repair are caught as well as the summaries
+     *
+     * @param graph A Graph
+     * @param paths ShortestPaths listening to graph
+     * @param random Source of randomness
+     * @param context Description of the last edit
+     * @return Number of failed checks
+     */
+    private static int checkPaths(Graph graph, ShortestPaths paths, Random random, String context) {
+        int failures = 0;
+        double[][] expected = TestUtility.allPairs(graph);
+        int n = expected.length;
+
+        int[] pair = paths.getStretchFactorPair();
+        double want = TestUtility.stretchFactor(graph, expected);
+        if (pair == null) {
+            failures += TestUtility.check(want < 0, context + ": no stretch factor pair instead of " + want);
+        } else {
+            double stretch = paths.getDistance(pair[0], pair[1])
+                    / Utility.euclideanDistance(graph.getVertexById(pair[0]), graph.getVertexById(pair[1]));
+            failures += TestUtility.check(TestUtility.close(stretch, want),
+                    context + ": stretch factor " + stretch + " instead of " + want);
+        }
+
+        for (int k = 0; k < 3 * n; k ++) {
+            int u = random.nextInt(n), v = random.nextInt(n);
+            if (graph.getVertexById(u) != null && graph.getVertexById(v) != null) {
+                failures += TestUtility.check(TestUtility.close(paths.getDistance(u, v), expected[u][v]),
+                        context + ": distance " + u + " " + v);
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,98 @@
+package dt.Test;
+
+import dt.PolygonSolver;
+import dt.Quadrilateral;
+import dt.SupportTable;
+import dt.Utility;
+import dt.Vertex;
+import java.util.Random;
+
+/**
+ * Test cases for convex k-gon distance functions. The support table lookups
+ * are checked against scans of every vertex and edge, and the min quads of
+ * the polygon solver get the same checks as those of the quad solvers
+ *
+ * @author Lee Glendenning
+ */
+public class KGonTest {
+
+    private static final int[] SIZES = {6, 12, 32};
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Utility.debugMode = false;
+        int failures = 0;
+        for (int k : SIZES) {
+            Random random = new Random(k);
+            Vertex[] polygon = randomPolygon(k, random);
+            String name = k + "-gon";
+            failures += TestUtility.check(Quadrilateral.isConvexClockwise(polygon), name + " is not convex and clockwise");
+            Quadrilateral quad = new Quadrilateral(polygon);
+            failures += TestUtility.check(quad.getHomothetSolver() instanceof PolygonSolver, name + " is not solved by PolygonSolver");
+            failures += checkSupportTable(new SupportTable(polygon, quad.getCenter()), polygon, quad.getCenter(), random, name);
+            failures += HomothetSolverTest.checkSolver(quad, name, k);
+        }
+        System.out.println(failures == 0 ? "All k-gon tests passed" : failures + " k-gon checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Vertices on a rotated ellipse at jittered angles, so the polygon is
+     * convex but not centrally symmetric
+     *
+     * @param k Number of vertices
+     * @param random Source of randomness
+     * @return Vertices of a convex polygon in clockwise order
+     */
+    private static Vertex[] randomPolygon(int k, Random random) {
+        Vertex[] polygon = new Vertex[k];
+        double rotation = random.nextDouble() * Math.PI;
+        for (int i = 0; i < k; i ++) {
+            double angle = -2 * Math.PI * (i + 0.1 + 0.8 * random.nextDouble()) / k;
+            double x = 40 * Math.cos(angle), y = 25 * Math.sin(angle);
+            polygon[i] = new Vertex(50 + x * Math.cos(rotation) - y * Math.sin(rotation), 50 + x * Math.sin(rotation) + y * Math.cos(rotation));
+        }
+        return polygon;
+    }
+
+    /**
+     *
+     * @param table Support table of the polygon
+     * @param polygon Vertices of a convex polygon in clockwise order
+     * @param center Center of the polygon
+     * @param random Source of randomness
+     * @param name Name of the polygon in failure messages
+     * @return Number of failed checks
+     */
+    private static int checkSupportTable(SupportTable table, Vertex[] polygon, Vertex center, Random random, String name) {
+        int failures = 0;
+        int k = polygon.length;
+        for (int t = 0; t < 2000; t ++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double dx = Math.cos(angle), dy = Math.sin(angle);
+
+            double best = Double.NEGATIVE_INFINITY;
+            for (Vertex v : polygon) {
+                best = Math.max(best, v.x * dx + v.y * dy);
+            }
+            Vertex extreme = polygon[table.extremeVertex(dx, dy)];
+            failures += TestUtility.check(extreme.x * dx + extreme.y * dy >= best - 1e-9,
+                    name + ": vertex " + extreme + " is not furthest in direction (" + dx + ", " + dy + ")");
+
+            // Each clockwise edge has its outward normal on its left, and the gauge is the largest n . d / h
+            double gauge = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < k; i ++) {
+                Vertex a = polygon[i], b = polygon[(i + 1) % k];
+                double nx = a.y - b.y, ny = b.x - a.x;
+                gauge = Math.max(gauge, (nx * dx + ny * dy) / (nx * (a.x - center.x) + ny * (a.y - center.y)));
+            }
+            failures += TestUtility.check(TestUtility.close(table.gauge(dx, dy), gauge),
+                    name + ": gauge " + table.gauge(dx, dy) + " instead of " + gauge + " in direction (" + dx + ", " + dy + ")");
+        }
+        return failures;
+    }
+}
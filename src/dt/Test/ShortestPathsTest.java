@@ -0,0 +1,69 @@
+package dt.Test;
+
+import dt.Graph;
+import dt.ShortestPaths;
+import dt.Utility;
+import dt.Vertex;
+import java.util.Random;
+
+/**
+ * Test cases for ShortestPaths against Floyd-Warshall, with room for only a
+ * few cached rows so that rows are evicted and computed again
+ *
+ * @author Lee Glendenning
+ */
+public class ShortestPathsTest {
+
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Utility.debugMode = false;
+        int failures = 0;
+        for (long seed = 1; seed <= 4; seed ++) {
+            Graph graph = TestUtility.triangulate(150, seed);
+            int n = graph.getVertexIdBound();
+            ShortestPaths paths = new ShortestPaths(graph, 3 * 12L * n);
+            double[][] expected = TestUtility.allPairs(graph);
+            Random random = new Random(seed);
+
+            // Rows are read in random order so that most of them were evicted before
+            for (int k = 0; k < 4 * n; k ++) {
+                int u = random.nextInt(n), v = random.nextInt(n);
+                failures += TestUtility.check(TestUtility.close(paths.getDistance(u, v), expected[u][v]),
+                        "seed " + seed + " distance " + u + " " + v);
+                int w = paths.getNextHop(u, v);
+                if (u == v) {
+                    failures += TestUtility.check(w == -1, "seed " + seed + " next hop of " + u + " to itself");
+                    continue;
+                }
+                Vertex a = graph.getVertexById(u), b = graph.getVertexById(w);
+                failures += TestUtility.check(w >= 0 && graph.containsEdge(a, b)
+                        && TestUtility.close(expected[u][v], Utility.euclideanDistance(a, b) + expected[w][v]),
+                        "seed " + seed + " next hop " + u + " " + v);
+            }
+
+            for (int k = 0; k < n; k ++) {
+                int source = random.nextInt(n);
+                int[] targets = {random.nextInt(n), random.nextInt(n), random.nextInt(n)};
+                double[] dist = paths.getDistances(source, targets);
+                for (int t = 0; t < targets.length; t ++) {
+                    failures += TestUtility.check(TestUtility.close(dist[t], expected[source][targets[t]]),
+                            "seed " + seed + " targeted distance " + source + " " + targets[t]);
+                }
+            }
+
+            int[] pair = paths.getStretchFactorPair();
+            double stretch = paths.getDistance(pair[0], pair[1])
+                    / Utility.euclideanDistance(graph.getVertexById(pair[0]), graph.getVertexById(pair[1]));
+            double want = TestUtility.stretchFactor(graph, expected);
+            failures += TestUtility.check(TestUtility.close(stretch, want),
+                    "seed " + seed + " stretch factor " + stretch + " instead of " + want);
+            System.out.println("seed " + seed + ": stretch factor " + stretch);
+        }
+        System.out.println(failures == 0 ? "All ShortestPaths tests passed" : failures + " ShortestPaths checks failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dt.Test;
+
+import dt.Edge;
+import dt.Graph;
+import dt.Utility;
+import dt.Vertex;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Brute force references shared by the tests of the dt package
+ *
+ * @author Lee Glendenning
+ */
+class TestUtility {
+
+    /**
+     *
+     * @param n Number of random sites
+     * @param seed Seed of the sites
+     * @return Graph triangulating n random sites in a 1000 x 1000 square, with every edge live
+     */
+    static Graph triangulate(int n, long seed) {
+        Random random = new Random(seed);
+        Graph graph = new Graph();
+        while (graph.getVertexCount() < n) {
+            insert(graph, new Vertex(random.nextDouble() * 1000, random.nextDouble() * 1000));
+        }
+        return graph;
+    }
+
+    /**
+     *
+     * @param graph A Graph
+     * @param v Vertex to insert into the triangulation of graph
+     * @return True if v was inserted, false if it is already a vertex or on an edge that cannot be split
+     */
+    static boolean insert(Graph graph, Vertex v) {
+        if (graph.containsVertex(v)) {
+            return false;
+        }
+        Vertex[] container = graph.locateTriangle(v);
+        if (container == null) {
+            return false;
+        }
+        graph.insertVertex(v, container, -1);
+        return true;
+    }
+
+    /**
+     * Floyd-Warshall over the live edges, which the cached rows replaced
+     *
+     * @param graph A Graph
+     * @return Shortest path lengths by vertex id, Double.MAX_VALUE where there is no path or no vertex
+     */
+    static double[][] allPairs(Graph graph) {
+        int n = graph.getVertexIdBound();
+        double[][] dist = new double[n][n];
+        for (int i = 0; i < n; i ++) {
+            Arrays.fill(dist[i], Double.MAX_VALUE);
+            if (graph.getVertexById(i) != null) {
+                dist[i][i] = 0;
+            }
+        }
+        for (Edge e : graph.getEdges()) {
+            Vertex a = e.getFirstVertex(), b = e.getSecondVertex();
+            if (graph.isInfiniteVertex(a) || graph.isInfiniteVertex(b)) {
+                continue;
+            }
+            int i = graph.getVertexId(a), j = graph.getVertexId(b);
+            dist[i][j] = dist[j][i] = Math.min(dist[i][j], Utility.euclideanDistance(a, b));
+        }
+        for (int k = 0; k < n; k ++) {
+            for (int i = 0; i < n; i ++) {
+                if (dist[i][k] == Double.MAX_VALUE) {
+                    continue;
+                }
+                for (int j = 0; j < n; j ++) {
+                    if (dist[k][j] != Double.MAX_VALUE && dist[i][k] + dist[k][j] < dist[i][j]) {
+                        dist[i][j] = dist[i][k] + dist[k][j];
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     *
+     * @param graph A Graph
+     * @param dist Shortest path lengths from allPairs
+     * @return Largest ratio of path length to Euclidean distance over the connected pairs, or -1 if no pair is connected
+     */
+    static double stretchFactor(Graph graph, double[][] dist) {
+        double best = -1;
+        for (int i = 0; i < dist.length; i ++) {
+            for (int j = i + 1; j < dist.length; j ++) {
+                if (dist[i][j] != Double.MAX_VALUE) {
+                    best = Math.max(best, dist[i][j] / Utility.euclideanDistance(graph.getVertexById(i), graph.getVertexById(j)));
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     *
+     * @param a A value
+     * @param b A value
+     * @return True if a and b are equal up to rounding, or both Double.MAX_VALUE
+     */
+    static boolean close(double a, double b) {
+        return a == b || Math.abs(a - b) <= 1e-9 * Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+    }
+
+    /**
+     *
+     * @param ok Result of a check
+     * @param message What was checked
+     * @return 0 if ok, otherwise 1 after printing the message
+     */
+    static int check(boolean ok, String message) {
+        if (ok) {
+            return 0;
+        }
+        System.out.println("FAILED: " + message);
+        return 1;
+    }
+}
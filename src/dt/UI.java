@@ -44,8 +44,8 @@ public class UI implements ActionListener{
     private JMenuBar menuBar;
     private JMenu fileMenu, editMenu, viewMenu, bisectorMenu, dtMenu;
     private JMenuItem clearScreenMenuItem, loadVertexMenuItem, saveVertexMenuItem, loadQuadMenuItem, saveQuadMenuItem;
-    private JMenuItem newQuadMenuItem, shortestPathMenuItem;
-    private JCheckBoxMenuItem highlightPathMenuItem, showBoundaryTriangleMenuItem;
+    private JMenuItem newQuadMenuItem, shortestPathMenuItem, stretchFactorMenuItem;
+    private JCheckBoxMenuItem highlightPathMenuItem, integerGridMenuItem;
     private JCheckBoxMenuItem showCoordsMenuItem;
     private JCheckBoxMenuItem showB2SMenuItem, showOnlyChosenB2SMenuItem, showB3SMenuItem, showOnlyChosenB3SMenuItem/*, showB3SFGMenuItem*/; // sub-menu items for showVD
     
@@ -144,9 +144,6 @@ public class UI implements ActionListener{
             case "Show Vertex Coordinates":
                 this.delaunayTriangulation.setShowCoordinates(showCoordsMenuItem.getState());
                 break;
-            case "Show Boundary Triangle":
-                this.delaunayTriangulation.setShowBoundaryTriangle(showBoundaryTriangleMenuItem.getState());
-                break;
                 
             // Voronoi Diagram menu
             case "Show Bisectors 2 Sites":
@@ -166,9 +163,15 @@ public class UI implements ActionListener{
             case "Find Shortest Path":
                 getShortestPath();
                 break;
+            case "Compute Stretch Factor":
+                this.delaunayTriangulation.computeStretchFactor();
+                break;
             case "Highlight Shortest Path":
                 this.delaunayTriangulation.setHighlightShortestPath(this.highlightPathMenuItem.getState());
                 break;
+            case "Exact Integer Grid":
+                this.delaunayTriangulation.setIntegerGrid(this.integerGridMenuItem.getState());
+                break;
         }
     }
     
@@ -182,9 +185,9 @@ public class UI implements ActionListener{
         int maxY = screenSize.height-130;
         int min = 100;
         
-        // If a random vertex is on a line it will not be added so a for loop
-        // is not good enough. -3 to account for boundary triangle vertices
-        while (this.delaunayTriangulation.getVertices().size()-3 < numPoints) {
+        // If a random vertex already exists it will not be added so a for loop
+        // is not good enough
+        while (this.delaunayTriangulation.getVertexCount() < numPoints) {
             addVertex(randomInt(min, maxX), randomInt(min, maxY));
         }
         
@@ -309,25 +312,37 @@ public class UI implements ActionListener{
     }
     
     /**
-     * Load new Quadrilateral and reconstruct Voronoi Diagram
+     * Load new Quadrilateral and reconstruct Voronoi Diagram. The file may also
+     * hold a convex polygon of more than 4 vertices, one per line in clockwise order.
+     * Polygons that are not convex or not clockwise are rejected
      * @param file File containing new Quadrilateral vertices
      * @throws FileNotFoundException Thrown if file not found
      */
     private void loadQuadFile(File file) throws FileNotFoundException {
         try (Scanner input = new Scanner(file)) {
-            Vertex[] newQuad = new Vertex[4];
-            int i = 0;
-            while(i < 4) {
+            List<Vertex> newQuad = new ArrayList<>();
+            while(input.hasNextLine()) {
                 String nextLine = input.nextLine();
+                if (nextLine.trim().isEmpty()) {
+                    continue;
+                }
                 try {
-                    newQuad[i] = new Vertex(Double.parseDouble(nextLine.split(",")[0]), Double.parseDouble(nextLine.split(",")[1]));
+                    newQuad.add(new Vertex(Double.parseDouble(nextLine.split(",")[0]), Double.parseDouble(nextLine.split(",")[1])));
                 } catch(NumberFormatException e) {
                     Utility.debugPrintln("Vertex set file not correct format.");
                     return;
                 }
-                i ++;
             }
-            this.delaunayTriangulation.newQuad(newQuad);
+            if (newQuad.size() < 3) {
+                Utility.debugPrintln("Vertex set file must hold at least 3 vertices.");
+                return;
+            }
+            Vertex[] verts = newQuad.toArray(new Vertex[newQuad.size()]);
+            if (!Quadrilateral.isConvexClockwise(verts)) {
+                Utility.debugPrintln("Quad not loaded. Vertices must form a convex polygon in clockwise order.");
+                return;
+            }
+            this.delaunayTriangulation.newQuad(verts);
         }
     }
     
@@ -379,10 +394,15 @@ public class UI implements ActionListener{
                 !newQuadFieldx3.getText().isEmpty() && !newQuadFieldy3.getText().isEmpty() &&
                 !newQuadFieldx4.getText().isEmpty() && !newQuadFieldy4.getText().isEmpty()) {
             try {
-                this.delaunayTriangulation.newQuad(new Vertex[]{new Vertex(Double.parseDouble(newQuadFieldx1.getText()), Double.parseDouble(newQuadFieldy1.getText())),
+                Vertex[] verts = new Vertex[]{new Vertex(Double.parseDouble(newQuadFieldx1.getText()), Double.parseDouble(newQuadFieldy1.getText())),
                         new Vertex(Double.parseDouble(newQuadFieldx2.getText()), Double.parseDouble(newQuadFieldy2.getText())),
                         new Vertex(Double.parseDouble(newQuadFieldx3.getText()), Double.parseDouble(newQuadFieldy3.getText())),
-                        new Vertex(Double.parseDouble(newQuadFieldx4.getText()), Double.parseDouble(newQuadFieldy4.getText()))});
+                        new Vertex(Double.parseDouble(newQuadFieldx4.getText()), Double.parseDouble(newQuadFieldy4.getText()))};
+                if (!Quadrilateral.isConvexClockwise(verts)) {
+                    Utility.debugPrintln("Quad not changed. Vertices must form a convex quad in clockwise order.");
+                    return;
+                }
+                this.delaunayTriangulation.newQuad(verts);
             } catch (NumberFormatException e) {
                 Utility.debugPrintln("Invalid format for new quad vertex. X and Y coordinates must be numbers.");
             }
@@ -425,7 +445,7 @@ public class UI implements ActionListener{
         getPathPanel.add(v2Field);
 
         int getPathResult = JOptionPane.showConfirmDialog(null, getPathPanel, 
-                 "Enter vertex indices", JOptionPane.OK_CANCEL_OPTION);
+                 "Enter vertex ids", JOptionPane.OK_CANCEL_OPTION);
         if (getPathResult == JOptionPane.OK_OPTION) {
             try {
                 String s = "Path: ";
@@ -435,7 +455,7 @@ public class UI implements ActionListener{
                 s += "\nPath Length: " + this.delaunayTriangulation.getShortestPathLength(Integer.parseInt(v1Field.getText()), Integer.parseInt(v2Field.getText()));
                 JOptionPane.showMessageDialog(null, s, "Minimum path V" + v1Field.getText() + " and V" + v2Field.getText(), JOptionPane.PLAIN_MESSAGE);
             } catch (NumberFormatException e) {
-                Utility.debugPrintln("Invalid vertex index. Index must be an integer.");
+                Utility.debugPrintln("Invalid vertex id. Id must be an integer.");
             }
         }
     }
@@ -506,14 +526,10 @@ public class UI implements ActionListener{
         
         showCoordsMenuItem = new JCheckBoxMenuItem("Show Vertex Coordinates");
         showCoordsMenuItem.setState(true);
-        showBoundaryTriangleMenuItem = new JCheckBoxMenuItem("Show Boundary Triangle");
-        showBoundaryTriangleMenuItem.setState(true);
         
         showCoordsMenuItem.addActionListener(this);
-        showBoundaryTriangleMenuItem.addActionListener(this);
         
         viewMenu.add(showCoordsMenuItem);
-        viewMenu.add(showBoundaryTriangleMenuItem);
         
         menuBar.add(viewMenu);
     }
@@ -552,14 +568,21 @@ public class UI implements ActionListener{
         dtMenu = new JMenu("Delaunay Triangulation");
         
         shortestPathMenuItem = new JMenuItem("Find Shortest Path");
+        stretchFactorMenuItem = new JMenuItem("Compute Stretch Factor");
         highlightPathMenuItem = new JCheckBoxMenuItem("Highlight Shortest Path");
         highlightPathMenuItem.setState(this.delaunayTriangulation.getHighlightShortestPath());
+        integerGridMenuItem = new JCheckBoxMenuItem("Exact Integer Grid");
+        integerGridMenuItem.setState(this.delaunayTriangulation.getIntegerGrid());
                 
         shortestPathMenuItem.addActionListener(this);
+        stretchFactorMenuItem.addActionListener(this);
         highlightPathMenuItem.addActionListener(this);
+        integerGridMenuItem.addActionListener(this);
         
         dtMenu.add(shortestPathMenuItem);
+        dtMenu.add(stretchFactorMenuItem);
         dtMenu.add(highlightPathMenuItem);
+        dtMenu.add(integerGridMenuItem);
         
         menuBar.add(dtMenu);
     }
@@ -1,8 +1,6 @@
 package dt;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 
 /**
  *
@@ -19,10 +17,38 @@ public class Utility {
      * @param a A Vertex
      * @param b A Vertex
      * @param c A Vertex
-     * @return True if a, b, c are collinear. False otherwise
+     * @return True if a, b, c are exactly collinear. False otherwise
      */
     public static boolean isCollinear(Vertex a, Vertex b, Vertex c) {
-        return (b.x - a.x)*(c.y - a.y) - (b.y - a.y)*(c.x - a.x) == 0;
+        return RobustPredicates.orient2d(a, b, c) == 0;
+    }
+    
+    /**
+     * 
+     * @param a A Vertex
+     * @param b A Vertex
+     * @param c A Vertex
+     * @return Twice the signed area of triangle abc, with the exact sign. Positive if a, b, c are in counter clockwise order, negative if clockwise
+     */
+    public static double orientation(Vertex a, Vertex b, Vertex c) {
+        return RobustPredicates.orient2d(a, b, c);
+    }
+    
+    /**
+     * 
+     * @param a A Vertex
+     * @param b A Vertex
+     * @param c A Vertex
+     * @param d Query Vertex
+     * @return Positive if d is inside the circle through a, b, c (given in counter clockwise order), negative if outside, 0 if on it
+     */
+    public static double inCircle(Vertex a, Vertex b, Vertex c, Vertex d) {
+        double adx = a.x - d.x, ady = a.y - d.y;
+        double bdx = b.x - d.x, bdy = b.y - d.y;
+        double cdx = c.x - d.x, cdy = c.y - d.y;
+        return (adx*adx + ady*ady) * (bdx*cdy - cdx*bdy)
+                + (bdx*bdx + bdy*bdy) * (cdx*ady - adx*cdy)
+                + (cdx*cdx + cdy*cdy) * (adx*bdy - bdx*ady);
     }
     
     /**
@@ -31,39 +57,25 @@ public class Utility {
      * @param v2 Endpoint of first line segment
      * @param p3 Endpoint of second line segment
      * @param p4 Endpoint of second line segment
-     * @param floatTolerance Double tolerance for comparing two floating point numbers
-     * @return True if v1v2 is parallel (has same slope within 10 decimal places) to p3p4
+     * @param floatTolerance Largest sine of the angle between the segments still taken as parallel
+     * @return True if v1v2 is parallel to p3p4
      */
     public static boolean isParallel(Vertex v1, Vertex v2, Vertex p3, Vertex p4, double floatTolerance) {
-        return Math.abs(calculateAngle(v1, v2) - calculateAngle(p3, p4)) < floatTolerance;
+        return GeometryKernel.isParallel(v2.x - v1.x, v2.y - v1.y, p4.x - p3.x, p4.y - p3.y, floatTolerance);
     }
     
     /**
-     * Rotate a point around a pivot point by an angle
+     * Stand in for the end of a ray where a finite segment is needed, e.g.
+     * for drawing
      * 
-     * @param pivot Pivot Vertex
-     * @param angle Rotation angle
-     * @param p Vertex to rotate
-     * @return New location of rotated point
+     * @param origin Origin of the ray
+     * @param dx X of the direction of the ray, any length
+     * @param dy Y of the direction of the ray, any length
+     * @return Vertex RAY_SIZE along the ray from origin
      */
-    public static Vertex rotateVertex(Vertex p, Vertex pivot, double angle) {
-        Vertex r = new Vertex(p.x, p.y);
-        double s = Math.sin(angle);
-        double c = Math.cos(angle);
-
-        // Translate point to origin (pivot point)
-        r.x -= pivot.x;
-        r.y -= pivot.y;
-
-        // Rotate point
-        double xnew = r.x * c - r.y * s;
-        double ynew = r.x * s + r.y * c;
-
-        // Translate point back
-        r.x = xnew + pivot.x;
-        r.y = ynew + pivot.y;
-        
-        return r;
+    public static Vertex farPointOnRay(Vertex origin, double dx, double dy) {
+        double length = Math.sqrt(dx*dx + dy*dy);
+        return new Vertex(origin.x + RAY_SIZE * dx / length, origin.y + RAY_SIZE * dy / length);
     }
     
     /**
@@ -88,22 +100,6 @@ public class Utility {
         return new Vertex((v1.x + v2.x)/2, (v1.y + v2.y)/2);
     }
     
-    /**
-     * 
-     * @param v1 A Vertex
-     * @param v2 A Vertex
-     * @return Angle v1,v2 makes with the x axis
-     */
-    public static double calculateAngle(Vertex v1, Vertex v2) {
-        double angle; // Angle that slope(v1v2) makes with x axis
-        if (v1.x == v2.x) {
-            angle = Math.toRadians(-90);
-        } else {
-            angle = Math.atan((v1.y - v2.y) / (v2.x - v1.x));
-        }
-        return angle;
-    }
-    
     /**
      * NOTE: Vertex a should have less or equal x value to point b for sign to be correct
      *       
@@ -115,24 +111,8 @@ public class Utility {
      * @return +1 if point is left of line (ccw order), 0 if point is on line (collinear), -1 otherwise (cw order)
      */
     public static int isLeftOfSegment(Vertex a, Vertex b, Vertex c, double tolerance){
-        Vertex left = new Vertex(), right = new Vertex();
-        Utility.setLeftAndRightVertex(a, b, left, right, calculateAngle(a, b));
-        double cross = (b.x - a.x)*(c.y - a.y) - (b.y - a.y)*(c.x - a.x);
-        
-        Vertex ra = rotateVertex(left, midpoint(left, right), calculateAngle(left, right));
-        Vertex rb = rotateVertex(right, midpoint(left, right), calculateAngle(left, right));
-        Vertex rc = rotateVertex(c, midpoint(left, right), calculateAngle(left, right));
-        
-        // Test if point c is on segment ab
-        if (((Math.abs(ra.y - rc.y) < tolerance && Math.abs(rb.y - rc.y) < tolerance) || cross == 0) &&
-                (rc.x > Math.min(ra.x, rb.x) && rc.x < Math.max(ra.x, rb.x) || Math.abs(rc.x - Math.max(ra.x, rb.x)) < tolerance || Math.abs(rc.x - Math.min(ra.x, rb.x)) < tolerance)) {
-            return 0;
-        } else if (cross > 1) {
-            return 1;
-        } else {
-            return -1;
-        }
-   }
+        return GeometryKernel.isLeftOfSegment(a.x, a.y, b.x, b.y, c.x, c.y, tolerance);
+    }
     
     /**
      * 
@@ -164,7 +144,7 @@ public class Utility {
      * @return Euclidean distance between v1 and v2
      */
     public static double euclideanDistance(Vertex v1, Vertex v2) {
-        return Math.sqrt(Math.pow(v1.x - v2.x, 2) + Math.pow(v1.y - v2.y, 2));
+        return GeometryKernel.distance(v1.x, v1.y, v2.x, v2.y);
     }
     
     /**
@@ -175,7 +155,7 @@ public class Utility {
      * @return Cross product of the two points
      */
     public static double crossProduct(Vertex v1, Vertex v2) {
-        return (v1.x * v2.y) - (v1.y * v2.x);
+        return GeometryKernel.cross(v1.x, v1.y, v2.x, v2.y);
     }
     
     /**
@@ -235,98 +215,33 @@ public class Utility {
      * @return Intersection point if the line segments intersect, null otherwise
      */
     public static Vertex doLineSegmentsIntersect(Vertex v1, Vertex v2, Vertex q1, Vertex q2) {
-        Vertex r = Utility.subtractVertexs(v2, v1);
-        Vertex s = Utility.subtractVertexs(q2, q1);
-
-        double numerator = Utility.crossProduct(Utility.subtractVertexs(q1, v1), r);
-        double denominator = Utility.crossProduct(r, s);
-        
-        // Lines are collinear
-        double tolerance = 0.01;
-        if (Math.abs(numerator) < tolerance && Math.abs(denominator) < tolerance) {
-            // If line segments share an endpoint, line segments intersect
-            if (Utility.equalVertexs(v1, q1, tolerance) || Utility.equalVertexs(v1, q2, tolerance) || Utility.equalVertexs(v2, q1, tolerance) || Utility.equalVertexs(v2, q2, tolerance)) {
-                Vertex intersection;
-                if (Utility.equalVertexs(v1, q1, tolerance) || Utility.equalVertexs(v1, q2, tolerance)) {
-                    intersection = v1;
-                } else {
-                    intersection = v2;
-                }
-                return intersection;
-            }
-
-            // Line segments overlap if all point differences in either direction do not have the same sign
-            if (!allEqual(new boolean[]{(q1.x - v1.x < 0), (q1.x - v2.x < 0),
-                (q2.x - v1.x < 0), (q2.x - v2.x < 0)}) || !allEqual(new boolean[]{(q1.y - v1.y < 0),
-                (q1.y - v2.y < 0), (q2.y - v1.y < 0), (q2.y - v2.y < 0)})) 
-            {
-                // Need to return multiple points or a line segment?
+        double[] intersection = new double[2];
+        switch (GeometryKernel.segmentIntersection(v1.x, v1.y, v2.x, v2.y, q1.x, q1.y, q2.x, q2.y, intersection)) {
+            case GeometryKernel.AT_FIRST_START:
+                return v1;
+            case GeometryKernel.AT_FIRST_END:
+                return v2;
+            case GeometryKernel.CROSSING:
+                return new Vertex(intersection[0], intersection[1]);
+            default:
                 return null;
-            } else {
-                return null;
-            }
-        }
-
-        // Lines are parallel and do not intersect
-        if (Math.abs(denominator) < tolerance) {
-            return null;
         }
-
-        double u = numerator / denominator;
-        double t = Utility.crossProduct(Utility.subtractVertexs(q1, v1), s) / denominator;
-        
-        // Lines are not parallel but intersect
-        if ((t >= 0) && (t <= 1) && (u >= 0) && (u <= 1)) {
-            Vertex intersection;
-            r.x *= t;
-            r.y *= t;
-            intersection = Utility.addVertexs(v1, r);
-            return intersection;
-        }
-
-        return null;
     }
     
     /**
-     * Determine whether an array of boolean values all have the same value
-     *
-     * @param arguments Array of boolean values
-     * @return True if all array elements are the same, false otherwise
-     */
-    private static boolean allEqual(boolean[] arguments) {
-        boolean firstValue = arguments[0];
-
-        for (int i = 1; i < arguments.length; i++) {
-            if (arguments[i] != firstValue) {
-                return false;
-            }
-        }
-        return true;
-    }
-    
-    /**
-     * Determine which point is left and right based on normal
+     * Determine which point is left and right once v1v2 is turned to be
+     * parallel to the x axis, which keeps the order of the x values, or of
+     * the y values if v1v2 is vertical
      * 
      * @param v1 First point to consider
      * @param v2 Second  point to consider
-     * @param left Vertex object to assign as left point
-     * @param right Vertex object to assign as right point
+     * @return {left, right}, which are v1 and v2 themselves
      */
-    public static void setLeftAndRightVertex(Vertex v1, Vertex v2, Vertex left, Vertex right, double angle) {
-        Vertex r1 = Utility.rotateVertex(v1, Utility.midpoint(v1, v2), angle);
-        Vertex r2 = Utility.rotateVertex(v2, Utility.midpoint(v1, v2), angle);
-        
-        if (Math.min(r1.x, r2.x) == r1.x) {
-            left.x = v1.x;
-            left.y = v1.y;
-            right.x = v2.x;
-            right.y = v2.y;
-        } else {
-            left.x = v2.x;
-            left.y = v2.y;
-            right.x = v1.x;
-            right.y = v1.y;
+    public static Vertex[] leftAndRightVertex(Vertex v1, Vertex v2) {
+        if (v1.x < v2.x || (v1.x == v2.x && v1.y <= v2.y)) {
+            return new Vertex[]{v1, v2};
         }
+        return new Vertex[]{v2, v1};
     }
     
     /**
@@ -335,64 +250,36 @@ public class Utility {
      * @param q A quadrilateral to iterate over
      * @param a1 Vertex used as reference for rotation
      * @param a2 Vertex used as reference for rotation
-     * @param angle Angle to rotate quad by such that a1a2 is parallel to x axis
      * @return Array of nonInner vertices
      */
-    public static ArrayList<Vertex> findNonInnerVertices(Quadrilateral q, Vertex a1, Vertex a2, double angle) {
+    public static ArrayList<Vertex> findNonInnerVertices(Quadrilateral q, Vertex a1, Vertex a2) {
         ArrayList<Vertex> nonInnerVerts = new ArrayList();
-        Vertex[] rVerts = new Vertex[4];
-        // Rotate all quad vertices
-        for (int i = 0; i < q.getVertices().length; i ++) {
-            rVerts[i] = Utility.rotateVertex(q.getVertices()[i], Utility.midpoint(a1, a2), angle);
-        }
-        
-        // Sort rotated quad vertices by ascending y value (more or less sweep line)
-        Arrays.sort(rVerts, new Comparator<Vertex>() {
-            @Override
-            public int compare(Vertex v1, Vertex v2) {
-                if (v1.y > v2.y) {
-                    return +1;
-                } else if (v1.y < v2.y) {
-                     return -1;
-                } else {
-                    return 0;
-                }
-            }
-        });
+        QuadProfile profile = q.getProfile();
+        // Quad vertex indices by ascending y after rotating a1a2 parallel to x axis
+        int[] order = profile.getSortedOrder(a1, a2);
+        double[] direction = QuadProfile.getDirection(a1, a2);
+        Vertex v0 = profile.getVertex(order[0]), v1 = profile.getVertex(order[1]),
+                v2 = profile.getVertex(order[2]), v3 = profile.getVertex(order[3]);
         
         double tolerance = 0.00001;
         // Check for SL hitting an edge
-        if (Math.abs(rVerts[0].y - rVerts[1].y) < tolerance /*&& rVerts[0].x < rVerts[1].x*/) {
-            nonInnerVerts.add(Utility.rotateVertex(rVerts[0], Utility.midpoint(a1, a2), -angle));
-            nonInnerVerts.add(Utility.rotateVertex(rVerts[1], Utility.midpoint(a1, a2), -angle));
+        if (Math.abs(QuadProfile.rotatedYGap(v0, v1, direction)) < tolerance) {
+            nonInnerVerts.add(v0);
+            nonInnerVerts.add(v1);
         } else {
-            nonInnerVerts.add(Utility.rotateVertex(rVerts[0], Utility.midpoint(a1, a2), -angle));
+            nonInnerVerts.add(v0);
         }
         
-        if (Math.abs(rVerts[2].y - rVerts[3].y) < tolerance /*&& rVerts[2].x > rVerts[3].x*/) {
-            nonInnerVerts.add(Utility.rotateVertex(rVerts[2], Utility.midpoint(a1, a2), -angle));
-            nonInnerVerts.add(Utility.rotateVertex(rVerts[3], Utility.midpoint(a1, a2), -angle));
+        if (Math.abs(QuadProfile.rotatedYGap(v2, v3, direction)) < tolerance) {
+            nonInnerVerts.add(v2);
+            nonInnerVerts.add(v3);
         } else {
-            nonInnerVerts.add(Utility.rotateVertex(rVerts[3], Utility.midpoint(a1, a2), -angle));
+            nonInnerVerts.add(v3);
         }
         
         return nonInnerVerts;
     }
     
-    /**
-     * Create deep copy of a point array
-     * 
-     * @param ptArr Vertex array to clone
-     * @return Deep copy of ptSet
-     */
-    public static Vertex[] deepCopyVertexArray(Vertex[] ptArr) {
-        Vertex[] newSet = new Vertex[ptArr.length];
-        for (int i = 0; i < ptArr.length; i ++) {
-            newSet[i] = ptArr[i].deepCopy();
-        }
-        return newSet;
-    }
-    
     /**
      * 
      * @param vbArr Array of VoronoiBisector objects
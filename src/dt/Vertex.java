@@ -1,21 +1,18 @@
 package dt;
 
 import java.awt.Color;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 /**
- * Vertex data structure used by Graph and Quadrilateral classes
+ * Immutable point used by Graph and Quadrilateral classes. A vertex is a
+ * plain (x, y) value: its id and adjacency are kept by each Graph holding
+ * it, so the same point can be in several graphs at once
  * 
  * @author Lee Glendenning
  * Adapted from Michael Levet, June 09, 2015
  */
 public class Vertex {
 
-    private final List<Edge> neighborhood;
-    public double x, y;
-    private final Color colour;
+    public final double x, y;
     
     /**
      * 
@@ -25,8 +22,6 @@ public class Vertex {
     public Vertex(double x, double y){
         this.x = x;
         this.y = y;
-        this.colour = Color.black;
-        this.neighborhood = Collections.synchronizedList(new ArrayList());
     }
     
     /**
@@ -35,8 +30,6 @@ public class Vertex {
     public Vertex() {
         this.x = 0;
         this.y = 0;
-        this.colour = Color.black;
-        this.neighborhood = new ArrayList();
     }
     
     /**
@@ -44,57 +37,10 @@ public class Vertex {
      * @return Colour vertex should be drawn using
      */
     public Color getColour() {
-        return this.colour;
+        return Color.black;
     }
     
     
-    /**
-     * This method adds an Edge to the incidence neighborhood of this graph iff
-     * the edge does not exist
-     * 
-     * @param edge The edge to add
-     */
-    public void addNeighbor(Edge edge){
-        if(this.neighborhood.contains(edge)){
-            return;
-        }
-        this.neighborhood.add(edge);
-    }
-    
-    /**
-     * 
-     * @param other The edge for which to search
-     * @return True iff other is contained in this.neighborhood
-     */
-    public boolean containsNeighbor(Edge other){
-        return this.neighborhood.contains(other);
-    }
-    
-    /**
-     * 
-     * @param index The index of the Edge to retrieve
-     * @return Edge The Edge at the specified index in this.neighborhood
-     */
-    public Edge getNeighbor(int index){
-        return this.neighborhood.get(index);
-    }
-    
-    /**
-     * 
-     * @param e The Edge to remove from this.neighborhood
-     */
-    public void removeNeighbor(Edge e){
-        this.neighborhood.remove(e);
-    }
-    
-    /**
-     * 
-     * @return The number of neighbors of this Vertex
-     */
-    public int getNeighborCount(){
-        return this.neighborhood.size();
-    }
-    
     /**
      * 
      * @return A String representation of this Vertex
@@ -107,12 +53,13 @@ public class Vertex {
     /**
      * 
      * @param other The object to compare
-     * @return True iff other instanceof Vertex and the two Vertex objects have the same x and y values within the tolerance
+     * @return True iff other instanceof Vertex and the two Vertex objects have exactly the same x and y values, 
+     *         as hashCode assumes. Use Utility.equalVertexs to compare with a tolerance
      */
     @Override
     public boolean equals(Object other){
-        double tolerance = 0.01;
-        return other.getClass() == this.getClass() && Math.abs(this.x - ((Vertex) other).x) < tolerance && Math.abs(this.y - ((Vertex) other).y) < tolerance;
+        return other != null && other.getClass() == this.getClass() && 
+                Double.compare(this.x, ((Vertex) other).x) == 0 && Double.compare(this.y, ((Vertex) other).y) == 0;
     }
 
     @Override
@@ -125,22 +72,10 @@ public class Vertex {
     
     /**
      * 
-     * @return Deep copy of this Vertex
+     * @return Copy of this Vertex
      */
     public Vertex deepCopy() {
         return new Vertex(this.x, this.y);
     }
     
-    /**
-     * 
-     * @return ArrayList of neighbouring Vertex objects
-     */
-    public ArrayList<Vertex> getNeighbours() {
-        ArrayList<Vertex> neighbours = new ArrayList();
-        for (Edge e : this.neighborhood) {
-            neighbours.add(e.getNeighbor(this));
-        }
-        return neighbours;
-    }
-    
 }
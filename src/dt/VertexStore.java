@@ -0,0 +1,258 @@
+package dt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar storage for the vertices of a Graph. Every vertex gets an int id
+ * and its coordinates, outgoing half-edge and grid bucket link are kept in
+ * parallel arrays indexed by that id, so a vertex costs two doubles and two
+ * ints and no object. The coordinate columns are the only copy the Graph
+ * keeps: Vertex objects are not retained, and get builds a new Vertex view
+ * of an id on request, which is equal to the vertex that was added. The id of a vertex
+ * never changes while it is in the store, and the ids of removed vertices
+ * are handed out again, so ids stay dense and arrays indexed by them only
+ * grow with the number of vertices held at once
+ *
+ * @author Lee Glendenning
+ */
+public class VertexStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] xs; // X coordinate of each id, NaN if the id is free
+    private double[] ys; // Y coordinate of each id
+    private int[] outgoing; // Any outgoing half-edge id of the Graph mesh, live or removed, or -1 if the vertex has no edges
+    private int[] nextInCell; // Id of the next vertex in the same grid cell of the Graph, or -1
+    private int[] freeIds; // Stack of ids below size that may be free, checked against xs when popped
+    private int freeCount;
+    private int size; // Number of ids handed out
+    private int count; // Number of vertices not removed
+
+    /**
+     * Empty constructor creates a store with room for 16 vertices before growing
+     */
+    public VertexStore() {
+        this.xs = new double[INITIAL_CAPACITY];
+        this.ys = new double[INITIAL_CAPACITY];
+        this.outgoing = new int[INITIAL_CAPACITY];
+        this.nextInCell = new int[INITIAL_CAPACITY];
+        this.freeIds = new int[INITIAL_CAPACITY];
+        this.freeCount = 0;
+        this.size = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Copy the coordinates of v into a free id
+     *
+     * @param v Vertex to add, whose coordinates are not NaN
+     * @return Id of v, the most recently freed id or else the next new one
+     */
+    public synchronized int add(Vertex v) {
+        while (this.freeCount > 0) {
+            int id = this.freeIds[-- this.freeCount];
+            if (isFree(id)) {
+                return put(v, id);
+            }
+        }
+        if (this.size == this.xs.length) {
+            grow();
+        }
+        return put(v, this.size ++);
+    }
+
+    /**
+     * Used to keep the ids of vertices moved from another store, e.g. when a
+     * Graph is rebuilt. Ids skipped over are free for later vertices
+     *
+     * @param v Vertex to add
+     * @param id Id to give v if it is free
+     * @return Id of v, which is the given id unless that was taken
+     */
+    public synchronized int add(Vertex v, int id) {
+        if (id < 0 || (id < this.size && !isFree(id))) {
+            return add(v);
+        }
+        while (this.size <= id) {
+            if (this.size == this.xs.length) {
+                grow();
+            }
+            if (this.size < id) {
+                this.xs[this.size] = Double.NaN;
+                pushFreeId(this.size);
+            }
+            this.size ++;
+        }
+        return put(v, id);
+    }
+
+    /**
+     *
+     * @param v Vertex to add
+     * @param id A free id below size
+     * @return id
+     */
+    private int put(Vertex v, int id) {
+        if (Double.isNaN(v.x) || Double.isNaN(v.y)) {
+            throw new IllegalArgumentException("NaN coordinates mark free ids: " + v);
+        }
+        this.xs[id] = v.x;
+        this.ys[id] = v.y;
+        this.outgoing[id] = -1;
+        this.nextInCell[id] = -1;
+        this.count ++;
+        return id;
+    }
+    
+    /**
+     *
+     * @param id An id below size
+     * @return True if no vertex has the id
+     */
+    private boolean isFree(int id) {
+        return Double.isNaN(this.xs[id]);
+    }
+
+    /**
+     *
+     * @param id An id below size that is free
+     */
+    private void pushFreeId(int id) {
+        if (this.freeCount == this.freeIds.length) {
+            this.freeIds = Arrays.copyOf(this.freeIds, 2 * this.freeCount);
+        }
+        this.freeIds[this.freeCount ++] = id;
+    }
+
+    /**
+     * Empty the slot of a vertex and free its id
+     *
+     * @param id Id of a vertex in this store
+     */
+    public synchronized void remove(int id) {
+        if (isFree(id)) {
+            return;
+        }
+        this.xs[id] = Double.NaN;
+        this.ys[id] = Double.NaN;
+        this.outgoing[id] = -1;
+        this.nextInCell[id] = -1;
+        pushFreeId(id);
+        this.count --;
+    }
+
+    /**
+     * Grow every column by half
+     */
+    private void grow() {
+        int capacity = this.xs.length + (this.xs.length >> 1);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.outgoing = Arrays.copyOf(this.outgoing, capacity);
+        this.nextInCell = Arrays.copyOf(this.nextInCell, capacity);
+    }
+
+    /**
+     *
+     * @return Bound on the ids, one more than the largest id handed out
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     *
+     * @return Number of vertices in the store
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     *
+     * @param id Id of a vertex
+     * @return X coordinate of the vertex
+     */
+    public double getX(int id) {
+        return this.xs[id];
+    }
+
+    /**
+     *
+     * @param id Id of a vertex
+     * @return Y coordinate of the vertex
+     */
+    public double getY(int id) {
+        return this.ys[id];
+    }
+
+    /**
+     *
+     * @param id An id below size
+     * @return New view of the vertex with the id, or null if the id is free
+     */
+    public Vertex get(int id) {
+        return isFree(id) ? null : new Vertex(this.xs[id], this.ys[id]);
+    }
+    
+    /**
+     *
+     * @param id An id below size
+     * @return True if a vertex has the id, without building its view
+     */
+    public boolean contains(int id) {
+        return !isFree(id);
+    }
+
+    /**
+     *
+     * @param id Id of a vertex
+     * @return Id of an outgoing half-edge of the vertex, or -1 if it has no edges
+     */
+    int getHalfEdge(int id) {
+        return this.outgoing[id];
+    }
+
+    /**
+     *
+     * @param id Id of a vertex
+     * @param h Id of an outgoing half-edge of the vertex, or -1 if it has no edges
+     */
+    void setHalfEdge(int id, int h) {
+        this.outgoing[id] = h;
+    }
+
+    /**
+     *
+     * @param id Id of a vertex
+     * @return Id of the next vertex in the same grid cell, or -1 if it is the last
+     */
+    int getNextInCell(int id) {
+        return this.nextInCell[id];
+    }
+
+    /**
+     *
+     * @param id Id of a vertex
+     * @param next Id of the next vertex in the same grid cell, or -1 if it is the last
+     */
+    void setNextInCell(int id, int next) {
+        this.nextInCell[id] = next;
+    }
+
+    /**
+     *
+     * @return New views of the vertices in id order
+     */
+    public synchronized List<Vertex> getVertices() {
+        List<Vertex> vertices = new ArrayList(this.count);
+        for (int id = 0; id < this.size; id ++) {
+            if (!isFree(id)) {
+                vertices.add(new Vertex(this.xs[id], this.ys[id]));
+            }
+        }
+        return vertices;
+    }
+}